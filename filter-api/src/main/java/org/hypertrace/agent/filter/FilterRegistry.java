@@ -69,6 +69,17 @@ public class FilterRegistry {
     return filter;
   }
 
+  /**
+   * Whether at least one filter has been registered. Instrumentations use it to skip building the
+   * input of a filter evaluation (e.g. a header map) when there is nothing to evaluate it.
+   *
+   * @return false if no filter provider contributed a filter.
+   */
+  public static boolean hasFilters() {
+    Filter filter = getFilter();
+    return !(filter instanceof MultiFilter) || !((MultiFilter) filter).isEmpty();
+  }
+
   /**
    * Initializes the registry by loading the filters. This method should be called only once at
    * javaagent startup.
@@ -34,6 +34,10 @@ class MultiFilter implements Filter {
     this.filters = filters;
   }
 
+  boolean isEmpty() {
+    return filters.isEmpty();
+  }
+
   @Override
   public FilterResult evaluateRequestHeaders(Span span, Map<String, String> headers) {
     for (Filter filter : filters) {
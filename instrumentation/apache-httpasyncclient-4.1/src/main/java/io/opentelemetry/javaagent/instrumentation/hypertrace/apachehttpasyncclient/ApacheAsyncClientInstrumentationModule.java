@@ -54,6 +54,11 @@ public class ApacheAsyncClientInstrumentationModule extends InstrumentationModul
     return 1;
   }
 
+  @Override
+  public ElementMatcher.Junction<ClassLoader> classLoaderMatcher() {
+    return hasClassesNamed("org.apache.http.nio.client.HttpAsyncClient");
+  }
+
   @Override
   public List<TypeInstrumentation> typeInstrumentations() {
     return Collections.singletonList(new HttpAsyncClientInstrumentation());
@@ -19,6 +19,7 @@ package io.opentelemetry.javaagent.instrumentation.hypertrace.apachehttpasynccli
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.context.Context;
 import io.opentelemetry.javaagent.instrumentation.hypertrace.apachehttpclient.v4_0.ApacheHttpClientUtils;
+import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.protocol.HttpContext;
@@ -40,23 +41,28 @@ public class BodyCaptureDelegatingCallback<T> implements FutureCallback<T> {
 
   @Override
   public void completed(T result) {
-    HttpResponse httpResponse = getResponse(httpContext);
-    ApacheHttpClientUtils.traceResponse(Span.fromContext(clientContext), httpResponse);
+    traceResponse();
     delegate.completed(result);
   }
 
   @Override
   public void failed(Exception ex) {
-    HttpResponse httpResponse = getResponse(httpContext);
-    ApacheHttpClientUtils.traceResponse(Span.fromContext(clientContext), httpResponse);
+    traceResponse();
     delegate.failed(ex);
   }
 
   @Override
   public void cancelled() {
+    traceResponse();
+    delegate.cancelled();
+  }
+
+  private void traceResponse() {
     HttpResponse httpResponse = getResponse(httpContext);
     ApacheHttpClientUtils.traceResponse(Span.fromContext(clientContext), httpResponse);
-    delegate.cancelled();
+    // the exchange has ended, the request entity is not read anymore
+    HttpRequest httpRequest = (HttpRequest) httpContext.getAttribute(HttpCoreContext.HTTP_REQUEST);
+    ApacheHttpClientUtils.untraceRequest(httpRequest);
   }
 
   private static HttpResponse getResponse(HttpContext context) {
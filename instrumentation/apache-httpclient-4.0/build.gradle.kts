@@ -45,3 +45,21 @@ dependencies {
     library("org.apache.httpcomponents:httpclient:4.0")
     testImplementation(project(":testing-common"))
 }
+
+// runs the client tests again with the scoped and the wrapper stream capture modes
+for (mode in listOf("scoped", "wrapper")) {
+    val streamsModeTest = tasks.register<Test>("test_${mode}Streams") {
+        group = "verification"
+        description = "Runs the Apache client tests with ht.instrumentation.streams.mode=$mode."
+        testClassesDirs = sourceSets.test.get().output.classesDirs
+        classpath = tasks.test.get().classpath
+        filter {
+            includeTestsMatching("*ApacheHttpClientInstrumentationTest")
+        }
+        jvmArgs("-Dht.instrumentation.streams.mode=$mode")
+        useJUnitPlatform()
+    }
+    tasks.check {
+        dependsOn(streamsModeTest)
+    }
+}
@@ -16,6 +16,7 @@
 
 package io.opentelemetry.javaagent.instrumentation.hypertrace.apachehttpclient.v4_0;
 
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasClassesNamed;
 import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.implementsInterface;
 import static net.bytebuddy.matcher.ElementMatchers.hasSuperType;
 import static net.bytebuddy.matcher.ElementMatchers.isAbstract;
@@ -50,13 +51,27 @@ public class ApacheClientInstrumentationModule extends InstrumentationModule {
     return 1;
   }
 
+  @Override
+  public ElementMatcher.Junction<ClassLoader> classLoaderMatcher() {
+    return hasClassesNamed("org.apache.http.client.HttpClient");
+  }
+
   @Override
   public List<TypeInstrumentation> typeInstrumentations() {
-    return Arrays.asList(new HttpEntityInstrumentation(), new ApacheClientInstrumentation());
+    return Arrays.asList(
+        new HttpEntityInstrumentation(),
+        new ApacheClientInstrumentation(),
+        new EntityUtilsInstrumentation(),
+        new CloseableHttpResponseInstrumentation());
   }
 
   static class ApacheClientInstrumentation implements TypeInstrumentation {
 
+    @Override
+    public ElementMatcher<ClassLoader> classLoaderOptimization() {
+      return hasClassesNamed("org.apache.http.client.HttpClient");
+    }
+
     @Override
     public ElementMatcher<TypeDescription> typeMatcher() {
       return implementsInterface(named("org.apache.http.client.HttpClient"));
@@ -98,9 +113,13 @@ public class ApacheClientInstrumentationModule extends InstrumentationModule {
 
     @Advice.OnMethodExit(onThrowable = Throwable.class, suppress = Throwable.class)
     public static void exit(
-        @Advice.Enter boolean returnFromEnter, @Advice.Thrown Throwable throwable) {
+        @Advice.Argument(0) HttpMessage request,
+        @Advice.Enter boolean returnFromEnter,
+        @Advice.Thrown Throwable throwable) {
       if (returnFromEnter) {
         HypertraceCallDepthThreadLocalMap.reset(HttpMessage.class);
+        // the request has been written or failed, its entity is not read anymore
+        ApacheHttpClientUtils.untraceRequest(request);
       }
     }
   }
@@ -118,9 +137,13 @@ public class ApacheClientInstrumentationModule extends InstrumentationModule {
 
     @Advice.OnMethodExit(onThrowable = Throwable.class, suppress = Throwable.class)
     public static void exit(
-        @Advice.Enter boolean returnFromEnter, @Advice.Thrown Throwable throwable) {
+        @Advice.Argument(1) HttpMessage request,
+        @Advice.Enter boolean returnFromEnter,
+        @Advice.Thrown Throwable throwable) {
       if (returnFromEnter) {
         HypertraceCallDepthThreadLocalMap.reset(HttpMessage.class);
+        // the request has been written or failed, its entity is not read anymore
+        ApacheHttpClientUtils.untraceRequest(request);
       }
     }
   }
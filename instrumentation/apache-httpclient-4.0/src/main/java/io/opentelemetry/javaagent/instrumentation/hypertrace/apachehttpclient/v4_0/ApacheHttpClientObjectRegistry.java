@@ -18,12 +18,39 @@ package io.opentelemetry.javaagent.instrumentation.hypertrace.apachehttpclient.v
 
 import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.trace.Span;
-import io.opentelemetry.instrumentation.api.internal.cache.Cache;
+import io.opentelemetry.instrumentation.api.util.VirtualField;
 import org.apache.http.HttpEntity;
 
+/**
+ * Spans of the entities whose body is captured when it is read or written. The span is stored on
+ * the entity and removed as soon as the body has been handed to the stream instrumentation, the
+ * entity is consumed or the response is closed, so the span is not kept alive by the entity.
+ */
 public class ApacheHttpClientObjectRegistry {
 
-  public static final Cache<HttpEntity, SpanAndAttributeKey> entityToSpan = Cache.weak();
+  private static final VirtualField<HttpEntity, SpanAndAttributeKey> entityToSpan =
+      VirtualField.find(HttpEntity.class, SpanAndAttributeKey.class);
+
+  private ApacheHttpClientObjectRegistry() {}
+
+  public static void put(HttpEntity entity, SpanAndAttributeKey spanAndAttributeKey) {
+    entityToSpan.set(entity, spanAndAttributeKey);
+  }
+
+  public static SpanAndAttributeKey get(HttpEntity entity) {
+    return entityToSpan.get(entity);
+  }
+
+  public static SpanAndAttributeKey remove(HttpEntity entity) {
+    if (entity == null) {
+      return null;
+    }
+    SpanAndAttributeKey spanAndAttributeKey = entityToSpan.get(entity);
+    if (spanAndAttributeKey != null) {
+      entityToSpan.set(entity, null);
+    }
+    return spanAndAttributeKey;
+  }
 
   public static class SpanAndAttributeKey {
     public final Span span;
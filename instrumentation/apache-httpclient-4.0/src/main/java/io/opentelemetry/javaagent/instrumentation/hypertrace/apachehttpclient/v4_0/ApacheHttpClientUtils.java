@@ -22,8 +22,7 @@ import io.opentelemetry.javaagent.instrumentation.hypertrace.apachehttpclient.v4
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.util.function.Function;
 import java.util.zip.GZIPInputStream;
@@ -33,9 +32,9 @@ import org.apache.http.HttpEntity;
 import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpMessage;
 import org.apache.http.HttpResponse;
-import org.hypertrace.agent.core.config.InstrumentationConfig;
-import org.hypertrace.agent.core.config.InstrumentationConfig.ConfigProvider;
+import org.hypertrace.agent.core.config.InstrumentationConfigSnapshot;
 import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
+import org.hypertrace.agent.core.instrumentation.LateBodyHold;
 import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
 import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
 import org.hypertrace.agent.core.instrumentation.utils.ContentTypeCharsetUtils;
@@ -47,8 +46,6 @@ import org.slf4j.LoggerFactory;
 public class ApacheHttpClientUtils {
   private ApacheHttpClientUtils() {}
 
-  private static InstrumentationConfig instrumentationConfig = ConfigProvider.get();
-
   private static final Logger log = LoggerFactory.getLogger(ApacheHttpClientUtils.class);
 
   public static void addResponseHeaders(Span span, HeaderIterator headerIterator) {
@@ -76,14 +73,14 @@ public class ApacheHttpClientUtils {
   }
 
   public static void traceRequest(Span span, HttpMessage request) {
-    if (instrumentationConfig.httpHeaders().request()) {
+    if (InstrumentationConfigSnapshot.get().httpHeadersRequest) {
       ApacheHttpClientUtils.addRequestHeaders(span, request.headerIterator());
     }
 
     // Add service name header to outgoing requests
     ApacheHttpClientUtils.addClientServiceNameHeader(request);
 
-    if (instrumentationConfig.httpBody().request()
+    if (InstrumentationConfigSnapshot.get().httpBodyRequest
         && request instanceof HttpEntityEnclosingRequest) {
       HttpEntityEnclosingRequest entityRequest = (HttpEntityEnclosingRequest) request;
       HttpEntity entity = entityRequest.getEntity();
@@ -92,12 +89,19 @@ public class ApacheHttpClientUtils {
     }
   }
 
+  /** Removes the span from the request entity once the request has been sent. */
+  public static void untraceRequest(HttpMessage request) {
+    if (request instanceof HttpEntityEnclosingRequest) {
+      ApacheHttpClientObjectRegistry.remove(((HttpEntityEnclosingRequest) request).getEntity());
+    }
+  }
+
   public static void traceResponse(Span span, HttpResponse response) {
-    if (instrumentationConfig.httpHeaders().response()) {
+    if (InstrumentationConfigSnapshot.get().httpHeadersResponse) {
       ApacheHttpClientUtils.addResponseHeaders(span, response.headerIterator());
     }
 
-    if (instrumentationConfig.httpBody().response()) {
+    if (InstrumentationConfigSnapshot.get().httpBodyResponse) {
       HttpEntity entity = response.getEntity();
       ApacheHttpClientUtils.traceEntity(
           span, HypertraceSemanticAttributes.HTTP_RESPONSE_BODY, entity);
@@ -124,22 +128,17 @@ public class ApacheHttpClientUtils {
             && contentEncoding.getValue().toLowerCase().contains("gzip");
     if (entity.isRepeatable()) {
       try {
-        BoundedByteArrayOutputStream byteArrayOutputStream =
-            BoundedBuffersFactory.createStream(charset);
-        entity.writeTo(byteArrayOutputStream);
-        InputStream contentStream = new ByteArrayInputStream(byteArrayOutputStream.toByteArray());
+        BoundedByteArrayOutputStream buffer = BoundedBuffersFactory.createStream(charset);
+        writeBounded(entity, buffer);
         if (isGzipEncoded) {
           try {
-            contentStream = new GZIPInputStream(contentStream);
+            buffer = gunzip(buffer, charset);
           } catch (IOException e) {
-            log.error("Failed to create GZIPInputStream", e);
+            log.error("Failed to decompress gzip encoded entity", e);
             return;
           }
         }
-
-        String body = readInputStream(contentStream, charset);
-        span.setAttribute(bodyAttributeKey, body);
-
+        span.setAttribute(bodyAttributeKey, buffer.toStringWithSuppliedCharset());
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
@@ -153,21 +152,99 @@ public class ApacheHttpClientUtils {
 
     // response body is traced via InputStream HttpEntity.getContent() and InputStream
     // instrumentation
-    ApacheHttpClientObjectRegistry.entityToSpan.put(
-        entity, new SpanAndAttributeKey(span, bodyAttributeKey));
+    ApacheHttpClientObjectRegistry.put(entity, new SpanAndAttributeKey(span, bodyAttributeKey));
+    if (HypertraceSemanticAttributes.HTTP_RESPONSE_BODY.equals(bodyAttributeKey)) {
+      // the client span usually ends before the response body is read
+      LateBodyHold.expect(span);
+    }
   }
 
   public static String readInputStream(InputStream inputStream, Charset charset)
       throws IOException {
     BoundedByteArrayOutputStream outputStream = BoundedBuffersFactory.createStream(charset);
-    try (InputStreamReader reader = new InputStreamReader(inputStream, charset);
-        OutputStreamWriter writer = new OutputStreamWriter(outputStream, charset)) {
-      int c;
-      while ((c = reader.read()) != -1) {
-        writer.write(c);
-      }
-      writer.flush();
+    try (InputStream in = inputStream) {
+      copyBounded(in, outputStream);
     }
     return outputStream.toStringWithSuppliedCharset();
   }
+
+  /**
+   * Writes the entity to the buffer and stops the entity once the buffer is full. {@code
+   * ByteArrayEntity}, {@code StringEntity} and {@code BufferedHttpEntity} write their in-memory
+   * content in one call, so only the captured prefix of it is copied.
+   */
+  static void writeBounded(HttpEntity entity, BoundedByteArrayOutputStream buffer)
+      throws IOException {
+    try {
+      entity.writeTo(new LimitedOutputStream(buffer, BoundedBuffersFactory.maxSize()));
+    } catch (CaptureLimitReachedException e) {
+      // the rest of the entity is not captured
+    }
+  }
+
+  private static BoundedByteArrayOutputStream gunzip(
+      BoundedByteArrayOutputStream compressed, Charset charset) throws IOException {
+    BoundedByteArrayOutputStream buffer = BoundedBuffersFactory.createStream(charset);
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+      copyBounded(in, buffer);
+    }
+    return buffer;
+  }
+
+  private static void copyBounded(InputStream in, BoundedByteArrayOutputStream buffer)
+      throws IOException {
+    int maxSize = BoundedBuffersFactory.maxSize();
+    byte[] chunk = new byte[Math.min(8192, Math.max(maxSize, 1))];
+    int read;
+    while (buffer.size() < maxSize && (read = in.read(chunk)) != -1) {
+      buffer.write(chunk, 0, read);
+    }
+  }
+
+  /**
+   * Thrown to stop {@link HttpEntity#writeTo(OutputStream)} once the capture buffer is full. It has
+   * no stack trace. IOException cannot disable suppression, so every capture throws its own
+   * instance and exceptions suppressed by one entity are not kept for the next.
+   */
+  private static final class CaptureLimitReachedException extends IOException {
+
+    CaptureLimitReachedException() {
+      super("capture limit reached", null);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+  }
+
+  private static final class LimitedOutputStream extends OutputStream {
+    private final BoundedByteArrayOutputStream buffer;
+    private final int maxSize;
+
+    LimitedOutputStream(BoundedByteArrayOutputStream buffer, int maxSize) {
+      this.buffer = buffer;
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      if (buffer.size() >= maxSize) {
+        throw new CaptureLimitReachedException();
+      }
+      buffer.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      int remaining = maxSize - buffer.size();
+      if (remaining <= 0) {
+        throw new CaptureLimitReachedException();
+      }
+      buffer.write(b, off, Math.min(len, remaining));
+      if (len > remaining) {
+        throw new CaptureLimitReachedException();
+      }
+    }
+  }
 }
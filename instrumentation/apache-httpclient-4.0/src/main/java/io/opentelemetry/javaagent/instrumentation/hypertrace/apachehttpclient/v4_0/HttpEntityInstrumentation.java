@@ -16,6 +16,7 @@
 
 package io.opentelemetry.javaagent.instrumentation.hypertrace.apachehttpclient.v4_0;
 
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasClassesNamed;
 import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.implementsInterface;
 import static net.bytebuddy.matcher.ElementMatchers.is;
 import static net.bytebuddy.matcher.ElementMatchers.named;
@@ -27,6 +28,8 @@ import io.opentelemetry.instrumentation.api.util.VirtualField;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeTransformer;
 import io.opentelemetry.javaagent.instrumentation.hypertrace.apachehttpclient.v4_0.ApacheHttpClientObjectRegistry.SpanAndAttributeKey;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.java.inputstream.CapturingInputStream;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.java.outputstream.CapturingOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
@@ -42,9 +45,15 @@ import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputSt
 import org.hypertrace.agent.core.instrumentation.utils.ContentLengthUtils;
 import org.hypertrace.agent.core.instrumentation.utils.ContentTypeCharsetUtils;
 import org.hypertrace.agent.core.instrumentation.utils.ContentTypeUtils;
+import org.hypertrace.agent.core.instrumentation.utils.StreamCaptureScope;
 
 public class HttpEntityInstrumentation implements TypeInstrumentation {
 
+  @Override
+  public ElementMatcher<ClassLoader> classLoaderOptimization() {
+    return hasClassesNamed("org.apache.http.HttpEntity");
+  }
+
   @Override
   public ElementMatcher<TypeDescription> typeMatcher() {
     return implementsInterface(named("org.apache.http.HttpEntity"));
@@ -65,30 +74,31 @@ public class HttpEntityInstrumentation implements TypeInstrumentation {
 
   static class HttpEntity_GetContentAdvice {
     @Advice.OnMethodExit(suppress = Throwable.class)
-    public static void exit(@Advice.This HttpEntity thizz, @Advice.Return InputStream inputStream) {
+    public static void exit(
+        @Advice.This HttpEntity thizz, @Advice.Return(readOnly = false) InputStream inputStream) {
       // here the Span.current() is finished for response entities
-      // TODO the entry from map is nto explicitly removed, It could be done by instrumenting
-      // CloseableHttpResponse
-      // instroduced in version 4.3
-      SpanAndAttributeKey clientSpan = ApacheHttpClientObjectRegistry.entityToSpan.get(thizz);
+      // the span is removed from the entity, from now on the returned stream holds it
+      SpanAndAttributeKey clientSpan = ApacheHttpClientObjectRegistry.remove(thizz);
       // HttpEntity might be wrapped multiple times
       // this ensures that the advice runs only for the most outer one
       // the returned inputStream is put into globally accessible map
       // The InputStream instrumentation then checks if the input stream is in the map and only
       // then intercepts the reads.
-      if (clientSpan == null) {
+      if (clientSpan == null || inputStream == null) {
         return;
       }
 
       long contentSize = thizz.getContentLength();
       if (contentSize <= 0 || contentSize == Long.MAX_VALUE) {
-        contentSize = ContentLengthUtils.DEFAULT;
+        contentSize = ContentLengthUtils.getDefault();
       }
 
       Header contentTypeHeader = thizz.getContentType();
+      String contentType = null;
       String charsetStr = null;
       if (contentTypeHeader != null) {
-        charsetStr = ContentTypeUtils.parseCharset(contentTypeHeader.getValue());
+        contentType = contentTypeHeader.getValue();
+        charsetStr = ContentTypeUtils.parseCharset(contentType);
       }
       Charset charset = ContentTypeCharsetUtils.toCharset(charsetStr);
 
@@ -103,7 +113,13 @@ public class HttpEntityInstrumentation implements TypeInstrumentation {
               BoundedBuffersFactory.createStream((int) contentSize, charset),
               clientSpan.attributeKey,
               charset,
+              contentType,
               contentEncoding);
+      if (StreamCaptureScope.wrapStreams()) {
+        inputStream = new CapturingInputStream(inputStream, spanAndBuffer);
+        return;
+      }
+      StreamCaptureScope.register(inputStream.getClass());
       VirtualField.find(InputStream.class, SpanAndBuffer.class).set(inputStream, spanAndBuffer);
     }
   }
@@ -111,27 +127,35 @@ public class HttpEntityInstrumentation implements TypeInstrumentation {
   static class HttpEntity_WriteToAdvice {
     @Advice.OnMethodEnter(suppress = Throwable.class)
     public static void enter(
-        @Advice.This HttpEntity thizz, @Advice.Argument(0) OutputStream outputStream) {
+        @Advice.This HttpEntity thizz,
+        @Advice.Argument(value = 0, readOnly = false) OutputStream outputStream) {
 
-      if (ApacheHttpClientObjectRegistry.entityToSpan.get(thizz) == null) {
+      if (ApacheHttpClientObjectRegistry.get(thizz) == null || outputStream == null) {
         return;
       }
 
       long contentSize = thizz.getContentLength();
       if (contentSize <= 0 || contentSize == Long.MAX_VALUE) {
-        contentSize = ContentLengthUtils.DEFAULT;
+        contentSize = ContentLengthUtils.getDefault();
       }
 
       Header contentTypeHeader = thizz.getContentType();
+      String contentType = null;
       String charsetStr = null;
       if (contentTypeHeader != null) {
-        charsetStr = ContentTypeUtils.parseCharset(contentTypeHeader.getValue());
+        contentType = contentTypeHeader.getValue();
+        charsetStr = ContentTypeUtils.parseCharset(contentType);
       }
       Charset charset = ContentTypeCharsetUtils.toCharset(charsetStr);
 
       BoundedByteArrayOutputStream byteArrayOutputStream =
           BoundedBuffersFactory.createStream((int) contentSize, charset);
 
+      if (StreamCaptureScope.wrapStreams()) {
+        outputStream = new CapturingOutputStream(outputStream, byteArrayOutputStream);
+        return;
+      }
+      StreamCaptureScope.register(outputStream.getClass());
       VirtualField.find(OutputStream.class, BoundedByteArrayOutputStream.class)
           .set(outputStream, byteArrayOutputStream);
     }
@@ -139,17 +163,20 @@ public class HttpEntityInstrumentation implements TypeInstrumentation {
     @Advice.OnMethodExit(suppress = Throwable.class, onThrowable = Throwable.class)
     public static void exit(
         @Advice.This HttpEntity thizz, @Advice.Argument(0) OutputStream outputStream) {
-      SpanAndAttributeKey spanAndAttributeKey =
-          ApacheHttpClientObjectRegistry.entityToSpan.get(thizz);
-      ApacheHttpClientObjectRegistry.entityToSpan.remove(thizz);
+      SpanAndAttributeKey spanAndAttributeKey = ApacheHttpClientObjectRegistry.remove(thizz);
       if (spanAndAttributeKey == null) {
         return;
       }
 
-      VirtualField<OutputStream, BoundedByteArrayOutputStream> contextStore =
-          VirtualField.find(OutputStream.class, BoundedByteArrayOutputStream.class);
-      BoundedByteArrayOutputStream bufferedOutStream = contextStore.get(outputStream);
-      contextStore.set(outputStream, null);
+      BoundedByteArrayOutputStream bufferedOutStream;
+      if (outputStream instanceof CapturingOutputStream) {
+        bufferedOutStream = ((CapturingOutputStream) outputStream).getBuffer();
+      } else {
+        VirtualField<OutputStream, BoundedByteArrayOutputStream> contextStore =
+            VirtualField.find(OutputStream.class, BoundedByteArrayOutputStream.class);
+        bufferedOutStream = contextStore.get(outputStream);
+        contextStore.set(outputStream, null);
+      }
       try {
         String requestBody = bufferedOutStream.toStringWithSuppliedCharset();
         spanAndAttributeKey.span.setAttribute(spanAndAttributeKey.attributeKey, requestBody);
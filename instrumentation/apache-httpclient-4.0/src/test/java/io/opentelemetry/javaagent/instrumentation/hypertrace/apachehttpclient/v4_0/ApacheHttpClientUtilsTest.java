@@ -0,0 +1,90 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.apachehttpclient.v4_0;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ApacheHttpClientUtilsTest {
+
+  @Test
+  public void writeBoundedTruncatesInMemoryEntity() throws IOException {
+    int maxSize = BoundedBuffersFactory.maxSize();
+    byte[] content = new byte[maxSize * 2];
+    Arrays.fill(content, (byte) 'a');
+    BoundedByteArrayOutputStream buffer =
+        BoundedBuffersFactory.createStream(StandardCharsets.UTF_8);
+
+    ApacheHttpClientUtils.writeBounded(new ByteArrayEntity(content), buffer);
+
+    Assertions.assertEquals(maxSize, buffer.size());
+  }
+
+  @Test
+  public void writeBoundedStopsEntityAtLimit() throws IOException {
+    int maxSize = BoundedBuffersFactory.maxSize();
+    AtomicInteger chunks = new AtomicInteger();
+    AbstractHttpEntity entity =
+        new AbstractHttpEntity() {
+          @Override
+          public boolean isRepeatable() {
+            return true;
+          }
+
+          @Override
+          public long getContentLength() {
+            return -1;
+          }
+
+          @Override
+          public InputStream getContent() {
+            throw new UnsupportedOperationException();
+          }
+
+          @Override
+          public void writeTo(OutputStream outputStream) throws IOException {
+            byte[] chunk = new byte[1024];
+            for (int i = 0; i < maxSize; i++) {
+              chunks.incrementAndGet();
+              outputStream.write(chunk);
+            }
+          }
+
+          @Override
+          public boolean isStreaming() {
+            return false;
+          }
+        };
+    BoundedByteArrayOutputStream buffer =
+        BoundedBuffersFactory.createStream(StandardCharsets.UTF_8);
+
+    ApacheHttpClientUtils.writeBounded(entity, buffer);
+
+    Assertions.assertEquals(maxSize, buffer.size());
+    Assertions.assertEquals(maxSize / 1024 + 1, chunks.get());
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.apachehttpclient.v4_0;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.hypertrace.agent.testing.AbstractInstrumenterTest;
+import org.hypertrace.agent.testing.TestHttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The request and response entities of an exchange with captured bodies must not be reachable from
+ * the instrumentation once the bodies have been written and the response stream is closed.
+ */
+public class EntityRetentionTest extends AbstractInstrumenterTest {
+
+  private static final int BODY_SIZE = 64 * 1024;
+
+  private static final TestHttpServer testHttpServer = new TestHttpServer();
+
+  @BeforeAll
+  public static void startServer() throws Exception {
+    testHttpServer.start();
+  }
+
+  @AfterAll
+  public static void closeServer() throws Exception {
+    testHttpServer.close();
+  }
+
+  @Test
+  public void entitiesAreReleasedWhenTheResponseIsClosed() throws Exception {
+    HttpClient client = new DefaultHttpClient();
+    WeakReference<HttpEntity>[] entities = exchange(client);
+    TEST_WRITER.waitForTraces(1);
+    TEST_WRITER.clear();
+
+    awaitCleared(entities[0], "request entity");
+    awaitCleared(entities[1], "response entity");
+  }
+
+  /** Sends one request and returns weak references to its request and response entities. */
+  @SuppressWarnings("unchecked")
+  private static WeakReference<HttpEntity>[] exchange(HttpClient client) throws Exception {
+    byte[] body = new byte[BODY_SIZE];
+    Arrays.fill(body, (byte) 'a');
+    HttpPost request =
+        new HttpPost(URI.create(String.format("http://localhost:%d/echo", testHttpServer.port())));
+    InputStreamEntity entity = new InputStreamEntity(new ByteArrayInputStream(body), BODY_SIZE);
+    entity.setContentType("text/plain");
+    request.setEntity(entity);
+    HttpResponse response = client.execute(request);
+    Assertions.assertEquals(200, response.getStatusLine().getStatusCode());
+    try (InputStream content = response.getEntity().getContent()) {
+      byte[] buffer = new byte[8192];
+      while (content.read(buffer) != -1) {}
+    }
+    return new WeakReference[] {
+      new WeakReference<>(entity), new WeakReference<>(response.getEntity())
+    };
+  }
+
+  private static void awaitCleared(WeakReference<?> reference, String name)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (reference.get() != null && System.nanoTime() < deadline) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    Assertions.assertNull(reference.get(), name + " is still reachable");
+  }
+}
@@ -18,14 +18,12 @@ package io.opentelemetry.javaagent.instrumentation.hypertrace.grpc.v1_6;
 
 import com.google.protobuf.Message;
 import io.grpc.Metadata;
-import io.grpc.Metadata.Key;
 import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.trace.Span;
-import io.opentelemetry.javaagent.instrumentation.hypertrace.grpc.GrpcSemanticAttributes;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.grpc.GrpcMetadataKeys;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.function.Function;
-import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
+import org.hypertrace.agent.core.config.CaptureGovernor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,7 +37,9 @@ public class GrpcSpanDecorator {
     if (message instanceof Message) {
       Message mb = (Message) message;
       try {
+        long start = CaptureGovernor.startTiming();
         String jsonOutput = ProtobufMessageConverter.getMessage(mb);
+        CaptureGovernor.recordConversion(start);
         if (jsonOutput != null && !jsonOutput.isEmpty()) {
           span.setAttribute(key, jsonOutput);
         }
@@ -51,41 +51,47 @@ public class GrpcSpanDecorator {
     }
   }
 
-  public static void addMetadataAttributes(
-      Metadata metadata, Span span, Function<String, AttributeKey<String>> keySupplier) {
-    for (String key : metadata.keys()) {
-      if (key.endsWith(Metadata.BINARY_HEADER_SUFFIX)) {
-        // do not add binary metadata
-        continue;
-      }
-      Key<String> stringKey = Key.of(key, Metadata.ASCII_STRING_MARSHALLER);
-      Iterable<String> stringValues = metadata.getAll(stringKey);
-      for (String stringValue : stringValues) {
-        key = GrpcSemanticAttributes.removeHypertracePrefixAndAddColon(key);
-        span.setAttribute(keySupplier.apply(key), stringValue);
-      }
-    }
+  public static void addRequestMetadataAttributes(Metadata metadata, Span span) {
+    captureMetadata(metadata, span, true, null);
   }
 
-  public static void addMetadataAttributes(Map<String, String> metadata, Span span) {
-    for (Map.Entry<String, String> entry : metadata.entrySet()) {
-      span.setAttribute(entry.getKey(), entry.getValue());
+  public static void addResponseMetadataAttributes(Metadata metadata, Span span) {
+    captureMetadata(metadata, span, false, null);
+  }
+
+  /**
+   * Captures request metadata in a single pass over the header names. Values are added to the span
+   * when {@code addToSpan} is set and collected into the returned map, keyed by attribute name,
+   * when {@code collectForFilter} is set. The map is {@code null} when it was not requested.
+   */
+  public static Map<String, String> captureRequestMetadata(
+      Metadata metadata, Span span, boolean addToSpan, boolean collectForFilter) {
+    Map<String, String> filterHeaders = null;
+    if (collectForFilter) {
+      filterHeaders = new LinkedHashMap<>();
     }
+    captureMetadata(metadata, addToSpan ? span : null, true, filterHeaders);
+    return filterHeaders;
   }
 
-  public static Map<String, String> metadataToMap(Metadata metadata) {
-    Map<String, String> mapHeaders = new LinkedHashMap<>(metadata.keys().size());
-    for (String key : metadata.keys()) {
-      if (key.endsWith(Metadata.BINARY_HEADER_SUFFIX)) {
+  private static void captureMetadata(
+      Metadata metadata, Span span, boolean request, Map<String, String> filterHeaders) {
+    for (String name : metadata.keys()) {
+      if (name.endsWith(Metadata.BINARY_HEADER_SUFFIX)) {
+        // do not add binary metadata
         continue;
       }
-      Key<String> stringKey = Key.of(key, Metadata.ASCII_STRING_MARSHALLER);
-      Iterable<String> stringValues = metadata.getAll(stringKey);
-      for (String stringValue : stringValues) {
-        key = GrpcSemanticAttributes.removeHypertracePrefixAndAddColon(key);
-        mapHeaders.put(HypertraceSemanticAttributes.rpcRequestMetadata(key).getKey(), stringValue);
+      GrpcMetadataKeys keys = GrpcMetadataKeys.forName(name);
+      AttributeKey<String> attributeKey =
+          request ? keys.requestAttributeKey : keys.responseAttributeKey;
+      for (String value : metadata.getAll(keys.metadataKey)) {
+        if (span != null) {
+          span.setAttribute(attributeKey, value);
+        }
+        if (filterHeaders != null) {
+          filterHeaders.put(attributeKey.getKey(), value);
+        }
       }
     }
-    return mapHeaders;
   }
 }
@@ -16,6 +16,7 @@
 
 package io.opentelemetry.javaagent.instrumentation.hypertrace.grpc.v1_6;
 
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasClassesNamed;
 import static net.bytebuddy.matcher.ElementMatchers.failSafe;
 import static net.bytebuddy.matcher.ElementMatchers.isMethod;
 import static net.bytebuddy.matcher.ElementMatchers.named;
@@ -36,7 +37,6 @@ import java.util.List;
 import net.bytebuddy.asm.Advice;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
-import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
 
 @AutoService(InstrumentationModule.class)
 public class NettyHttp2HeadersInstrumentationModule extends InstrumentationModule {
@@ -56,6 +56,11 @@ public class NettyHttp2HeadersInstrumentationModule extends InstrumentationModul
     super(GrpcInstrumentationName.PRIMARY, INSTRUMENTATION_NAME_ARRAY);
   }
 
+  @Override
+  public ElementMatcher.Junction<ClassLoader> classLoaderMatcher() {
+    return hasClassesNamed("io.grpc.netty.Utils");
+  }
+
   @Override
   public List<TypeInstrumentation> typeInstrumentations() {
     return Arrays.asList(new NettyUtilsInstrumentation());
@@ -70,6 +75,11 @@ public class NettyHttp2HeadersInstrumentationModule extends InstrumentationModul
    * https://github.com/hypertrace/javaagent/issues/109#issuecomment-740918018.
    */
   static class NettyUtilsInstrumentation implements TypeInstrumentation {
+    @Override
+    public ElementMatcher<ClassLoader> classLoaderOptimization() {
+      return hasClassesNamed("io.grpc.netty.Utils");
+    }
+
     @Override
     public ElementMatcher<TypeDescription> typeMatcher() {
       return failSafe(named("io.grpc.netty.Utils"));
@@ -97,27 +107,19 @@ public class NettyHttp2HeadersInstrumentationModule extends InstrumentationModul
       Span currentSpan = Java8BytecodeBridge.currentSpan();
       if (scheme != null) {
         currentSpan.setAttribute(
-            HypertraceSemanticAttributes.rpcRequestMetadata(
-                GrpcSemanticAttributes.addColon(GrpcSemanticAttributes.SCHEME)),
-            scheme.toString());
+            GrpcSemanticAttributes.SCHEME_REQUEST_METADATA_ATTRIBUTE, scheme.toString());
       }
       if (defaultPath != null) {
         currentSpan.setAttribute(
-            HypertraceSemanticAttributes.rpcRequestMetadata(
-                GrpcSemanticAttributes.addColon(GrpcSemanticAttributes.PATH)),
-            defaultPath.toString());
+            GrpcSemanticAttributes.PATH_REQUEST_METADATA_ATTRIBUTE, defaultPath.toString());
       }
       if (authority != null) {
         currentSpan.setAttribute(
-            HypertraceSemanticAttributes.rpcRequestMetadata(
-                GrpcSemanticAttributes.addColon(GrpcSemanticAttributes.AUTHORITY)),
-            authority.toString());
+            GrpcSemanticAttributes.AUTHORITY_REQUEST_METADATA_ATTRIBUTE, authority.toString());
       }
       if (method != null) {
         currentSpan.setAttribute(
-            HypertraceSemanticAttributes.rpcRequestMetadata(
-                GrpcSemanticAttributes.addColon(GrpcSemanticAttributes.METHOD)),
-            method.toString());
+            GrpcSemanticAttributes.METHOD_REQUEST_METADATA_ATTRIBUTE, method.toString());
       }
     }
   }
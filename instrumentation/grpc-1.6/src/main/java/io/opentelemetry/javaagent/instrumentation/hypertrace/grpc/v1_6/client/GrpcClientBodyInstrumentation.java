@@ -17,6 +17,7 @@
 package io.opentelemetry.javaagent.instrumentation.hypertrace.grpc.v1_6.client;
 
 import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.extendsClass;
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasClassesNamed;
 import static net.bytebuddy.matcher.ElementMatchers.declaresField;
 import static net.bytebuddy.matcher.ElementMatchers.isMethod;
 import static net.bytebuddy.matcher.ElementMatchers.named;
@@ -31,6 +32,11 @@ import net.bytebuddy.matcher.ElementMatcher;
 
 public class GrpcClientBodyInstrumentation implements TypeInstrumentation {
 
+  @Override
+  public ElementMatcher<ClassLoader> classLoaderOptimization() {
+    return hasClassesNamed("io.grpc.ManagedChannelBuilder");
+  }
+
   @Override
   public ElementMatcher<TypeDescription> typeMatcher() {
     return extendsClass(named("io.grpc.ManagedChannelBuilder"))
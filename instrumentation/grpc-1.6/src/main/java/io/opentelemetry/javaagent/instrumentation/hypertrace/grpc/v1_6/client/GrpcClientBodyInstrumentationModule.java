@@ -16,12 +16,15 @@
 
 package io.opentelemetry.javaagent.instrumentation.hypertrace.grpc.v1_6.client;
 
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasClassesNamed;
+
 import com.google.auto.service.AutoService;
 import io.opentelemetry.javaagent.extension.instrumentation.InstrumentationModule;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
 import io.opentelemetry.javaagent.instrumentation.hypertrace.grpc.v1_6.GrpcInstrumentationName;
 import java.util.Collections;
 import java.util.List;
+import net.bytebuddy.matcher.ElementMatcher;
 
 @AutoService(InstrumentationModule.class)
 public class GrpcClientBodyInstrumentationModule extends InstrumentationModule {
@@ -35,6 +38,11 @@ public class GrpcClientBodyInstrumentationModule extends InstrumentationModule {
     return 1;
   }
 
+  @Override
+  public ElementMatcher.Junction<ClassLoader> classLoaderMatcher() {
+    return hasClassesNamed("io.grpc.ManagedChannelBuilder");
+  }
+
   @Override
   public List<TypeInstrumentation> typeInstrumentations() {
     return Collections.singletonList(new GrpcClientBodyInstrumentation());
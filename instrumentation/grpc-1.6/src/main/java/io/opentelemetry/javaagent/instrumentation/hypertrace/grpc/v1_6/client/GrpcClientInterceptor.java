@@ -26,9 +26,8 @@ import io.grpc.ForwardingClientCallListener;
 import io.grpc.Metadata;
 import io.grpc.MethodDescriptor;
 import io.opentelemetry.api.trace.Span;
-import io.opentelemetry.javaagent.instrumentation.hypertrace.grpc.v1_6.GrpcInstrumentationName;
 import io.opentelemetry.javaagent.instrumentation.hypertrace.grpc.v1_6.GrpcSpanDecorator;
-import org.hypertrace.agent.core.config.InstrumentationConfig;
+import org.hypertrace.agent.core.config.InstrumentationConfigSnapshot;
 import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
 import org.hypertrace.agent.core.instrumentation.utils.ServiceNameHeaderUtils;
 import org.slf4j.Logger;
@@ -47,15 +46,16 @@ public class GrpcClientInterceptor implements ClientInterceptor {
       MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
 
     try {
-      InstrumentationConfig instrumentationConfig = InstrumentationConfig.ConfigProvider.get();
-      if (!instrumentationConfig.isInstrumentationEnabled(
-          GrpcInstrumentationName.PRIMARY, GrpcInstrumentationName.OTHER)) {
+      InstrumentationConfigSnapshot instrumentationConfig =
+          InstrumentationConfigSnapshot.get().forRpc(method.getFullMethodName());
+      if (!instrumentationConfig.anyEnabled) {
         return next.newCall(method, callOptions);
       }
 
       Span currentSpan = Span.current();
       ClientCall<ReqT, RespT> clientCall = next.newCall(method, callOptions);
-      return new GrpcClientInterceptor.TracingClientCall<>(clientCall, currentSpan);
+      return new GrpcClientInterceptor.TracingClientCall<>(
+          clientCall, currentSpan, instrumentationConfig);
     } catch (Throwable t) {
       log.debug("exception thrown while intercepting grpc client call", t);
       return next.newCall(method, callOptions);
@@ -66,10 +66,15 @@ public class GrpcClientInterceptor implements ClientInterceptor {
       extends ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT> {
 
     private final Span span;
+    private final InstrumentationConfigSnapshot instrumentationConfig;
 
-    TracingClientCall(ClientCall<ReqT, RespT> delegate, Span span) {
+    TracingClientCall(
+        ClientCall<ReqT, RespT> delegate,
+        Span span,
+        InstrumentationConfigSnapshot instrumentationConfig) {
       super(delegate);
       this.span = span;
+      this.instrumentationConfig = instrumentationConfig;
     }
 
     @Override
@@ -77,13 +82,12 @@ public class GrpcClientInterceptor implements ClientInterceptor {
       // Add service name header to outgoing requests
       headers.put(SERVICE_NAME_METADATA_KEY, ServiceNameHeaderUtils.getClientServiceName());
 
-      super.start(new TracingClientCallListener<>(responseListener, span), headers);
+      super.start(
+          new TracingClientCallListener<>(responseListener, span, instrumentationConfig), headers);
 
       try {
-        InstrumentationConfig instrumentationConfig = InstrumentationConfig.ConfigProvider.get();
-        if (instrumentationConfig.rpcMetadata().request()) {
-          GrpcSpanDecorator.addMetadataAttributes(
-              headers, span, HypertraceSemanticAttributes::rpcRequestMetadata);
+        if (instrumentationConfig.rpcMetadataRequest) {
+          GrpcSpanDecorator.addRequestMetadataAttributes(headers, span);
         }
       } catch (Throwable t) {
         log.debug("exception thrown while capturing grpc client request metadata", t);
@@ -95,8 +99,7 @@ public class GrpcClientInterceptor implements ClientInterceptor {
       super.sendMessage(message);
 
       try {
-        InstrumentationConfig instrumentationConfig = InstrumentationConfig.ConfigProvider.get();
-        if (instrumentationConfig.rpcBody().request()) {
+        if (instrumentationConfig.rpcBodyRequest) {
           GrpcSpanDecorator.addMessageAttribute(
               message, span, HypertraceSemanticAttributes.RPC_REQUEST_BODY);
         }
@@ -109,10 +112,13 @@ public class GrpcClientInterceptor implements ClientInterceptor {
   static final class TracingClientCallListener<RespT>
       extends ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT> {
     private final Span span;
+    private final InstrumentationConfigSnapshot instrumentationConfig;
 
-    TracingClientCallListener(Listener<RespT> delegate, Span span) {
+    TracingClientCallListener(
+        Listener<RespT> delegate, Span span, InstrumentationConfigSnapshot instrumentationConfig) {
       super(delegate);
       this.span = span;
+      this.instrumentationConfig = instrumentationConfig;
     }
 
     @Override
@@ -120,8 +126,7 @@ public class GrpcClientInterceptor implements ClientInterceptor {
       delegate().onMessage(message);
 
       try {
-        InstrumentationConfig instrumentationConfig = InstrumentationConfig.ConfigProvider.get();
-        if (instrumentationConfig.rpcBody().response()) {
+        if (instrumentationConfig.rpcBodyResponse) {
           GrpcSpanDecorator.addMessageAttribute(
               message, span, HypertraceSemanticAttributes.RPC_RESPONSE_BODY);
         }
@@ -135,10 +140,8 @@ public class GrpcClientInterceptor implements ClientInterceptor {
       super.onHeaders(headers);
 
       try {
-        InstrumentationConfig instrumentationConfig = InstrumentationConfig.ConfigProvider.get();
-        if (instrumentationConfig.rpcMetadata().response()) {
-          GrpcSpanDecorator.addMetadataAttributes(
-              headers, span, HypertraceSemanticAttributes::rpcResponseMetadata);
+        if (instrumentationConfig.rpcMetadataResponse) {
+          GrpcSpanDecorator.addResponseMetadataAttributes(headers, span);
         }
       } catch (Throwable t) {
         log.debug("exception thrown while capturing grpc client response metadata", t);
@@ -25,12 +25,12 @@ import io.grpc.ServerCallHandler;
 import io.grpc.ServerInterceptor;
 import io.grpc.Status;
 import io.opentelemetry.api.trace.Span;
-import io.opentelemetry.javaagent.instrumentation.hypertrace.grpc.v1_6.GrpcInstrumentationName;
 import io.opentelemetry.javaagent.instrumentation.hypertrace.grpc.v1_6.GrpcSpanDecorator;
 import java.util.Map;
-import org.hypertrace.agent.core.config.InstrumentationConfig;
+import org.hypertrace.agent.core.config.InstrumentationConfigSnapshot;
 import org.hypertrace.agent.core.filter.FilterResult;
 import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
+import org.hypertrace.agent.core.instrumentation.utils.BodyCaptureSampler;
 import org.hypertrace.agent.filter.FilterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,34 +44,43 @@ public class GrpcServerInterceptor implements ServerInterceptor {
       ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
 
     try {
-      InstrumentationConfig instrumentationConfig = InstrumentationConfig.ConfigProvider.get();
-      if (!instrumentationConfig.isInstrumentationEnabled(
-          GrpcInstrumentationName.PRIMARY, GrpcInstrumentationName.OTHER)) {
+      InstrumentationConfigSnapshot instrumentationConfig =
+          InstrumentationConfigSnapshot.get()
+              .forRpc(call.getMethodDescriptor().getFullMethodName());
+      if (!instrumentationConfig.anyEnabled) {
         return next.startCall(call, headers);
       }
 
       Span currentSpan = Span.current();
-
-      Map<String, String> mapHeaders = GrpcSpanDecorator.metadataToMap(headers);
-
-      if (instrumentationConfig.rpcMetadata().request()) {
-        GrpcSpanDecorator.addMetadataAttributes(mapHeaders, currentSpan);
-      }
-
-      FilterResult filterResult =
-          FilterRegistry.getFilter().evaluateRequestHeaders(currentSpan, mapHeaders);
-      if (filterResult.shouldBlock()) {
-        // map http codes with grpc codes
-        // We cannot send custom message in grpc calls
-        call.close(mapHttpToGrpcStatus(filterResult.getBlockingStatusCode()), new Metadata());
-        @SuppressWarnings("unchecked")
-        ServerCall.Listener<ReqT> noop = NoopServerCallListener.INSTANCE;
-        return noop;
+      instrumentationConfig =
+          BodyCaptureSampler.sample(instrumentationConfig, currentSpan.getSpanContext());
+
+      boolean captureMetadata = instrumentationConfig.rpcMetadataRequest;
+      // the map is only needed by the blocking filter, do not build it when there is none
+      boolean evaluateFilter = FilterRegistry.hasFilters();
+      if (captureMetadata || evaluateFilter) {
+        Map<String, String> mapHeaders =
+            GrpcSpanDecorator.captureRequestMetadata(
+                headers, currentSpan, captureMetadata, evaluateFilter);
+
+        if (evaluateFilter) {
+          FilterResult filterResult =
+              FilterRegistry.getFilter().evaluateRequestHeaders(currentSpan, mapHeaders);
+          if (filterResult.shouldBlock()) {
+            // map http codes with grpc codes
+            // We cannot send custom message in grpc calls
+            call.close(mapHttpToGrpcStatus(filterResult.getBlockingStatusCode()), new Metadata());
+            @SuppressWarnings("unchecked")
+            ServerCall.Listener<ReqT> noop = NoopServerCallListener.INSTANCE;
+            return noop;
+          }
+        }
       }
 
       Listener<ReqT> serverCall =
-          next.startCall(new TracingServerCall<>(call, currentSpan), headers);
-      return new TracingServerCallListener<>(serverCall, currentSpan);
+          next.startCall(
+              new TracingServerCall<>(call, currentSpan, instrumentationConfig), headers);
+      return new TracingServerCallListener<>(serverCall, currentSpan, instrumentationConfig);
     } catch (Throwable t) {
       log.debug("exception thrown during intercepting server call", t);
       return next.startCall(call, headers);
@@ -108,10 +117,15 @@ public class GrpcServerInterceptor implements ServerInterceptor {
       extends ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT> {
 
     private final Span span;
+    private final InstrumentationConfigSnapshot instrumentationConfig;
 
-    TracingServerCall(ServerCall<ReqT, RespT> delegate, Span span) {
+    TracingServerCall(
+        ServerCall<ReqT, RespT> delegate,
+        Span span,
+        InstrumentationConfigSnapshot instrumentationConfig) {
       super(delegate);
       this.span = span;
+      this.instrumentationConfig = instrumentationConfig;
     }
 
     @Override
@@ -119,8 +133,7 @@ public class GrpcServerInterceptor implements ServerInterceptor {
       super.sendMessage(message);
 
       try {
-        InstrumentationConfig instrumentationConfig = InstrumentationConfig.ConfigProvider.get();
-        if (instrumentationConfig.rpcBody().response()) {
+        if (instrumentationConfig.rpcBodyResponse) {
           GrpcSpanDecorator.addMessageAttribute(
               message, span, HypertraceSemanticAttributes.RPC_RESPONSE_BODY);
         }
@@ -134,10 +147,8 @@ public class GrpcServerInterceptor implements ServerInterceptor {
       super.sendHeaders(headers);
 
       try {
-        InstrumentationConfig instrumentationConfig = InstrumentationConfig.ConfigProvider.get();
-        if (instrumentationConfig.rpcMetadata().response()) {
-          GrpcSpanDecorator.addMetadataAttributes(
-              headers, span, HypertraceSemanticAttributes::rpcResponseMetadata);
+        if (instrumentationConfig.rpcMetadataResponse) {
+          GrpcSpanDecorator.addResponseMetadataAttributes(headers, span);
         }
       } catch (Throwable t) {
         log.debug("exception thrown while capturing grpc server response headers", t);
@@ -149,10 +160,13 @@ public class GrpcServerInterceptor implements ServerInterceptor {
       extends ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT> {
 
     private final Span span;
+    private final InstrumentationConfigSnapshot instrumentationConfig;
 
-    TracingServerCallListener(Listener<ReqT> delegate, Span span) {
+    TracingServerCallListener(
+        Listener<ReqT> delegate, Span span, InstrumentationConfigSnapshot instrumentationConfig) {
       super(delegate);
       this.span = span;
+      this.instrumentationConfig = instrumentationConfig;
     }
 
     @Override
@@ -160,8 +174,7 @@ public class GrpcServerInterceptor implements ServerInterceptor {
       delegate().onMessage(message);
 
       try {
-        InstrumentationConfig instrumentationConfig = InstrumentationConfig.ConfigProvider.get();
-        if (instrumentationConfig.rpcBody().request()) {
+        if (instrumentationConfig.rpcBodyRequest) {
           GrpcSpanDecorator.addMessageAttribute(
               message, span, HypertraceSemanticAttributes.RPC_REQUEST_BODY);
         }
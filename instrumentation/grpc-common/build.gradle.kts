@@ -4,4 +4,5 @@ plugins {
 
 dependencies {
     compileOnly("io.grpc:grpc-core:1.6.0")
-}
\ No newline at end of file
+    compileOnly(project(":javaagent-core"))
+}
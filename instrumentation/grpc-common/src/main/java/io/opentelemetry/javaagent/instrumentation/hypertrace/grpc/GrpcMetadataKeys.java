@@ -0,0 +1,67 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.grpc;
+
+import io.grpc.Metadata;
+import io.opentelemetry.api.common.AttributeKey;
+import java.util.concurrent.ConcurrentHashMap;
+import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
+
+/**
+ * Cache of the objects derived from a metadata header name during capture: the {@link Metadata.Key}
+ * used to read the values and the span attribute keys the values are stored under.
+ *
+ * <p>Header names seen by a service are a small, stable set, so the derived objects are created
+ * once per name instead of once per header per call. The cache is bounded, names beyond the limit
+ * are resolved without being cached.
+ */
+public final class GrpcMetadataKeys {
+
+  private static final int MAX_CACHED_NAMES = 512;
+
+  private static final ConcurrentHashMap<String, GrpcMetadataKeys> CACHE =
+      new ConcurrentHashMap<>();
+
+  public final Metadata.Key<String> metadataKey;
+  public final AttributeKey<String> requestAttributeKey;
+  public final AttributeKey<String> responseAttributeKey;
+
+  private GrpcMetadataKeys(String name) {
+    this.metadataKey = Metadata.Key.of(name, Metadata.ASCII_STRING_MARSHALLER);
+    String attributeName = GrpcSemanticAttributes.removeHypertracePrefixAndAddColon(name);
+    this.requestAttributeKey = HypertraceSemanticAttributes.rpcRequestMetadata(attributeName);
+    this.responseAttributeKey = HypertraceSemanticAttributes.rpcResponseMetadata(attributeName);
+  }
+
+  /**
+   * Returns the keys for an ASCII metadata header name as returned by {@link Metadata#keys()}.
+   * Binary headers (ending with {@link Metadata#BINARY_HEADER_SUFFIX}) are not supported.
+   */
+  public static GrpcMetadataKeys forName(String name) {
+    GrpcMetadataKeys keys = CACHE.get(name);
+    if (keys == null) {
+      keys = new GrpcMetadataKeys(name);
+      if (CACHE.size() < MAX_CACHED_NAMES) {
+        GrpcMetadataKeys previous = CACHE.putIfAbsent(name, keys);
+        if (previous != null) {
+          keys = previous;
+        }
+      }
+    }
+    return keys;
+  }
+}
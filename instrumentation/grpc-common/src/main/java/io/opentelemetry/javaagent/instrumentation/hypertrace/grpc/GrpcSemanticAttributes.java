@@ -17,6 +17,8 @@
 package io.opentelemetry.javaagent.instrumentation.hypertrace.grpc;
 
 import io.grpc.Metadata;
+import io.opentelemetry.api.common.AttributeKey;
+import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
 
 public class GrpcSemanticAttributes {
   private GrpcSemanticAttributes() {}
@@ -44,9 +46,20 @@ public class GrpcSemanticAttributes {
   public static final Metadata.Key<String> METHOD_METADATA_KEY =
       Metadata.Key.of(PREFIX + METHOD, Metadata.ASCII_STRING_MARSHALLER);
 
+  /** Span attribute keys for the HTTP2 pseudo headers captured on the client side. */
+  public static final AttributeKey<String> SCHEME_REQUEST_METADATA_ATTRIBUTE =
+      HypertraceSemanticAttributes.rpcRequestMetadata(addColon(SCHEME));
+
+  public static final AttributeKey<String> PATH_REQUEST_METADATA_ATTRIBUTE =
+      HypertraceSemanticAttributes.rpcRequestMetadata(addColon(PATH));
+  public static final AttributeKey<String> AUTHORITY_REQUEST_METADATA_ATTRIBUTE =
+      HypertraceSemanticAttributes.rpcRequestMetadata(addColon(AUTHORITY));
+  public static final AttributeKey<String> METHOD_REQUEST_METADATA_ATTRIBUTE =
+      HypertraceSemanticAttributes.rpcRequestMetadata(addColon(METHOD));
+
   public static String removeHypertracePrefixAndAddColon(String key) {
     if (key.startsWith(PREFIX)) {
-      return addColon(key.replaceFirst(PREFIX, ""));
+      return addColon(key.substring(PREFIX.length()));
     }
     return key;
   }
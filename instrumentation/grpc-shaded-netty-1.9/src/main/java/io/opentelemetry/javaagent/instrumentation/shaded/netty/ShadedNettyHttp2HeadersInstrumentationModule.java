@@ -16,11 +16,14 @@
 
 package io.opentelemetry.javaagent.instrumentation.shaded.netty;
 
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasClassesNamed;
+
 import com.google.auto.service.AutoService;
 import io.opentelemetry.javaagent.extension.instrumentation.InstrumentationModule;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
 import java.util.Collections;
 import java.util.List;
+import net.bytebuddy.matcher.ElementMatcher;
 
 @AutoService(InstrumentationModule.class)
 public final class ShadedNettyHttp2HeadersInstrumentationModule extends InstrumentationModule {
@@ -29,6 +32,11 @@ public final class ShadedNettyHttp2HeadersInstrumentationModule extends Instrume
     super("grpc-netty", "ht", "grpc-netty-ht");
   }
 
+  @Override
+  public ElementMatcher.Junction<ClassLoader> classLoaderMatcher() {
+    return hasClassesNamed("io.grpc.netty.shaded.io.grpc.netty.Utils");
+  }
+
   @Override
   public List<TypeInstrumentation> typeInstrumentations() {
     return Collections.singletonList(new ShadedNettyUtilsInstrumentation());
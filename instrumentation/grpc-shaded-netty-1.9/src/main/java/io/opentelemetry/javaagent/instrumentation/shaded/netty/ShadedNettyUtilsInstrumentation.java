@@ -16,6 +16,7 @@
 
 package io.opentelemetry.javaagent.instrumentation.shaded.netty;
 
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasClassesNamed;
 import static net.bytebuddy.matcher.ElementMatchers.failSafe;
 import static net.bytebuddy.matcher.ElementMatchers.isMethod;
 import static net.bytebuddy.matcher.ElementMatchers.named;
@@ -34,6 +35,11 @@ import net.bytebuddy.matcher.ElementMatcher;
 
 final class ShadedNettyUtilsInstrumentation implements TypeInstrumentation {
 
+  @Override
+  public ElementMatcher<ClassLoader> classLoaderOptimization() {
+    return hasClassesNamed("io.grpc.netty.shaded.io.grpc.netty.Utils");
+  }
+
   @Override
   public ElementMatcher<TypeDescription> typeMatcher() {
     return failSafe(named("io.grpc.netty.shaded.io.grpc.netty.Utils"));
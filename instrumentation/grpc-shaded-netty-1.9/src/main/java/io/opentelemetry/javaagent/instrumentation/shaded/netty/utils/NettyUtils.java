@@ -20,7 +20,6 @@ import io.grpc.Metadata;
 import io.grpc.netty.shaded.io.netty.handler.codec.http2.Http2Headers;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.javaagent.instrumentation.hypertrace.grpc.GrpcSemanticAttributes;
-import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
 
 public class NettyUtils {
 
@@ -44,27 +43,19 @@ public class NettyUtils {
       Object scheme, Object defaultPath, Object authority, Object method, Span currentSpan) {
     if (scheme != null) {
       currentSpan.setAttribute(
-          HypertraceSemanticAttributes.rpcRequestMetadata(
-              GrpcSemanticAttributes.addColon(GrpcSemanticAttributes.SCHEME)),
-          scheme.toString());
+          GrpcSemanticAttributes.SCHEME_REQUEST_METADATA_ATTRIBUTE, scheme.toString());
     }
     if (defaultPath != null) {
       currentSpan.setAttribute(
-          HypertraceSemanticAttributes.rpcRequestMetadata(
-              GrpcSemanticAttributes.addColon(GrpcSemanticAttributes.PATH)),
-          defaultPath.toString());
+          GrpcSemanticAttributes.PATH_REQUEST_METADATA_ATTRIBUTE, defaultPath.toString());
     }
     if (authority != null) {
       currentSpan.setAttribute(
-          HypertraceSemanticAttributes.rpcRequestMetadata(
-              GrpcSemanticAttributes.addColon(GrpcSemanticAttributes.AUTHORITY)),
-          authority.toString());
+          GrpcSemanticAttributes.AUTHORITY_REQUEST_METADATA_ATTRIBUTE, authority.toString());
     }
     if (method != null) {
       currentSpan.setAttribute(
-          HypertraceSemanticAttributes.rpcRequestMetadata(
-              GrpcSemanticAttributes.addColon(GrpcSemanticAttributes.METHOD)),
-          method.toString());
+          GrpcSemanticAttributes.METHOD_REQUEST_METADATA_ATTRIBUTE, method.toString());
     }
   }
 }
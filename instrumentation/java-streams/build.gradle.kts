@@ -24,6 +24,8 @@ afterEvaluate{
 val versions: Map<String, String> by extra
 
 dependencies {
+    implementation(project(":instrumentation:type-matchers"))
     implementation("io.opentelemetry.instrumentation:opentelemetry-instrumentation-api:${versions["opentelemetry"]}")
+    compileOnly(project(":javaagent-bootstrap"))
     testImplementation(project(":testing-common"))
 }
@@ -0,0 +1,31 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.java;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.hypertrace.agent.core.instrumentation.HypertraceCallDepthThreadLocalMap;
+
+/** Call depth indices used by the stream advices, resolved once when the helper is loaded. */
+public final class StreamCallDepths {
+  private StreamCallDepths() {}
+
+  public static final int INPUT_STREAM =
+      HypertraceCallDepthThreadLocalMap.indexFor(InputStream.class);
+  public static final int OUTPUT_STREAM =
+      HypertraceCallDepthThreadLocalMap.indexFor(OutputStream.class);
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.java;
+
+import static net.bytebuddy.matcher.ElementMatchers.any;
+import static net.bytebuddy.matcher.ElementMatchers.none;
+
+import io.opentelemetry.javaagent.bootstrap.InstrumentationHolder;
+import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.util.ArrayList;
+import java.util.List;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.hypertrace.agent.core.instrumentation.utils.StreamCaptureScope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Restricts the stream instrumentations to the classes selected by {@link StreamCaptureScope}.
+ *
+ * <p>In the scoped mode a class is not instrumented when it is loaded, unless it has been
+ * registered before. Registering it later retransforms it, the matcher then accepts it.
+ */
+public final class StreamCaptureMatchers {
+
+  private static final Logger log = LoggerFactory.getLogger(StreamCaptureMatchers.class);
+
+  private StreamCaptureMatchers() {}
+
+  public static ElementMatcher.Junction<TypeDescription> inCaptureScope() {
+    switch (StreamCaptureScope.mode()) {
+      case SCOPED:
+        installRetransformer();
+        return new RegisteredTypeMatcher();
+      case WRAPPER:
+        return none();
+      default:
+        return any();
+    }
+  }
+
+  /**
+   * Matches only the classes registered in the scoped mode, for advice that is too broad to install
+   * into every stream class.
+   */
+  public static ElementMatcher.Junction<TypeDescription> registeredOnly() {
+    return StreamCaptureScope.mode() == StreamCaptureScope.Mode.SCOPED
+        ? new RegisteredTypeMatcher()
+        : none();
+  }
+
+  private static void installRetransformer() {
+    Instrumentation instrumentation = InstrumentationHolder.getInstrumentation();
+    if (instrumentation == null || !instrumentation.isRetransformClassesSupported()) {
+      log.warn("Retransformation is not supported, streams are only captured if registered early");
+      return;
+    }
+    StreamCaptureScope.setRetransformer(classes -> retransform(instrumentation, classes));
+  }
+
+  private static void retransform(Instrumentation instrumentation, Class<?>[] classes) {
+    List<Class<?>> modifiable = new ArrayList<>(classes.length);
+    for (Class<?> clazz : classes) {
+      if (instrumentation.isModifiableClass(clazz)) {
+        modifiable.add(clazz);
+      }
+    }
+    if (modifiable.isEmpty()) {
+      return;
+    }
+    try {
+      instrumentation.retransformClasses(modifiable.toArray(new Class<?>[0]));
+    } catch (UnmodifiableClassException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  static final class RegisteredTypeMatcher
+      extends ElementMatcher.Junction.AbstractBase<TypeDescription> {
+
+    @Override
+    public boolean matches(TypeDescription target) {
+      return StreamCaptureScope.isInstrumented(target.getName());
+    }
+
+    @Override
+    public String toString() {
+      return "registeredStreamType()";
+    }
+  }
+}
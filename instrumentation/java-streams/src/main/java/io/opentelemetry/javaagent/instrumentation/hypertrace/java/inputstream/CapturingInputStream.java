@@ -0,0 +1,91 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.java.inputstream;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.hypertrace.agent.core.instrumentation.SpanAndBuffer;
+
+/**
+ * Captures the data read from the wrapped stream, the wrapper based alternative to the {@link
+ * InputStream} instrumentation. The body is added to the span the same way, once the end of the
+ * stream is reached, {@link #available()} returns 0 or the stream is closed.
+ */
+public class CapturingInputStream extends FilterInputStream {
+
+  private SpanAndBuffer spanAndBuffer;
+
+  public CapturingInputStream(InputStream in, SpanAndBuffer spanAndBuffer) {
+    super(in);
+    this.spanAndBuffer = spanAndBuffer;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int read = super.read();
+    if (spanAndBuffer != null) {
+      if (read != -1) {
+        spanAndBuffer.byteArrayBuffer.write((byte) read);
+      } else {
+        addBody();
+      }
+    }
+    return read;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int read = super.read(b, off, len);
+    if (spanAndBuffer != null) {
+      if (read > 0) {
+        spanAndBuffer.byteArrayBuffer.write(b, off, read);
+      } else if (read == -1) {
+        addBody();
+      }
+    }
+    return read;
+  }
+
+  @Override
+  public int available() throws IOException {
+    int available = super.available();
+    if (available == 0 && spanAndBuffer != null) {
+      addBody();
+    }
+    return available;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      super.close();
+    } finally {
+      SpanAndBuffer spanAndBuffer = this.spanAndBuffer;
+      if (spanAndBuffer != null) {
+        this.spanAndBuffer = null;
+        InputStreamUtils.addPartialBody(spanAndBuffer);
+      }
+    }
+  }
+
+  private void addBody() {
+    SpanAndBuffer spanAndBuffer = this.spanAndBuffer;
+    this.spanAndBuffer = null;
+    InputStreamUtils.addBody(spanAndBuffer);
+  }
+}
@@ -16,8 +16,6 @@
 
 package io.opentelemetry.javaagent.instrumentation.hypertrace.java.inputstream;
 
-import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.extendsClass;
-import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasSuperType;
 import static net.bytebuddy.matcher.ElementMatchers.is;
 import static net.bytebuddy.matcher.ElementMatchers.isPublic;
 import static net.bytebuddy.matcher.ElementMatchers.named;
@@ -30,15 +28,19 @@ import io.opentelemetry.instrumentation.api.util.VirtualField;
 import io.opentelemetry.javaagent.extension.instrumentation.InstrumentationModule;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeTransformer;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.java.StreamCallDepths;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.java.StreamCaptureMatchers;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.matchers.IndexedTypeMatchers;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 import net.bytebuddy.asm.Advice;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
 import org.hypertrace.agent.core.instrumentation.HypertraceCallDepthThreadLocalMap;
 import org.hypertrace.agent.core.instrumentation.SpanAndBuffer;
+import org.hypertrace.agent.core.instrumentation.utils.StreamCaptureScope;
 
 /**
  * {@link InputStream} instrumentation. The type matcher applies to all implementations. However
@@ -50,8 +52,8 @@ import org.hypertrace.agent.core.instrumentation.SpanAndBuffer;
  * read is finished (return -1), creates new span with buffer when the original span is not
  * recording.
  *
- * <p>Maybe we could add optimization to instrument the input streams only when certain classes are
- * present in classloader e.g. classes from frameworks that we instrument.
+ * <p>The set of instrumented classes can be narrowed down with {@link
+ * StreamCaptureScope#MODE_PROPERTY}, see {@link StreamCaptureMatchers}.
  */
 @AutoService(InstrumentationModule.class)
 public class InputStreamInstrumentationModule extends InstrumentationModule {
@@ -62,15 +64,16 @@ public class InputStreamInstrumentationModule extends InstrumentationModule {
 
   @Override
   public List<TypeInstrumentation> typeInstrumentations() {
-    return Collections.singletonList(new InputStreamInstrumentation());
+    return Arrays.asList(new InputStreamInstrumentation(), new InputStreamCloseInstrumentation());
   }
 
   static class InputStreamInstrumentation implements TypeInstrumentation {
 
     @Override
     public ElementMatcher<TypeDescription> typeMatcher() {
-      return extendsClass(named(InputStream.class.getName()))
-          .and(not(hasSuperType(named("javax.servlet.ServletInputStream"))));
+      return StreamCaptureMatchers.inCaptureScope()
+          .and(IndexedTypeMatchers.extendsClass(InputStream.class.getName()))
+          .and(not(IndexedTypeMatchers.hasSuperClass("javax.servlet.ServletInputStream")));
     }
 
     @Override
@@ -110,6 +113,27 @@ public class InputStreamInstrumentationModule extends InstrumentationModule {
     }
   }
 
+  /**
+   * Releases the span of a stream closed before its end. It is only installed into the classes
+   * registered in the scoped mode, {@code close()} of every stream class is too broad.
+   */
+  static class InputStreamCloseInstrumentation implements TypeInstrumentation {
+
+    @Override
+    public ElementMatcher<TypeDescription> typeMatcher() {
+      return StreamCaptureMatchers.registeredOnly()
+          .and(IndexedTypeMatchers.extendsClass(InputStream.class.getName()))
+          .and(not(IndexedTypeMatchers.hasSuperClass("javax.servlet.ServletInputStream")));
+    }
+
+    @Override
+    public void transform(TypeTransformer transformer) {
+      transformer.applyAdviceToMethod(
+          named("close").and(takesArguments(0)).and(isPublic()),
+          InputStreamInstrumentationModule.class.getName() + "$InputStream_Close");
+    }
+  }
+
   public static class InputStream_ReadNoArgsAdvice {
     @Advice.OnMethodEnter(suppress = Throwable.class)
     public static SpanAndBuffer enter(@Advice.This InputStream thizz) {
@@ -125,7 +149,8 @@ public class InputStreamInstrumentationModule extends InstrumentationModule {
       if (spanAndBuffer == null) {
         return;
       }
-      int callDepth = HypertraceCallDepthThreadLocalMap.decrementCallDepth(InputStream.class);
+      int callDepth =
+          HypertraceCallDepthThreadLocalMap.decrementCallDepth(StreamCallDepths.INPUT_STREAM);
       if (callDepth > 0) {
         return;
       }
@@ -151,7 +176,8 @@ public class InputStreamInstrumentationModule extends InstrumentationModule {
       if (spanAndBuffer == null) {
         return;
       }
-      int callDepth = HypertraceCallDepthThreadLocalMap.decrementCallDepth(InputStream.class);
+      int callDepth =
+          HypertraceCallDepthThreadLocalMap.decrementCallDepth(StreamCallDepths.INPUT_STREAM);
       if (callDepth > 0) {
         return;
       }
@@ -178,7 +204,8 @@ public class InputStreamInstrumentationModule extends InstrumentationModule {
       if (spanAndBuffer == null) {
         return;
       }
-      int callDepth = HypertraceCallDepthThreadLocalMap.decrementCallDepth(InputStream.class);
+      int callDepth =
+          HypertraceCallDepthThreadLocalMap.decrementCallDepth(StreamCallDepths.INPUT_STREAM);
       if (callDepth > 0) {
         return;
       }
@@ -210,7 +237,8 @@ public class InputStreamInstrumentationModule extends InstrumentationModule {
       if (spanAndBuffer == null) {
         return;
       }
-      int callDepth = HypertraceCallDepthThreadLocalMap.decrementCallDepth(InputStream.class);
+      int callDepth =
+          HypertraceCallDepthThreadLocalMap.decrementCallDepth(StreamCallDepths.INPUT_STREAM);
       if (callDepth > 0) {
         return;
       }
@@ -238,7 +266,8 @@ public class InputStreamInstrumentationModule extends InstrumentationModule {
       if (spanAndBuffer == null) {
         return;
       }
-      int callDepth = HypertraceCallDepthThreadLocalMap.decrementCallDepth(InputStream.class);
+      int callDepth =
+          HypertraceCallDepthThreadLocalMap.decrementCallDepth(StreamCallDepths.INPUT_STREAM);
       if (callDepth > 0) {
         return;
       }
@@ -264,13 +293,23 @@ public class InputStreamInstrumentationModule extends InstrumentationModule {
 
       SpanAndBuffer spanAndBuffer = contextStore.get(thizz);
       if (spanAndBuffer != null) {
-        InputStreamUtils.addBody(
-            spanAndBuffer.span,
-            spanAndBuffer.attributeKey,
-            spanAndBuffer.byteArrayBuffer,
-            spanAndBuffer.charset,
-            spanAndBuffer.contentEncoding);
+        InputStreamUtils.addBody(spanAndBuffer);
+        contextStore.set(thizz, null);
+      }
+    }
+  }
+
+  /** Adds the body read so far when the stream is closed before its end, and releases the span. */
+  public static class InputStream_Close {
+    @Advice.OnMethodExit(suppress = Throwable.class, onThrowable = Throwable.class)
+    public static void exit(@Advice.This InputStream thizz) {
+      VirtualField<InputStream, SpanAndBuffer> contextStore =
+          VirtualField.find(InputStream.class, SpanAndBuffer.class);
+
+      SpanAndBuffer spanAndBuffer = contextStore.get(thizz);
+      if (spanAndBuffer != null) {
         contextStore.set(thizz, null);
+        InputStreamUtils.addPartialBody(spanAndBuffer);
       }
     }
   }
@@ -23,6 +23,7 @@ import io.opentelemetry.api.trace.SpanBuilder;
 import io.opentelemetry.api.trace.Tracer;
 import io.opentelemetry.context.Context;
 import io.opentelemetry.instrumentation.api.util.VirtualField;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.java.StreamCallDepths;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -30,12 +31,12 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.nio.charset.Charset;
 import java.util.zip.GZIPInputStream;
+import org.hypertrace.agent.core.config.InstrumentationConfigSnapshot;
 import org.hypertrace.agent.core.instrumentation.HypertraceCallDepthThreadLocalMap;
 import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
+import org.hypertrace.agent.core.instrumentation.LateBodyHold;
 import org.hypertrace.agent.core.instrumentation.SpanAndBuffer;
 import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
 import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
@@ -51,64 +52,92 @@ public class InputStreamUtils {
   private static final Tracer TRACER =
       GlobalOpenTelemetry.get().getTracer("org.hypertrace.java.inputstream");
 
-  private static Method getAttribute = null;
-  private static boolean hasGetAttributeMethod = true;
-
   /**
-   * Adds an attribute to span. If the span is ended it adds the attributed to a newly created
-   * child.
+   * Adds an attribute to span. If the span is ended it is added when the span is exported, if its
+   * export is held for the body. Otherwise it is added to a newly created child, together with the
+   * content type and encoding of the body it carries when the matching headers are captured.
    */
-  public static void addAttribute(Span span, AttributeKey<String> attributeKey, String value) {
+  public static void addAttribute(
+      Span span,
+      AttributeKey<String> attributeKey,
+      String value,
+      String contentType,
+      String contentEncoding) {
     if (span.isRecording()) {
       span.setAttribute(attributeKey, value);
-    } else {
-      SpanBuilder spanBuilder =
-          TRACER
-              .spanBuilder(HypertraceSemanticAttributes.ADDITIONAL_DATA_SPAN_NAME)
-              .setParent(Context.root().with(span))
-              .setAttribute(attributeKey, value);
-
-      // Also add content type if present
-      if (span.getClass().getName().equals("io.opentelemetry.sdk.trace.SdkSpan")) {
-        try {
-          if (getAttribute == null) {
-            if (hasGetAttributeMethod) {
-              getAttribute = span.getClass().getDeclaredMethod("getAttribute", AttributeKey.class);
-              getAttribute.setAccessible(true);
-            }
-          }
-          if (getAttribute != null) {
-            Object reqContentType =
-                getAttribute.invoke(
-                    span, HypertraceSemanticAttributes.HTTP_REQUEST_HEADER_CONTENT_TYPE);
-            if (reqContentType != null) {
-              spanBuilder.setAttribute("http.request.header.content-type", (String) reqContentType);
-            }
-            Object resContentType =
-                getAttribute.invoke(
-                    span, HypertraceSemanticAttributes.HTTP_RESPONSE_HEADER_CONTENT_TYPE);
-            if (resContentType != null) {
-              spanBuilder.setAttribute(
-                  "http.response.header.content-type", (String) resContentType);
-            }
-            Object resContentEncoding =
-                getAttribute.invoke(
-                    span, HypertraceSemanticAttributes.HTTP_RESPONSE_HEADER_CONTENT_ENCODING);
-            if (resContentEncoding != null) {
-              spanBuilder.setAttribute(
-                  "http.response.header.content-encoding", (String) resContentEncoding);
-            }
-          }
-        } catch (IllegalAccessException | InvocationTargetException e) {
-          // ignore and continue
-          log.debug("Could not invoke getAttribute on SdkSpan", e);
-        } catch (NoSuchMethodException e) {
-          log.debug("getAttribute method not found in SdkSpan class", e);
-          // do not attempt to get this method again
-          hasGetAttributeMethod = false;
-        }
+      LateBodyHold.release(span);
+      return;
+    }
+    if (LateBodyHold.attach(span, attributeKey, value)) {
+      return;
+    }
+    SpanBuilder spanBuilder =
+        TRACER
+            .spanBuilder(HypertraceSemanticAttributes.ADDITIONAL_DATA_SPAN_NAME)
+            .setParent(Context.root().with(span))
+            .setAttribute(attributeKey, value);
+    // the headers are only repeated on the child if they are captured on the span itself
+    InstrumentationConfigSnapshot instrumentationConfig = InstrumentationConfigSnapshot.get();
+    if (HypertraceSemanticAttributes.HTTP_REQUEST_BODY.equals(attributeKey)) {
+      if (instrumentationConfig.httpHeadersRequest && contentType != null) {
+        spanBuilder.setAttribute(
+            HypertraceSemanticAttributes.HTTP_REQUEST_HEADER_CONTENT_TYPE, contentType);
+      }
+    } else if (instrumentationConfig.httpHeadersResponse) {
+      if (contentType != null) {
+        spanBuilder.setAttribute(
+            HypertraceSemanticAttributes.HTTP_RESPONSE_HEADER_CONTENT_TYPE, contentType);
+      }
+      if (contentEncoding != null) {
+        spanBuilder.setAttribute(
+            HypertraceSemanticAttributes.HTTP_RESPONSE_HEADER_CONTENT_ENCODING, contentEncoding);
+      }
+    }
+    spanBuilder.startSpan().end();
+  }
+
+  public static void addBody(SpanAndBuffer spanAndBuffer) {
+    addBody(
+        spanAndBuffer.span,
+        spanAndBuffer.attributeKey,
+        spanAndBuffer.byteArrayBuffer,
+        spanAndBuffer.charset,
+        spanAndBuffer.contentType,
+        spanAndBuffer.contentEncoding);
+  }
+
+  /**
+   * Adds the body of a stream closed before its end. A gzip body is then truncated, the part that
+   * can be inflated is added.
+   */
+  public static void addPartialBody(SpanAndBuffer spanAndBuffer) {
+    String contentEncoding = spanAndBuffer.contentEncoding;
+    if (contentEncoding == null || !contentEncoding.toLowerCase().contains("gzip")) {
+      addBody(spanAndBuffer);
+      return;
+    }
+    Charset charset = spanAndBuffer.charset;
+    BoundedByteArrayOutputStream inflated = BoundedBuffersFactory.createStream(charset);
+    try (GZIPInputStream gzipInputStream =
+        new GZIPInputStream(
+            new ByteArrayInputStream(spanAndBuffer.byteArrayBuffer.toByteArray()))) {
+      byte[] chunk = new byte[1024];
+      int read;
+      while ((read = gzipInputStream.read(chunk)) != -1) {
+        inflated.write(chunk, 0, read);
       }
-      spanBuilder.startSpan().end();
+    } catch (IOException e) {
+      log.debug("Gzip body is truncated, adding the part inflated so far", e);
+    }
+    try {
+      InputStreamUtils.addAttribute(
+          spanAndBuffer.span,
+          spanAndBuffer.attributeKey,
+          inflated.toStringWithSuppliedCharset(),
+          spanAndBuffer.contentType,
+          contentEncoding);
+    } catch (UnsupportedEncodingException e) {
+      log.error("Failed to parse encoding from charset {}", charset, e);
     }
   }
 
@@ -117,6 +146,7 @@ public class InputStreamUtils {
       AttributeKey<String> attributeKey,
       ByteArrayOutputStream buffer,
       Charset charset,
+      String contentType,
       String contentEncoding) {
     try {
       byte[] data = buffer.toByteArray();
@@ -127,12 +157,12 @@ public class InputStreamUtils {
             new GZIPInputStream(new ByteArrayInputStream(data))) {
           InputStreamReader reader = new InputStreamReader(gzipInputStream, charset);
           String body = readInputStream(reader, charset);
-          InputStreamUtils.addAttribute(span, attributeKey, body);
+          InputStreamUtils.addAttribute(span, attributeKey, body, contentType, contentEncoding);
         }
       } else {
         // No decompression needed, convert directly to string
         String body = new String(data, charset);
-        InputStreamUtils.addAttribute(span, attributeKey, body);
+        InputStreamUtils.addAttribute(span, attributeKey, body, contentType, contentEncoding);
       }
     } catch (UnsupportedEncodingException e) {
       log.error("Failed to parse encoding from charset {}", charset, e);
@@ -148,7 +178,7 @@ public class InputStreamUtils {
       return null;
     }
 
-    HypertraceCallDepthThreadLocalMap.incrementCallDepth(InputStream.class);
+    HypertraceCallDepthThreadLocalMap.incrementCallDepth(StreamCallDepths.INPUT_STREAM);
     return spanAndBuffer;
   }
 
@@ -160,12 +190,7 @@ public class InputStreamUtils {
     if (read != -1) {
       spanAndBuffer.byteArrayBuffer.write((byte) read);
     } else if (read == -1) {
-      InputStreamUtils.addBody(
-          spanAndBuffer.span,
-          spanAndBuffer.attributeKey,
-          spanAndBuffer.byteArrayBuffer,
-          spanAndBuffer.charset,
-          spanAndBuffer.contentEncoding);
+      InputStreamUtils.addBody(spanAndBuffer);
       contextStore.set(inputStream, null);
     }
   }
@@ -175,12 +200,7 @@ public class InputStreamUtils {
     if (read > 0) {
       spanAndBuffer.byteArrayBuffer.write(b, 0, read);
     } else if (read == -1) {
-      InputStreamUtils.addBody(
-          spanAndBuffer.span,
-          spanAndBuffer.attributeKey,
-          spanAndBuffer.byteArrayBuffer,
-          spanAndBuffer.charset,
-          spanAndBuffer.contentEncoding);
+      InputStreamUtils.addBody(spanAndBuffer);
       VirtualField.find(InputStream.class, SpanAndBuffer.class).set(inputStream, null);
     }
   }
@@ -196,12 +216,7 @@ public class InputStreamUtils {
     if (read > 0) {
       spanAndBuffer.byteArrayBuffer.write(b, off, read);
     } else if (read == -1) {
-      InputStreamUtils.addBody(
-          spanAndBuffer.span,
-          spanAndBuffer.attributeKey,
-          spanAndBuffer.byteArrayBuffer,
-          spanAndBuffer.charset,
-          spanAndBuffer.contentEncoding);
+      InputStreamUtils.addBody(spanAndBuffer);
       contextStore.set(inputStream, null);
     }
   }
@@ -225,12 +240,7 @@ public class InputStreamUtils {
       int off,
       int len) {
     if (read == 0) {
-      InputStreamUtils.addBody(
-          spanAndBuffer.span,
-          spanAndBuffer.attributeKey,
-          spanAndBuffer.byteArrayBuffer,
-          spanAndBuffer.charset,
-          spanAndBuffer.contentEncoding);
+      InputStreamUtils.addBody(spanAndBuffer);
       contextStore.set(inputStream, null);
     } else {
       spanAndBuffer.byteArrayBuffer.write(b, off, read);
@@ -0,0 +1,52 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.java.outputstream;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
+
+/**
+ * Copies the data written to the wrapped stream to a buffer, the wrapper based alternative to the
+ * {@link OutputStream} instrumentation.
+ */
+public class CapturingOutputStream extends FilterOutputStream {
+
+  private final BoundedByteArrayOutputStream buffer;
+
+  public CapturingOutputStream(OutputStream out, BoundedByteArrayOutputStream buffer) {
+    super(out);
+    this.buffer = buffer;
+  }
+
+  public BoundedByteArrayOutputStream getBuffer() {
+    return buffer;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    out.write(b);
+    buffer.write(b);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    out.write(b, off, len);
+    buffer.write(b, off, len);
+  }
+}
@@ -16,7 +16,6 @@
 
 package io.opentelemetry.javaagent.instrumentation.hypertrace.java.outputstream;
 
-import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.extendsClass;
 import static net.bytebuddy.matcher.ElementMatchers.is;
 import static net.bytebuddy.matcher.ElementMatchers.isPublic;
 import static net.bytebuddy.matcher.ElementMatchers.named;
@@ -28,6 +27,9 @@ import io.opentelemetry.instrumentation.api.util.VirtualField;
 import io.opentelemetry.javaagent.extension.instrumentation.InstrumentationModule;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeTransformer;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.java.StreamCallDepths;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.java.StreamCaptureMatchers;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.matchers.IndexedTypeMatchers;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Collections;
@@ -37,6 +39,7 @@ import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
 import org.hypertrace.agent.core.instrumentation.HypertraceCallDepthThreadLocalMap;
 import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
+import org.hypertrace.agent.core.instrumentation.utils.StreamCaptureScope;
 
 /**
  * {@link OutputStream} instrumentation. The type matcher applies to all implementations. However
@@ -46,6 +49,9 @@ import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputSt
  * <p>If the stream is in the {@link io.opentelemetry.instrumentation.api.util.VirtualField} then
  * arguments to write methods are also passed to the buffered stream (value) from the map. The
  * buffered stream is then used by other instrumentations to capture body.
+ *
+ * <p>The set of instrumented classes can be narrowed down with {@link
+ * StreamCaptureScope#MODE_PROPERTY}, see {@link StreamCaptureMatchers}.
  */
 @AutoService(InstrumentationModule.class)
 public class OutputStreamInstrumentationModule extends InstrumentationModule {
@@ -63,7 +69,8 @@ public class OutputStreamInstrumentationModule extends InstrumentationModule {
 
     @Override
     public ElementMatcher<TypeDescription> typeMatcher() {
-      return extendsClass(named(OutputStream.class.getName()));
+      return StreamCaptureMatchers.inCaptureScope()
+          .and(IndexedTypeMatchers.extendsClass(OutputStream.class.getName()));
     }
 
     @Override
@@ -101,7 +108,8 @@ public class OutputStreamInstrumentationModule extends InstrumentationModule {
       if (buffer == null) {
         return null;
       }
-      int callDepth = HypertraceCallDepthThreadLocalMap.incrementCallDepth(OutputStream.class);
+      int callDepth =
+          HypertraceCallDepthThreadLocalMap.incrementCallDepth(StreamCallDepths.OUTPUT_STREAM);
       if (callDepth > 0) {
         return buffer;
       }
@@ -113,7 +121,7 @@ public class OutputStreamInstrumentationModule extends InstrumentationModule {
     @Advice.OnMethodExit(suppress = Throwable.class, onThrowable = Throwable.class)
     public static void exit(@Advice.Enter BoundedByteArrayOutputStream buffer) {
       if (buffer != null) {
-        HypertraceCallDepthThreadLocalMap.decrementCallDepth(OutputStream.class);
+        HypertraceCallDepthThreadLocalMap.decrementCallDepth(StreamCallDepths.OUTPUT_STREAM);
       }
     }
   }
@@ -127,7 +135,8 @@ public class OutputStreamInstrumentationModule extends InstrumentationModule {
       if (buffer == null) {
         return null;
       }
-      int callDepth = HypertraceCallDepthThreadLocalMap.incrementCallDepth(OutputStream.class);
+      int callDepth =
+          HypertraceCallDepthThreadLocalMap.incrementCallDepth(StreamCallDepths.OUTPUT_STREAM);
       if (callDepth > 0) {
         return buffer;
       }
@@ -139,7 +148,7 @@ public class OutputStreamInstrumentationModule extends InstrumentationModule {
     @Advice.OnMethodExit(suppress = Throwable.class, onThrowable = Throwable.class)
     public static void exit(@Advice.Enter BoundedByteArrayOutputStream buffer) {
       if (buffer != null) {
-        HypertraceCallDepthThreadLocalMap.decrementCallDepth(OutputStream.class);
+        HypertraceCallDepthThreadLocalMap.decrementCallDepth(StreamCallDepths.OUTPUT_STREAM);
       }
     }
   }
@@ -156,7 +165,8 @@ public class OutputStreamInstrumentationModule extends InstrumentationModule {
       if (buffer == null) {
         return null;
       }
-      int callDepth = HypertraceCallDepthThreadLocalMap.incrementCallDepth(OutputStream.class);
+      int callDepth =
+          HypertraceCallDepthThreadLocalMap.incrementCallDepth(StreamCallDepths.OUTPUT_STREAM);
       if (callDepth > 0) {
         return buffer;
       }
@@ -168,7 +178,7 @@ public class OutputStreamInstrumentationModule extends InstrumentationModule {
     @Advice.OnMethodExit(suppress = Throwable.class, onThrowable = Throwable.class)
     public static void exit(@Advice.Enter BoundedByteArrayOutputStream buffer) {
       if (buffer != null) {
-        HypertraceCallDepthThreadLocalMap.decrementCallDepth(OutputStream.class);
+        HypertraceCallDepthThreadLocalMap.decrementCallDepth(StreamCallDepths.OUTPUT_STREAM);
       }
     }
   }
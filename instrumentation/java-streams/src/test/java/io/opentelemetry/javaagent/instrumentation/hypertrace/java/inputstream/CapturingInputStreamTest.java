@@ -0,0 +1,100 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.java.inputstream;
+
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPOutputStream;
+import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
+import org.hypertrace.agent.core.instrumentation.SpanAndBuffer;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
+import org.hypertrace.agent.testing.AbstractInstrumenterTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CapturingInputStreamTest extends AbstractInstrumenterTest {
+
+  @Test
+  public void capturesReadData() throws IOException {
+    byte[] body = "{\"name\": \"capturing\"}".getBytes(StandardCharsets.UTF_8);
+    SpanAndBuffer spanAndBuffer =
+        new SpanAndBuffer(
+            Span.getInvalid(),
+            BoundedBuffersFactory.createStream(StandardCharsets.UTF_8),
+            HypertraceSemanticAttributes.HTTP_RESPONSE_BODY,
+            StandardCharsets.UTF_8,
+            "application/json",
+            null);
+    InputStream inputStream =
+        new CapturingInputStream(new ByteArrayInputStream(body), spanAndBuffer);
+
+    Assertions.assertEquals(body[0], inputStream.read());
+    byte[] rest = new byte[64];
+    int read = inputStream.read(rest);
+    Assertions.assertEquals(body.length - 1, read);
+    Assertions.assertEquals(-1, inputStream.read(rest));
+    // the body has been reported, data read afterwards is not captured
+    Assertions.assertEquals(-1, inputStream.read());
+
+    Assertions.assertArrayEquals(body, spanAndBuffer.byteArrayBuffer.toByteArray());
+  }
+
+  @Test
+  public void closeBeforeEndAddsInflatedPartOfGzipBody()
+      throws IOException, TimeoutException, InterruptedException {
+    String body = "{\"name\": \"truncated\"}";
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(gzipped)) {
+      gzipOutputStream.write(body.getBytes(StandardCharsets.UTF_8));
+    }
+    byte[] data = gzipped.toByteArray();
+
+    Span span = GlobalOpenTelemetry.getTracer("test").spanBuilder("test").startSpan();
+    SpanAndBuffer spanAndBuffer =
+        new SpanAndBuffer(
+            span,
+            BoundedBuffersFactory.createStream(StandardCharsets.UTF_8),
+            HypertraceSemanticAttributes.HTTP_RESPONSE_BODY,
+            StandardCharsets.UTF_8,
+            "application/json",
+            "gzip");
+    InputStream inputStream =
+        new CapturingInputStream(new ByteArrayInputStream(data), spanAndBuffer);
+    // the gzip trailer is never read
+    byte[] read = new byte[data.length - 8];
+    Assertions.assertEquals(read.length, inputStream.read(read));
+    inputStream.close();
+    span.end();
+
+    List<List<io.opentelemetry.proto.trace.v1.Span>> traces = TEST_WRITER.waitForSpans(1);
+    Assertions.assertEquals(1, traces.size());
+    Assertions.assertEquals(1, traces.get(0).size());
+    Assertions.assertEquals(
+        body,
+        TEST_WRITER
+            .getAttributesMap(traces.get(0).get(0))
+            .get(HypertraceSemanticAttributes.HTTP_RESPONSE_BODY.getKey())
+            .getStringValue());
+  }
+}
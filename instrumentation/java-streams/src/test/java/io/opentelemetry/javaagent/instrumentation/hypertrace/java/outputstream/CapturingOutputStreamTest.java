@@ -0,0 +1,43 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.java.outputstream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CapturingOutputStreamTest {
+
+  @Test
+  public void copiesWrittenData() throws IOException {
+    byte[] body = "{\"name\": \"capturing\"}".getBytes(StandardCharsets.UTF_8);
+    ByteArrayOutputStream target = new ByteArrayOutputStream();
+    CapturingOutputStream outputStream =
+        new CapturingOutputStream(
+            target, BoundedBuffersFactory.createStream(StandardCharsets.UTF_8));
+
+    outputStream.write(body[0]);
+    outputStream.write(body, 1, body.length - 1);
+    outputStream.close();
+
+    Assertions.assertArrayEquals(body, target.toByteArray());
+    Assertions.assertArrayEquals(body, outputStream.getBuffer().toByteArray());
+  }
+}
@@ -20,6 +20,7 @@ import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.util.AttributeKey;
 import java.nio.charset.Charset;
 import java.util.Map;
+import org.hypertrace.agent.core.config.InstrumentationConfigSnapshot;
 import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
 import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
 
@@ -40,6 +41,10 @@ public class AttributeKeys {
       io.opentelemetry.javaagent.instrumentation.netty.v4_0.AttributeKeys.attributeKey(
           HypertraceSemanticAttributes.HTTP_RESPONSE_HEADER_CONTENT_ENCODING.getKey());
 
+  public static final AttributeKey<InstrumentationConfigSnapshot> CAPTURE_CONFIG =
+      io.opentelemetry.javaagent.instrumentation.netty.v4_0.AttributeKeys.attributeKey(
+          AttributeKeys.class.getName() + ".capture-config");
+
   public static final AttributeKey<Charset> CHARSET =
       io.opentelemetry.javaagent.instrumentation.netty.v4_0.AttributeKeys.attributeKey(
           HttpHeaders.Values.CHARSET);
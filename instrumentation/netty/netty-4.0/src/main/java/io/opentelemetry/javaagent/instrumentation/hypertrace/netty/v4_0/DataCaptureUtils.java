@@ -31,6 +31,7 @@ import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
 import java.util.zip.GZIPInputStream;
+import org.hypertrace.agent.core.config.InstrumentationConfigSnapshot;
 import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
 import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
 import org.hypertrace.agent.core.instrumentation.utils.ContentTypeCharsetUtils;
@@ -39,6 +40,18 @@ public class DataCaptureUtils {
 
   private DataCaptureUtils() {}
 
+  /**
+   * Returns the capture config resolved for the current request of the server channel, see {@link
+   * InstrumentationConfigSnapshot#forHttp(String, String)}.
+   */
+  public static InstrumentationConfigSnapshot getCaptureConfig(Channel channel) {
+    InstrumentationConfigSnapshot instrumentationConfig =
+        channel.attr(AttributeKeys.CAPTURE_CONFIG).get();
+    return instrumentationConfig != null
+        ? instrumentationConfig
+        : InstrumentationConfigSnapshot.get();
+  }
+
   public static void captureBody(
       Span span,
       Channel channel,
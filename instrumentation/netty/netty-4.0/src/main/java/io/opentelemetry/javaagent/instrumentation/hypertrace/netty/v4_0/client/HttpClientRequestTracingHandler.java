@@ -33,7 +33,7 @@ import io.opentelemetry.javaagent.instrumentation.hypertrace.netty.v4_0.DataCapt
 import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.Map;
-import org.hypertrace.agent.core.config.InstrumentationConfig;
+import org.hypertrace.agent.core.config.InstrumentationConfigSnapshot;
 import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
 import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
 import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
@@ -44,9 +44,6 @@ import org.hypertrace.agent.core.instrumentation.utils.ServiceNameHeaderUtils;
 
 public class HttpClientRequestTracingHandler extends ChannelOutboundHandlerAdapter {
 
-  private static final InstrumentationConfig instrumentationConfig =
-      InstrumentationConfig.ConfigProvider.get();
-
   @Override
   public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise prm) {
     Channel channel = ctx.channel();
@@ -65,7 +62,7 @@ public class HttpClientRequestTracingHandler extends ChannelOutboundHandlerAdapt
       HttpRequest httpRequest = (HttpRequest) msg;
 
       Map<String, String> headersMap = headersToMap(httpRequest);
-      if (instrumentationConfig.httpHeaders().request()) {
+      if (InstrumentationConfigSnapshot.get().httpHeadersRequest) {
         headersMap.forEach(span::setAttribute);
       }
 
@@ -77,7 +74,7 @@ public class HttpClientRequestTracingHandler extends ChannelOutboundHandlerAdapt
               ServiceNameHeaderUtils.getClientServiceName());
 
       CharSequence contentType = DataCaptureUtils.getContentType(httpRequest);
-      if (instrumentationConfig.httpBody().request()
+      if (InstrumentationConfigSnapshot.get().httpBodyRequest
           && contentType != null
           && ContentTypeUtils.shouldCapture(contentType.toString())) {
 
@@ -98,7 +95,7 @@ public class HttpClientRequestTracingHandler extends ChannelOutboundHandlerAdapt
     }
 
     if ((msg instanceof HttpContent || msg instanceof ByteBuf)
-        && instrumentationConfig.httpBody().request()) {
+        && InstrumentationConfigSnapshot.get().httpBodyRequest) {
       Charset charset = channel.attr(AttributeKeys.CHARSET).get();
       if (charset == null) {
         charset = ContentTypeCharsetUtils.getDefaultCharset();
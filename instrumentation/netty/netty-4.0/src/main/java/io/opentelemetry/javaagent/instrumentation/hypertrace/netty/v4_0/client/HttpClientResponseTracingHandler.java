@@ -35,7 +35,7 @@ import io.opentelemetry.javaagent.instrumentation.netty.v4_0.client.NettyClientS
 import io.opentelemetry.semconv.SemanticAttributes;
 import java.nio.charset.Charset;
 import java.util.Map;
-import org.hypertrace.agent.core.config.InstrumentationConfig;
+import org.hypertrace.agent.core.config.InstrumentationConfigSnapshot;
 import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
 import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
 import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
@@ -45,9 +45,6 @@ import org.hypertrace.agent.core.instrumentation.utils.ContentTypeUtils;
 
 public class HttpClientResponseTracingHandler extends ChannelInboundHandlerAdapter {
 
-  private static final InstrumentationConfig instrumentationConfig =
-      InstrumentationConfig.ConfigProvider.get();
-
   @Override
   public void channelRead(ChannelHandlerContext ctx, Object msg) {
     Channel channel = ctx.channel();
@@ -64,12 +61,12 @@ public class HttpClientResponseTracingHandler extends ChannelInboundHandlerAdapt
 
     if (msg instanceof HttpResponse) {
       HttpResponse httpResponse = (HttpResponse) msg;
-      if (instrumentationConfig.httpHeaders().response()) {
+      if (InstrumentationConfigSnapshot.get().httpHeadersResponse) {
         captureHeaders(span, httpResponse);
       }
 
       CharSequence contentType = DataCaptureUtils.getContentType(httpResponse);
-      if (instrumentationConfig.httpBody().response()
+      if (InstrumentationConfigSnapshot.get().httpBodyResponse
           && contentType != null
           && ContentTypeUtils.shouldCapture(contentType.toString())) {
 
@@ -97,7 +94,7 @@ public class HttpClientResponseTracingHandler extends ChannelInboundHandlerAdapt
     }
 
     if ((msg instanceof HttpContent || msg instanceof ByteBuf)
-        && instrumentationConfig.httpBody().response()) {
+        && InstrumentationConfigSnapshot.get().httpBodyResponse) {
       // Retrieve content encoding from the channel attribute
       Charset charset = channel.attr(AttributeKeys.CHARSET).get();
       if (charset == null) {
@@ -30,23 +30,20 @@ import io.opentelemetry.context.Context;
 import io.opentelemetry.context.Scope;
 import io.opentelemetry.javaagent.instrumentation.hypertrace.netty.v4_0.AttributeKeys;
 import io.opentelemetry.javaagent.instrumentation.hypertrace.netty.v4_0.DataCaptureUtils;
-import io.opentelemetry.javaagent.instrumentation.hypertrace.netty.v4_0.client.OtelHttpClientRequestTracingHandler;
 import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.Map;
-import org.hypertrace.agent.core.config.InstrumentationConfig;
+import org.hypertrace.agent.core.config.InstrumentationConfigSnapshot;
 import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
 import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
 import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
+import org.hypertrace.agent.core.instrumentation.utils.BodyCaptureSampler;
 import org.hypertrace.agent.core.instrumentation.utils.ContentLengthUtils;
 import org.hypertrace.agent.core.instrumentation.utils.ContentTypeCharsetUtils;
 import org.hypertrace.agent.core.instrumentation.utils.ContentTypeUtils;
 
 public class HttpServerRequestTracingHandler extends ChannelInboundHandlerAdapter {
 
-  private static final InstrumentationConfig instrumentationConfig =
-      InstrumentationConfig.ConfigProvider.get();
-
   @Override
   public void channelRead(ChannelHandlerContext ctx, Object msg) {
     Channel channel = ctx.channel();
@@ -60,25 +57,28 @@ public class HttpServerRequestTracingHandler extends ChannelInboundHandlerAdapte
       return;
     }
 
-    // Store the server context in our ThreadLocal for later use by client handlers
-    // This is CRITICAL for proper context propagation to client spans
-    OtelHttpClientRequestTracingHandler.storeServerContext(context);
-
     try (Scope ignored = context.makeCurrent()) {
       Span span = Span.fromContext(context);
 
       if (msg instanceof HttpRequest) {
         HttpRequest httpRequest = (HttpRequest) msg;
+        InstrumentationConfigSnapshot instrumentationConfig =
+            BodyCaptureSampler.sample(
+                InstrumentationConfigSnapshot.get()
+                    .forHttp(httpRequest.getMethod().name(), httpRequest.getUri()),
+                span.getSpanContext());
+        // used by the following content and the response of this request
+        channel.attr(AttributeKeys.CAPTURE_CONFIG).set(instrumentationConfig);
 
         Map<String, String> headersMap = headersToMap(httpRequest);
-        if (instrumentationConfig.httpHeaders().request()) {
+        if (instrumentationConfig.httpHeadersRequest) {
           headersMap.forEach(span::setAttribute);
         }
         // used by blocking handler
         channel.attr(AttributeKeys.REQUEST_HEADERS).set(headersMap);
 
         CharSequence contentType = DataCaptureUtils.getContentType(httpRequest);
-        if (instrumentationConfig.httpBody().request()
+        if (instrumentationConfig.httpBodyRequest
             && contentType != null
             && ContentTypeUtils.shouldCapture(contentType.toString())) {
 
@@ -99,7 +99,7 @@ public class HttpServerRequestTracingHandler extends ChannelInboundHandlerAdapte
       }
 
       if ((msg instanceof HttpContent || msg instanceof ByteBuf)
-          && instrumentationConfig.httpBody().request()) {
+          && DataCaptureUtils.getCaptureConfig(channel).httpBodyRequest) {
         Charset charset = channel.attr(AttributeKeys.CHARSET).get();
         if (charset == null) {
           charset = ContentTypeCharsetUtils.getDefaultCharset();
@@ -107,9 +107,11 @@ public class HttpServerRequestTracingHandler extends ChannelInboundHandlerAdapte
         DataCaptureUtils.captureBody(
             span, channel, AttributeKeys.REQUEST_BODY_BUFFER, msg, null, charset);
       }
-    }
 
-    ctx.fireChannelRead(msg);
+      // client requests issued by the application while handling this request are parented by
+      // the current context, see OtelHttpClientRequestTracingHandler
+      ctx.fireChannelRead(msg);
+    }
   }
 
   private static Map<String, String> headersToMap(HttpMessage httpMessage) {
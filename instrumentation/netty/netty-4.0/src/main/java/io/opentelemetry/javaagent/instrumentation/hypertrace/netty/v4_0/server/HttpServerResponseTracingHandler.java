@@ -36,7 +36,7 @@ import io.opentelemetry.javaagent.instrumentation.netty.v4_0.server.NettyServerS
 import io.opentelemetry.semconv.SemanticAttributes;
 import java.nio.charset.Charset;
 import java.util.Map;
-import org.hypertrace.agent.core.config.InstrumentationConfig;
+import org.hypertrace.agent.core.config.InstrumentationConfigSnapshot;
 import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
 import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
 import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
@@ -46,9 +46,6 @@ import org.hypertrace.agent.core.instrumentation.utils.ContentTypeUtils;
 
 public class HttpServerResponseTracingHandler extends ChannelOutboundHandlerAdapter {
 
-  private static final InstrumentationConfig instrumentationConfig =
-      InstrumentationConfig.ConfigProvider.get();
-
   @Override
   public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise prm) {
     Channel channel = ctx.channel();
@@ -62,15 +59,17 @@ public class HttpServerResponseTracingHandler extends ChannelOutboundHandlerAdap
       return;
     }
     Span span = Span.fromContext(context);
+    InstrumentationConfigSnapshot instrumentationConfig =
+        DataCaptureUtils.getCaptureConfig(channel);
 
     if (msg instanceof HttpResponse) {
       HttpResponse httpResponse = (HttpResponse) msg;
-      if (instrumentationConfig.httpHeaders().response()) {
+      if (instrumentationConfig.httpHeadersResponse) {
         captureHeaders(span, httpResponse);
       }
 
       CharSequence contentType = DataCaptureUtils.getContentType(httpResponse);
-      if (instrumentationConfig.httpBody().response()
+      if (instrumentationConfig.httpBodyResponse
           && contentType != null
           && ContentTypeUtils.shouldCapture(contentType.toString())) {
 
@@ -98,7 +97,7 @@ public class HttpServerResponseTracingHandler extends ChannelOutboundHandlerAdap
     }
 
     if ((msg instanceof HttpContent || msg instanceof ByteBuf)
-        && instrumentationConfig.httpBody().response()) {
+        && instrumentationConfig.httpBodyResponse) {
       Charset charset = channel.attr(AttributeKeys.CHARSET).get();
       if (charset == null) {
         charset = ContentTypeCharsetUtils.getDefaultCharset();
@@ -121,14 +120,15 @@ public class HttpServerResponseTracingHandler extends ChannelOutboundHandlerAdap
       span.setStatus(code >= 100 && code < 500 ? StatusCode.UNSET : StatusCode.ERROR);
     }
     if (msg instanceof LastHttpContent) {
-      // When we end the span, we should set the server context and request attr to null so that
-      // for the next request a new context and request is made and stored in channel.
-      // Else, when using a Connection: keep-alive header, the same server context and request attr
-      // is used in the subsequent requests.
+      // When we end the span, we should set the server context, request and capture config attr to
+      // null so that for the next request a new context, request and config is stored in channel.
+      // Else, when using a Connection: keep-alive header, the same attrs are used in the
+      // subsequent requests.
       ctx.channel()
           .attr(io.opentelemetry.javaagent.instrumentation.netty.v4_0.AttributeKeys.SERVER_CONTEXT)
           .set(null);
       ctx.channel().attr(AttributeKeys.REQUEST).set(null);
+      ctx.channel().attr(AttributeKeys.CAPTURE_CONFIG).set(null);
       span.end();
     }
   }
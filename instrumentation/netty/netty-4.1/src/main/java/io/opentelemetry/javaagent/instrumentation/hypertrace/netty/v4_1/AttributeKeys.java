@@ -19,6 +19,7 @@ package io.opentelemetry.javaagent.instrumentation.hypertrace.netty.v4_1;
 import io.netty.util.AttributeKey;
 import java.nio.charset.Charset;
 import java.util.Map;
+import org.hypertrace.agent.core.config.InstrumentationConfigSnapshot;
 import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
 import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
 
@@ -37,6 +38,9 @@ public class AttributeKeys {
       AttributeKey.valueOf(
           HypertraceSemanticAttributes.HTTP_RESPONSE_HEADER_CONTENT_ENCODING.getKey());
 
+  public static final AttributeKey<InstrumentationConfigSnapshot> CAPTURE_CONFIG =
+      AttributeKey.valueOf(AttributeKeys.class, "capture-config");
+
   public static final AttributeKey<Charset> PROVIDED_CHARSET =
       AttributeKey.valueOf("provided-charset");
 
@@ -20,101 +20,37 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponse;
-import io.opentelemetry.api.trace.Span;
-import io.opentelemetry.api.trace.SpanContext;
 import io.opentelemetry.context.Context;
 import io.opentelemetry.instrumentation.api.instrumenter.Instrumenter;
 import io.opentelemetry.instrumentation.netty.v4.common.HttpRequestAndChannel;
 import io.opentelemetry.instrumentation.netty.v4_1.internal.AttributeKeys;
 import io.opentelemetry.instrumentation.netty.v4_1.internal.client.HttpClientRequestTracingHandler;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Custom extension of OpenTelemetry's HttpClientRequestTracingHandler that ensures proper context
  * propagation by using Context.current() as the parent context.
+ *
+ * <p>The server handlers keep the server context current while a request is dispatched to the
+ * application, so client requests issued while handling it are parented by the server span. No
+ * per-thread or global state is kept, which could leak a server context into unrelated requests.
  */
 public class OtelHttpClientRequestTracingHandler extends HttpClientRequestTracingHandler {
 
-  // Store the server context for each thread
-  private static final ThreadLocal<Context> SERVER_CONTEXT = new ThreadLocal<>();
-
-  // Store the mapping from thread ID to server span context (for cross-thread scenarios)
-  private static final ConcurrentHashMap<Long, SpanContext> THREAD_TO_SPAN_CONTEXT =
-      new ConcurrentHashMap<>();
-
-  // Maximum size for the thread map before triggering cleanup
-  private static final int MAX_THREAD_MAP_SIZE = 1000;
-
-  // Cleanup flag to avoid excessive synchronized blocks
-  private static volatile boolean cleanupNeeded = false;
-
   public OtelHttpClientRequestTracingHandler(
       Instrumenter<HttpRequestAndChannel, HttpResponse> instrumenter) {
     super(instrumenter);
   }
 
-  /**
-   * Stores the current context as the server context for this thread. This should be called from
-   * the server handler.
-   */
-  public static void storeServerContext(Context context) {
-    SERVER_CONTEXT.set(context);
-
-    // Also store the span context by thread ID for cross-thread lookup
-    Span span = Span.fromContext(context);
-    if (span != null && span.getSpanContext().isValid()) {
-      THREAD_TO_SPAN_CONTEXT.put(Thread.currentThread().getId(), span.getSpanContext());
-
-      // Check if we need to clean up the map
-      if (THREAD_TO_SPAN_CONTEXT.size() > MAX_THREAD_MAP_SIZE) {
-        cleanupNeeded = true;
-      }
-    }
-  }
-
-  /**
-   * Perform cleanup of the thread map if it has grown too large. This is done in a synchronized
-   * block to prevent concurrent modification issues.
-   */
-  private static void cleanupThreadMapIfNeeded() {
-    if (cleanupNeeded) {
-      synchronized (THREAD_TO_SPAN_CONTEXT) {
-        if (THREAD_TO_SPAN_CONTEXT.size() > MAX_THREAD_MAP_SIZE) {
-          THREAD_TO_SPAN_CONTEXT.clear();
-          cleanupNeeded = false;
-        }
-      }
-    }
-  }
-
   @Override
   public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise prm) {
     try {
-      if (!(msg instanceof HttpRequest)) {
-        super.write(ctx, msg, prm);
-        return;
+      if (msg instanceof HttpRequest) {
+        // Store the parent context in the channel attributes
+        // This is used by the Opentelemetry's HttpClientRequestTracingHandler in propagating
+        // correct context.
+        ctx.channel().attr(AttributeKeys.CLIENT_PARENT_CONTEXT).set(Context.current());
       }
-
-      Context parentContext = SERVER_CONTEXT.get();
-
-      // Fallback -> If no context in thread local, try Context.current()
-      if (parentContext == null) {
-        parentContext = Context.current();
-      }
-
-      // Store the parent context in the channel attributes
-      // This is used by the Opentelemetry's HttpClientRequestTracingHandler in propagating correct
-      // context.
-      ctx.channel().attr(AttributeKeys.CLIENT_PARENT_CONTEXT).set(parentContext);
-
-      // Call the parent implementation which will use our stored parent context
       super.write(ctx, msg, prm);
-
-      // Clean up after use to prevent memory leaks
-      SERVER_CONTEXT.remove();
-      THREAD_TO_SPAN_CONTEXT.remove(Thread.currentThread().getId());
-      cleanupThreadMapIfNeeded();
-
     } catch (Exception ignored) {
     }
   }
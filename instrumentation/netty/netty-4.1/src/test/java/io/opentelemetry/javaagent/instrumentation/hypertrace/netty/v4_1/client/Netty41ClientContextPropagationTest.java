@@ -0,0 +1,188 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.netty.v4_1.client;
+
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.opentelemetry.proto.common.v1.AnyValue;
+import io.opentelemetry.proto.trace.v1.Span;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.asynchttpclient.AsyncCompletionHandler;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.DefaultAsyncHttpClientConfig;
+import org.asynchttpclient.Dsl;
+import org.hypertrace.agent.testing.AbstractInstrumenterTest;
+import org.hypertrace.agent.testing.TestHttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Sends concurrent requests to a Netty proxy server that forwards each of them with a Netty client
+ * to {@link TestHttpServer}, and verifies that every outgoing client request is parented by the
+ * server request that issued it.
+ */
+public class Netty41ClientContextPropagationTest extends AbstractInstrumenterTest {
+
+  private static final int REQUESTS = 64;
+  private static final Pattern REQUEST_ID = Pattern.compile("[?&]id=(\\d+)");
+
+  private static final TestHttpServer testHttpServer = new TestHttpServer();
+  private static final AsyncHttpClient asyncHttpClient =
+      Dsl.asyncHttpClient(
+          new DefaultAsyncHttpClientConfig.Builder().setRequestTimeout(30000).build());
+  private static EventLoopGroup eventLoopGroup;
+  private static int proxyPort;
+
+  @BeforeAll
+  public static void startServers() throws Exception {
+    testHttpServer.start();
+
+    // a single event loop thread serves all proxied requests
+    eventLoopGroup = new NioEventLoopGroup(1);
+    Channel channel =
+        new ServerBootstrap()
+            .group(eventLoopGroup)
+            .channel(NioServerSocketChannel.class)
+            .childHandler(
+                new ChannelInitializer<Channel>() {
+                  @Override
+                  protected void initChannel(Channel ch) {
+                    ch.pipeline().addLast(new HttpServerCodec());
+                    ch.pipeline().addLast(new HttpObjectAggregator(1024));
+                    ch.pipeline().addLast(new ProxyHandler());
+                  }
+                })
+            .bind(0)
+            .sync()
+            .channel();
+    proxyPort = ((InetSocketAddress) channel.localAddress()).getPort();
+  }
+
+  @AfterAll
+  public static void stopServers() throws Exception {
+    asyncHttpClient.close();
+    eventLoopGroup.shutdownGracefully().get();
+    testHttpServer.close();
+  }
+
+  @Test
+  public void concurrentRequestsDoNotShareContext() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+    try {
+      List<Future<Integer>> responses = new ArrayList<>();
+      for (int i = 0; i < REQUESTS; i++) {
+        String url = String.format("http://localhost:%d/proxy?id=%d", proxyPort, i);
+        responses.add(
+            executor.submit(
+                () -> {
+                  try (Response response =
+                      httpClient.newCall(new Request.Builder().url(url).get().build()).execute()) {
+                    return response.code();
+                  }
+                }));
+      }
+      for (Future<Integer> response : responses) {
+        Assertions.assertEquals(200, response.get(30, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    List<List<Span>> traces = TEST_WRITER.waitForTraces(REQUESTS, trace -> false);
+    Assertions.assertEquals(REQUESTS, traces.size());
+    Set<String> requestIds = new HashSet<>();
+    for (List<Span> trace : traces) {
+      Set<String> traceRequestIds = new HashSet<>();
+      boolean proxied = false;
+      for (Span span : trace) {
+        for (AnyValue value : TEST_WRITER.getAttributesMap(span).values()) {
+          Matcher matcher = REQUEST_ID.matcher(value.getStringValue());
+          if (matcher.find()) {
+            traceRequestIds.add(matcher.group(1));
+            proxied |= value.getStringValue().contains("/get_json");
+          }
+        }
+      }
+      Assertions.assertEquals(1, traceRequestIds.size(), "request ids in one trace: " + trace);
+      Assertions.assertTrue(proxied, "proxied request is missing in trace: " + trace);
+      requestIds.addAll(traceRequestIds);
+    }
+    Assertions.assertEquals(REQUESTS, requestIds.size());
+  }
+
+  static class ProxyHandler extends SimpleChannelInboundHandler<HttpRequest> {
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, HttpRequest request) {
+      String id = new QueryStringDecoder(request.uri()).parameters().get("id").get(0);
+      asyncHttpClient
+          .prepareGet(
+              String.format("http://localhost:%d/get_json?id=%s", testHttpServer.port(), id))
+          .execute(
+              new AsyncCompletionHandler<Void>() {
+                @Override
+                public Void onCompleted(org.asynchttpclient.Response response) {
+                  respond(ctx, HttpResponseStatus.OK, response.getResponseBody());
+                  return null;
+                }
+
+                @Override
+                public void onThrowable(Throwable t) {
+                  respond(ctx, HttpResponseStatus.BAD_GATEWAY, "");
+                }
+              });
+    }
+
+    private static void respond(ChannelHandlerContext ctx, HttpResponseStatus status, String body) {
+      FullHttpResponse response =
+          new DefaultFullHttpResponse(HTTP_1_1, status, Unpooled.wrappedBuffer(body.getBytes()));
+      response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+      ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+    }
+  }
+}
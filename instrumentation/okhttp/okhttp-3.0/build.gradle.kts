@@ -26,6 +26,8 @@ afterEvaluate{
 val versions: Map<String, String> by extra
 
 dependencies {
+    implementation(project(":instrumentation:java-streams"))
     compileOnly("com.squareup.okhttp3:okhttp:3.0.0")
     testImplementation(project(":testing-common"))
+    testImplementation("com.squareup.okhttp3:mockwebserver:4.9.0")
 }
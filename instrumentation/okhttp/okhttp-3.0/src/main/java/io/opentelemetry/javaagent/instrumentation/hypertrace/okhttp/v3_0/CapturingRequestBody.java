@@ -0,0 +1,154 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.okhttp.v3_0;
+
+import io.opentelemetry.api.trace.Span;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.Charset;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.Okio;
+import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Copies the request body to a bounded buffer while OkHttp writes it to the network, the body is
+ * serialized only once. The body is added to the span when {@link #writeTo(BufferedSink)} returns.
+ *
+ * <p>Duplex bodies (OkHttp 4) keep writing after {@link #writeTo(BufferedSink)} returns, they are
+ * not wrapped. One-shot bodies are wrapped, the wrapper reports the same {@code isOneShot()}. Both
+ * methods are looked up once, they are not called on OkHttp versions that do not have them.
+ */
+class CapturingRequestBody extends RequestBody {
+
+  private static final Logger log = LoggerFactory.getLogger(CapturingRequestBody.class);
+
+  // added in OkHttp 3.14, null for older versions
+  private static final MethodHandle IS_ONE_SHOT = findMethod("isOneShot");
+  private static final MethodHandle IS_DUPLEX = findMethod("isDuplex");
+
+  private final RequestBody delegate;
+  private final Span span;
+  private final Charset charset;
+  private final boolean oneShot;
+
+  private CapturingRequestBody(RequestBody delegate, Span span, Charset charset, boolean oneShot) {
+    this.delegate = delegate;
+    this.span = span;
+    this.charset = charset;
+    this.oneShot = oneShot;
+  }
+
+  /** Returns the wrapped body, or the body itself if it cannot be captured while it is written. */
+  static RequestBody wrap(RequestBody requestBody, Span span, Charset charset) {
+    if (invoke(IS_DUPLEX, requestBody)) {
+      return requestBody;
+    }
+    return new CapturingRequestBody(requestBody, span, charset, invoke(IS_ONE_SHOT, requestBody));
+  }
+
+  @Override
+  public MediaType contentType() {
+    return delegate.contentType();
+  }
+
+  @Override
+  public long contentLength() throws IOException {
+    return delegate.contentLength();
+  }
+
+  // overrides RequestBody.isOneShot() in OkHttp 3.14+
+  public boolean isOneShot() {
+    return oneShot;
+  }
+
+  @Override
+  public void writeTo(BufferedSink sink) throws IOException {
+    // a new buffer for every attempt, bodies are written again on retries and redirects
+    BoundedByteArrayOutputStream buffer =
+        BoundedBuffersFactory.createStream(
+            (int) Math.min(contentLength(), Integer.MAX_VALUE), charset);
+    CapturingSink capturingSink = new CapturingSink(sink, buffer);
+    BufferedSink bufferedSink = Okio.buffer(capturingSink);
+    delegate.writeTo(bufferedSink);
+    if (!capturingSink.closed) {
+      bufferedSink.emit();
+    }
+    try {
+      span.setAttribute(
+          HypertraceSemanticAttributes.HTTP_REQUEST_BODY, buffer.toStringWithSuppliedCharset());
+    } catch (UnsupportedEncodingException e) {
+      // should not happen, the charset has been parsed before
+    }
+  }
+
+  private static MethodHandle findMethod(String name) {
+    try {
+      return MethodHandles.publicLookup()
+          .findVirtual(RequestBody.class, name, MethodType.methodType(boolean.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      return null;
+    }
+  }
+
+  private static boolean invoke(MethodHandle method, RequestBody requestBody) {
+    if (method == null) {
+      return false;
+    }
+    try {
+      return (boolean) method.invokeExact(requestBody);
+    } catch (Throwable t) {
+      log.debug("Could not invoke {} on request body", method, t);
+      return false;
+    }
+  }
+
+  private static final class CapturingSink extends ForwardingSink {
+    private final BoundedByteArrayOutputStream buffer;
+    private final int maxSize = BoundedBuffersFactory.maxSize();
+    private boolean closed;
+
+    CapturingSink(BufferedSink delegate, BoundedByteArrayOutputStream buffer) {
+      super(delegate);
+      this.buffer = buffer;
+    }
+
+    @Override
+    public void write(Buffer source, long byteCount) throws IOException {
+      if (buffer.size() < maxSize) {
+        source.copyTo(buffer, 0, Math.min(byteCount, maxSize - buffer.size()));
+      }
+      super.write(source, byteCount);
+    }
+
+    @Override
+    public void close() throws IOException {
+      closed = true;
+      super.close();
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.okhttp.v3_0;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.java.inputstream.InputStreamUtils;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Source;
+import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
+
+/**
+ * Copies the response body to a bounded buffer while the application reads it. The body is added to
+ * the span at the end of the stream or when the source is closed. The client span has usually ended
+ * by then, in that case the body is reported on an additional span.
+ */
+class CapturingResponseSource extends ForwardingSource {
+
+  private final Span span;
+  private final Charset charset;
+  private final String contentType;
+  private final String contentEncoding;
+  private final int maxSize;
+  private final BoundedByteArrayOutputStream buffer;
+  private boolean reported;
+
+  CapturingResponseSource(
+      Source delegate,
+      Span span,
+      long contentLength,
+      Charset charset,
+      String contentType,
+      String contentEncoding) {
+    super(delegate);
+    this.span = span;
+    this.charset = charset;
+    this.contentType = contentType;
+    this.contentEncoding = contentEncoding;
+    this.maxSize = BoundedBuffersFactory.maxSize();
+    this.buffer =
+        BoundedBuffersFactory.createStream(
+            (int) Math.min(contentLength, Integer.MAX_VALUE), charset);
+  }
+
+  @Override
+  public long read(Buffer sink, long byteCount) throws IOException {
+    long read = super.read(sink, byteCount);
+    if (reported) {
+      return read;
+    }
+    if (read == -1) {
+      report();
+    } else if (read > 0 && buffer.size() < maxSize) {
+      long copied = Math.min(read, maxSize - buffer.size());
+      sink.copyTo(buffer, sink.size() - read, copied);
+    }
+    return read;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      super.close();
+    } finally {
+      if (!reported) {
+        report();
+      }
+    }
+  }
+
+  private void report() {
+    reported = true;
+    InputStreamUtils.addBody(
+        span,
+        HypertraceSemanticAttributes.HTTP_RESPONSE_BODY,
+        buffer,
+        charset,
+        contentType,
+        contentEncoding);
+  }
+}
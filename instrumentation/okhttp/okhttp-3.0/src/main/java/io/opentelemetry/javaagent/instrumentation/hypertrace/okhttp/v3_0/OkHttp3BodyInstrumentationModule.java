@@ -16,6 +16,7 @@
 
 package io.opentelemetry.javaagent.instrumentation.hypertrace.okhttp.v3_0;
 
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasClassesNamed;
 import static net.bytebuddy.matcher.ElementMatchers.isConstructor;
 import static net.bytebuddy.matcher.ElementMatchers.named;
 import static net.bytebuddy.matcher.ElementMatchers.takesArgument;
@@ -44,12 +45,22 @@ public class OkHttp3BodyInstrumentationModule extends InstrumentationModule {
     return 1;
   }
 
+  @Override
+  public ElementMatcher.Junction<ClassLoader> classLoaderMatcher() {
+    return hasClassesNamed("okhttp3.OkHttpClient");
+  }
+
   @Override
   public List<TypeInstrumentation> typeInstrumentations() {
     return Collections.singletonList(new OkHttp3BodyInstrumentation());
   }
 
   private static final class OkHttp3BodyInstrumentation implements TypeInstrumentation {
+    @Override
+    public ElementMatcher<ClassLoader> classLoaderOptimization() {
+      return hasClassesNamed("okhttp3.OkHttpClient");
+    }
+
     @Override
     public ElementMatcher<TypeDescription> typeMatcher() {
       return named("okhttp3.OkHttpClient");
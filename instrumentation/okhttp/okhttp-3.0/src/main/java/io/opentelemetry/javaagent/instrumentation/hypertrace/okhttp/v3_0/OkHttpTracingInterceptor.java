@@ -18,6 +18,7 @@ package io.opentelemetry.javaagent.instrumentation.hypertrace.okhttp.v3_0;
 
 import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.java.inputstream.InputStreamUtils;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
@@ -29,12 +30,14 @@ import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
-import okio.Buffer;
 import okio.BufferedSource;
-import okio.GzipSource;
 import okio.Okio;
-import org.hypertrace.agent.core.config.InstrumentationConfig;
+import org.hypertrace.agent.core.config.InstrumentationConfigSnapshot;
 import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
+import org.hypertrace.agent.core.instrumentation.LateBodyHold;
+import org.hypertrace.agent.core.instrumentation.SpanAndBuffer;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
 import org.hypertrace.agent.core.instrumentation.utils.ContentTypeUtils;
 import org.hypertrace.agent.core.instrumentation.utils.ServiceNameHeaderUtils;
 import org.slf4j.Logger;
@@ -42,57 +45,54 @@ import org.slf4j.LoggerFactory;
 
 public class OkHttpTracingInterceptor implements Interceptor {
   private static final Logger log = LoggerFactory.getLogger(OkHttpTracingInterceptor.class);
-  private static final InstrumentationConfig instrumentationConfig =
-      InstrumentationConfig.ConfigProvider.get();
 
   @Override
   public Response intercept(Chain chain) throws IOException {
-    if (!instrumentationConfig.isInstrumentationEnabled(
-        Okhttp3InstrumentationName.PRIMARY, Okhttp3InstrumentationName.OTHER)) {
+    if (!InstrumentationConfigSnapshot.get().anyEnabled) {
       return chain.proceed(chain.request());
     }
 
     Span span = Span.current();
 
     Request request = chain.request();
-    if (instrumentationConfig.httpHeaders().request()) {
+    if (InstrumentationConfigSnapshot.get().httpHeadersRequest) {
       captureHeaders(span, request.headers(), HypertraceSemanticAttributes::httpRequestHeader);
     }
 
     // Add service name header to outgoing requests
     request = addClientSeriveNameHeader(request);
 
-    captureRequestBody(span, request.body());
+    request = captureRequestBody(span, request);
 
     Response response = chain.proceed(request);
-    if (instrumentationConfig.httpHeaders().response()) {
+    if (InstrumentationConfigSnapshot.get().httpHeadersResponse) {
       captureHeaders(span, response.headers(), HypertraceSemanticAttributes::httpResponseHeader);
     }
     return captureResponseBody(span, response);
   }
 
-  private static void captureRequestBody(Span span, RequestBody requestBody) {
-    if (!instrumentationConfig.httpBody().request()) {
-      return;
+  private static Request captureRequestBody(Span span, Request request) {
+    if (!InstrumentationConfigSnapshot.get().httpBodyRequest) {
+      return request;
     }
+    RequestBody requestBody = request.body();
     if (requestBody == null) {
-      return;
+      return request;
     }
     MediaType mediaType = requestBody.contentType();
     if (mediaType == null || !ContentTypeUtils.shouldCapture(mediaType.toString())) {
-      return;
-    }
-    try {
-      Buffer buffer = new Buffer();
-      requestBody.writeTo(buffer);
-      span.setAttribute(HypertraceSemanticAttributes.HTTP_REQUEST_BODY, buffer.readUtf8());
-    } catch (IOException e) {
-      log.error("Could not read request requestBody", e);
+      return request;
     }
+    // capture the body while it is written to the network instead of serializing it twice
+    return request
+        .newBuilder()
+        .method(
+            request.method(), CapturingRequestBody.wrap(requestBody, span, getCharset(mediaType)))
+        .build();
   }
 
   private static Response captureResponseBody(Span span, final Response response) {
-    if (!instrumentationConfig.httpBody().response()) {
+    if (!InstrumentationConfigSnapshot.get().httpBodyResponse) {
       return response;
     }
     if (response.body() == null) {
@@ -105,37 +105,60 @@ public class OkHttpTracingInterceptor implements Interceptor {
       return response;
     }
 
-    try {
-      // Read the entire response body one-shot into a byte-array
-      // responseBody.string(), this looks for the charset if available in content-type header
-      // else defaults to utf-8. So read bytes itself as done here and use for building new response
-      // ref: https://square.github.io/okhttp/3.x/okhttp/okhttp3/ResponseBody.html
-      byte[] byteArray = responseBody.source().readByteArray();
-      String body;
-
-      // Determine the content encoding
-      String contentEncoding = response.header("Content-Encoding");
-      if (contentEncoding != null && contentEncoding.toLowerCase().contains("gzip")) {
-        // Decompress the response body if it is GZIP encoded using GzipSource
-        GzipSource gzipSource = new GzipSource(new Buffer().write(byteArray));
-        BufferedSource bufferedGzipSource = Okio.buffer(gzipSource);
-
-        // capture the decompressed content from gzip source to set as response body in span
-        body = bufferedGzipSource.readString(getCharset(mediaType));
-      } else {
-        // capture the response body for other cases
-        body = new String(byteArray, getCharset(mediaType));
-      }
+    if (!LateBodyHold.isInstalled()) {
+      // the client span ends before the application reads the body, without the hold the body
+      // would be reported on an additional span
+      return prefetchResponseBody(span, response, responseBody, mediaType);
+    }
 
-      span.setAttribute(HypertraceSemanticAttributes.HTTP_RESPONSE_BODY, body);
+    // Tee the body into a bounded buffer while the application reads it, so the response keeps
+    // streaming and at most maxBodySizeBytes are held for capture.
+    // GZIP encoded bodies are decoded when the body is added to the span.
+    CapturingResponseSource source =
+        new CapturingResponseSource(
+            responseBody.source(),
+            span,
+            responseBody.contentLength(),
+            getCharset(mediaType),
+            mediaType.toString(),
+            response.header("Content-Encoding"));
+    LateBodyHold.expect(span);
+    return response
+        .newBuilder()
+        .body(ResponseBody.create(mediaType, responseBody.contentLength(), Okio.buffer(source)))
+        .build();
+  }
 
-      // Return the response with its body and encoding exactly the same as the original response
-      return response.newBuilder().body(ResponseBody.create(mediaType, byteArray)).build();
+  /**
+   * Buffers at most maxBodySizeBytes of the body and adds them to the span before it ends. The
+   * buffered bytes stay in the source, the application reads them and then streams the rest.
+   */
+  private static Response prefetchResponseBody(
+      Span span, Response response, ResponseBody responseBody, MediaType mediaType) {
+    BufferedSource source = responseBody.source();
+    Charset charset = getCharset(mediaType);
+    try {
+      source.request(BoundedBuffersFactory.maxSize());
+      int size = (int) Math.min(source.buffer().size(), BoundedBuffersFactory.maxSize());
+      BoundedByteArrayOutputStream buffer = BoundedBuffersFactory.createStream(size, charset);
+      source.buffer().copyTo(buffer, 0, size);
+      // a truncated gzip body is inflated as far as it goes
+      InputStreamUtils.addPartialBody(
+          new SpanAndBuffer(
+              span,
+              buffer,
+              HypertraceSemanticAttributes.HTTP_RESPONSE_BODY,
+              charset,
+              mediaType.toString(),
+              response.header("Content-Encoding")));
     } catch (IOException e) {
-      log.error("Could not read response body", e);
+      // the application gets the same error when it reads the body
+      log.debug("Could not read response body", e);
     }
-
-    return response;
+    return response
+        .newBuilder()
+        .body(ResponseBody.create(mediaType, responseBody.contentLength(), source))
+        .build();
   }
 
   // Helper method to determine charset from MediaType if available else default to UTF-8
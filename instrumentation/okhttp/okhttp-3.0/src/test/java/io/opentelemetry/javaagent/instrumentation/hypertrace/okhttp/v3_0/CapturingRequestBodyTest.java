@@ -0,0 +1,205 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.okhttp.v3_0;
+
+import io.opentelemetry.proto.common.v1.AnyValue;
+import io.opentelemetry.proto.trace.v1.Span;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.BufferedSink;
+import org.hypertrace.agent.testing.AbstractInstrumenterTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CapturingRequestBodyTest extends AbstractInstrumenterTest {
+
+  private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+  // the default of ht.data.capture.body.max.size.bytes, the tests run without overriding it
+  private static final int MAX_BODY_SIZE = 128 * 1024;
+
+  private final MockWebServer server = new MockWebServer();
+  private final OkHttpClient client = new OkHttpClient.Builder().build();
+
+  @BeforeEach
+  public void startMockServer() throws IOException {
+    server.start();
+  }
+
+  @AfterEach
+  public void stopMockServer() throws IOException {
+    server.shutdown();
+  }
+
+  @Test
+  public void oneShotBodyIsWrittenOnce() throws Exception {
+    // OkHttp retries a 408 unless the body is one-shot
+    server.enqueue(new MockResponse().setResponseCode(408));
+    server.enqueue(new MockResponse().setResponseCode(200));
+    String body = "{\"name\":\"one-shot\"}";
+    CountingRequestBody requestBody = new CountingRequestBody(body, true, false);
+
+    try (Response response = client.newCall(post(requestBody)).execute()) {
+      Assertions.assertEquals(408, response.code());
+    }
+
+    Assertions.assertEquals(1, requestBody.writes.get());
+    Assertions.assertEquals(1, server.getRequestCount());
+    Assertions.assertEquals(body, server.takeRequest().getBody().readUtf8());
+    Assertions.assertEquals(body, requestBody(clientSpan()));
+  }
+
+  @Test
+  public void duplexBodyIsNotCaptured() throws Exception {
+    // duplex bodies are only supported over HTTP/2
+    OkHttpClient http2Client =
+        new OkHttpClient.Builder()
+            .protocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE))
+            .build();
+    MockWebServer http2Server = new MockWebServer();
+    http2Server.setProtocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+    http2Server.enqueue(new MockResponse().setResponseCode(200));
+    http2Server.start();
+    String body = "{\"name\":\"duplex\"}";
+    CountingRequestBody requestBody = new CountingRequestBody(body, false, true);
+
+    RecordedRequest recordedRequest;
+    try (Response response =
+        http2Client
+            .newCall(
+                new Request.Builder().url(http2Server.url("/duplex")).post(requestBody).build())
+            .execute()) {
+      Assertions.assertEquals(200, response.code());
+      recordedRequest = http2Server.takeRequest();
+    } finally {
+      http2Server.shutdown();
+    }
+
+    Assertions.assertEquals(body, recordedRequest.getBody().readUtf8());
+    Assertions.assertEquals(1, requestBody.writes.get());
+    Assertions.assertNull(requestBody(clientSpan()));
+  }
+
+  @Test
+  public void bodyIsDecodedWithDeclaredCharset() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(200));
+    String body = "{\"name\":\"grüße señor\"}";
+
+    try (Response response =
+        client
+            .newCall(
+                post(
+                    RequestBody.create(
+                        body, MediaType.get("application/json; charset=ISO-8859-1"))))
+            .execute()) {
+      Assertions.assertEquals(200, response.code());
+    }
+
+    Assertions.assertArrayEquals(
+        body.getBytes(StandardCharsets.ISO_8859_1), server.takeRequest().getBody().readByteArray());
+    Assertions.assertEquals(body, requestBody(clientSpan()));
+  }
+
+  @Test
+  public void captureStopsAtMaxBodySize() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(200));
+    char[] chars = new char[MAX_BODY_SIZE * 2];
+    Arrays.fill(chars, 'x');
+    String body = "{\"body\":\"" + new String(chars) + "\"}";
+
+    try (Response response = client.newCall(post(RequestBody.create(body, JSON))).execute()) {
+      Assertions.assertEquals(200, response.code());
+    }
+
+    Assertions.assertEquals(body.length(), server.takeRequest().getBodySize());
+    Assertions.assertEquals(body.substring(0, MAX_BODY_SIZE), requestBody(clientSpan()));
+  }
+
+  private Request post(RequestBody requestBody) {
+    return new Request.Builder().url(server.url("/post")).post(requestBody).build();
+  }
+
+  private static Span clientSpan() throws InterruptedException, TimeoutException {
+    List<List<Span>> traces =
+        TEST_WRITER.waitForSpans(1, span -> !span.getKind().equals(Span.SpanKind.SPAN_KIND_CLIENT));
+    Assertions.assertEquals(1, traces.size());
+    Assertions.assertEquals(1, traces.get(0).size());
+    return traces.get(0).get(0);
+  }
+
+  private static String requestBody(Span span) {
+    Map<String, AnyValue> attributes = TEST_WRITER.getAttributesMap(span);
+    AnyValue body = attributes.get("http.request.body");
+    return body == null ? null : body.getStringValue();
+  }
+
+  static class CountingRequestBody extends RequestBody {
+    final AtomicInteger writes = new AtomicInteger();
+    private final String body;
+    private final boolean oneShot;
+    private final boolean duplex;
+
+    CountingRequestBody(String body, boolean oneShot, boolean duplex) {
+      this.body = body;
+      this.oneShot = oneShot;
+      this.duplex = duplex;
+    }
+
+    @Override
+    public MediaType contentType() {
+      return JSON;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+      if (writes.incrementAndGet() > 1 && oneShot) {
+        throw new IllegalStateException("one-shot body written twice");
+      }
+      sink.writeUtf8(body);
+      if (duplex) {
+        // duplex bodies own the sink, the request ends when it is closed
+        sink.close();
+      }
+    }
+
+    @Override
+    public boolean isOneShot() {
+      return oneShot;
+    }
+
+    @Override
+    public boolean isDuplex() {
+      return duplex;
+    }
+  }
+}
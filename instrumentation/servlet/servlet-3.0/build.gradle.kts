@@ -31,6 +31,8 @@ afterEvaluate{
 val versions: Map<String, String> by extra
 
 dependencies {
+    implementation(project(":instrumentation:type-matchers"))
+    implementation(project(":instrumentation:servlet:servlet-common"))
     implementation("io.opentelemetry.javaagent.instrumentation:opentelemetry-javaagent-servlet-common:${versions["opentelemetry_java_agent"]}")
     implementation("io.opentelemetry.javaagent.instrumentation:opentelemetry-javaagent-servlet-3.0:${versions["opentelemetry_java_agent"]}") // Servlet3Accessor
     compileOnly("io.opentelemetry.javaagent:opentelemetry-javaagent-bootstrap:${versions["opentelemetry_java_agent"]}")
@@ -43,3 +45,23 @@ dependencies {
     testImplementation("org.eclipse.jetty:jetty-server:8.1.22.v20160922")
     testImplementation("org.eclipse.jetty:jetty-servlet:8.1.22.v20160922")
 }
+
+// VirtualThreadLoadTest only runs with the virtual thread mode, it is skipped before JDK 21
+// (see -PtestJavaVersion)
+val virtualThreadTest = tasks.register<Test>("virtualThreadTest") {
+    group = "verification"
+    description = "Runs the virtual thread load test with ht.javaagent.virtual.threads.enabled=true."
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = tasks.test.get().classpath
+    filter {
+        includeTestsMatching("*VirtualThreadLoadTest")
+    }
+    jvmArgs("-Dht.javaagent.virtual.threads.enabled=true")
+    listOf("ht.loadtest.requests", "ht.loadtest.concurrency").forEach { name ->
+        System.getProperty(name)?.let { systemProperty(name, it) }
+    }
+    useJUnitPlatform()
+}
+tasks.check {
+    dependsOn(virtualThreadTest)
+}
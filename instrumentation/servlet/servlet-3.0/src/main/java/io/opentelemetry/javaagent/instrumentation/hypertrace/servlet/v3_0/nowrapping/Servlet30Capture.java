@@ -0,0 +1,56 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.v3_0.nowrapping;
+
+import io.opentelemetry.instrumentation.api.util.VirtualField;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.common.ServletCapture;
+import java.io.BufferedReader;
+import java.io.PrintWriter;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.hypertrace.agent.core.config.InstrumentationConfigSnapshot;
+import org.hypertrace.agent.core.instrumentation.HypertraceCallDepthThreadLocalMap;
+import org.hypertrace.agent.core.instrumentation.SpanAndObjectPair;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedCharArrayWriter;
+import org.hypertrace.agent.core.instrumentation.buffer.ByteBufferSpanPair;
+import org.hypertrace.agent.core.instrumentation.buffer.CharBufferSpanPair;
+import org.hypertrace.agent.core.instrumentation.buffer.StringMapSpanPair;
+
+/** The shared servlet capture bound to the {@code javax.servlet} API, used by the advices. */
+public final class Servlet30Capture {
+  private Servlet30Capture() {}
+
+  public static final ServletCapture<
+          HttpServletRequest, HttpServletResponse, ServletInputStream, ServletOutputStream>
+      INSTANCE =
+          new ServletCapture<>(
+              Servlet30Adapter.INSTANCE,
+              Servlet30Adapter.INSTANCE,
+              HypertraceCallDepthThreadLocalMap.indexFor(ServletInputStream.class),
+              HypertraceCallDepthThreadLocalMap.indexFor(ServletOutputStream.class),
+              VirtualField.find(HttpServletRequest.class, SpanAndObjectPair.class),
+              VirtualField.find(ServletInputStream.class, ByteBufferSpanPair.class),
+              VirtualField.find(BufferedReader.class, CharBufferSpanPair.class),
+              VirtualField.find(HttpServletRequest.class, StringMapSpanPair.class),
+              VirtualField.find(HttpServletResponse.class, SpanAndObjectPair.class),
+              VirtualField.find(HttpServletResponse.class, InstrumentationConfigSnapshot.class),
+              VirtualField.find(ServletOutputStream.class, BoundedByteArrayOutputStream.class),
+              VirtualField.find(PrintWriter.class, BoundedCharArrayWriter.class));
+}
@@ -22,18 +22,16 @@ import static net.bytebuddy.matcher.ElementMatchers.isPublic;
 import static net.bytebuddy.matcher.ElementMatchers.named;
 import static net.bytebuddy.matcher.ElementMatchers.returns;
 
-import io.opentelemetry.instrumentation.api.util.VirtualField;
+import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeTransformer;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.common.BodyCaptureAsyncListener;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.v3_0.nowrapping.Servlet30Capture;
 import io.opentelemetry.javaagent.instrumentation.servlet.ServletHelper;
 import io.opentelemetry.javaagent.instrumentation.servlet.v3_0.Servlet3Accessor;
 import io.opentelemetry.javaagent.instrumentation.servlet.v3_0.Servlet3Singletons;
-import java.io.BufferedReader;
-import java.io.PrintWriter;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.servlet.AsyncContext;
-import javax.servlet.ServletInputStream;
-import javax.servlet.ServletOutputStream;
 import javax.servlet.ServletRequest;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -41,8 +39,6 @@ import net.bytebuddy.asm.Advice;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
 import org.hypertrace.agent.core.instrumentation.HypertraceCallDepthThreadLocalMap;
-import org.hypertrace.agent.core.instrumentation.SpanAndObjectPair;
-import org.hypertrace.agent.core.instrumentation.buffer.*;
 
 public final class Servlet30AsyncInstrumentation implements TypeInstrumentation {
 
@@ -79,24 +75,6 @@ public final class Servlet30AsyncInstrumentation implements TypeInstrumentation
         return;
       }
 
-      // response context to capture body and clear the context
-      VirtualField<HttpServletResponse, SpanAndObjectPair> responseContextStore =
-          VirtualField.find(HttpServletResponse.class, SpanAndObjectPair.class);
-      VirtualField<ServletOutputStream, BoundedByteArrayOutputStream> outputStreamContextStore =
-          VirtualField.find(ServletOutputStream.class, BoundedByteArrayOutputStream.class);
-      VirtualField<PrintWriter, BoundedCharArrayWriter> writerContextStore =
-          VirtualField.find(PrintWriter.class, BoundedCharArrayWriter.class);
-
-      // request context to clear body buffer
-      VirtualField<HttpServletRequest, SpanAndObjectPair> requestContextStore =
-          VirtualField.find(HttpServletRequest.class, SpanAndObjectPair.class);
-      VirtualField<ServletInputStream, ByteBufferSpanPair> inputStreamContextStore =
-          VirtualField.find(ServletInputStream.class, ByteBufferSpanPair.class);
-      VirtualField<BufferedReader, CharBufferSpanPair> readerContextStore =
-          VirtualField.find(BufferedReader.class, CharBufferSpanPair.class);
-      VirtualField<HttpServletRequest, StringMapSpanPair> urlEncodedMapContextStore =
-          VirtualField.find(HttpServletRequest.class, StringMapSpanPair.class);
-
       if (servletRequest instanceof HttpServletRequest) {
         HttpServletRequest request = (HttpServletRequest) servletRequest;
         Servlet3Accessor accessor = Servlet3Accessor.INSTANCE;
@@ -105,16 +83,11 @@ public final class Servlet30AsyncInstrumentation implements TypeInstrumentation
               Servlet3Singletons.helper();
           accessor.addRequestAsyncListener(
               request,
-              new BodyCaptureAsyncListener(
+              new BodyCaptureAsyncListener<>(
                   new AtomicBoolean(),
-                  responseContextStore,
-                  outputStreamContextStore,
-                  writerContextStore,
-                  requestContextStore,
-                  inputStreamContextStore,
-                  readerContextStore,
-                  urlEncodedMapContextStore,
-                  request),
+                  Servlet30Capture.INSTANCE,
+                  request,
+                  Span.fromContext(helper.getServerContext(request))),
               helper.getAsyncListenerResponse(request));
           accessor.setRequestAttribute(request, HYPERTRACE_ASYNC_LISTENER_ATTRIBUTE, true);
         }
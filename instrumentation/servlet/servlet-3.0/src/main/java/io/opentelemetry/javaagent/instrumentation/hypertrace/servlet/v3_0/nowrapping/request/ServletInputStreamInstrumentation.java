@@ -16,31 +16,33 @@
 
 package io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.v3_0.nowrapping.request;
 
-import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasSuperType;
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasClassesNamed;
 import static net.bytebuddy.matcher.ElementMatchers.is;
 import static net.bytebuddy.matcher.ElementMatchers.isPublic;
 import static net.bytebuddy.matcher.ElementMatchers.named;
 import static net.bytebuddy.matcher.ElementMatchers.takesArgument;
 import static net.bytebuddy.matcher.ElementMatchers.takesArguments;
 
-import io.opentelemetry.instrumentation.api.util.VirtualField;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeTransformer;
-import java.io.IOException;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.matchers.IndexedTypeMatchers;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.v3_0.nowrapping.Servlet30Capture;
 import javax.servlet.ServletInputStream;
 import net.bytebuddy.asm.Advice;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
-import org.hypertrace.agent.core.instrumentation.HypertraceCallDepthThreadLocalMap;
-import org.hypertrace.agent.core.instrumentation.HypertraceEvaluationException;
-import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
 import org.hypertrace.agent.core.instrumentation.buffer.ByteBufferSpanPair;
 
 public class ServletInputStreamInstrumentation implements TypeInstrumentation {
 
+  @Override
+  public ElementMatcher<ClassLoader> classLoaderOptimization() {
+    return hasClassesNamed("javax.servlet.ServletInputStream");
+  }
+
   @Override
   public ElementMatcher<TypeDescription> typeMatcher() {
-    return hasSuperType(named("javax.servlet.ServletInputStream"));
+    return IndexedTypeMatchers.hasSuperClass("javax.servlet.ServletInputStream");
   }
 
   @Override
@@ -89,40 +91,14 @@ public class ServletInputStreamInstrumentation implements TypeInstrumentation {
 
     @Advice.OnMethodEnter(suppress = Throwable.class)
     public static ByteBufferSpanPair enter(@Advice.This ServletInputStream thizz) {
-      ByteBufferSpanPair bufferSpanPair =
-          VirtualField.find(ServletInputStream.class, ByteBufferSpanPair.class).get(thizz);
-      if (bufferSpanPair == null) {
-        return null;
-      }
-
-      HypertraceCallDepthThreadLocalMap.incrementCallDepth(ServletInputStream.class);
-      return bufferSpanPair;
+      return Servlet30Capture.INSTANCE.enterRead(thizz);
     }
 
     @Advice.OnMethodExit(onThrowable = Throwable.class)
     public static void exit(
         @Advice.Return int read, @Advice.Enter ByteBufferSpanPair bufferSpanPair) {
-      try {
-        if (bufferSpanPair == null) {
-          return;
-        }
-        int callDepth =
-            HypertraceCallDepthThreadLocalMap.decrementCallDepth(ServletInputStream.class);
-        if (callDepth > 0) {
-          return;
-        }
-
-        if (read == -1) {
-          bufferSpanPair.captureBody(HypertraceSemanticAttributes.HTTP_REQUEST_BODY);
-        } else {
-          bufferSpanPair.writeToBuffer((byte) read);
-        }
-      } catch (Throwable t) {
-        if (t instanceof HypertraceEvaluationException) {
-          throw t;
-        } else {
-          // ignore
-        }
+      if (bufferSpanPair != null) {
+        Servlet30Capture.INSTANCE.exitRead(bufferSpanPair, read);
       }
     }
   }
@@ -131,14 +107,7 @@ public class ServletInputStreamInstrumentation implements TypeInstrumentation {
 
     @Advice.OnMethodEnter(suppress = Throwable.class)
     public static ByteBufferSpanPair enter(@Advice.This ServletInputStream thizz) {
-      ByteBufferSpanPair bufferSpanPair =
-          VirtualField.find(ServletInputStream.class, ByteBufferSpanPair.class).get(thizz);
-      if (bufferSpanPair == null) {
-        return null;
-      }
-
-      HypertraceCallDepthThreadLocalMap.incrementCallDepth(ServletInputStream.class);
-      return bufferSpanPair;
+      return Servlet30Capture.INSTANCE.enterRead(thizz);
     }
 
     @Advice.OnMethodExit(onThrowable = Throwable.class)
@@ -146,32 +115,9 @@ public class ServletInputStreamInstrumentation implements TypeInstrumentation {
         @Advice.This ServletInputStream thizz,
         @Advice.Return int read,
         @Advice.Argument(0) byte b[],
-        @Advice.Enter ByteBufferSpanPair bufferSpanPair)
-        throws Throwable {
-      try {
-        if (bufferSpanPair == null) {
-          return;
-        }
-        int callDepth =
-            HypertraceCallDepthThreadLocalMap.decrementCallDepth(ServletInputStream.class);
-        if (callDepth > 0) {
-          return;
-        }
-
-        if (read == -1) {
-          bufferSpanPair.captureBody(HypertraceSemanticAttributes.HTTP_REQUEST_BODY);
-        } else {
-          bufferSpanPair.writeToBuffer(b, 0, read);
-          if (thizz.available() == 0) {
-            bufferSpanPair.captureBody(HypertraceSemanticAttributes.HTTP_REQUEST_BODY);
-          }
-        }
-      } catch (Throwable t) {
-        if (t instanceof HypertraceEvaluationException) {
-          throw t;
-        } else {
-          // ignore
-        }
+        @Advice.Enter ByteBufferSpanPair bufferSpanPair) {
+      if (bufferSpanPair != null) {
+        Servlet30Capture.INSTANCE.exitRead(thizz, bufferSpanPair, read, b, 0);
       }
     }
   }
@@ -180,14 +126,7 @@ public class ServletInputStreamInstrumentation implements TypeInstrumentation {
 
     @Advice.OnMethodEnter(suppress = Throwable.class)
     public static ByteBufferSpanPair enter(@Advice.This ServletInputStream thizz) {
-      ByteBufferSpanPair bufferSpanPair =
-          VirtualField.find(ServletInputStream.class, ByteBufferSpanPair.class).get(thizz);
-      if (bufferSpanPair == null) {
-        return null;
-      }
-
-      HypertraceCallDepthThreadLocalMap.incrementCallDepth(ServletInputStream.class);
-      return bufferSpanPair;
+      return Servlet30Capture.INSTANCE.enterRead(thizz);
     }
 
     @Advice.OnMethodExit(onThrowable = Throwable.class)
@@ -196,34 +135,9 @@ public class ServletInputStreamInstrumentation implements TypeInstrumentation {
         @Advice.Return int read,
         @Advice.Argument(0) byte b[],
         @Advice.Argument(1) int off,
-        @Advice.Argument(2) int len,
-        @Advice.Enter ByteBufferSpanPair bufferSpanPair)
-        throws Throwable {
-      try {
-
-        if (bufferSpanPair == null) {
-          return;
-        }
-        int callDepth =
-            HypertraceCallDepthThreadLocalMap.decrementCallDepth(ServletInputStream.class);
-        if (callDepth > 0) {
-          return;
-        }
-
-        if (read == -1) {
-          bufferSpanPair.captureBody(HypertraceSemanticAttributes.HTTP_REQUEST_BODY);
-        } else {
-          bufferSpanPair.writeToBuffer(b, off, read);
-          if (thizz.available() == 0) {
-            bufferSpanPair.captureBody(HypertraceSemanticAttributes.HTTP_REQUEST_BODY);
-          }
-        }
-      } catch (Throwable t) {
-        if (t instanceof HypertraceEvaluationException) {
-          throw t;
-        } else {
-          // ignore
-        }
+        @Advice.Enter ByteBufferSpanPair bufferSpanPair) {
+      if (bufferSpanPair != null) {
+        Servlet30Capture.INSTANCE.exitRead(thizz, bufferSpanPair, read, b, off);
       }
     }
   }
@@ -232,37 +146,14 @@ public class ServletInputStreamInstrumentation implements TypeInstrumentation {
 
     @Advice.OnMethodEnter(suppress = Throwable.class)
     public static ByteBufferSpanPair enter(@Advice.This ServletInputStream thizz) {
-      ByteBufferSpanPair bufferSpanPair =
-          VirtualField.find(ServletInputStream.class, ByteBufferSpanPair.class).get(thizz);
-      if (bufferSpanPair == null) {
-        return null;
-      }
-
-      HypertraceCallDepthThreadLocalMap.incrementCallDepth(ServletInputStream.class);
-      return bufferSpanPair;
+      return Servlet30Capture.INSTANCE.enterRead(thizz);
     }
 
     @Advice.OnMethodExit(onThrowable = Throwable.class)
     public static void exit(
-        @Advice.Return byte[] b, @Advice.Enter ByteBufferSpanPair bufferSpanPair)
-        throws IOException {
-      try {
-        if (bufferSpanPair == null) {
-          return;
-        }
-        int callDepth =
-            HypertraceCallDepthThreadLocalMap.decrementCallDepth(ServletInputStream.class);
-        if (callDepth > 0) {
-          return;
-        }
-        bufferSpanPair.writeToBuffer(b);
-        bufferSpanPair.captureBody(HypertraceSemanticAttributes.HTTP_REQUEST_BODY);
-      } catch (Throwable t) {
-        if (t instanceof HypertraceEvaluationException) {
-          throw t;
-        } else {
-          // ignore
-        }
+        @Advice.Return byte[] b, @Advice.Enter ByteBufferSpanPair bufferSpanPair) {
+      if (bufferSpanPair != null) {
+        Servlet30Capture.INSTANCE.exitReadAll(bufferSpanPair, b);
       }
     }
   }
@@ -271,14 +162,7 @@ public class ServletInputStreamInstrumentation implements TypeInstrumentation {
 
     @Advice.OnMethodEnter(suppress = Throwable.class)
     public static ByteBufferSpanPair enter(@Advice.This ServletInputStream thizz) {
-      ByteBufferSpanPair bufferSpanPair =
-          VirtualField.find(ServletInputStream.class, ByteBufferSpanPair.class).get(thizz);
-      if (bufferSpanPair == null) {
-        return null;
-      }
-
-      HypertraceCallDepthThreadLocalMap.incrementCallDepth(ServletInputStream.class);
-      return bufferSpanPair;
+      return Servlet30Capture.INSTANCE.enterRead(thizz);
     }
 
     @Advice.OnMethodExit(onThrowable = Throwable.class)
@@ -287,33 +171,9 @@ public class ServletInputStreamInstrumentation implements TypeInstrumentation {
         @Advice.Return int read,
         @Advice.Argument(0) byte[] b,
         @Advice.Argument(1) int off,
-        @Advice.Argument(2) int len,
-        @Advice.Enter ByteBufferSpanPair bufferSpanPair)
-        throws Throwable {
-      try {
-        if (bufferSpanPair == null) {
-          return;
-        }
-        int callDepth =
-            HypertraceCallDepthThreadLocalMap.decrementCallDepth(ServletInputStream.class);
-        if (callDepth > 0) {
-          return;
-        }
-
-        if (read == -1) {
-          bufferSpanPair.captureBody(HypertraceSemanticAttributes.HTTP_REQUEST_BODY);
-        } else {
-          bufferSpanPair.writeToBuffer(b, off, read);
-          if (thizz.available() == 0) {
-            bufferSpanPair.captureBody(HypertraceSemanticAttributes.HTTP_REQUEST_BODY);
-          }
-        }
-      } catch (Throwable t) {
-        if (t instanceof HypertraceEvaluationException) {
-          throw t;
-        } else {
-          // ignore
-        }
+        @Advice.Enter ByteBufferSpanPair bufferSpanPair) {
+      if (bufferSpanPair != null) {
+        Servlet30Capture.INSTANCE.exitRead(thizz, bufferSpanPair, read, b, off);
       }
     }
   }
@@ -16,15 +16,14 @@
 
 package io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.v3_0.nowrapping.request;
 
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasClassesNamed;
 import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasSuperType;
 import static net.bytebuddy.matcher.ElementMatchers.*;
 
-import io.opentelemetry.instrumentation.api.util.VirtualField;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeTransformer;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.v3_0.nowrapping.Servlet30Capture;
 import java.io.BufferedReader;
-import java.util.HashMap;
-import java.util.Map;
 import javax.servlet.ServletInputStream;
 import javax.servlet.ServletRequest;
 import javax.servlet.http.HttpServletRequest;
@@ -33,12 +32,14 @@ import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
 import org.hypertrace.agent.core.instrumentation.HypertraceCallDepthThreadLocalMap;
 import org.hypertrace.agent.core.instrumentation.SpanAndObjectPair;
-import org.hypertrace.agent.core.instrumentation.buffer.ByteBufferSpanPair;
-import org.hypertrace.agent.core.instrumentation.buffer.CharBufferSpanPair;
-import org.hypertrace.agent.core.instrumentation.buffer.StringMapSpanPair;
 
 public class ServletRequestInstrumentation implements TypeInstrumentation {
 
+  @Override
+  public ElementMatcher<ClassLoader> classLoaderOptimization() {
+    return hasClassesNamed("javax.servlet.ServletRequest");
+  }
+
   @Override
   public ElementMatcher<TypeDescription> typeMatcher() {
     return hasSuperType(named("javax.servlet.ServletRequest"));
@@ -74,8 +75,7 @@ public class ServletRequestInstrumentation implements TypeInstrumentation {
       HttpServletRequest httpServletRequest = (HttpServletRequest) servletRequest;
       // span is added in servlet/filter instrumentation if data capture is enabled
       SpanAndObjectPair requestBufferWrapper =
-          VirtualField.find(HttpServletRequest.class, SpanAndObjectPair.class)
-              .get(httpServletRequest);
+          Servlet30Capture.INSTANCE.requestCapture(httpServletRequest);
       if (requestBufferWrapper == null) {
         return null;
       }
@@ -106,18 +106,8 @@ public class ServletRequestInstrumentation implements TypeInstrumentation {
       }
       HttpServletRequest httpServletRequest = (HttpServletRequest) servletRequest;
 
-      VirtualField<ServletInputStream, ByteBufferSpanPair> contextStore =
-          VirtualField.find(ServletInputStream.class, ByteBufferSpanPair.class);
-      if (contextStore.get(servletInputStream) != null) {
-        // getInputStream() can be called multiple times
-        return;
-      }
-
-      ByteBufferSpanPair bufferSpanPair =
-          Utils.createRequestByteBufferSpanPair(
-              httpServletRequest, spanAndObjectPair.getSpan(), spanAndObjectPair.getHeaders());
-      contextStore.set(servletInputStream, bufferSpanPair);
-      spanAndObjectPair.setAssociatedObject(servletInputStream);
+      Servlet30Capture.INSTANCE.onInputStream(
+          httpServletRequest, servletInputStream, spanAndObjectPair);
     }
   }
 
@@ -127,8 +117,7 @@ public class ServletRequestInstrumentation implements TypeInstrumentation {
     public static SpanAndObjectPair enter(@Advice.This ServletRequest servletRequest) {
       HttpServletRequest httpServletRequest = (HttpServletRequest) servletRequest;
       SpanAndObjectPair spanAndObjectPair =
-          VirtualField.find(HttpServletRequest.class, SpanAndObjectPair.class)
-              .get(httpServletRequest);
+          Servlet30Capture.INSTANCE.requestCapture(httpServletRequest);
       if (spanAndObjectPair == null) {
         return null;
       }
@@ -158,18 +147,7 @@ public class ServletRequestInstrumentation implements TypeInstrumentation {
       }
       HttpServletRequest httpServletRequest = (HttpServletRequest) servletRequest;
 
-      VirtualField<BufferedReader, CharBufferSpanPair> contextStore =
-          VirtualField.find(BufferedReader.class, CharBufferSpanPair.class);
-      if (contextStore.get(reader) != null) {
-        // getReader() can be called multiple times
-        return;
-      }
-
-      CharBufferSpanPair bufferSpanPair =
-          Utils.createRequestCharBufferSpanPair(
-              httpServletRequest, spanAndObjectPair.getSpan(), spanAndObjectPair.getHeaders());
-      contextStore.set(reader, bufferSpanPair);
-      spanAndObjectPair.setAssociatedObject(reader);
+      Servlet30Capture.INSTANCE.onReader(httpServletRequest, reader, spanAndObjectPair);
     }
   }
 
@@ -187,8 +165,7 @@ public class ServletRequestInstrumentation implements TypeInstrumentation {
     public static SpanAndObjectPair enter(@Advice.This ServletRequest servletRequest) {
       HttpServletRequest httpServletRequest = (HttpServletRequest) servletRequest;
       SpanAndObjectPair spanAndObjectPair =
-          VirtualField.find(HttpServletRequest.class, SpanAndObjectPair.class)
-              .get(httpServletRequest);
+          Servlet30Capture.INSTANCE.requestCapture(httpServletRequest);
       if (spanAndObjectPair == null) {
         return null;
       }
@@ -232,25 +209,8 @@ public class ServletRequestInstrumentation implements TypeInstrumentation {
       }
       HttpServletRequest httpServletRequest = (HttpServletRequest) servletRequest;
 
-      Map<String, String> stringMap;
-
-      VirtualField<HttpServletRequest, StringMapSpanPair> contextStore =
-          VirtualField.find(HttpServletRequest.class, StringMapSpanPair.class);
-
-      StringMapSpanPair stringMapSpanPair = contextStore.get(httpServletRequest);
-
-      if (stringMapSpanPair != null) {
-        stringMap = stringMapSpanPair.stringMap;
-      } else {
-        stringMap = new HashMap<>();
-        stringMapSpanPair =
-            Utils.createStringMapSpanPair(
-                stringMap, spanAndObjectPair.getSpan(), spanAndObjectPair.getHeaders());
-        contextStore.set(httpServletRequest, stringMapSpanPair);
-      }
-
-      stringMap.put(parmName, returnValue);
-      spanAndObjectPair.setAssociatedObject(stringMap);
+      Servlet30Capture.INSTANCE.onParameter(
+          httpServletRequest, parmName, returnValue, spanAndObjectPair);
     }
   }
 }
@@ -16,29 +16,33 @@
 
 package io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.v3_0.nowrapping.response;
 
-import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasSuperType;
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasClassesNamed;
 import static net.bytebuddy.matcher.ElementMatchers.is;
 import static net.bytebuddy.matcher.ElementMatchers.isPublic;
 import static net.bytebuddy.matcher.ElementMatchers.named;
 import static net.bytebuddy.matcher.ElementMatchers.takesArgument;
 import static net.bytebuddy.matcher.ElementMatchers.takesArguments;
 
-import io.opentelemetry.instrumentation.api.util.VirtualField;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeTransformer;
-import java.io.IOException;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.matchers.IndexedTypeMatchers;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.v3_0.nowrapping.Servlet30Capture;
 import javax.servlet.ServletOutputStream;
 import net.bytebuddy.asm.Advice;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
-import org.hypertrace.agent.core.instrumentation.HypertraceCallDepthThreadLocalMap;
 import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
 
 public class ServletOutputStreamInstrumentation implements TypeInstrumentation {
 
+  @Override
+  public ElementMatcher<ClassLoader> classLoaderOptimization() {
+    return hasClassesNamed("javax.servlet.ServletOutputStream");
+  }
+
   @Override
   public ElementMatcher<TypeDescription> typeMatcher() {
-    return hasSuperType(named("javax.servlet.ServletOutputStream"));
+    return IndexedTypeMatchers.hasSuperClass("javax.servlet.ServletOutputStream");
   }
 
   @Override
@@ -82,27 +86,12 @@ public class ServletOutputStreamInstrumentation implements TypeInstrumentation {
     @Advice.OnMethodEnter(suppress = Throwable.class)
     public static BoundedByteArrayOutputStream enter(
         @Advice.This ServletOutputStream thizz, @Advice.Argument(0) int b) {
-      BoundedByteArrayOutputStream buffer =
-          VirtualField.find(ServletOutputStream.class, BoundedByteArrayOutputStream.class)
-              .get(thizz);
-      if (buffer == null) {
-        return null;
-      }
-      int callDepth =
-          HypertraceCallDepthThreadLocalMap.incrementCallDepth(ServletOutputStream.class);
-      if (callDepth > 0) {
-        return buffer;
-      }
-
-      buffer.write(b);
-      return buffer;
+      return Servlet30Capture.INSTANCE.enterWrite(thizz, b);
     }
 
     @Advice.OnMethodExit(suppress = Throwable.class, onThrowable = Throwable.class)
     public static void exit(@Advice.Enter BoundedByteArrayOutputStream buffer) {
-      if (buffer != null) {
-        HypertraceCallDepthThreadLocalMap.decrementCallDepth(ServletOutputStream.class);
-      }
+      Servlet30Capture.INSTANCE.exitWrite(buffer);
     }
   }
 
@@ -110,29 +99,13 @@ public class ServletOutputStreamInstrumentation implements TypeInstrumentation {
 
     @Advice.OnMethodEnter(suppress = Throwable.class)
     public static BoundedByteArrayOutputStream enter(
-        @Advice.This ServletOutputStream thizz, @Advice.Argument(0) byte[] b) throws IOException {
-
-      BoundedByteArrayOutputStream buffer =
-          VirtualField.find(ServletOutputStream.class, BoundedByteArrayOutputStream.class)
-              .get(thizz);
-      if (buffer == null) {
-        return null;
-      }
-      int callDepth =
-          HypertraceCallDepthThreadLocalMap.incrementCallDepth(ServletOutputStream.class);
-      if (callDepth > 0) {
-        return buffer;
-      }
-
-      buffer.write(b);
-      return buffer;
+        @Advice.This ServletOutputStream thizz, @Advice.Argument(0) byte[] b) {
+      return Servlet30Capture.INSTANCE.enterWrite(thizz, b, 0, b.length);
     }
 
     @Advice.OnMethodExit(suppress = Throwable.class, onThrowable = Throwable.class)
     public static void exit(@Advice.Enter BoundedByteArrayOutputStream buffer) {
-      if (buffer != null) {
-        HypertraceCallDepthThreadLocalMap.decrementCallDepth(ServletOutputStream.class);
-      }
+      Servlet30Capture.INSTANCE.exitWrite(buffer);
     }
   }
 
@@ -144,28 +117,12 @@ public class ServletOutputStreamInstrumentation implements TypeInstrumentation {
         @Advice.Argument(0) byte b[],
         @Advice.Argument(1) int off,
         @Advice.Argument(2) int len) {
-
-      BoundedByteArrayOutputStream buffer =
-          VirtualField.find(ServletOutputStream.class, BoundedByteArrayOutputStream.class)
-              .get(thizz);
-      if (buffer == null) {
-        return null;
-      }
-      int callDepth =
-          HypertraceCallDepthThreadLocalMap.incrementCallDepth(ServletOutputStream.class);
-      if (callDepth > 0) {
-        return buffer;
-      }
-
-      buffer.write(b, off, len);
-      return buffer;
+      return Servlet30Capture.INSTANCE.enterWrite(thizz, b, off, len);
     }
 
     @Advice.OnMethodExit(suppress = Throwable.class, onThrowable = Throwable.class)
     public static void exit(@Advice.Enter BoundedByteArrayOutputStream buffer) {
-      if (buffer != null) {
-        HypertraceCallDepthThreadLocalMap.decrementCallDepth(ServletOutputStream.class);
-      }
+      Servlet30Capture.INSTANCE.exitWrite(buffer);
     }
   }
 
@@ -173,30 +130,13 @@ public class ServletOutputStreamInstrumentation implements TypeInstrumentation {
 
     @Advice.OnMethodEnter(suppress = Throwable.class)
     public static BoundedByteArrayOutputStream enter(
-        @Advice.This ServletOutputStream thizz, @Advice.Argument(0) String s) throws IOException {
-
-      BoundedByteArrayOutputStream buffer =
-          VirtualField.find(ServletOutputStream.class, BoundedByteArrayOutputStream.class)
-              .get(thizz);
-      if (buffer == null) {
-        return null;
-      }
-      int callDepth =
-          HypertraceCallDepthThreadLocalMap.incrementCallDepth(ServletOutputStream.class);
-      if (callDepth > 0) {
-        return buffer;
-      }
-
-      String bodyPart = s == null ? "null" : s;
-      buffer.write(bodyPart.getBytes());
-      return buffer;
+        @Advice.This ServletOutputStream thizz, @Advice.Argument(0) String s) {
+      return Servlet30Capture.INSTANCE.enterPrint(thizz, s);
     }
 
     @Advice.OnMethodExit(suppress = Throwable.class, onThrowable = Throwable.class)
     public static void exit(@Advice.Enter BoundedByteArrayOutputStream buffer) {
-      if (buffer != null) {
-        HypertraceCallDepthThreadLocalMap.decrementCallDepth(ServletOutputStream.class);
-      }
+      Servlet30Capture.INSTANCE.exitWrite(buffer);
     }
   }
 }
@@ -17,6 +17,7 @@
 package io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.v3_0.nowrapping;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.stream.Stream;
 import java.util.zip.GZIPOutputStream;
@@ -309,4 +310,35 @@ public class TestServlets {
       }
     }
   }
+
+  /** Reads the body in small reads up to its declared length, it never reads the end of stream. */
+  public static class EchoStream_read_content_length extends HttpServlet {
+    @Override
+    protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+      InputStream inputStream = req.getInputStream();
+      byte[] buffer = new byte[16];
+      int remaining = req.getContentLength();
+      int read;
+      while (remaining > 0
+          && (read = inputStream.read(buffer, 0, Math.min(buffer.length, remaining))) != -1) {
+        remaining -= read;
+      }
+      resp.setStatus(200);
+      resp.setContentType("application/json");
+      resp.getOutputStream().write(RESPONSE_BODY.getBytes());
+    }
+  }
+
+  /** Reads the body in small reads until the end of stream. */
+  public static class EchoStream_read_small_array extends HttpServlet {
+    @Override
+    protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+      InputStream inputStream = req.getInputStream();
+      byte[] buffer = new byte[16];
+      while (inputStream.read(buffer) != -1) {}
+      resp.setStatus(200);
+      resp.setContentType("application/json");
+      resp.getOutputStream().write(RESPONSE_BODY.getBytes());
+    }
+  }
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.v3_0.nowrapping;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.util.thread.ExecutorThreadPool;
+import org.hypertrace.agent.core.instrumentation.utils.VirtualThreadUtils;
+import org.hypertrace.agent.testing.AbstractInstrumenterTest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Load test for instrumented code on virtual threads. Every request is sent from its own virtual
+ * thread to a servlet container that handles it on a virtual thread, so both the client and the
+ * server instrumentation keep their call depths on virtual threads. The allocations of the call
+ * depth bookkeeping itself are measured by {@code CallDepthBenchmark.virtualThread}.
+ *
+ * <p>It runs with the {@code virtualThreadTest} task, which enables {@value
+ * VirtualThreadUtils#ENABLED_PROPERTY}, and is skipped before JDK 21.
+ */
+@EnabledIfSystemProperty(named = VirtualThreadUtils.ENABLED_PROPERTY, matches = "true")
+public class VirtualThreadLoadTest extends AbstractInstrumenterTest {
+
+  private static final int REQUESTS = Integer.getInteger("ht.loadtest.requests", 10_000);
+  private static final int CONCURRENCY = Integer.getInteger("ht.loadtest.concurrency", 256);
+  private static final String REQUEST_BODY = "{\"foo\": \"bar\"}";
+
+  private static Server server;
+  private static int serverPort;
+
+  @BeforeAll
+  public static void startServer() throws Exception {
+    Assumptions.assumeTrue(
+        VirtualThreadUtils.isEnabled(), "virtual threads are not supported by this JVM");
+    server = new Server(0);
+    // the connector and the servlets run on virtual threads
+    server.setThreadPool(new ExecutorThreadPool(newVirtualThreadPerTaskExecutor()));
+    ServletContextHandler handler = new ServletContextHandler();
+    handler.addServlet(TestServlets.EchoStream_arr.class, "/echo_stream_arr");
+    server.setHandler(handler);
+    server.start();
+    serverPort = server.getConnectors()[0].getLocalPort();
+  }
+
+  @AfterAll
+  public static void stopServer() throws Exception {
+    if (server != null) {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void virtualThreadsServeRequests() throws Exception {
+    Request request =
+        new Request.Builder()
+            .url(String.format("http://localhost:%d/echo_stream_arr", serverPort))
+            .post(RequestBody.create(REQUEST_BODY, MediaType.get("application/json")))
+            .build();
+    AtomicInteger succeeded = new AtomicInteger();
+    Semaphore inFlight = new Semaphore(CONCURRENCY);
+
+    ExecutorService clients = newVirtualThreadPerTaskExecutor();
+    for (int i = 0; i < REQUESTS; i++) {
+      inFlight.acquire();
+      clients.execute(
+          () -> {
+            try (Response response = httpClient.newCall(request).execute()) {
+              if (response.code() == 200
+                  && TestServlets.RESPONSE_BODY.equals(response.body().string())) {
+                succeeded.incrementAndGet();
+              }
+            } catch (IOException e) {
+              // counted as a failed request
+            } finally {
+              inFlight.release();
+            }
+          });
+      if (i % 1_000 == 0) {
+        // the spans are not verified, do not let the receiver hold them
+        TEST_WRITER.clear();
+      }
+    }
+    clients.shutdown();
+    Assertions.assertTrue(clients.awaitTermination(10, TimeUnit.MINUTES));
+    TEST_WRITER.clear();
+
+    Assertions.assertEquals(REQUESTS, succeeded.get());
+  }
+
+  private static ExecutorService newVirtualThreadPerTaskExecutor()
+      throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+    // compiled for Java 8, the executor is only available on JDK 21+
+    return (ExecutorService)
+        Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.v5_0;
+
+import io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.common.ServletRequestAdapter;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.common.ServletResponseAdapter;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.Enumeration;
+
+/** Adapts the {@code jakarta.servlet} API to the shared servlet capture. */
+public enum Servlet50Adapter
+    implements
+        ServletRequestAdapter<HttpServletRequest, ServletInputStream>,
+        ServletResponseAdapter<HttpServletResponse> {
+  INSTANCE;
+
+  @Override
+  public String getRequestMethod(HttpServletRequest request) {
+    return request.getMethod();
+  }
+
+  @Override
+  public String getRequestURI(HttpServletRequest request) {
+    return request.getRequestURI();
+  }
+
+  @Override
+  public Enumeration<String> getRequestHeaderNames(HttpServletRequest request) {
+    return request.getHeaderNames();
+  }
+
+  @Override
+  public String getRequestHeader(HttpServletRequest request, String name) {
+    return request.getHeader(name);
+  }
+
+  @Override
+  public String getRequestContentType(HttpServletRequest request) {
+    return request.getContentType();
+  }
+
+  @Override
+  public String getRequestCharacterEncoding(HttpServletRequest request) {
+    return request.getCharacterEncoding();
+  }
+
+  @Override
+  public int getRequestContentLength(HttpServletRequest request) {
+    return request.getContentLength();
+  }
+
+  @Override
+  public String getRequestSessionId(HttpServletRequest request) {
+    if (!request.isRequestedSessionIdValid()) {
+      return null;
+    }
+    HttpSession session = request.getSession();
+    return session == null ? null : session.getId();
+  }
+
+  @Override
+  public boolean isRequestAsyncStarted(HttpServletRequest request) {
+    return request.isAsyncStarted();
+  }
+
+  @Override
+  public boolean isFinished(ServletInputStream inputStream) {
+    return inputStream.isFinished();
+  }
+
+  @Override
+  public String getResponseContentType(HttpServletResponse response) {
+    return response.getContentType();
+  }
+
+  @Override
+  public String getResponseCharacterEncoding(HttpServletResponse response) {
+    return response.getCharacterEncoding();
+  }
+
+  @Override
+  public Collection<String> getResponseHeaderNames(HttpServletResponse response) {
+    return response.getHeaderNames();
+  }
+
+  @Override
+  public String getResponseHeader(HttpServletResponse response, String name) {
+    return response.getHeader(name);
+  }
+
+  @Override
+  public boolean isResponseCommitted(HttpServletResponse response) {
+    return response.isCommitted();
+  }
+
+  @Override
+  public void flushResponseBuffer(HttpServletResponse response) throws IOException {
+    response.flushBuffer();
+  }
+
+  @Override
+  public PrintWriter getResponseWriter(HttpServletResponse response) throws IOException {
+    return response.getWriter();
+  }
+
+  @Override
+  public void setResponseStatus(HttpServletResponse response, int status) {
+    response.setStatus(status);
+  }
+}
@@ -16,6 +16,7 @@
 
 package io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.v5_0.request;
 
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasClassesNamed;
 import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasSuperType;
 import static net.bytebuddy.matcher.ElementMatchers.is;
 import static net.bytebuddy.matcher.ElementMatchers.isPublic;
@@ -24,26 +25,26 @@ import static net.bytebuddy.matcher.ElementMatchers.returns;
 import static net.bytebuddy.matcher.ElementMatchers.takesArgument;
 import static net.bytebuddy.matcher.ElementMatchers.takesArguments;
 
-import io.opentelemetry.instrumentation.api.util.VirtualField;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeTransformer;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.v5_0.Servlet50Capture;
 import jakarta.servlet.ServletInputStream;
 import jakarta.servlet.ServletRequest;
 import jakarta.servlet.http.HttpServletRequest;
 import java.io.BufferedReader;
-import java.util.HashMap;
-import java.util.Map;
 import net.bytebuddy.asm.Advice;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
 import org.hypertrace.agent.core.instrumentation.HypertraceCallDepthThreadLocalMap;
 import org.hypertrace.agent.core.instrumentation.SpanAndObjectPair;
-import org.hypertrace.agent.core.instrumentation.buffer.ByteBufferSpanPair;
-import org.hypertrace.agent.core.instrumentation.buffer.CharBufferSpanPair;
-import org.hypertrace.agent.core.instrumentation.buffer.StringMapSpanPair;
 
 public class ServletRequestInstrumentation implements TypeInstrumentation {
 
+  @Override
+  public ElementMatcher<ClassLoader> classLoaderOptimization() {
+    return hasClassesNamed("jakarta.servlet.ServletRequest");
+  }
+
   @Override
   public ElementMatcher<TypeDescription> typeMatcher() {
     return hasSuperType(named("jakarta.servlet.ServletRequest"));
@@ -79,8 +80,7 @@ public class ServletRequestInstrumentation implements TypeInstrumentation {
       HttpServletRequest httpServletRequest = (HttpServletRequest) servletRequest;
       // span is added in servlet/filter instrumentation if data capture is enabled
       SpanAndObjectPair requestBufferWrapper =
-          VirtualField.find(HttpServletRequest.class, SpanAndObjectPair.class)
-              .get(httpServletRequest);
+          Servlet50Capture.INSTANCE.requestCapture(httpServletRequest);
       if (requestBufferWrapper == null) {
         return null;
       }
@@ -111,18 +111,8 @@ public class ServletRequestInstrumentation implements TypeInstrumentation {
       }
       HttpServletRequest httpServletRequest = (HttpServletRequest) servletRequest;
 
-      VirtualField<ServletInputStream, ByteBufferSpanPair> contextStore =
-          VirtualField.find(ServletInputStream.class, ByteBufferSpanPair.class);
-      if (contextStore.get(servletInputStream) != null) {
-        // getInputStream() can be called multiple times
-        return;
-      }
-
-      ByteBufferSpanPair bufferSpanPair =
-          Utils.createRequestByteBufferSpanPair(
-              httpServletRequest, spanAndObjectPair.getSpan(), spanAndObjectPair.getHeaders());
-      contextStore.set(servletInputStream, bufferSpanPair);
-      spanAndObjectPair.setAssociatedObject(servletInputStream);
+      Servlet50Capture.INSTANCE.onInputStream(
+          httpServletRequest, servletInputStream, spanAndObjectPair);
     }
   }
 
@@ -132,8 +122,7 @@ public class ServletRequestInstrumentation implements TypeInstrumentation {
     public static SpanAndObjectPair enter(@Advice.This ServletRequest servletRequest) {
       HttpServletRequest httpServletRequest = (HttpServletRequest) servletRequest;
       SpanAndObjectPair spanAndObjectPair =
-          VirtualField.find(HttpServletRequest.class, SpanAndObjectPair.class)
-              .get(httpServletRequest);
+          Servlet50Capture.INSTANCE.requestCapture(httpServletRequest);
       if (spanAndObjectPair == null) {
         return null;
       }
@@ -163,18 +152,7 @@ public class ServletRequestInstrumentation implements TypeInstrumentation {
       }
       HttpServletRequest httpServletRequest = (HttpServletRequest) servletRequest;
 
-      VirtualField<BufferedReader, CharBufferSpanPair> contextStore =
-          VirtualField.find(BufferedReader.class, CharBufferSpanPair.class);
-      if (contextStore.get(reader) != null) {
-        // getReader() can be called multiple times
-        return;
-      }
-
-      CharBufferSpanPair bufferSpanPair =
-          Utils.createRequestCharBufferSpanPair(
-              httpServletRequest, spanAndObjectPair.getSpan(), spanAndObjectPair.getHeaders());
-      contextStore.set(reader, bufferSpanPair);
-      spanAndObjectPair.setAssociatedObject(reader);
+      Servlet50Capture.INSTANCE.onReader(httpServletRequest, reader, spanAndObjectPair);
     }
   }
 
@@ -192,8 +170,7 @@ public class ServletRequestInstrumentation implements TypeInstrumentation {
     public static SpanAndObjectPair enter(@Advice.This ServletRequest servletRequest) {
       HttpServletRequest httpServletRequest = (HttpServletRequest) servletRequest;
       SpanAndObjectPair spanAndObjectPair =
-          VirtualField.find(HttpServletRequest.class, SpanAndObjectPair.class)
-              .get(httpServletRequest);
+          Servlet50Capture.INSTANCE.requestCapture(httpServletRequest);
       if (spanAndObjectPair == null) {
         return null;
       }
@@ -237,25 +214,8 @@ public class ServletRequestInstrumentation implements TypeInstrumentation {
       }
       HttpServletRequest httpServletRequest = (HttpServletRequest) servletRequest;
 
-      Map<String, String> stringMap;
-
-      VirtualField<HttpServletRequest, StringMapSpanPair> contextStore =
-          VirtualField.find(HttpServletRequest.class, StringMapSpanPair.class);
-
-      StringMapSpanPair stringMapSpanPair = contextStore.get(httpServletRequest);
-
-      if (stringMapSpanPair != null) {
-        stringMap = stringMapSpanPair.stringMap;
-      } else {
-        stringMap = new HashMap<>();
-        stringMapSpanPair =
-            Utils.createStringMapSpanPair(
-                stringMap, spanAndObjectPair.getSpan(), spanAndObjectPair.getHeaders());
-        contextStore.set(httpServletRequest, stringMapSpanPair);
-      }
-
-      stringMap.put(parmName, returnValue);
-      spanAndObjectPair.setAssociatedObject(stringMap);
+      Servlet50Capture.INSTANCE.onParameter(
+          httpServletRequest, parmName, returnValue, spanAndObjectPair);
     }
   }
 }
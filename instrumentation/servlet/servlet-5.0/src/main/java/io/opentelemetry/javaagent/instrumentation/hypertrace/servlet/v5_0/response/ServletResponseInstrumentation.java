@@ -16,35 +16,33 @@
 
 package io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.v5_0.response;
 
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasClassesNamed;
 import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasSuperType;
 import static net.bytebuddy.matcher.ElementMatchers.isPublic;
 import static net.bytebuddy.matcher.ElementMatchers.named;
 import static net.bytebuddy.matcher.ElementMatchers.returns;
 import static net.bytebuddy.matcher.ElementMatchers.takesArguments;
 
-import io.opentelemetry.instrumentation.api.util.VirtualField;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeTransformer;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.v5_0.Servlet50Capture;
 import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpServletResponseWrapper;
 import java.io.PrintWriter;
-import java.nio.charset.Charset;
 import net.bytebuddy.asm.Advice;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
-import org.hypertrace.agent.core.config.InstrumentationConfig;
 import org.hypertrace.agent.core.instrumentation.HypertraceCallDepthThreadLocalMap;
-import org.hypertrace.agent.core.instrumentation.SpanAndObjectPair;
-import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
-import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
-import org.hypertrace.agent.core.instrumentation.buffer.BoundedCharArrayWriter;
-import org.hypertrace.agent.core.instrumentation.utils.ContentTypeCharsetUtils;
-import org.hypertrace.agent.core.instrumentation.utils.ContentTypeUtils;
 
 public class ServletResponseInstrumentation implements TypeInstrumentation {
 
+  @Override
+  public ElementMatcher<ClassLoader> classLoaderOptimization() {
+    return hasClassesNamed("jakarta.servlet.ServletResponse");
+  }
+
   @Override
   public ElementMatcher<TypeDescription> typeMatcher() {
     return hasSuperType(named("jakarta.servlet.ServletResponse"));
@@ -102,28 +100,7 @@ public class ServletResponseInstrumentation implements TypeInstrumentation {
         return;
       }
 
-      VirtualField<ServletOutputStream, BoundedByteArrayOutputStream> contextStore =
-          VirtualField.find(ServletOutputStream.class, BoundedByteArrayOutputStream.class);
-      if (contextStore.get(servletOutputStream) != null) {
-        // getOutputStream() can be called multiple times
-        return;
-      }
-
-      // do not capture if data capture is disabled or not supported content type
-      InstrumentationConfig instrumentationConfig = InstrumentationConfig.ConfigProvider.get();
-      String contentType = httpServletResponse.getContentType();
-      if (instrumentationConfig.httpBody().response()
-          && ContentTypeUtils.shouldCapture(contentType)) {
-
-        String charsetStr = httpServletResponse.getCharacterEncoding();
-        Charset charset = ContentTypeCharsetUtils.toCharset(charsetStr);
-        BoundedByteArrayOutputStream buffer = BoundedBuffersFactory.createStream(charset);
-        contextStore.set(servletOutputStream, buffer);
-        SpanAndObjectPair spanAndObjectPair = new SpanAndObjectPair(null, null);
-        spanAndObjectPair.setAssociatedObject(servletOutputStream);
-        VirtualField.find(HttpServletResponse.class, SpanAndObjectPair.class)
-            .set(httpServletResponse, spanAndObjectPair);
-      }
+      Servlet50Capture.INSTANCE.onOutputStream(httpServletResponse, servletOutputStream);
     }
   }
 
@@ -162,26 +139,7 @@ public class ServletResponseInstrumentation implements TypeInstrumentation {
         return;
       }
 
-      VirtualField<PrintWriter, BoundedCharArrayWriter> contextStore =
-          VirtualField.find(PrintWriter.class, BoundedCharArrayWriter.class);
-      if (contextStore.get(printWriter) != null) {
-        // getWriter() can be called multiple times
-        return;
-      }
-
-      // do not capture if data capture is disabled or not supported content type
-      InstrumentationConfig instrumentationConfig = InstrumentationConfig.ConfigProvider.get();
-      String contentType = httpServletResponse.getContentType();
-      if (instrumentationConfig.httpBody().response()
-          && ContentTypeUtils.shouldCapture(contentType)) {
-
-        BoundedCharArrayWriter writer = BoundedBuffersFactory.createWriter();
-        contextStore.set(printWriter, writer);
-        SpanAndObjectPair spanAndObjectPair = new SpanAndObjectPair(null, null);
-        spanAndObjectPair.setAssociatedObject(printWriter);
-        VirtualField.find(HttpServletResponse.class, SpanAndObjectPair.class)
-            .set(httpServletResponse, spanAndObjectPair);
-      }
+      Servlet50Capture.INSTANCE.onWriter(httpServletResponse, printWriter);
     }
   }
 }
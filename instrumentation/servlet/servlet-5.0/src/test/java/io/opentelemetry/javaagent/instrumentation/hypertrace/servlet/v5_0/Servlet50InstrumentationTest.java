@@ -35,6 +35,7 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.ServletRequest;
 import jakarta.servlet.ServletResponse;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.concurrent.TimeoutException;
@@ -43,6 +44,7 @@ import okhttp3.MediaType;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okio.BufferedSink;
 import org.WrappingFilter;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
@@ -114,6 +116,10 @@ public class Servlet50InstrumentationTest extends AbstractInstrumenterTest {
     handler.addServlet(EchoStream_read_large_array.class, "/echo_stream_read_large_array");
     handler.addServlet(EchoReader_read_large_array.class, "/echo_reader_read_large_array");
     handler.addServlet(TestServlets.GetGzip.class, "/get_gzip");
+    handler.addServlet(
+        TestServlets.EchoStream_read_until_finished.class, "/echo_stream_read_until_finished");
+    handler.addServlet(
+        TestServlets.EchoStream_read_content_length.class, "/echo_stream_read_content_length");
 
     server.setHandler(handler);
     server.start();
@@ -447,4 +453,99 @@ public class Servlet50InstrumentationTest extends AbstractInstrumenterTest {
         TEST_WRITER.getAttributesMap(clientSpan).get("http.response.body").getStringValue();
     Assertions.assertEquals("{\"message\": \"hello\"}", respBodyCapturedInSpan);
   }
+
+  @Test
+  public void postChunkedBodyInSeveralReads() throws Exception {
+    postInSeveralReads(
+        "/echo_stream_read_until_finished", chunkedBody(LARGE_BODY), 200, LARGE_BODY);
+  }
+
+  @Test
+  public void postContentLengthBodyInSeveralReads() throws Exception {
+    postInSeveralReads(
+        "/echo_stream_read_content_length", contentLengthBody(LARGE_BODY), 200, LARGE_BODY);
+  }
+
+  @Test
+  public void contentLengthBodyIsCapturedBeforeEndOfStream() throws Exception {
+    // the servlet never reads -1, the body is blocked once the declared length has been read
+    postInSeveralReads(
+        "/echo_stream_read_content_length",
+        contentLengthBody(LARGE_BLOCKED_BODY),
+        403,
+        LARGE_BLOCKED_BODY);
+  }
+
+  @Test
+  public void chunkedBodyIsCapturedWhenFinished() throws Exception {
+    // the servlet stops reading once isFinished() is true, the body is blocked by then
+    postInSeveralReads(
+        "/echo_stream_read_until_finished",
+        chunkedBody(LARGE_BLOCKED_BODY),
+        403,
+        LARGE_BLOCKED_BODY);
+  }
+
+  private static final String LARGE_BODY = "{\"key\": \"" + repeat('x', 200) + "\"}";
+  private static final String LARGE_BLOCKED_BODY = "{\"block=true\": \"" + repeat('x', 200) + "\"}";
+
+  private void postInSeveralReads(String path, RequestBody body, int status, String requestBody)
+      throws Exception {
+    Request request =
+        new Request.Builder()
+            .url(String.format("http://localhost:%d%s", serverPort, path))
+            .post(body)
+            .build();
+    try (Response response = httpClient.newCall(request).execute()) {
+      Assertions.assertEquals(status, response.code());
+    }
+
+    TEST_WRITER.waitForTraces(1);
+    List<List<Span>> traces =
+        TEST_WRITER.waitForSpans(1, span -> span.getKind().equals(Span.SpanKind.SPAN_KIND_CLIENT));
+    Assertions.assertEquals(1, traces.size());
+    List<Span> spans = traces.get(0);
+    Assertions.assertEquals(1, spans.size());
+    Assertions.assertEquals(
+        1,
+        spans.get(0).getAttributesList().stream()
+            .filter(keyValue -> keyValue.getKey().equals("http.request.body"))
+            .count());
+    Assertions.assertEquals(
+        requestBody,
+        TEST_WRITER.getAttributesMap(spans.get(0)).get("http.request.body").getStringValue());
+  }
+
+  /** A body without Content-Length, every part is sent in its own chunk. */
+  private static RequestBody chunkedBody(String body) {
+    return new RequestBody() {
+      @Override
+      public MediaType contentType() {
+        return MediaType.get("application/json");
+      }
+
+      @Override
+      public long contentLength() {
+        return -1;
+      }
+
+      @Override
+      public void writeTo(BufferedSink sink) throws IOException {
+        for (int offset = 0; offset < body.length(); offset += 50) {
+          sink.writeUtf8(body, offset, Math.min(offset + 50, body.length()));
+          sink.flush();
+        }
+      }
+    };
+  }
+
+  private static RequestBody contentLengthBody(String body) {
+    return RequestBody.create(body, MediaType.get("application/json"));
+  }
+
+  private static String repeat(char c, int count) {
+    char[] chars = new char[count];
+    Arrays.fill(chars, c);
+    return new String(chars);
+  }
 }
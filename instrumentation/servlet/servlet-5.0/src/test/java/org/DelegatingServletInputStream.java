@@ -50,12 +50,12 @@ public class DelegatingServletInputStream extends ServletInputStream {
 
   @Override
   public boolean isFinished() {
-    return false;
+    return wrapped.isFinished();
   }
 
   @Override
   public boolean isReady() {
-    return false;
+    return wrapped.isReady();
   }
 
   @Override
@@ -0,0 +1,10 @@
+plugins {
+    `java-library`
+    id("io.opentelemetry.instrumentation.auto-instrumentation")
+}
+
+val versions: Map<String, String> by extra
+
+dependencies {
+    implementation("io.opentelemetry.javaagent.instrumentation:opentelemetry-javaagent-servlet-common:${versions["opentelemetry_java_agent"]}")
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.common;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.javaagent.instrumentation.servlet.ServletAsyncListener;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.hypertrace.agent.core.config.InstrumentationConfigSnapshot;
+
+/** Captures the response and clears the request body buffers when an async request completes. */
+public final class BodyCaptureAsyncListener<REQUEST, RESPONSE>
+    implements ServletAsyncListener<RESPONSE> {
+
+  private final AtomicBoolean responseHandled;
+  private final ServletCapture<REQUEST, RESPONSE, ?, ?> capture;
+  private final REQUEST request;
+  private final Span span;
+  private final InstrumentationConfigSnapshot instrumentationConfig;
+
+  public BodyCaptureAsyncListener(
+      AtomicBoolean responseHandled,
+      ServletCapture<REQUEST, RESPONSE, ?, ?> capture,
+      REQUEST request,
+      Span span) {
+    this.responseHandled = responseHandled;
+    this.capture = capture;
+    this.request = request;
+    this.span = span;
+    ServletRequestAdapter<REQUEST, ?> requestAdapter = capture.requestAdapter();
+    this.instrumentationConfig =
+        InstrumentationConfigSnapshot.get()
+            .forHttp(
+                requestAdapter.getRequestMethod(request), requestAdapter.getRequestURI(request));
+  }
+
+  @Override
+  public void onComplete(RESPONSE response) {
+    if (responseHandled.compareAndSet(false, true)) {
+      capture.onAsyncComplete(request, response, span, instrumentationConfig);
+    }
+  }
+
+  @Override
+  public void onError(Throwable throwable, RESPONSE response) {
+    if (responseHandled.compareAndSet(false, true)) {
+      capture.onAsyncComplete(request, response, span, instrumentationConfig);
+    }
+  }
+
+  @Override
+  public void onTimeout(long timeout) {
+    // noop
+  }
+}
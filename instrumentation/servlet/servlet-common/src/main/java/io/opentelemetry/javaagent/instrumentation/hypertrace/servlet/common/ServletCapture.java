@@ -0,0 +1,603 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.common;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.instrumentation.api.util.VirtualField;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import org.hypertrace.agent.core.config.CaptureGovernor;
+import org.hypertrace.agent.core.config.InstrumentationConfigSnapshot;
+import org.hypertrace.agent.core.filter.FilterResult;
+import org.hypertrace.agent.core.instrumentation.HypertraceCallDepthThreadLocalMap;
+import org.hypertrace.agent.core.instrumentation.HypertraceEvaluationException;
+import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
+import org.hypertrace.agent.core.instrumentation.SpanAndObjectPair;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedCharArrayWriter;
+import org.hypertrace.agent.core.instrumentation.buffer.ByteBufferSpanPair;
+import org.hypertrace.agent.core.instrumentation.buffer.CharBufferSpanPair;
+import org.hypertrace.agent.core.instrumentation.buffer.StringMapSpanPair;
+import org.hypertrace.agent.core.instrumentation.utils.BodyCaptureSampler;
+import org.hypertrace.agent.core.instrumentation.utils.ContentLengthUtils;
+import org.hypertrace.agent.core.instrumentation.utils.ContentTypeCharsetUtils;
+import org.hypertrace.agent.core.instrumentation.utils.ContentTypeUtils;
+import org.hypertrace.agent.filter.FilterRegistry;
+
+/**
+ * Header and body capture of the servlet instrumentations, independent of the servlet API. The
+ * {@code javax.servlet} and {@code jakarta.servlet} instrumentations create one instance each, with
+ * the adapters and {@link VirtualField}s of their API, and call it from their advices.
+ *
+ * <p>The servlet or filter advice samples the configuration and captures the request headers when
+ * the request starts, see {@link #configFor} and {@link #onRequest}. The request and response
+ * advices register the streams, readers and writers returned to the application, the stream advices
+ * copy the data read or written into their buffers. The body is added to the span when the request
+ * ends, see {@link #onResponse}, or when an async request completes, see {@link
+ * BodyCaptureAsyncListener}.
+ *
+ * @param <REQUEST> the HTTP servlet request type
+ * @param <RESPONSE> the HTTP servlet response type
+ * @param <INPUT> the servlet input stream type
+ * @param <OUTPUT> the servlet output stream type
+ */
+public final class ServletCapture<REQUEST, RESPONSE, INPUT, OUTPUT> {
+
+  private final ServletRequestAdapter<REQUEST, INPUT> requestAdapter;
+  private final ServletResponseAdapter<RESPONSE> responseAdapter;
+  private final int inputStreamCallDepth;
+  private final int outputStreamCallDepth;
+
+  private final VirtualField<REQUEST, SpanAndObjectPair> requestContextStore;
+  private final VirtualField<INPUT, ByteBufferSpanPair> inputStreamContextStore;
+  private final VirtualField<BufferedReader, CharBufferSpanPair> readerContextStore;
+  private final VirtualField<REQUEST, StringMapSpanPair> urlEncodedMapContextStore;
+
+  private final VirtualField<RESPONSE, SpanAndObjectPair> responseContextStore;
+  private final VirtualField<RESPONSE, InstrumentationConfigSnapshot> configContextStore;
+  private final VirtualField<OUTPUT, BoundedByteArrayOutputStream> outputStreamContextStore;
+  private final VirtualField<PrintWriter, BoundedCharArrayWriter> writerContextStore;
+
+  /**
+   * @param inputStreamCallDepth the {@link HypertraceCallDepthThreadLocalMap} index of the input
+   *     stream advices
+   * @param outputStreamCallDepth the {@link HypertraceCallDepthThreadLocalMap} index of the output
+   *     stream advices
+   */
+  public ServletCapture(
+      ServletRequestAdapter<REQUEST, INPUT> requestAdapter,
+      ServletResponseAdapter<RESPONSE> responseAdapter,
+      int inputStreamCallDepth,
+      int outputStreamCallDepth,
+      VirtualField<REQUEST, SpanAndObjectPair> requestContextStore,
+      VirtualField<INPUT, ByteBufferSpanPair> inputStreamContextStore,
+      VirtualField<BufferedReader, CharBufferSpanPair> readerContextStore,
+      VirtualField<REQUEST, StringMapSpanPair> urlEncodedMapContextStore,
+      VirtualField<RESPONSE, SpanAndObjectPair> responseContextStore,
+      VirtualField<RESPONSE, InstrumentationConfigSnapshot> configContextStore,
+      VirtualField<OUTPUT, BoundedByteArrayOutputStream> outputStreamContextStore,
+      VirtualField<PrintWriter, BoundedCharArrayWriter> writerContextStore) {
+    this.requestAdapter = requestAdapter;
+    this.responseAdapter = responseAdapter;
+    this.inputStreamCallDepth = inputStreamCallDepth;
+    this.outputStreamCallDepth = outputStreamCallDepth;
+    this.requestContextStore = requestContextStore;
+    this.inputStreamContextStore = inputStreamContextStore;
+    this.readerContextStore = readerContextStore;
+    this.urlEncodedMapContextStore = urlEncodedMapContextStore;
+    this.responseContextStore = responseContextStore;
+    this.configContextStore = configContextStore;
+    this.outputStreamContextStore = outputStreamContextStore;
+    this.writerContextStore = writerContextStore;
+  }
+
+  ServletRequestAdapter<REQUEST, INPUT> requestAdapter() {
+    return requestAdapter;
+  }
+
+  /**
+   * Returns the capture configuration of the request. If a capture rule matched or the bodies are
+   * not sampled, the configuration is stored for the response advices, which read it before
+   * allocating buffers.
+   */
+  public InstrumentationConfigSnapshot configFor(REQUEST request, RESPONSE response, Span span) {
+    InstrumentationConfigSnapshot globalConfig = InstrumentationConfigSnapshot.get();
+    InstrumentationConfigSnapshot instrumentationConfig =
+        BodyCaptureSampler.sample(
+            globalConfig.forHttp(
+                requestAdapter.getRequestMethod(request), requestAdapter.getRequestURI(request)),
+            span.getSpanContext());
+    if (instrumentationConfig != globalConfig) {
+      configContextStore.set(response, instrumentationConfig);
+    }
+    return instrumentationConfig;
+  }
+
+  /**
+   * Captures the session id and the request headers and evaluates the headers. Enables the request
+   * body capture if the request is not blocked.
+   *
+   * @return true if the request is blocked, the response has been written then
+   */
+  public boolean onRequest(
+      REQUEST request,
+      RESPONSE response,
+      Span span,
+      InstrumentationConfigSnapshot instrumentationConfig) {
+    String sessionId = requestAdapter.getRequestSessionId(request);
+    if (sessionId != null && sessionId != "") {
+      span.setAttribute(HypertraceSemanticAttributes.HTTP_REQUEST_SESSION_ID, sessionId);
+    }
+
+    Map<String, String> headers = new HashMap<>();
+    Enumeration<String> headerNames = requestAdapter.getRequestHeaderNames(request);
+    while (headerNames.hasMoreElements()) {
+      String headerName = headerNames.nextElement();
+      String headerValue = requestAdapter.getRequestHeader(request, headerName);
+      AttributeKey<String> attributeKey =
+          HypertraceSemanticAttributes.httpRequestHeader(headerName);
+
+      if (instrumentationConfig.httpHeadersRequest) {
+        span.setAttribute(attributeKey, headerValue);
+      }
+      headers.put(attributeKey.getKey(), headerValue);
+    }
+
+    FilterResult filterResult = FilterRegistry.getFilter().evaluateRequestHeaders(span, headers);
+    if (filterResult.shouldBlock()) {
+      block(response, filterResult);
+      return true;
+    }
+
+    if (instrumentationConfig.httpBodyRequest
+        && ContentTypeUtils.shouldCapture(requestAdapter.getRequestContentType(request))) {
+      // the request advices use this to enable the body capture
+      requestContextStore.set(
+          request, new SpanAndObjectPair(span, Collections.unmodifiableMap(headers)));
+    }
+    return false;
+  }
+
+  /**
+   * Captures the response headers and body and clears the request body buffers when the outermost
+   * servlet or filter returns. Does nothing if the request went async, {@link
+   * BodyCaptureAsyncListener} captures the response then.
+   */
+  public void onResponse(
+      REQUEST request,
+      RESPONSE response,
+      Span span,
+      InstrumentationConfigSnapshot instrumentationConfig,
+      Throwable throwable)
+      throws IOException {
+    if (requestAdapter.isRequestAsyncStarted(request)) {
+      return;
+    }
+    if (instrumentationConfig != InstrumentationConfigSnapshot.get()) {
+      // the response object might be recycled for the next request
+      configContextStore.set(response, null);
+    }
+    if (instrumentationConfig.httpHeadersResponse) {
+      if (throwable == null && !responseAdapter.isResponseCommitted(response)) {
+        responseAdapter.flushResponseBuffer(response);
+      }
+      String contentType = responseAdapter.getResponseContentType(response);
+      if (contentType != null && !contentType.isEmpty()) {
+        span.setAttribute(
+            HypertraceSemanticAttributes.HTTP_RESPONSE_HEADER_CONTENT_TYPE, contentType);
+      }
+      String characterEncoding = responseAdapter.getResponseCharacterEncoding(response);
+      if (characterEncoding != null && !characterEncoding.isEmpty()) {
+        span.setAttribute(
+            HypertraceSemanticAttributes.HTTP_RESPONSE_HEADER_CONTENT_ENCODING, characterEncoding);
+      }
+      captureResponseHeaders(response, span);
+    }
+    captureBodies(request, response, span, instrumentationConfig);
+  }
+
+  /**
+   * Captures the response headers and body and clears the request body buffers of an async request.
+   */
+  void onAsyncComplete(
+      REQUEST request,
+      RESPONSE response,
+      Span span,
+      InstrumentationConfigSnapshot instrumentationConfig) {
+    if (response != null) {
+      if (instrumentationConfig.httpBodyResponse
+          && ContentTypeUtils.shouldCapture(responseAdapter.getResponseContentType(response))) {
+        captureResponseBody(span, response);
+      }
+      if (instrumentationConfig.httpHeadersResponse) {
+        captureResponseHeaders(response, span);
+      }
+      // the response object might be recycled for the next request
+      configContextStore.set(response, null);
+    }
+    if (request != null
+        && instrumentationConfig.httpBodyRequest
+        && ContentTypeUtils.shouldCapture(requestAdapter.getRequestContentType(request))) {
+      resetRequestBodyBuffers(request);
+    }
+  }
+
+  /**
+   * Writes the blocking response if the throwable is or is caused by a {@link
+   * HypertraceEvaluationException}.
+   *
+   * @return null if the request was blocked, i.e. the exception should be suppressed, otherwise the
+   *     throwable
+   */
+  public Throwable onThrowable(RESPONSE response, Throwable throwable) {
+    Throwable tmp = throwable;
+    while (tmp != null) { // loop in case our exception is nested (eg. springframework)
+      if (tmp instanceof HypertraceEvaluationException) {
+        block(response, ((HypertraceEvaluationException) tmp).getFilterResult());
+        return null;
+      }
+      tmp = tmp.getCause();
+    }
+    return throwable;
+  }
+
+  /** Returns the request capture state if the request body is captured, otherwise null. */
+  public SpanAndObjectPair requestCapture(REQUEST request) {
+    return requestContextStore.get(request);
+  }
+
+  /** Starts capturing the input stream returned by {@code getInputStream()}. */
+  public void onInputStream(
+      REQUEST request, INPUT inputStream, SpanAndObjectPair spanAndObjectPair) {
+    if (inputStreamContextStore.get(inputStream) != null) {
+      // getInputStream() can be called multiple times
+      return;
+    }
+    Charset charset =
+        ContentTypeCharsetUtils.toCharset(requestAdapter.getRequestCharacterEncoding(request));
+    ByteBufferSpanPair bufferSpanPair =
+        new ByteBufferSpanPair(
+            spanAndObjectPair.getSpan(),
+            BoundedBuffersFactory.createStream(contentLength(request), charset),
+            FilterRegistry.getFilter()::evaluateRequestBody,
+            spanAndObjectPair.getHeaders(),
+            requestAdapter.getRequestContentLength(request));
+    inputStreamContextStore.set(inputStream, bufferSpanPair);
+    spanAndObjectPair.setAssociatedObject(inputStream);
+  }
+
+  /** Starts capturing the reader returned by {@code getReader()}. */
+  public void onReader(
+      REQUEST request, BufferedReader reader, SpanAndObjectPair spanAndObjectPair) {
+    if (readerContextStore.get(reader) != null) {
+      // getReader() can be called multiple times
+      return;
+    }
+    CharBufferSpanPair bufferSpanPair =
+        new CharBufferSpanPair(
+            spanAndObjectPair.getSpan(),
+            BoundedBuffersFactory.createWriter(contentLength(request)),
+            FilterRegistry.getFilter()::evaluateRequestBody,
+            spanAndObjectPair.getHeaders());
+    readerContextStore.set(reader, bufferSpanPair);
+    spanAndObjectPair.setAssociatedObject(reader);
+  }
+
+  /** Records a parameter returned by {@code getParameter(String)}. */
+  public void onParameter(
+      REQUEST request, String name, String value, SpanAndObjectPair spanAndObjectPair) {
+    StringMapSpanPair stringMapSpanPair = urlEncodedMapContextStore.get(request);
+    Map<String, String> stringMap;
+    if (stringMapSpanPair != null) {
+      stringMap = stringMapSpanPair.stringMap;
+    } else {
+      stringMap = new HashMap<>();
+      stringMapSpanPair =
+          new StringMapSpanPair(
+              spanAndObjectPair.getSpan(), stringMap, spanAndObjectPair.getHeaders());
+      urlEncodedMapContextStore.set(request, stringMapSpanPair);
+    }
+    stringMap.put(name, value);
+    spanAndObjectPair.setAssociatedObject(stringMap);
+  }
+
+  private int contentLength(REQUEST request) {
+    int contentLength = requestAdapter.getRequestContentLength(request);
+    return contentLength < 0 ? ContentLengthUtils.getDefault() : contentLength;
+  }
+
+  /**
+   * Called when a read method of a captured input stream is entered.
+   *
+   * @return the buffer to pass to the exit methods, null if the stream is not captured
+   */
+  public ByteBufferSpanPair enterRead(INPUT inputStream) {
+    ByteBufferSpanPair bufferSpanPair = inputStreamContextStore.get(inputStream);
+    if (bufferSpanPair == null) {
+      return null;
+    }
+    HypertraceCallDepthThreadLocalMap.incrementCallDepth(inputStreamCallDepth);
+    return bufferSpanPair;
+  }
+
+  /** Called when {@code read()} exits, see {@link #enterRead}. */
+  public void exitRead(ByteBufferSpanPair bufferSpanPair, int read) {
+    try {
+      if (HypertraceCallDepthThreadLocalMap.decrementCallDepth(inputStreamCallDepth) > 0) {
+        return;
+      }
+      if (read == -1) {
+        bufferSpanPair.captureBody(HypertraceSemanticAttributes.HTTP_REQUEST_BODY);
+      } else {
+        bufferSpanPair.writeToBuffer((byte) read);
+        if (bufferSpanPair.isContentLengthRead()) {
+          bufferSpanPair.captureBody(HypertraceSemanticAttributes.HTTP_REQUEST_BODY);
+        }
+      }
+    } catch (HypertraceEvaluationException e) {
+      throw e;
+    } catch (Throwable t) {
+      // ignore
+    }
+  }
+
+  /**
+   * Called when a method reading into {@code b} at {@code off} exits, see {@link #enterRead}.
+   *
+   * <p>The body is captured as soon as the end of the body is known: on -1, once the declared
+   * content length has been read or, for bodies of unknown length, once the stream reports it is
+   * finished. Otherwise it is captured when the request completes. {@code available()} is not used
+   * for this, it can take locks in some containers and is 0 between the chunks of a chunked body.
+   */
+  public void exitRead(
+      INPUT inputStream, ByteBufferSpanPair bufferSpanPair, int read, byte[] b, int off) {
+    try {
+      if (HypertraceCallDepthThreadLocalMap.decrementCallDepth(inputStreamCallDepth) > 0) {
+        return;
+      }
+      if (read == -1) {
+        bufferSpanPair.captureBody(HypertraceSemanticAttributes.HTTP_REQUEST_BODY);
+      } else {
+        bufferSpanPair.writeToBuffer(b, off, read);
+        if (bufferSpanPair.hasContentLength()
+            ? bufferSpanPair.isContentLengthRead()
+            : requestAdapter.isFinished(inputStream)) {
+          bufferSpanPair.captureBody(HypertraceSemanticAttributes.HTTP_REQUEST_BODY);
+        }
+      }
+    } catch (HypertraceEvaluationException e) {
+      throw e;
+    } catch (Throwable t) {
+      // ignore
+    }
+  }
+
+  /** Called when {@code readAllBytes()} exits, see {@link #enterRead}. */
+  public void exitReadAll(ByteBufferSpanPair bufferSpanPair, byte[] b) {
+    try {
+      if (HypertraceCallDepthThreadLocalMap.decrementCallDepth(inputStreamCallDepth) > 0) {
+        return;
+      }
+      bufferSpanPair.writeToBuffer(b);
+      bufferSpanPair.captureBody(HypertraceSemanticAttributes.HTTP_REQUEST_BODY);
+    } catch (HypertraceEvaluationException e) {
+      throw e;
+    } catch (Throwable t) {
+      // ignore
+    }
+  }
+
+  /** Starts capturing the output stream returned by {@code getOutputStream()}. */
+  public void onOutputStream(RESPONSE response, OUTPUT outputStream) {
+    if (outputStreamContextStore.get(outputStream) != null) {
+      // getOutputStream() can be called multiple times
+      return;
+    }
+    String contentType = responseAdapter.getResponseContentType(response);
+    if (captureResponseBody(response, contentType)) {
+      Charset charset =
+          ContentTypeCharsetUtils.toCharset(responseAdapter.getResponseCharacterEncoding(response));
+      outputStreamContextStore.set(outputStream, BoundedBuffersFactory.createStream(charset));
+      associate(response, outputStream);
+    }
+  }
+
+  /** Starts capturing the writer returned by {@code getWriter()}. */
+  public void onWriter(RESPONSE response, PrintWriter printWriter) {
+    if (writerContextStore.get(printWriter) != null) {
+      // getWriter() can be called multiple times
+      return;
+    }
+    String contentType = responseAdapter.getResponseContentType(response);
+    if (captureResponseBody(response, contentType)) {
+      writerContextStore.set(printWriter, BoundedBuffersFactory.createWriter());
+      associate(response, printWriter);
+    }
+  }
+
+  private boolean captureResponseBody(RESPONSE response, String contentType) {
+    // do not capture if data capture is disabled or not supported content type
+    InstrumentationConfigSnapshot instrumentationConfig = configContextStore.get(response);
+    if (instrumentationConfig == null) {
+      instrumentationConfig = InstrumentationConfigSnapshot.get();
+    }
+    return instrumentationConfig.httpBodyResponse && ContentTypeUtils.shouldCapture(contentType);
+  }
+
+  private void associate(RESPONSE response, Object streamOrWriter) {
+    SpanAndObjectPair spanAndObjectPair = new SpanAndObjectPair(null, null);
+    spanAndObjectPair.setAssociatedObject(streamOrWriter);
+    responseContextStore.set(response, spanAndObjectPair);
+  }
+
+  /**
+   * Called when {@code write(int)} of an output stream is entered.
+   *
+   * @return the buffer to pass to {@link #exitWrite}, null if the stream is not captured
+   */
+  public BoundedByteArrayOutputStream enterWrite(OUTPUT outputStream, int b) {
+    BoundedByteArrayOutputStream buffer = outputStreamContextStore.get(outputStream);
+    if (buffer != null && outermostWrite()) {
+      buffer.write(b);
+    }
+    return buffer;
+  }
+
+  /** Called when {@code write(byte[], int, int)} of an output stream is entered. */
+  public BoundedByteArrayOutputStream enterWrite(OUTPUT outputStream, byte[] b, int off, int len) {
+    BoundedByteArrayOutputStream buffer = outputStreamContextStore.get(outputStream);
+    if (buffer != null && outermostWrite()) {
+      buffer.write(b, off, len);
+    }
+    return buffer;
+  }
+
+  /** Called when {@code print(String)} of an output stream is entered. */
+  public BoundedByteArrayOutputStream enterPrint(OUTPUT outputStream, String s) {
+    BoundedByteArrayOutputStream buffer = outputStreamContextStore.get(outputStream);
+    if (buffer != null && outermostWrite()) {
+      byte[] bodyPart = (s == null ? "null" : s).getBytes();
+      buffer.write(bodyPart, 0, bodyPart.length);
+    }
+    return buffer;
+  }
+
+  private boolean outermostWrite() {
+    return HypertraceCallDepthThreadLocalMap.incrementCallDepth(outputStreamCallDepth) == 0;
+  }
+
+  /** Called when a write method exits, see {@link #enterWrite}. */
+  public void exitWrite(BoundedByteArrayOutputStream buffer) {
+    if (buffer != null) {
+      HypertraceCallDepthThreadLocalMap.decrementCallDepth(outputStreamCallDepth);
+    }
+  }
+
+  private void captureBodies(
+      REQUEST request,
+      RESPONSE response,
+      Span span,
+      InstrumentationConfigSnapshot instrumentationConfig) {
+    if (instrumentationConfig.httpBodyResponse
+        && ContentTypeUtils.shouldCapture(responseAdapter.getResponseContentType(response))) {
+      captureResponseBody(span, response);
+    }
+    // remove request body buffers from context stores, otherwise they might get reused
+    if (instrumentationConfig.httpBodyRequest
+        && ContentTypeUtils.shouldCapture(requestAdapter.getRequestContentType(request))) {
+      resetRequestBodyBuffers(request);
+    }
+  }
+
+  private void captureResponseHeaders(RESPONSE response, Span span) {
+    for (String headerName : responseAdapter.getResponseHeaderNames(response)) {
+      span.setAttribute(
+          HypertraceSemanticAttributes.httpResponseHeader(headerName),
+          responseAdapter.getResponseHeader(response, headerName));
+    }
+  }
+
+  private void captureResponseBody(Span span, RESPONSE response) {
+    SpanAndObjectPair responseStreamWriterHolder = responseContextStore.get(response);
+    if (responseStreamWriterHolder == null) {
+      return;
+    }
+    responseContextStore.set(response, null);
+
+    Object streamOrWriter = responseStreamWriterHolder.getAssociatedObject();
+    if (streamOrWriter instanceof PrintWriter) {
+      PrintWriter printWriter = (PrintWriter) streamOrWriter;
+      BoundedCharArrayWriter buffer = writerContextStore.get(printWriter);
+      if (buffer != null) {
+        long start = CaptureGovernor.startTiming();
+        String body = buffer.toString();
+        CaptureGovernor.recordCapture(start, body.length());
+        span.setAttribute(HypertraceSemanticAttributes.HTTP_RESPONSE_BODY, body);
+        writerContextStore.set(printWriter, null);
+      }
+    } else if (streamOrWriter != null) {
+      OUTPUT outputStream = cast(streamOrWriter);
+      BoundedByteArrayOutputStream buffer = outputStreamContextStore.get(outputStream);
+      if (buffer != null) {
+        try {
+          span.setAttribute(
+              HypertraceSemanticAttributes.HTTP_RESPONSE_BODY,
+              buffer.toStringWithSuppliedCharset());
+        } catch (UnsupportedEncodingException e) {
+          // should not happen
+        }
+        outputStreamContextStore.set(outputStream, null);
+      }
+    }
+  }
+
+  private void resetRequestBodyBuffers(REQUEST request) {
+    SpanAndObjectPair requestStreamReaderHolder = requestContextStore.get(request);
+    if (requestStreamReaderHolder == null) {
+      return;
+    }
+    requestContextStore.set(request, null);
+
+    Object streamOrReader = requestStreamReaderHolder.getAssociatedObject();
+    if (streamOrReader instanceof BufferedReader) {
+      BufferedReader bufferedReader = (BufferedReader) streamOrReader;
+      CharBufferSpanPair charBufferSpanPair = readerContextStore.get(bufferedReader);
+      if (charBufferSpanPair != null) {
+        charBufferSpanPair.captureBody(HypertraceSemanticAttributes.HTTP_REQUEST_BODY);
+        readerContextStore.set(bufferedReader, null);
+      }
+    } else if (streamOrReader instanceof Map) {
+      StringMapSpanPair stringMapSpanPair = urlEncodedMapContextStore.get(request);
+      if (stringMapSpanPair != null) {
+        stringMapSpanPair.captureBody(HypertraceSemanticAttributes.HTTP_REQUEST_BODY);
+        urlEncodedMapContextStore.set(request, null);
+      }
+    } else if (streamOrReader != null) {
+      INPUT inputStream = cast(streamOrReader);
+      ByteBufferSpanPair byteBufferSpanPair = inputStreamContextStore.get(inputStream);
+      if (byteBufferSpanPair != null) {
+        // capture body explicitly e.g. Jackson does not call ServletInputStream$read() until -1 is
+        // returned and the length of a chunked body is not known
+        byteBufferSpanPair.captureBody(HypertraceSemanticAttributes.HTTP_REQUEST_BODY);
+        inputStreamContextStore.set(inputStream, null);
+      }
+    }
+  }
+
+  private void block(RESPONSE response, FilterResult filterResult) {
+    try {
+      responseAdapter.getResponseWriter(response).write(filterResult.getBlockingMsg());
+    } catch (IOException ignored) {
+    }
+    responseAdapter.setResponseStatus(response, filterResult.getBlockingStatusCode());
+  }
+
+  /** The associated objects of the request and response are only set by this class. */
+  @SuppressWarnings("unchecked")
+  private static <T> T cast(Object streamOrWriter) {
+    return (T) streamOrWriter;
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.common;
+
+import java.util.Enumeration;
+
+/**
+ * Gives {@link ServletCapture} access to the request and request stream of one servlet API, i.e.
+ * {@code javax.servlet} or {@code jakarta.servlet}.
+ *
+ * @param <REQUEST> the HTTP servlet request type
+ * @param <INPUT> the servlet input stream type
+ */
+public interface ServletRequestAdapter<REQUEST, INPUT> {
+
+  String getRequestMethod(REQUEST request);
+
+  String getRequestURI(REQUEST request);
+
+  Enumeration<String> getRequestHeaderNames(REQUEST request);
+
+  String getRequestHeader(REQUEST request, String name);
+
+  String getRequestContentType(REQUEST request);
+
+  String getRequestCharacterEncoding(REQUEST request);
+
+  int getRequestContentLength(REQUEST request);
+
+  /** Returns the id of the session if the requested session id is valid, otherwise null. */
+  String getRequestSessionId(REQUEST request);
+
+  boolean isRequestAsyncStarted(REQUEST request);
+
+  /**
+   * Returns true if all data of the request body has been read from the stream, false if it has not
+   * or the servlet API does not tell (before Servlet 3.1).
+   */
+  boolean isFinished(INPUT inputStream);
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.common;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Collection;
+
+/**
+ * Gives {@link ServletCapture} access to the response of one servlet API, i.e. {@code
+ * javax.servlet} or {@code jakarta.servlet}.
+ *
+ * @param <RESPONSE> the HTTP servlet response type
+ */
+public interface ServletResponseAdapter<RESPONSE> {
+
+  String getResponseContentType(RESPONSE response);
+
+  String getResponseCharacterEncoding(RESPONSE response);
+
+  Collection<String> getResponseHeaderNames(RESPONSE response);
+
+  String getResponseHeader(RESPONSE response, String name);
+
+  boolean isResponseCommitted(RESPONSE response);
+
+  void flushResponseBuffer(RESPONSE response) throws IOException;
+
+  PrintWriter getResponseWriter(RESPONSE response) throws IOException;
+
+  void setResponseStatus(RESPONSE response, int status);
+}
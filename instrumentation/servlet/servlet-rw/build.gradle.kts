@@ -23,6 +23,7 @@ afterEvaluate{
 val versions: Map<String, String> by extra
 
 dependencies {
+    implementation(project(":instrumentation:type-matchers"))
     testImplementation(project(":testing-common"))
     testImplementation("org.eclipse.jetty:jetty-servlet:8.1.22.v20160922")
 }
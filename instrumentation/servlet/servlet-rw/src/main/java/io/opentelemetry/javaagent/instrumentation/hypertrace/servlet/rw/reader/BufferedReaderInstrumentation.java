@@ -16,7 +16,6 @@
 
 package io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.rw.reader;
 
-import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasSuperType;
 import static net.bytebuddy.matcher.ElementMatchers.is;
 import static net.bytebuddy.matcher.ElementMatchers.isPublic;
 import static net.bytebuddy.matcher.ElementMatchers.named;
@@ -26,6 +25,8 @@ import static net.bytebuddy.matcher.ElementMatchers.takesArguments;
 import io.opentelemetry.instrumentation.api.util.VirtualField;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeTransformer;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.matchers.IndexedTypeMatchers;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.rw.ServletRWCallDepths;
 import java.io.BufferedReader;
 import java.io.IOException;
 import net.bytebuddy.asm.Advice;
@@ -40,7 +41,8 @@ public class BufferedReaderInstrumentation implements TypeInstrumentation {
 
   @Override
   public ElementMatcher<TypeDescription> typeMatcher() {
-    return hasSuperType(named("java.io.BufferedReader")).or(named("java.io.BufferedReader"));
+    return IndexedTypeMatchers.hasSuperClass("java.io.BufferedReader")
+        .or(named("java.io.BufferedReader"));
   }
 
   @Override
@@ -76,7 +78,7 @@ public class BufferedReaderInstrumentation implements TypeInstrumentation {
         return null;
       }
 
-      HypertraceCallDepthThreadLocalMap.incrementCallDepth(BufferedReader.class);
+      HypertraceCallDepthThreadLocalMap.incrementCallDepth(ServletRWCallDepths.READER);
       return bufferSpanPair;
     }
 
@@ -89,7 +91,8 @@ public class BufferedReaderInstrumentation implements TypeInstrumentation {
         if (bufferSpanPair == null) {
           return;
         }
-        int callDepth = HypertraceCallDepthThreadLocalMap.decrementCallDepth(BufferedReader.class);
+        int callDepth =
+            HypertraceCallDepthThreadLocalMap.decrementCallDepth(ServletRWCallDepths.READER);
         if (callDepth > 0) {
           return;
         }
@@ -118,7 +121,7 @@ public class BufferedReaderInstrumentation implements TypeInstrumentation {
         return null;
       }
 
-      HypertraceCallDepthThreadLocalMap.incrementCallDepth(BufferedReader.class);
+      HypertraceCallDepthThreadLocalMap.incrementCallDepth(ServletRWCallDepths.READER);
       return bufferSpanPair;
     }
 
@@ -131,7 +134,8 @@ public class BufferedReaderInstrumentation implements TypeInstrumentation {
         if (bufferSpanPair == null) {
           return;
         }
-        int callDepth = HypertraceCallDepthThreadLocalMap.decrementCallDepth(BufferedReader.class);
+        int callDepth =
+            HypertraceCallDepthThreadLocalMap.decrementCallDepth(ServletRWCallDepths.READER);
         if (callDepth > 0) {
           return;
         }
@@ -160,7 +164,7 @@ public class BufferedReaderInstrumentation implements TypeInstrumentation {
         return null;
       }
 
-      HypertraceCallDepthThreadLocalMap.incrementCallDepth(BufferedReader.class);
+      HypertraceCallDepthThreadLocalMap.incrementCallDepth(ServletRWCallDepths.READER);
       return bufferSpanPair;
     }
 
@@ -175,7 +179,8 @@ public class BufferedReaderInstrumentation implements TypeInstrumentation {
         if (bufferSpanPair == null) {
           return;
         }
-        int callDepth = HypertraceCallDepthThreadLocalMap.decrementCallDepth(BufferedReader.class);
+        int callDepth =
+            HypertraceCallDepthThreadLocalMap.decrementCallDepth(ServletRWCallDepths.READER);
         if (callDepth > 0) {
           return;
         }
@@ -204,7 +209,7 @@ public class BufferedReaderInstrumentation implements TypeInstrumentation {
         return null;
       }
 
-      HypertraceCallDepthThreadLocalMap.incrementCallDepth(BufferedReader.class);
+      HypertraceCallDepthThreadLocalMap.incrementCallDepth(ServletRWCallDepths.READER);
       return bufferSpanPair;
     }
 
@@ -216,7 +221,8 @@ public class BufferedReaderInstrumentation implements TypeInstrumentation {
         if (bufferSpanPair == null) {
           return;
         }
-        int callDepth = HypertraceCallDepthThreadLocalMap.decrementCallDepth(BufferedReader.class);
+        int callDepth =
+            HypertraceCallDepthThreadLocalMap.decrementCallDepth(ServletRWCallDepths.READER);
         if (callDepth > 0) {
           return;
         }
@@ -16,7 +16,6 @@
 
 package io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.rw.writer;
 
-import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasSuperType;
 import static net.bytebuddy.matcher.ElementMatchers.is;
 import static net.bytebuddy.matcher.ElementMatchers.isPublic;
 import static net.bytebuddy.matcher.ElementMatchers.named;
@@ -26,6 +25,8 @@ import static net.bytebuddy.matcher.ElementMatchers.takesArguments;
 import io.opentelemetry.instrumentation.api.util.VirtualField;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeTransformer;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.matchers.IndexedTypeMatchers;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.rw.ServletRWCallDepths;
 import java.io.IOException;
 import java.io.PrintWriter;
 import net.bytebuddy.asm.Advice;
@@ -38,7 +39,8 @@ public class PrintWriterInstrumentation implements TypeInstrumentation {
 
   @Override
   public ElementMatcher<TypeDescription> typeMatcher() {
-    return hasSuperType(named("java.io.PrintWriter")).or(named("java.io.PrintWriter"));
+    return IndexedTypeMatchers.hasSuperClass("java.io.PrintWriter")
+        .or(named("java.io.PrintWriter"));
   }
 
   @Override
@@ -100,7 +102,8 @@ public class PrintWriterInstrumentation implements TypeInstrumentation {
       if (buffer == null) {
         return null;
       }
-      int callDepth = HypertraceCallDepthThreadLocalMap.incrementCallDepth(PrintWriter.class);
+      int callDepth =
+          HypertraceCallDepthThreadLocalMap.incrementCallDepth(ServletRWCallDepths.WRITER);
       if (callDepth > 0) {
         return buffer;
       }
@@ -112,7 +115,7 @@ public class PrintWriterInstrumentation implements TypeInstrumentation {
     @Advice.OnMethodExit(suppress = Throwable.class, onThrowable = Throwable.class)
     public static void exit(@Advice.Enter BoundedCharArrayWriter buffer) {
       if (buffer != null) {
-        HypertraceCallDepthThreadLocalMap.decrementCallDepth(PrintWriter.class);
+        HypertraceCallDepthThreadLocalMap.decrementCallDepth(ServletRWCallDepths.WRITER);
       }
     }
   }
@@ -127,7 +130,8 @@ public class PrintWriterInstrumentation implements TypeInstrumentation {
       if (buffer == null) {
         return null;
       }
-      int callDepth = HypertraceCallDepthThreadLocalMap.incrementCallDepth(PrintWriter.class);
+      int callDepth =
+          HypertraceCallDepthThreadLocalMap.incrementCallDepth(ServletRWCallDepths.WRITER);
       if (callDepth > 0) {
         return buffer;
       }
@@ -139,7 +143,7 @@ public class PrintWriterInstrumentation implements TypeInstrumentation {
     @Advice.OnMethodExit(suppress = Throwable.class, onThrowable = Throwable.class)
     public static void exit(@Advice.Enter BoundedCharArrayWriter buffer) {
       if (buffer != null) {
-        HypertraceCallDepthThreadLocalMap.decrementCallDepth(PrintWriter.class);
+        HypertraceCallDepthThreadLocalMap.decrementCallDepth(ServletRWCallDepths.WRITER);
       }
     }
   }
@@ -157,7 +161,8 @@ public class PrintWriterInstrumentation implements TypeInstrumentation {
       if (buffer == null) {
         return null;
       }
-      int callDepth = HypertraceCallDepthThreadLocalMap.incrementCallDepth(PrintWriter.class);
+      int callDepth =
+          HypertraceCallDepthThreadLocalMap.incrementCallDepth(ServletRWCallDepths.WRITER);
       if (callDepth > 0) {
         return buffer;
       }
@@ -169,7 +174,7 @@ public class PrintWriterInstrumentation implements TypeInstrumentation {
     @Advice.OnMethodExit(suppress = Throwable.class, onThrowable = Throwable.class)
     public static void exit(@Advice.Enter BoundedCharArrayWriter buffer) {
       if (buffer != null) {
-        HypertraceCallDepthThreadLocalMap.decrementCallDepth(PrintWriter.class);
+        HypertraceCallDepthThreadLocalMap.decrementCallDepth(ServletRWCallDepths.WRITER);
       }
     }
   }
@@ -187,7 +192,8 @@ public class PrintWriterInstrumentation implements TypeInstrumentation {
       if (buffer == null) {
         return null;
       }
-      int callDepth = HypertraceCallDepthThreadLocalMap.incrementCallDepth(PrintWriter.class);
+      int callDepth =
+          HypertraceCallDepthThreadLocalMap.incrementCallDepth(ServletRWCallDepths.WRITER);
       if (callDepth > 0) {
         return buffer;
       }
@@ -199,7 +205,7 @@ public class PrintWriterInstrumentation implements TypeInstrumentation {
     @Advice.OnMethodExit(suppress = Throwable.class, onThrowable = Throwable.class)
     public static void exit(@Advice.Enter BoundedCharArrayWriter buffer) {
       if (buffer != null) {
-        HypertraceCallDepthThreadLocalMap.decrementCallDepth(PrintWriter.class);
+        HypertraceCallDepthThreadLocalMap.decrementCallDepth(ServletRWCallDepths.WRITER);
       }
     }
   }
@@ -214,7 +220,8 @@ public class PrintWriterInstrumentation implements TypeInstrumentation {
       if (buffer == null) {
         return null;
       }
-      int callDepth = HypertraceCallDepthThreadLocalMap.incrementCallDepth(PrintWriter.class);
+      int callDepth =
+          HypertraceCallDepthThreadLocalMap.incrementCallDepth(ServletRWCallDepths.WRITER);
       if (callDepth > 0) {
         return buffer;
       }
@@ -226,7 +233,7 @@ public class PrintWriterInstrumentation implements TypeInstrumentation {
     @Advice.OnMethodExit(suppress = Throwable.class, onThrowable = Throwable.class)
     public static void exit(@Advice.Enter BoundedCharArrayWriter buffer) {
       if (buffer != null) {
-        HypertraceCallDepthThreadLocalMap.decrementCallDepth(PrintWriter.class);
+        HypertraceCallDepthThreadLocalMap.decrementCallDepth(ServletRWCallDepths.WRITER);
       }
     }
   }
@@ -239,7 +246,8 @@ public class PrintWriterInstrumentation implements TypeInstrumentation {
       if (buffer == null) {
         return null;
       }
-      int callDepth = HypertraceCallDepthThreadLocalMap.incrementCallDepth(PrintWriter.class);
+      int callDepth =
+          HypertraceCallDepthThreadLocalMap.incrementCallDepth(ServletRWCallDepths.WRITER);
       if (callDepth > 0) {
         return buffer;
       }
@@ -251,7 +259,7 @@ public class PrintWriterInstrumentation implements TypeInstrumentation {
     @Advice.OnMethodExit(suppress = Throwable.class, onThrowable = Throwable.class)
     public static void exit(@Advice.Enter BoundedCharArrayWriter buffer) {
       if (buffer != null) {
-        HypertraceCallDepthThreadLocalMap.decrementCallDepth(PrintWriter.class);
+        HypertraceCallDepthThreadLocalMap.decrementCallDepth(ServletRWCallDepths.WRITER);
       }
     }
   }
@@ -265,7 +273,8 @@ public class PrintWriterInstrumentation implements TypeInstrumentation {
       if (buffer == null) {
         return null;
       }
-      int callDepth = HypertraceCallDepthThreadLocalMap.incrementCallDepth(PrintWriter.class);
+      int callDepth =
+          HypertraceCallDepthThreadLocalMap.incrementCallDepth(ServletRWCallDepths.WRITER);
       if (callDepth > 0) {
         return buffer;
       }
@@ -278,7 +287,7 @@ public class PrintWriterInstrumentation implements TypeInstrumentation {
     @Advice.OnMethodExit(suppress = Throwable.class, onThrowable = Throwable.class)
     public static void exit(@Advice.Enter BoundedCharArrayWriter buffer) {
       if (buffer != null) {
-        HypertraceCallDepthThreadLocalMap.decrementCallDepth(PrintWriter.class);
+        HypertraceCallDepthThreadLocalMap.decrementCallDepth(ServletRWCallDepths.WRITER);
       }
     }
   }
@@ -0,0 +1,115 @@
+plugins {
+    `java-library`
+    id("io.opentelemetry.instrumentation.auto-instrumentation")
+}
+
+/*
+ * JDK classes extending the broad class targets of hierarchy matchers, see IndexedTypeMatchers. The
+ * index is generated from the JDK that runs the build.
+ */
+val jdkSubclassIndexRoots = listOf(
+    "java.io.InputStream",
+    "java.io.OutputStream",
+    "java.io.PrintWriter",
+    "java.io.BufferedReader"
+)
+val jdkSubclassIndexDir = layout.buildDirectory.dir("generated/sources/jdkSubclassIndex/java/main")
+
+val generateJdkSubclassIndex by tasks.registering {
+    description = "Generates the index of JDK subclasses used by IndexedTypeMatchers."
+    inputs.property("roots", jdkSubclassIndexRoots)
+    inputs.property("javaVersion", System.getProperty("java.version"))
+    inputs.property("javaSpecificationVersion", System.getProperty("java.specification.version"))
+    outputs.dir(jdkSubclassIndexDir)
+    doLast {
+        val loader = ClassLoader.getSystemClassLoader()
+        val jrt = java.nio.file.FileSystems.getFileSystem(java.net.URI.create("jrt:/"))
+        val jdkClasses = java.nio.file.Files.list(jrt.getPath("/modules")).use { modules ->
+            modules.filter { java.nio.file.Files.isDirectory(it.resolve("java")) }
+                .collect(java.util.stream.Collectors.toList())
+        }.flatMap { module ->
+            java.nio.file.Files.walk(module.resolve("java")).use { files ->
+                files.map { module.relativize(it).toString() }
+                    .filter { it.endsWith(".class") && !it.endsWith("-info.class") }
+                    .map { it.removeSuffix(".class").replace('/', '.') }
+                    .collect(java.util.stream.Collectors.toList())
+            }
+        }.mapNotNull {
+            try {
+                Class.forName(it, false, loader)
+            } catch (e: LinkageError) {
+                null
+            } catch (e: ClassNotFoundException) {
+                null
+            }
+        }
+
+        val entries = jdkSubclassIndexRoots.joinToString("\n") { root ->
+            val rootClass = Class.forName(root, false, loader)
+            val subclasses = jdkClasses.filter { it != rootClass && rootClass.isAssignableFrom(it) }
+                .map { it.name }.sorted()
+            "    SUBCLASSES.put(\n        \"$root\",\n        set(\n" +
+                subclasses.joinToString(",\n") { "            \"$it\"" } + "));"
+        }
+        val file = jdkSubclassIndexDir.get()
+            .file("io/opentelemetry/javaagent/instrumentation/hypertrace/matchers/JdkSubclassIndex.java").asFile
+        file.parentFile.mkdirs()
+        file.writeText("""
+            |// Generated by the generateJdkSubclassIndex task from JDK ${System.getProperty("java.version")}, do not edit.
+            |package io.opentelemetry.javaagent.instrumentation.hypertrace.matchers;
+            |
+            |import java.util.Arrays;
+            |import java.util.Collections;
+            |import java.util.HashMap;
+            |import java.util.HashSet;
+            |import java.util.Map;
+            |import java.util.Set;
+            |
+            |final class JdkSubclassIndex {
+            |
+            |  /** The Java version the index was generated from. */
+            |  private static final String JAVA_SPECIFICATION_VERSION = "${System.getProperty("java.specification.version")}";
+            |
+            |  private static final boolean COMPLETE =
+            |      JAVA_SPECIFICATION_VERSION.equals(System.getProperty("java.specification.version"));
+            |
+            |  private static final Map<String, Set<String>> SUBCLASSES = new HashMap<>();
+            |
+            |  static {
+            |__ENTRIES__
+            |  }
+            |
+            |  private JdkSubclassIndex() {}
+            |
+            |  /**
+            |   * Returns whether the index knows all JDK classes of the running Java version, i.e. a JDK class
+            |   * that is not indexed as a subclass does not extend the indexed class. Otherwise the running JDK
+            |   * might have classes the index does not know.
+            |   */
+            |  static boolean isComplete() {
+            |    return COMPLETE;
+            |  }
+            |
+            |  /** Returns whether the JDK class is or extends the given class. */
+            |  static boolean isSubclass(String jdkClassName, String className) {
+            |    return jdkClassName.equals(className)
+            |        || SUBCLASSES.getOrDefault(className, Collections.emptySet()).contains(jdkClassName);
+            |  }
+            |
+            |  private static Set<String> set(String... classNames) {
+            |    return new HashSet<>(Arrays.asList(classNames));
+            |  }
+            |}
+            |""".trimMargin().replace("__ENTRIES__", entries))
+    }
+}
+
+sourceSets {
+    main {
+        java.srcDir(generateJdkSubclassIndex)
+    }
+}
+
+dependencies {
+    testImplementation(project(":testing-common"))
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.matchers;
+
+import static net.bytebuddy.matcher.ElementMatchers.named;
+
+import io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+
+/**
+ * Hierarchy matchers for broad class targets like {@link java.io.InputStream} that reject most
+ * types by looking at the name of their direct super class only.
+ *
+ * <p>{@link AgentElementMatchers#extendsClass(ElementMatcher)} and {@link
+ * AgentElementMatchers#hasSuperType(ElementMatcher)} resolve the whole type hierarchy of every
+ * loaded class, including all interfaces. A class can only extend the target class if its direct
+ * super class does. Most classes extend {@code java.lang.Object} or another JDK class, and which
+ * JDK classes extend the target is known when the agent is built ({@link JdkSubclassIndex}), so
+ * those are decided with a hash lookup. The full matcher only runs for classes with a non-JDK super
+ * class, or also for classes with a JDK super class if the agent runs on another Java version than
+ * the index was generated from.
+ *
+ * <p>The target must be a class, not an interface.
+ */
+public final class IndexedTypeMatchers {
+
+  private IndexedTypeMatchers() {}
+
+  /** Same as {@link AgentElementMatchers#extendsClass(ElementMatcher)} with {@code named(name)}. */
+  public static ElementMatcher.Junction<TypeDescription> extendsClass(String className) {
+    return new SuperClassIndexMatcher(
+        className, AgentElementMatchers.extendsClass(named(className)));
+  }
+
+  /** Same as {@link AgentElementMatchers#hasSuperType(ElementMatcher)} with {@code named(name)}. */
+  public static ElementMatcher.Junction<TypeDescription> hasSuperClass(String className) {
+    return new SuperClassIndexMatcher(
+        className, AgentElementMatchers.hasSuperType(named(className)));
+  }
+
+  static final class SuperClassIndexMatcher
+      extends ElementMatcher.Junction.AbstractBase<TypeDescription> {
+
+    private final String className;
+    private final ElementMatcher<TypeDescription> delegate;
+    private final boolean indexComplete;
+
+    SuperClassIndexMatcher(String className, ElementMatcher<TypeDescription> delegate) {
+      this(className, delegate, JdkSubclassIndex.isComplete());
+    }
+
+    SuperClassIndexMatcher(
+        String className, ElementMatcher<TypeDescription> delegate, boolean indexComplete) {
+      this.className = className;
+      this.delegate = delegate;
+      this.indexComplete = indexComplete;
+    }
+
+    @Override
+    public boolean matches(TypeDescription target) {
+      if (!target.getName().equals(className)) {
+        String superClassName;
+        try {
+          TypeDescription.Generic superClass = target.getSuperClass();
+          // java.lang.Object, interfaces and primitives have no super class
+          superClassName = superClass == null ? null : superClass.asErasure().getName();
+        } catch (RuntimeException e) {
+          // let the delegate deal with unresolvable types
+          return delegate.matches(target);
+        }
+        if (superClassName == null) {
+          return false;
+        }
+        // only the JDK can define classes in java.* packages, the index knows all of them unless it
+        // was generated from another Java version
+        if (superClassName.startsWith("java.")
+            && indexComplete
+            && !JdkSubclassIndex.isSubclass(superClassName, className)) {
+          return false;
+        }
+      }
+      return delegate.matches(target);
+    }
+
+    @Override
+    public String toString() {
+      return "indexed(" + delegate + ")";
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.matchers;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.AbstractList;
+import java.util.zip.GZIPInputStream;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class IndexedTypeMatchersTest {
+
+  private static final ElementMatcher<TypeDescription> FAIL =
+      target -> {
+        throw new AssertionError("delegate called for " + target);
+      };
+
+  @Test
+  public void extendsClass() {
+    ElementMatcher<TypeDescription> matcher =
+        IndexedTypeMatchers.extendsClass(InputStream.class.getName());
+
+    Assertions.assertTrue(matcher.matches(describe(InputStream.class)));
+    Assertions.assertTrue(matcher.matches(describe(GZIPInputStream.class)));
+    Assertions.assertTrue(matcher.matches(describe(CustomInputStream.class)));
+    Assertions.assertTrue(matcher.matches(describe(NestedInputStream.class)));
+    Assertions.assertFalse(matcher.matches(describe(Object.class)));
+    Assertions.assertFalse(matcher.matches(describe(Runnable.class)));
+    Assertions.assertFalse(matcher.matches(describe(CustomList.class)));
+    Assertions.assertFalse(matcher.matches(describe(IndexedTypeMatchersTest.class)));
+  }
+
+  @Test
+  public void nonJdkTarget() {
+    ElementMatcher<TypeDescription> matcher =
+        IndexedTypeMatchers.hasSuperClass(CustomInputStream.class.getName());
+
+    Assertions.assertTrue(matcher.matches(describe(CustomInputStream.class)));
+    Assertions.assertTrue(matcher.matches(describe(NestedInputStream.class)));
+    Assertions.assertFalse(matcher.matches(describe(ByteArrayInputStream.class)));
+    Assertions.assertFalse(matcher.matches(describe(GZIPInputStream.class)));
+  }
+
+  @Test
+  public void jdkSuperClassIsDecidedByIndex() {
+    ElementMatcher<TypeDescription> matcher =
+        new IndexedTypeMatchers.SuperClassIndexMatcher(InputStream.class.getName(), FAIL);
+
+    Assertions.assertFalse(matcher.matches(describe(IndexedTypeMatchersTest.class)));
+    Assertions.assertFalse(matcher.matches(describe(CustomList.class)));
+    Assertions.assertFalse(matcher.matches(describe(Runnable.class)));
+    Assertions.assertThrows(
+        AssertionError.class, () -> matcher.matches(describe(CustomInputStream.class)));
+  }
+
+  @Test
+  public void jdkSuperClassFallsBackToDelegateWithIncompleteIndex() {
+    ElementMatcher<TypeDescription> matcher =
+        new IndexedTypeMatchers.SuperClassIndexMatcher(InputStream.class.getName(), FAIL, false);
+
+    // the super class might be a JDK class of another Java version than the index
+    Assertions.assertThrows(
+        AssertionError.class, () -> matcher.matches(describe(IndexedTypeMatchersTest.class)));
+    Assertions.assertThrows(
+        AssertionError.class, () -> matcher.matches(describe(CustomList.class)));
+    // classes without a super class are still rejected
+    Assertions.assertFalse(matcher.matches(describe(Runnable.class)));
+  }
+
+  private static TypeDescription describe(Class<?> clazz) {
+    return TypeDescription.ForLoadedType.of(clazz);
+  }
+
+  static class CustomInputStream extends ByteArrayInputStream {
+    CustomInputStream() {
+      super(new byte[0]);
+    }
+  }
+
+  static class NestedInputStream extends CustomInputStream {}
+
+  static class CustomList extends AbstractList<String> {
+    @Override
+    public String get(int index) {
+      return null;
+    }
+
+    @Override
+    public int size() {
+      return 0;
+    }
+  }
+}
@@ -16,6 +16,7 @@
 
 package io.opentelemetry.javaagent.instrumentation.hypertrace.undertow.v1_4;
 
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasClassesNamed;
 import static net.bytebuddy.matcher.ElementMatchers.isPublic;
 import static net.bytebuddy.matcher.ElementMatchers.named;
 import static net.bytebuddy.matcher.ElementMatchers.returns;
@@ -39,6 +40,11 @@ import org.xnio.channels.StreamSourceChannel;
 /** Instrumentation for {@link StreamSourceChannel} implementations */
 public final class StreamSourceChannelInstrumentation implements TypeInstrumentation {
 
+  @Override
+  public ElementMatcher<ClassLoader> classLoaderOptimization() {
+    return hasClassesNamed("org.xnio.channels.StreamSourceChannel");
+  }
+
   @Override
   public ElementMatcher<TypeDescription> typeMatcher() {
     return AgentElementMatchers.hasSuperType(named("org.xnio.channels.StreamSourceChannel"));
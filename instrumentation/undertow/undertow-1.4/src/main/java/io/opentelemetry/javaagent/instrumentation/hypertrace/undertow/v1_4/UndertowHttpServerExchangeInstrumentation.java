@@ -16,6 +16,7 @@
 
 package io.opentelemetry.javaagent.instrumentation.hypertrace.undertow.v1_4;
 
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasClassesNamed;
 import static net.bytebuddy.matcher.ElementMatchers.failSafe;
 import static net.bytebuddy.matcher.ElementMatchers.isPublic;
 import static net.bytebuddy.matcher.ElementMatchers.named;
@@ -37,6 +38,11 @@ import org.xnio.channels.StreamSourceChannel;
 /** Instrumentation for {@link HttpServerExchange} to capture request bodies */
 public final class UndertowHttpServerExchangeInstrumentation implements TypeInstrumentation {
 
+  @Override
+  public ElementMatcher<ClassLoader> classLoaderOptimization() {
+    return hasClassesNamed("io.undertow.server.HttpServerExchange");
+  }
+
   @Override
   public ElementMatcher<TypeDescription> typeMatcher() {
     return failSafe(named("io.undertow.server.HttpServerExchange"));
@@ -23,7 +23,7 @@ import io.undertow.server.HttpServerExchange;
 import io.undertow.util.Headers;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
-import org.hypertrace.agent.core.config.InstrumentationConfig.ConfigProvider;
+import org.hypertrace.agent.core.config.InstrumentationConfigSnapshot;
 import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
 import org.hypertrace.agent.core.instrumentation.SpanAndBuffer;
 import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
@@ -48,7 +48,12 @@ public final class Utils {
       final HttpServerExchange httpServerExchange,
       final StreamSourceChannel returnedChannel,
       final VirtualField<StreamSourceChannel, SpanAndBuffer> contextStore) {
-    if (!ConfigProvider.get().httpBody().request()
+    InstrumentationConfigSnapshot instrumentationConfig =
+        InstrumentationConfigSnapshot.get()
+            .forHttp(
+                httpServerExchange.getRequestMethod().toString(),
+                httpServerExchange.getRequestPath());
+    if (!instrumentationConfig.httpBodyRequest
         || !ContentTypeUtils.shouldCapture(
             httpServerExchange.getRequestHeaders().getFirst(Headers.CONTENT_TYPE))) {
       return;
@@ -67,6 +72,7 @@ public final class Utils {
             boundedByteArrayOutputStream,
             HypertraceSemanticAttributes.HTTP_REQUEST_BODY,
             charset,
+            httpServerExchange.getRequestHeaders().getFirst(Headers.CONTENT_TYPE),
             contentEncoding);
     contextStore.set(returnedChannel, spanAndBuffer);
     httpServerExchange.addExchangeCompleteListener(
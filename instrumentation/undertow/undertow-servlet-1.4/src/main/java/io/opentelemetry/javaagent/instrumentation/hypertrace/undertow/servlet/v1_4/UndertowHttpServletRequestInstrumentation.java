@@ -16,6 +16,7 @@
 
 package io.opentelemetry.javaagent.instrumentation.hypertrace.undertow.servlet.v1_4;
 
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasClassesNamed;
 import static net.bytebuddy.matcher.ElementMatchers.failSafe;
 import static net.bytebuddy.matcher.ElementMatchers.isPublic;
 import static net.bytebuddy.matcher.ElementMatchers.named;
@@ -34,6 +35,11 @@ import net.bytebuddy.matcher.ElementMatcher;
 
 public final class UndertowHttpServletRequestInstrumentation implements TypeInstrumentation {
 
+  @Override
+  public ElementMatcher<ClassLoader> classLoaderOptimization() {
+    return hasClassesNamed("io.undertow.servlet.spec.HttpServletRequestImpl");
+  }
+
   @Override
   public ElementMatcher<TypeDescription> typeMatcher() {
     return failSafe(named("io.undertow.servlet.spec.HttpServletRequestImpl"));
@@ -16,11 +16,14 @@
 
 package io.opentelemetry.javaagent.instrumentation.hypertrace.undertow.servlet.v1_4;
 
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasClassesNamed;
+
 import com.google.auto.service.AutoService;
 import io.opentelemetry.javaagent.extension.instrumentation.InstrumentationModule;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
 import java.util.Collections;
 import java.util.List;
+import net.bytebuddy.matcher.ElementMatcher;
 
 @AutoService(InstrumentationModule.class)
 public final class UndertowServletInstrumentationModule extends InstrumentationModule {
@@ -29,6 +32,11 @@ public final class UndertowServletInstrumentationModule extends InstrumentationM
     super("undertow", "undertow-servlet-1.4-ht", "ht", "undertow-ht");
   }
 
+  @Override
+  public ElementMatcher.Junction<ClassLoader> classLoaderMatcher() {
+    return hasClassesNamed("io.undertow.servlet.spec.HttpServletRequestImpl");
+  }
+
   @Override
   public List<TypeInstrumentation> typeInstrumentations() {
     return Collections.singletonList(new UndertowHttpServletRequestInstrumentation());
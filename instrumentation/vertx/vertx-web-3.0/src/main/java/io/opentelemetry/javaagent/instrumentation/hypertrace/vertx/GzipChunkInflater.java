@@ -0,0 +1,161 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.vertx;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
+
+/**
+ * Inflates a gzip encoded body chunk by chunk into a bounded buffer. The gzip header may be split
+ * across chunks, the trailer and any following members are ignored. Inflating stops once the buffer
+ * is full.
+ */
+final class GzipChunkInflater {
+
+  private static final int FHCRC = 2;
+  private static final int FEXTRA = 4;
+  private static final int FNAME = 8;
+  private static final int FCOMMENT = 16;
+
+  private static final int FIXED_HEADER = 0;
+  private static final int EXTRA_LENGTH = 1;
+  private static final int SKIP = 2;
+  private static final int ZERO_TERMINATED = 3;
+  private static final int BODY = 4;
+  private static final int DONE = 5;
+
+  private final BoundedByteArrayOutputStream out;
+  private final int maxSize;
+  private final Inflater inflater = new Inflater(true);
+  private byte[] chunk;
+
+  private int state = FIXED_HEADER;
+  private int position;
+  private int flags;
+  private int skip;
+
+  GzipChunkInflater(BoundedByteArrayOutputStream out, int maxSize) {
+    this.out = out;
+    this.maxSize = maxSize;
+  }
+
+  /** Inflates the given compressed bytes. The array is not referenced after the call returns. */
+  void write(byte[] b, int off, int len) throws DataFormatException, ZipException {
+    int end = off + len;
+    if (state < BODY) {
+      off = readHeader(b, off, end);
+    }
+    if (state != BODY || off == end) {
+      return;
+    }
+    if (chunk == null) {
+      chunk = new byte[Math.min(8192, maxSize)];
+    }
+    inflater.setInput(b, off, end - off);
+    while (out.size() < maxSize) {
+      int n = inflater.inflate(chunk);
+      if (n > 0) {
+        out.write(chunk, 0, n);
+      } else if (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()) {
+        break;
+      }
+    }
+    if (inflater.finished() || out.size() >= maxSize) {
+      end();
+    } else {
+      // drop the reference to the caller's array
+      inflater.setInput(chunk, 0, 0);
+    }
+  }
+
+  /** Releases the native inflater, further writes are ignored. */
+  void end() {
+    if (state != DONE) {
+      state = DONE;
+      inflater.end();
+    }
+  }
+
+  private int readHeader(byte[] b, int off, int end) throws ZipException {
+    while (off < end && state < BODY) {
+      int value = b[off++] & 0xff;
+      switch (state) {
+        case FIXED_HEADER:
+          if ((position == 0 && value != 0x1f)
+              || (position == 1 && value != 0x8b)
+              || (position == 2 && value != Deflater.DEFLATED)) {
+            end();
+            throw new ZipException("Not in GZIP format");
+          }
+          if (position == 3) {
+            flags = value;
+          }
+          if (++position == 10) {
+            nextHeaderField();
+          }
+          break;
+        case EXTRA_LENGTH:
+          skip |= value << (8 * position);
+          if (++position == 2) {
+            if (skip == 0) {
+              nextHeaderField();
+            } else {
+              state = SKIP;
+            }
+          }
+          break;
+        case SKIP:
+          if (--skip == 0) {
+            nextHeaderField();
+          }
+          break;
+        case ZERO_TERMINATED:
+          if (value == 0) {
+            nextHeaderField();
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    return off;
+  }
+
+  private void nextHeaderField() {
+    position = 0;
+    skip = 0;
+    if ((flags & FEXTRA) != 0) {
+      flags &= ~FEXTRA;
+      state = EXTRA_LENGTH;
+    } else if ((flags & FNAME) != 0) {
+      flags &= ~FNAME;
+      state = ZERO_TERMINATED;
+    } else if ((flags & FCOMMENT) != 0) {
+      flags &= ~FCOMMENT;
+      state = ZERO_TERMINATED;
+    } else if ((flags & FHCRC) != 0) {
+      flags &= ~FHCRC;
+      skip = 2;
+      state = SKIP;
+    } else {
+      state = BODY;
+    }
+  }
+}
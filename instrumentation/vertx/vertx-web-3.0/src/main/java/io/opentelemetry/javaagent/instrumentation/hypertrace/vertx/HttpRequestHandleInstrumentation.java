@@ -32,8 +32,9 @@ import java.util.Map;
 import net.bytebuddy.asm.Advice;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
-import org.hypertrace.agent.core.config.InstrumentationConfig;
+import org.hypertrace.agent.core.config.InstrumentationConfigSnapshot;
 import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
+import org.hypertrace.agent.core.instrumentation.LateBodyHold;
 import org.hypertrace.agent.core.instrumentation.utils.ContentTypeUtils;
 
 public class HttpRequestHandleInstrumentation implements TypeInstrumentation {
@@ -67,15 +68,16 @@ public class HttpRequestHandleInstrumentation implements TypeInstrumentation {
       }
       Span span = Span.fromContext(contexts.context);
 
-      InstrumentationConfig instrumentationConfig = InstrumentationConfig.ConfigProvider.get();
-      if (instrumentationConfig.httpHeaders().request()) {
+      InstrumentationConfigSnapshot instrumentationConfig =
+          InstrumentationConfigSnapshot.get().forHttp(request.method().name(), request.uri());
+      if (instrumentationConfig.httpHeadersRequest) {
         for (Map.Entry<String, String> entry : request.headers()) {
           span.setAttribute(
               HypertraceSemanticAttributes.httpRequestHeader(entry.getKey()), entry.getValue());
         }
       }
 
-      if (instrumentationConfig.httpHeaders().response()) {
+      if (instrumentationConfig.httpHeadersResponse) {
         for (Map.Entry<String, String> entry : response.headers()) {
           span.setAttribute(
               HypertraceSemanticAttributes.httpResponseHeader(entry.getKey()), entry.getValue());
@@ -83,9 +85,9 @@ public class HttpRequestHandleInstrumentation implements TypeInstrumentation {
       }
 
       String contentType = response.getHeader("Content-Type");
-      if (instrumentationConfig.httpBody().response()
-          && ContentTypeUtils.shouldCapture(contentType)) {
+      if (instrumentationConfig.httpBodyResponse && ContentTypeUtils.shouldCapture(contentType)) {
         VirtualField.find(HttpClientResponse.class, Span.class).set(response, span);
+        LateBodyHold.expect(span);
       }
     }
   }
@@ -37,7 +37,8 @@ import java.nio.charset.StandardCharsets;
 import net.bytebuddy.asm.Advice;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
-import org.hypertrace.agent.core.config.InstrumentationConfig;
+import org.hypertrace.agent.core.config.CaptureGovernor;
+import org.hypertrace.agent.core.config.InstrumentationConfigSnapshot;
 import org.hypertrace.agent.core.instrumentation.HypertraceCallDepthThreadLocalMap;
 import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
 import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
@@ -108,7 +109,10 @@ public class HttpRequestInstrumentation implements TypeInstrumentation {
       BoundedCharArrayWriter buffer =
           VirtualField.find(MultiMap.class, BoundedCharArrayWriter.class).get(request.headers());
       if (buffer != null) {
-        span.setAttribute(HypertraceSemanticAttributes.HTTP_REQUEST_BODY, buffer.toString());
+        long start = CaptureGovernor.startTiming();
+        String body = buffer.toString();
+        CaptureGovernor.recordCapture(start, body.length());
+        span.setAttribute(HypertraceSemanticAttributes.HTTP_REQUEST_BODY, body);
       }
     }
 
@@ -136,16 +140,19 @@ public class HttpRequestInstrumentation implements TypeInstrumentation {
       Span span = Span.fromContext(contexts.context);
 
       String contentType = request.headers().get("Content-Type");
-      InstrumentationConfig instrumentationConfig = InstrumentationConfig.ConfigProvider.get();
-      if (instrumentationConfig.httpBody().request()
-          && ContentTypeUtils.shouldCapture(contentType)) {
+      InstrumentationConfigSnapshot instrumentationConfig =
+          InstrumentationConfigSnapshot.get().forHttp(request.method().name(), request.uri());
+      if (instrumentationConfig.httpBodyRequest && ContentTypeUtils.shouldCapture(contentType)) {
         BoundedCharArrayWriter buffer =
             VirtualField.find(MultiMap.class, BoundedCharArrayWriter.class).get(request.headers());
         if (buffer == null) {
           span.setAttribute(HypertraceSemanticAttributes.HTTP_REQUEST_BODY, chunk);
         } else {
           buffer.write(chunk);
-          span.setAttribute(HypertraceSemanticAttributes.HTTP_REQUEST_BODY, buffer.toString());
+          long start = CaptureGovernor.startTiming();
+          String body = buffer.toString();
+          CaptureGovernor.recordCapture(start, body.length());
+          span.setAttribute(HypertraceSemanticAttributes.HTTP_REQUEST_BODY, body);
         }
       }
     }
@@ -174,9 +181,9 @@ public class HttpRequestInstrumentation implements TypeInstrumentation {
       Span span = Span.fromContext(contexts.context);
 
       String contentType = request.headers().get("Content-Type");
-      InstrumentationConfig instrumentationConfig = InstrumentationConfig.ConfigProvider.get();
-      if (instrumentationConfig.httpBody().request()
-          && ContentTypeUtils.shouldCapture(contentType)) {
+      InstrumentationConfigSnapshot instrumentationConfig =
+          InstrumentationConfigSnapshot.get().forHttp(request.method().name(), request.uri());
+      if (instrumentationConfig.httpBodyRequest && ContentTypeUtils.shouldCapture(contentType)) {
 
         BoundedCharArrayWriter buffer =
             VirtualField.find(MultiMap.class, BoundedCharArrayWriter.class).get(request.headers());
@@ -186,7 +193,10 @@ public class HttpRequestInstrumentation implements TypeInstrumentation {
               chunk.toString(StandardCharsets.UTF_8.name()));
         } else {
           buffer.write(chunk.toString(StandardCharsets.UTF_8.name()));
-          span.setAttribute(HypertraceSemanticAttributes.HTTP_REQUEST_BODY, buffer.toString());
+          long start = CaptureGovernor.startTiming();
+          String body = buffer.toString();
+          CaptureGovernor.recordCapture(start, body.length());
+          span.setAttribute(HypertraceSemanticAttributes.HTTP_REQUEST_BODY, body);
         }
       }
     }
@@ -209,9 +219,9 @@ public class HttpRequestInstrumentation implements TypeInstrumentation {
       }
 
       String contentType = request.headers().get("Content-Type");
-      InstrumentationConfig instrumentationConfig = InstrumentationConfig.ConfigProvider.get();
-      if (instrumentationConfig.httpBody().request()
-          && ContentTypeUtils.shouldCapture(contentType)) {
+      InstrumentationConfigSnapshot instrumentationConfig =
+          InstrumentationConfigSnapshot.get().forHttp(request.method().name(), request.uri());
+      if (instrumentationConfig.httpBodyRequest && ContentTypeUtils.shouldCapture(contentType)) {
 
         VirtualField<MultiMap, BoundedCharArrayWriter> contextStore =
             VirtualField.find(MultiMap.class, BoundedCharArrayWriter.class);
@@ -242,9 +252,9 @@ public class HttpRequestInstrumentation implements TypeInstrumentation {
       }
 
       String contentType = request.headers().get("Content-Type");
-      InstrumentationConfig instrumentationConfig = InstrumentationConfig.ConfigProvider.get();
-      if (instrumentationConfig.httpBody().request()
-          && ContentTypeUtils.shouldCapture(contentType)) {
+      InstrumentationConfigSnapshot instrumentationConfig =
+          InstrumentationConfigSnapshot.get().forHttp(request.method().name(), request.uri());
+      if (instrumentationConfig.httpBodyRequest && ContentTypeUtils.shouldCapture(contentType)) {
 
         VirtualField<MultiMap, BoundedCharArrayWriter> contextStore =
             VirtualField.find(MultiMap.class, BoundedCharArrayWriter.class);
@@ -22,8 +22,6 @@ import static net.bytebuddy.matcher.ElementMatchers.isMethod;
 import static net.bytebuddy.matcher.ElementMatchers.named;
 import static net.bytebuddy.matcher.ElementMatchers.takesArguments;
 
-import io.opentelemetry.api.trace.Span;
-import io.opentelemetry.instrumentation.api.util.VirtualField;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeTransformer;
 import io.vertx.core.Handler;
@@ -47,29 +45,46 @@ public class HttpResponseInstrumentation implements TypeInstrumentation {
 
   @Override
   public void transform(TypeTransformer transformer) {
+    // bodyHandler sets these handlers as well, the body is captured from the chunks
     transformer.applyAdviceToMethod(
-        isMethod().and(named("bodyHandler").and(takesArguments(1))),
-        HttpResponseInstrumentation.class.getName() + "$ResponseBodyHandler");
+        isMethod().and(named("handler").and(takesArguments(1))),
+        HttpResponseInstrumentation.class.getName() + "$ResponseChunkHandler");
+    transformer.applyAdviceToMethod(
+        isMethod().and(named("endHandler").and(takesArguments(1))),
+        HttpResponseInstrumentation.class.getName() + "$ResponseEndHandler");
   }
 
-  public static class ResponseBodyHandler {
+  public static class ResponseChunkHandler {
     @Advice.OnMethodEnter(suppress = Throwable.class)
-    public static void handleResponseEnter(
+    public static void handlerEnter(
         @Advice.This HttpClientResponse response,
         @Advice.Argument(value = 0, readOnly = false) Handler<Buffer> handler) {
-
-      Span span = VirtualField.find(HttpClientResponse.class, Span.class).get(response);
-      if (span == null) {
-        // request not traced - e.g. wrong content type
+      // the bridge method calls the same advice with the wrapped handler
+      if (handler == null || handler instanceof ResponseBodyWrappingHandler) {
         return;
       }
-      VirtualField.find(HttpClientResponse.class, Span.class).set(response, null);
-
-      // Extract content encoding from the response headers
-      String contentEncoding = response.getHeader("Content-Encoding");
-      String contentType = response.getHeader("Content-Type");
+      ResponseBodyCapture capture = ResponseBodyCapture.find(response);
+      if (capture == null) {
+        return;
+      }
+      handler = new ResponseBodyWrappingHandler(handler, capture);
+    }
+  }
 
-      handler = new ResponseBodyWrappingHandler(handler, span, contentEncoding, contentType);
+  public static class ResponseEndHandler {
+    @Advice.OnMethodEnter(suppress = Throwable.class)
+    public static void endHandlerEnter(
+        @Advice.This HttpClientResponse response,
+        @Advice.Argument(value = 0, readOnly = false) Handler<Void> handler) {
+      // null clears the end handler, it is passed on unchanged
+      if (handler == null || handler instanceof ResponseEndWrappingHandler) {
+        return;
+      }
+      ResponseBodyCapture capture = ResponseBodyCapture.find(response);
+      if (capture == null) {
+        return;
+      }
+      handler = new ResponseEndWrappingHandler(handler, capture);
     }
   }
 }
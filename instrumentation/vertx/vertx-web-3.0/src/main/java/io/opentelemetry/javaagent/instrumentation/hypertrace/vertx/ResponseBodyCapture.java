@@ -0,0 +1,188 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.vertx;
+
+import io.netty.buffer.ByteBuf;
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.instrumentation.api.util.VirtualField;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClientResponse;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.ZipException;
+import org.hypertrace.agent.core.config.InstrumentationConfigSnapshot;
+import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
+import org.hypertrace.agent.core.instrumentation.LateBodyHold;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
+import org.hypertrace.agent.core.instrumentation.utils.ContentTypeCharsetUtils;
+import org.hypertrace.agent.core.instrumentation.utils.ContentTypeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Captures a client response body from the chunks Vert.x delivers on the event loop. The chunks are
+ * copied into a bounded buffer, gzip encoded chunks are inflated as they arrive, and the body is
+ * added to the span once when the response ends.
+ */
+public class ResponseBodyCapture {
+
+  private static final Tracer tracer =
+      GlobalOpenTelemetry.getTracer("io.opentelemetry.javaagent.vertx-core-3.0");
+
+  private static final Logger log = LoggerFactory.getLogger(ResponseBodyCapture.class);
+
+  private static final VirtualField<HttpClientResponse, Span> responseToSpan =
+      VirtualField.find(HttpClientResponse.class, Span.class);
+  private static final VirtualField<HttpClientResponse, ResponseBodyCapture> responseToCapture =
+      VirtualField.find(HttpClientResponse.class, ResponseBodyCapture.class);
+
+  private final Span span;
+  private final String contentType;
+  private final int maxSize;
+  private BoundedByteArrayOutputStream buffer;
+  private GzipChunkInflater inflater;
+  private boolean hasData;
+
+  ResponseBodyCapture(Span span, String contentEncoding, String contentType) {
+    this.span = span;
+    this.contentType = contentType;
+    this.maxSize = BoundedBuffersFactory.maxSize();
+    boolean gzip = contentEncoding != null && contentEncoding.toLowerCase().contains("gzip");
+    String charsetName = ContentTypeUtils.parseCharset(contentType);
+    // plain bodies were decoded like Buffer.toString, which defaults to UTF-8
+    Charset charset =
+        charsetName == null && !gzip
+            ? StandardCharsets.UTF_8
+            : ContentTypeCharsetUtils.toCharset(charsetName);
+    this.buffer = BoundedBuffersFactory.createStream(charset);
+    if (gzip) {
+      this.inflater = new GzipChunkInflater(buffer, maxSize);
+    }
+  }
+
+  /**
+   * Returns the capture of the response, it is created the first time a handler is set on a
+   * response whose body should be captured.
+   */
+  public static ResponseBodyCapture find(HttpClientResponse response) {
+    ResponseBodyCapture capture = responseToCapture.get(response);
+    if (capture != null) {
+      return capture;
+    }
+    Span span = responseToSpan.get(response);
+    if (span == null) {
+      // request not traced - e.g. wrong content type
+      return null;
+    }
+    responseToSpan.set(response, null);
+    capture =
+        new ResponseBodyCapture(
+            span, response.getHeader("Content-Encoding"), response.getHeader("Content-Type"));
+    responseToCapture.set(response, capture);
+    return capture;
+  }
+
+  public void append(Buffer chunk) {
+    if (buffer == null || chunk == null || chunk.length() == 0) {
+      return;
+    }
+    hasData = true;
+    if (inflater == null) {
+      // only the bytes that still fit are copied
+      write(chunk, Math.min(chunk.length(), maxSize - buffer.size()));
+    } else {
+      write(chunk, chunk.length());
+    }
+  }
+
+  public void end() {
+    BoundedByteArrayOutputStream buffer = this.buffer;
+    if (buffer == null) {
+      return;
+    }
+    this.buffer = null;
+    if (inflater != null) {
+      inflater.end();
+    }
+    if (!hasData) {
+      LateBodyHold.release(span);
+      return;
+    }
+    try {
+      addBody(buffer.toStringWithSuppliedCharset());
+    } catch (UnsupportedEncodingException e) {
+      log.debug("Could not decode the response body", e);
+    }
+  }
+
+  private void write(Buffer chunk, int length) {
+    if (length <= 0) {
+      return;
+    }
+    // Buffer indexes are absolute, read the backing array in place when there is one
+    ByteBuf byteBuf = chunk.getByteBuf();
+    byte[] bytes;
+    int offset;
+    if (byteBuf.hasArray()) {
+      bytes = byteBuf.array();
+      offset = byteBuf.arrayOffset();
+    } else {
+      bytes = chunk.getBytes(0, length);
+      offset = 0;
+    }
+    if (inflater == null) {
+      buffer.write(bytes, offset, length);
+      return;
+    }
+    try {
+      inflater.write(bytes, offset, length);
+    } catch (DataFormatException | ZipException e) {
+      log.debug("Could not inflate the response body", e);
+      inflater.end();
+    }
+  }
+
+  private void addBody(String responseBody) {
+    if (span.isRecording()) {
+      span.setAttribute(HypertraceSemanticAttributes.HTTP_RESPONSE_BODY, responseBody);
+      LateBodyHold.release(span);
+      return;
+    }
+    if (LateBodyHold.attach(span, HypertraceSemanticAttributes.HTTP_RESPONSE_BODY, responseBody)) {
+      return;
+    }
+    SpanBuilder spanBuilder =
+        tracer
+            .spanBuilder(HypertraceSemanticAttributes.ADDITIONAL_DATA_SPAN_NAME)
+            .setParent(Context.root().with(span))
+            .setAttribute(HypertraceSemanticAttributes.HTTP_RESPONSE_BODY, responseBody);
+
+    // the header is only repeated on the child if it is captured on the span itself
+    if (contentType != null && InstrumentationConfigSnapshot.get().httpHeadersResponse) {
+      spanBuilder.setAttribute(
+          HypertraceSemanticAttributes.HTTP_RESPONSE_HEADER_CONTENT_TYPE, contentType);
+    }
+    spanBuilder.startSpan().end();
+  }
+}
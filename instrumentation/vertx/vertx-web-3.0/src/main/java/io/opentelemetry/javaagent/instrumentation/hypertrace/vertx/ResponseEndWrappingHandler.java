@@ -14,26 +14,24 @@
  * limitations under the License.
  */
 
-package org.hypertrace.agent.core.instrumentation;
+package io.opentelemetry.javaagent.instrumentation.hypertrace.vertx;
 
-/** Copy of the upstream CallDepth because we need access to the package-private reset method. */
-public class CallDepth {
+import io.vertx.core.Handler;
 
-  private int depth;
+/** Adds the captured body to the span when the response ends, then calls the end handler. */
+public class ResponseEndWrappingHandler implements Handler<Void> {
 
-  CallDepth() {
-    this.depth = 0;
-  }
-
-  public int getAndIncrement() {
-    return this.depth++;
-  }
+  private final Handler<Void> wrapped;
+  private final ResponseBodyCapture capture;
 
-  public int decrementAndGet() {
-    return --this.depth;
+  public ResponseEndWrappingHandler(Handler<Void> wrapped, ResponseBodyCapture capture) {
+    this.wrapped = wrapped;
+    this.capture = capture;
   }
 
-  void reset() {
-    depth = 0;
+  @Override
+  public void handle(Void event) {
+    capture.end();
+    wrapped.handle(event);
   }
 }
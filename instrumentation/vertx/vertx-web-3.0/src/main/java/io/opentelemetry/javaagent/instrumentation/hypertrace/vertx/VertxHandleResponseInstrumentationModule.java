@@ -16,11 +16,14 @@
 
 package io.opentelemetry.javaagent.instrumentation.hypertrace.vertx;
 
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasClassesNamed;
+
 import com.google.auto.service.AutoService;
 import io.opentelemetry.javaagent.extension.instrumentation.InstrumentationModule;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
 import java.util.Collections;
 import java.util.List;
+import net.bytebuddy.matcher.ElementMatcher;
 
 @AutoService(InstrumentationModule.class)
 public class VertxHandleResponseInstrumentationModule extends InstrumentationModule {
@@ -36,6 +39,11 @@ public class VertxHandleResponseInstrumentationModule extends InstrumentationMod
     return -1;
   }
 
+  @Override
+  public ElementMatcher.Junction<ClassLoader> classLoaderMatcher() {
+    return hasClassesNamed("io.vertx.core.http.HttpClientRequest");
+  }
+
   @Override
   public List<TypeInstrumentation> typeInstrumentations() {
     return Collections.singletonList(new HttpRequestHandleInstrumentation());
@@ -0,0 +1,102 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.vertx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class GzipChunkInflaterTest {
+
+  @Test
+  public void inflatesSplitChunks() throws Exception {
+    String body = body(5000);
+    byte[] compressed = gzip(body);
+    BoundedByteArrayOutputStream out = BoundedBuffersFactory.createStream(StandardCharsets.UTF_8);
+    GzipChunkInflater inflater = new GzipChunkInflater(out, 1024 * 1024);
+
+    // the first chunks split the header
+    for (int off = 0; off < compressed.length; off += 3) {
+      inflater.write(compressed, off, Math.min(3, compressed.length - off));
+    }
+    inflater.end();
+
+    Assertions.assertEquals(body, out.toStringWithSuppliedCharset());
+  }
+
+  @Test
+  public void skipsOptionalHeaderFields() throws Exception {
+    byte[] deflated = gzip("body");
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    // FHCRC, FEXTRA, FNAME and FCOMMENT
+    compressed.write(new byte[] {0x1f, (byte) 0x8b, 8, 2 | 4 | 8 | 16, 0, 0, 0, 0, 0, 0});
+    compressed.write(new byte[] {3, 0, 'e', 'x', 't'});
+    compressed.write("name\0comment\0".getBytes(StandardCharsets.US_ASCII));
+    compressed.write(new byte[] {0, 0});
+    compressed.write(deflated, 10, deflated.length - 10);
+    BoundedByteArrayOutputStream out = BoundedBuffersFactory.createStream(StandardCharsets.UTF_8);
+    GzipChunkInflater inflater = new GzipChunkInflater(out, 1024);
+
+    byte[] bytes = compressed.toByteArray();
+    inflater.write(bytes, 0, bytes.length);
+
+    Assertions.assertEquals("body", out.toStringWithSuppliedCharset());
+  }
+
+  @Test
+  public void stopsAtMaxSize() throws Exception {
+    byte[] compressed = gzip(body(10_000));
+    BoundedByteArrayOutputStream out = BoundedBuffersFactory.createStream(StandardCharsets.UTF_8);
+    GzipChunkInflater inflater = new GzipChunkInflater(out, 100);
+
+    inflater.write(compressed, 0, compressed.length / 2);
+    inflater.write(compressed, compressed.length / 2, compressed.length - compressed.length / 2);
+
+    Assertions.assertEquals(body(10_000).substring(0, 100), out.toStringWithSuppliedCharset());
+  }
+
+  @Test
+  public void rejectsPlainBody() {
+    BoundedByteArrayOutputStream out = BoundedBuffersFactory.createStream(StandardCharsets.UTF_8);
+    GzipChunkInflater inflater = new GzipChunkInflater(out, 1024);
+    byte[] plain = "{\"plain\": true}".getBytes(StandardCharsets.UTF_8);
+
+    Assertions.assertThrows(ZipException.class, () -> inflater.write(plain, 0, plain.length));
+  }
+
+  private static String body(int length) {
+    StringBuilder sb = new StringBuilder(length);
+    for (int i = 0; sb.length() < length; i++) {
+      sb.append(i).append(',');
+    }
+    return sb.substring(0, length);
+  }
+
+  private static byte[] gzip(String body) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(body.getBytes(StandardCharsets.UTF_8));
+    }
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.opentelemetry.javaagent.instrumentation.hypertrace.vertx;
+
+import io.opentelemetry.proto.trace.v1.Span;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonObject;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPInputStream;
+import org.hypertrace.agent.testing.AbstractInstrumenterTest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Streams multi-chunk responses through {@code handler()} and {@code endHandler()} instead of
+ * {@code bodyHandler()}.
+ */
+public class VertxClientStreamingResponseTest extends AbstractInstrumenterTest {
+
+  private static Vertx vertx;
+  private static int port;
+  private final HttpClient httpClient = vertx.createHttpClient(new HttpClientOptions());
+
+  @BeforeAll
+  public static void startServer()
+      throws InterruptedException, ExecutionException, TimeoutException, IOException {
+    ServerSocket socket = new ServerSocket(0);
+    port = socket.getLocalPort();
+    socket.close();
+
+    vertx = Vertx.vertx(new VertxOptions());
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    vertx.deployVerticle(
+        VertxWebServer.class.getName(),
+        new DeploymentOptions()
+            .setConfig(
+                new JsonObject().put(VertxServerInstrumentationTest.CONFIG_HTTP_SERVER_PORT, port)),
+        res -> {
+          if (!res.succeeded()) {
+            throw new RuntimeException("Cannot deploy server Verticle", res.cause());
+          }
+          future.complete(null);
+        });
+
+    future.get(20, TimeUnit.SECONDS);
+  }
+
+  @AfterAll
+  public static void stopServer() {
+    vertx.close();
+  }
+
+  @Test
+  public void chunkedResponse() throws Exception {
+    HttpClientRequest request =
+        httpClient
+            .requestAbs(HttpMethod.POST, String.format("http://localhost:%d/return_chunked", port))
+            .putHeader("Content-Type", "application/json");
+
+    Buffer received = stream(request, VertxServerInstrumentationTest.REQUEST_BODY);
+
+    Assertions.assertEquals(
+        VertxWebServer.RESPONSE_BODY, received.toString(StandardCharsets.UTF_8.name()));
+    Assertions.assertEquals(VertxWebServer.RESPONSE_BODY, capturedResponseBody());
+  }
+
+  @Test
+  public void gzipChunkedResponse() throws Exception {
+    HttpClientRequest request =
+        httpClient.requestAbs(
+            HttpMethod.GET, String.format("http://localhost:%d/gzip_chunked", port));
+
+    Buffer received = stream(request, null);
+
+    // the client does not decompress, the application gets the gzip bytes
+    Assertions.assertEquals(VertxWebServer.RESPONSE_BODY, gunzip(received.getBytes()));
+    Assertions.assertEquals(VertxWebServer.RESPONSE_BODY, capturedResponseBody());
+  }
+
+  private static Buffer stream(HttpClientRequest request, String body)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    Buffer received = Buffer.buffer();
+    CompletableFuture<Buffer> future = new CompletableFuture<>();
+    request.handler(
+        response -> {
+          Assertions.assertEquals(200, response.statusCode());
+          response.handler(received::appendBuffer);
+          response.endHandler(v -> future.complete(received));
+        });
+    if (body == null) {
+      request.end();
+    } else {
+      request.end(body);
+    }
+    return future.get(20, TimeUnit.SECONDS);
+  }
+
+  private static String capturedResponseBody() throws InterruptedException, TimeoutException {
+    // the body is on the client span or on an additional data span of the same trace
+    List<List<Span>> traces =
+        TEST_WRITER.waitForSpans(
+            1, span -> !TEST_WRITER.getAttributesMap(span).containsKey("http.response.body"));
+    Assertions.assertEquals(1, traces.size());
+    Assertions.assertEquals(1, traces.get(0).size());
+    return TEST_WRITER
+        .getAttributesMap(traces.get(0).get(0))
+        .get("http.response.body")
+        .getStringValue();
+  }
+
+  private static String gunzip(byte[] bytes) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+      byte[] buffer = new byte[256];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+    }
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
@@ -113,6 +113,36 @@ public class VertxWebServer extends AbstractVerticle {
               ctx.response().end(gzipBuffer);
             });
 
+    router
+        .route("/gzip_chunked")
+        .handler(
+            ctx -> {
+              ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+              try (GZIPOutputStream gzipOutputStream =
+                  new GZIPOutputStream(byteArrayOutputStream)) {
+                gzipOutputStream.write(RESPONSE_BODY.getBytes(StandardCharsets.UTF_8));
+              } catch (IOException e) {
+                ctx.fail(500);
+                return;
+              }
+
+              // the compressed body is split over several chunks
+              byte[] gzipBytes = byteArrayOutputStream.toByteArray();
+              int chunkSize = gzipBytes.length / 3 + 1;
+              ctx.response().setStatusCode(200);
+              ctx.response().putHeader("Content-Encoding", "gzip");
+              ctx.response().putHeader("Content-Type", "application/json");
+              ctx.response().setChunked(true);
+              for (int offset = 0; offset < gzipBytes.length; offset += chunkSize) {
+                ctx.response()
+                    .write(
+                        Buffer.buffer()
+                            .appendBytes(
+                                gzipBytes, offset, Math.min(chunkSize, gzipBytes.length - offset)));
+              }
+              ctx.response().end();
+            });
+
     vertx
         .createHttpServer()
         .requestHandler(router::accept)
@@ -0,0 +1,80 @@
+import groovy.json.JsonSlurper
+
+plugins {
+    `java-library`
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+val versions: Map<String, String> by extra
+
+dependencies {
+    jmh(project(":javaagent-core"))
+    jmh(project(":filter-api"))
+    jmh(project(":instrumentation:java-streams"))
+    jmh(project(":instrumentation:type-matchers"))
+    jmh(project(":instrumentation:grpc-1.6"))
+    jmh(project(":instrumentation:apache-httpclient-4.0"))
+    jmh(project(":instrumentation:servlet:servlet-common"))
+    jmh(project(":instrumentation:servlet:servlet-3.0"))
+    jmh(project(":instrumentation:servlet:servlet-5.0"))
+    jmh("org.apache.httpcomponents:httpclient:4.0")
+    jmh("javax.servlet:javax.servlet-api:3.1.0")
+    jmh("jakarta.servlet:jakarta.servlet-api:5.0.0")
+    jmh("io.opentelemetry.javaagent:opentelemetry-javaagent-extension-api:${versions["opentelemetry_java_agent"]}")
+    jmh("com.google.protobuf:protobuf-java:3.25.5")
+    jmh("org.slf4j:slf4j-simple:${versions["slf4j"]}")
+    jmh("org.openjdk.jmh:jmh-core:1.37")
+    jmhAnnotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
+jmh {
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    profilers.set(listOf("gc", "stack"))
+    resultFormat.set("JSON")
+    // e.g. ./gradlew :javaagent-benchmarks:jmh -PjmhIncludes=BoundedBuffers
+    if (project.hasProperty("jmhIncludes")) {
+        includes.set(listOf(project.property("jmhIncludes").toString()))
+    }
+}
+
+/*
+ * Compares the normalized allocation rate (bytes per operation) reported by the gc profiler with the
+ * results of an earlier run, e.g. of the main branch:
+ *
+ *   ./gradlew :javaagent-benchmarks:jmhCheckAllocations -PjmhBaseline=/path/to/baseline.json
+ *
+ * Fails if a benchmark allocates more than jmhAllocationTolerance (default 0.1, i.e. 10%) plus 16
+ * bytes per operation above its baseline.
+ */
+tasks.register("jmhCheckAllocations") {
+    group = "verification"
+    description = "Fails if JMH benchmarks allocate more per operation than in a baseline run."
+    dependsOn("jmh")
+    doLast {
+        val baselineFile = project.findProperty("jmhBaseline")?.let { file(it) }
+            ?: throw GradleException("Set -PjmhBaseline to the results.json of a baseline run")
+        val tolerance = (project.findProperty("jmhAllocationTolerance") ?: "0.1").toString().toDouble()
+        val results = layout.buildDirectory.file("results/jmh/results.json").get().asFile
+
+        fun allocations(file: File): Map<String, Double> =
+            (JsonSlurper().parse(file) as List<*>).associate { entry ->
+                val result = entry as Map<*, *>
+                val params = (result["params"] as Map<*, *>?)?.toString() ?: ""
+                val secondary = result["secondaryMetrics"] as Map<*, *>
+                val norm = secondary["gc.alloc.rate.norm"] as Map<*, *>?
+                "${result["benchmark"]}$params" to ((norm?.get("score") as Number?)?.toDouble() ?: 0.0)
+            }
+
+        val baseline = allocations(baselineFile)
+        val regressions = allocations(results).filter { (benchmark, bytes) ->
+            val before = baseline[benchmark] ?: return@filter false
+            bytes > before * (1 + tolerance) + 16
+        }.map { (benchmark, bytes) -> "$benchmark: ${baseline[benchmark]} -> $bytes B/op" }
+        if (regressions.isNotEmpty()) {
+            throw GradleException("Allocation regressions:\n" + regressions.joinToString("\n"))
+        }
+        logger.lifecycle("No allocation regressions against {}", baselineFile)
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hypertrace.agent.benchmark;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.apachehttpclient.v4_0.ApacheHttpClientUtils;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.StringEntity;
+import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures capturing repeatable Apache HttpClient entities. The {@code fullCopy} benchmark
+ * reproduces the previous implementation that serialized the whole entity, copied it to an input
+ * stream and re-encoded it char by char. Bodies larger than the default 128 KiB capture limit are
+ * truncated.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ApacheEntityCaptureBenchmark {
+
+  @Param({"1024", "1048576"})
+  public int bodySize;
+
+  @Param({"bytes", "string"})
+  public String entityType;
+
+  private HttpEntity entity;
+
+  @Setup
+  public void setup() throws UnsupportedEncodingException {
+    StringBuilder body = new StringBuilder(bodySize);
+    while (body.length() < bodySize) {
+      body.append("{\"id\": ").append(body.length()).append(", \"name\": \"benchmark\"}");
+    }
+    String content = body.substring(0, bodySize);
+    if (entityType.equals("bytes")) {
+      ByteArrayEntity byteArrayEntity =
+          new ByteArrayEntity(content.getBytes(StandardCharsets.UTF_8));
+      byteArrayEntity.setContentType("application/json");
+      entity = byteArrayEntity;
+    } else {
+      StringEntity stringEntity = new StringEntity(content, "UTF-8");
+      stringEntity.setContentType("application/json; charset=utf-8");
+      entity = stringEntity;
+    }
+  }
+
+  @Benchmark
+  public void bounded() {
+    ApacheHttpClientUtils.traceEntity(
+        Span.getInvalid(), HypertraceSemanticAttributes.HTTP_REQUEST_BODY, entity);
+  }
+
+  @Benchmark
+  public String fullCopy() throws IOException {
+    BoundedByteArrayOutputStream byteArrayOutputStream =
+        BoundedBuffersFactory.createStream(StandardCharsets.UTF_8);
+    entity.writeTo(byteArrayOutputStream);
+    BoundedByteArrayOutputStream outputStream =
+        BoundedBuffersFactory.createStream(StandardCharsets.UTF_8);
+    try (InputStreamReader reader =
+            new InputStreamReader(
+                new ByteArrayInputStream(byteArrayOutputStream.toByteArray()),
+                StandardCharsets.UTF_8);
+        OutputStreamWriter writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)) {
+      int c;
+      while ((c = reader.read()) != -1) {
+        writer.write(c);
+      }
+      writer.flush();
+    }
+    return outputStream.toStringWithSuppliedCharset();
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hypertrace.agent.benchmark;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedCharArrayWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures buffering a body into the bounded buffers the way stream instrumentation does, in chunks
+ * and byte by byte, including the conversion to the attribute value.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BoundedBuffersBenchmark {
+
+  private static final int CHUNK_SIZE = 512;
+
+  @Param({"1024", "65536"})
+  public int bodySize;
+
+  private byte[] bytes;
+  private char[] chars;
+
+  @Setup
+  public void setup() {
+    bytes = new byte[bodySize];
+    Arrays.fill(bytes, (byte) 'a');
+    chars = new char[bodySize];
+    Arrays.fill(chars, 'a');
+  }
+
+  @Benchmark
+  public String streamChunks() throws UnsupportedEncodingException {
+    BoundedByteArrayOutputStream buffer =
+        BoundedBuffersFactory.createStream(StandardCharsets.UTF_8);
+    for (int offset = 0; offset < bytes.length; offset += CHUNK_SIZE) {
+      buffer.write(bytes, offset, Math.min(CHUNK_SIZE, bytes.length - offset));
+    }
+    return buffer.toStringWithSuppliedCharset();
+  }
+
+  @Benchmark
+  public String streamSingleBytes() throws UnsupportedEncodingException {
+    BoundedByteArrayOutputStream buffer =
+        BoundedBuffersFactory.createStream(StandardCharsets.UTF_8);
+    for (byte b : bytes) {
+      buffer.write(b);
+    }
+    return buffer.toStringWithSuppliedCharset();
+  }
+
+  @Benchmark
+  public String writerChunks() {
+    BoundedCharArrayWriter writer = BoundedBuffersFactory.createWriter();
+    for (int offset = 0; offset < chars.length; offset += CHUNK_SIZE) {
+      writer.write(chars, offset, Math.min(CHUNK_SIZE, chars.length - offset));
+    }
+    return writer.toString();
+  }
+
+  @Benchmark
+  public String writerSingleChars() {
+    BoundedCharArrayWriter writer = BoundedBuffersFactory.createWriter();
+    for (char c : chars) {
+      writer.write(c);
+    }
+    return writer.toString();
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hypertrace.agent.benchmark;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.hypertrace.agent.core.filter.FilterResult;
+import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
+import org.hypertrace.agent.core.instrumentation.buffer.ByteBufferSpanPair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Measures a request body captured from a servlet input stream and passed to the filter. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ByteBufferSpanPairBenchmark {
+
+  private static final AttributeKey<String> BODY = HypertraceSemanticAttributes.HTTP_REQUEST_BODY;
+  private static final FilterResult ALLOW = new FilterResult(false, 0, "");
+
+  @Param({"1024", "65536"})
+  public int bodySize;
+
+  private byte[] body;
+
+  @Setup
+  public void setup() {
+    body = new byte[bodySize];
+    for (int i = 0; i < body.length; i++) {
+      body[i] = (byte) ('a' + i % 26);
+    }
+  }
+
+  @Benchmark
+  public ByteBufferSpanPair captureBody() {
+    ByteBufferSpanPair pair =
+        new ByteBufferSpanPair(
+            Span.getInvalid(),
+            BoundedBuffersFactory.createStream(bodySize, StandardCharsets.UTF_8),
+            (span, requestBody, headers) -> ALLOW,
+            Collections.emptyMap());
+    pair.writeToBuffer(body, 0, body.length);
+    pair.captureBody(BODY);
+    return pair;
+  }
+}
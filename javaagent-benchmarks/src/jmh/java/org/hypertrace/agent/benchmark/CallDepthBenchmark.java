@@ -0,0 +1,110 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.benchmark;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.hypertrace.agent.core.instrumentation.HypertraceCallDepthThreadLocalMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures the call depth bookkeeping done by the stream read/write advices on every invocation.
+ * The {@code classValueThreadLocal} benchmark reproduces the previous implementation that kept one
+ * {@link ThreadLocal} per key class.
+ *
+ * <p>The {@code virtualThread} benchmarks run on virtual threads and need JDK 21. With the gc
+ * profiler {@code virtualThread} shows no allocation per operation, whereas {@code
+ * virtualThreadReleasedWhenIdle}, which drops the state whenever the thread leaves instrumented
+ * code as an earlier version did, allocates it again on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(4)
+public class CallDepthBenchmark {
+
+  private static final int INPUT_STREAM =
+      HypertraceCallDepthThreadLocalMap.indexFor(InputStream.class);
+  private static final int OUTPUT_STREAM =
+      HypertraceCallDepthThreadLocalMap.indexFor(OutputStream.class);
+
+  private static final ClassValue<ThreadLocal<int[]>> LEGACY =
+      new ClassValue<ThreadLocal<int[]>>() {
+        @Override
+        protected ThreadLocal<int[]> computeValue(Class<?> type) {
+          return ThreadLocal.withInitial(() -> new int[1]);
+        }
+      };
+
+  private static final ThreadLocal<int[]> RELEASED_WHEN_IDLE =
+      ThreadLocal.withInitial(() -> new int[16]);
+
+  @Benchmark
+  public int classValueThreadLocal() {
+    int depth = LEGACY.get(InputStream.class).get()[0]++;
+    --LEGACY.get(InputStream.class).get()[0];
+    depth += LEGACY.get(OutputStream.class).get()[0]++;
+    --LEGACY.get(OutputStream.class).get()[0];
+    return depth;
+  }
+
+  @Benchmark
+  public int classKey() {
+    int depth = HypertraceCallDepthThreadLocalMap.incrementCallDepth(InputStream.class);
+    HypertraceCallDepthThreadLocalMap.decrementCallDepth(InputStream.class);
+    depth += HypertraceCallDepthThreadLocalMap.incrementCallDepth(OutputStream.class);
+    HypertraceCallDepthThreadLocalMap.decrementCallDepth(OutputStream.class);
+    return depth;
+  }
+
+  @Benchmark
+  public int indexKey() {
+    int depth = HypertraceCallDepthThreadLocalMap.incrementCallDepth(INPUT_STREAM);
+    HypertraceCallDepthThreadLocalMap.decrementCallDepth(INPUT_STREAM);
+    depth += HypertraceCallDepthThreadLocalMap.incrementCallDepth(OUTPUT_STREAM);
+    HypertraceCallDepthThreadLocalMap.decrementCallDepth(OUTPUT_STREAM);
+    return depth;
+  }
+
+  @Benchmark
+  @Fork(jvmArgsAppend = "-Djmh.executor=VIRTUAL")
+  public int virtualThread() {
+    return indexKey();
+  }
+
+  @Benchmark
+  @Fork(jvmArgsAppend = "-Djmh.executor=VIRTUAL")
+  public int virtualThreadReleasedWhenIdle() {
+    int depth = RELEASED_WHEN_IDLE.get()[INPUT_STREAM]++;
+    if (--RELEASED_WHEN_IDLE.get()[INPUT_STREAM] == 0) {
+      RELEASED_WHEN_IDLE.remove();
+    }
+    depth += RELEASED_WHEN_IDLE.get()[OUTPUT_STREAM]++;
+    if (--RELEASED_WHEN_IDLE.get()[OUTPUT_STREAM] == 0) {
+      RELEASED_WHEN_IDLE.remove();
+    }
+    return depth;
+  }
+}
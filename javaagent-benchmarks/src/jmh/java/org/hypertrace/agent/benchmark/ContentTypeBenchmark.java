@@ -0,0 +1,46 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hypertrace.agent.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.hypertrace.agent.core.instrumentation.utils.ContentTypeUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/** Measures the content type checks done for every request and response with a body. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ContentTypeBenchmark {
+
+  @Param({"application/json; charset=utf-8", "image/png", "text/plain"})
+  public String contentType;
+
+  @Benchmark
+  public boolean shouldCapture() {
+    return ContentTypeUtils.shouldCapture(contentType);
+  }
+
+  @Benchmark
+  public String parseCharset() {
+    return ContentTypeUtils.parseCharset(contentType);
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hypertrace.agent.benchmark;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.java.inputstream.InputStreamUtils;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures adding a captured response body to the span with and without gzip decoding. The span is
+ * not recording, so the body is reported on an additional span as for streams read after the span
+ * ended.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GzipDecodeBenchmark {
+
+  private static final AttributeKey<String> BODY = HypertraceSemanticAttributes.HTTP_RESPONSE_BODY;
+
+  @Param({"1024", "65536"})
+  public int bodySize;
+
+  private ByteArrayOutputStream plain;
+  private ByteArrayOutputStream gzipped;
+
+  @Setup
+  public void setup() throws IOException {
+    StringBuilder body = new StringBuilder(bodySize);
+    while (body.length() < bodySize) {
+      body.append("{\"id\": ").append(body.length()).append(", \"name\": \"benchmark\"}");
+    }
+    byte[] bytes = body.substring(0, bodySize).getBytes(StandardCharsets.UTF_8);
+    plain = new ByteArrayOutputStream();
+    plain.write(bytes);
+    gzipped = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+      gzip.write(bytes);
+    }
+  }
+
+  @Benchmark
+  public void identity() {
+    InputStreamUtils.addBody(Span.getInvalid(), BODY, plain, StandardCharsets.UTF_8, null, null);
+  }
+
+  @Benchmark
+  public void gzip() {
+    InputStreamUtils.addBody(
+        Span.getInvalid(), BODY, gzipped, StandardCharsets.UTF_8, null, "gzip");
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hypertrace.agent.benchmark;
+
+import com.google.protobuf.ListValue;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.grpc.v1_6.ProtobufMessageConverter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the conversion of a captured gRPC message to JSON, which round-trips the message through
+ * the relocated protobuf classes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProtobufMessageConverterBenchmark {
+
+  @Param({"4", "64"})
+  public int fieldCount;
+
+  private Struct message;
+
+  @Setup
+  public void setup() {
+    Struct.Builder builder = Struct.newBuilder();
+    for (int i = 0; i < fieldCount; i++) {
+      builder.putFields("string" + i, Value.newBuilder().setStringValue("value" + i).build());
+      builder.putFields(
+          "list" + i,
+          Value.newBuilder()
+              .setListValue(
+                  ListValue.newBuilder()
+                      .addValues(Value.newBuilder().setNumberValue(i))
+                      .addValues(Value.newBuilder().setBoolValue(true)))
+              .build());
+    }
+    message = builder.build();
+  }
+
+  @Benchmark
+  public String getMessage() throws Exception {
+    return ProtobufMessageConverter.getMessage(message);
+  }
+}
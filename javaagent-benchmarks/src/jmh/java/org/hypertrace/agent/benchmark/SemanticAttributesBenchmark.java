@@ -0,0 +1,64 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hypertrace.agent.benchmark;
+
+import io.opentelemetry.api.common.AttributeKey;
+import java.util.concurrent.TimeUnit;
+import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/** Measures the attribute key lookups done for every captured header and metadata entry. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SemanticAttributesBenchmark {
+
+  private static final String[] HEADERS = {
+    "Content-Type", "content-length", "Accept", "user-agent", "X-Request-Id", "Authorization"
+  };
+
+  @Benchmark
+  public AttributeKey<String> httpRequestHeaders() {
+    AttributeKey<String> key = null;
+    for (String header : HEADERS) {
+      key = HypertraceSemanticAttributes.httpRequestHeader(header);
+    }
+    return key;
+  }
+
+  @Benchmark
+  public AttributeKey<String> httpResponseHeaders() {
+    AttributeKey<String> key = null;
+    for (String header : HEADERS) {
+      key = HypertraceSemanticAttributes.httpResponseHeader(header);
+    }
+    return key;
+  }
+
+  @Benchmark
+  public AttributeKey<String> rpcRequestMetadata() {
+    AttributeKey<String> key = null;
+    for (String header : HEADERS) {
+      key = HypertraceSemanticAttributes.rpcRequestMetadata(header);
+    }
+    return key;
+  }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.benchmark;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.instrumentation.api.util.VirtualField;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.common.ServletCapture;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.v3_0.nowrapping.Servlet30Capture;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.servlet.v5_0.Servlet50Capture;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.hypertrace.agent.core.filter.FilterResult;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
+import org.hypertrace.agent.core.instrumentation.buffer.ByteBufferSpanPair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures a request body read from and a response body written to captured servlet streams in
+ * chunks of 512 bytes, calling the shared {@link ServletCapture} like the inlined stream advices of
+ * the {@code javax.servlet} and {@code jakarta.servlet} instrumentations do. Both APIs run the same
+ * code, so their results should not differ.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ServletCaptureBenchmark {
+
+  private static final int SIZE = 64 * 1024;
+  private static final FilterResult ALLOW = new FilterResult(false, 0, "");
+
+  @Param({"javax", "jakarta"})
+  public String api;
+
+  private boolean javax;
+  private byte[] data;
+  private final byte[] chunk = new byte[512];
+
+  @Setup
+  public void setup() {
+    javax = api.equals("javax");
+    data = new byte[SIZE];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) ('a' + i % 26);
+    }
+  }
+
+  @Benchmark
+  public long readBody() throws IOException {
+    return javax ? readJavax() : readJakarta();
+  }
+
+  @Benchmark
+  public BoundedByteArrayOutputStream writeBody() {
+    return javax ? writeJavax() : writeJakarta();
+  }
+
+  private long readJavax() throws IOException {
+    ServletCapture<?, ?, javax.servlet.ServletInputStream, ?> capture = Servlet30Capture.INSTANCE;
+    javax.servlet.ServletInputStream inputStream = new JavaxInputStream(data);
+    VirtualField.find(javax.servlet.ServletInputStream.class, ByteBufferSpanPair.class)
+        .set(inputStream, bufferSpanPair());
+    long total = 0;
+    int read;
+    do {
+      ByteBufferSpanPair bufferSpanPair = capture.enterRead(inputStream);
+      read = inputStream.read(chunk, 0, chunk.length);
+      if (bufferSpanPair != null) {
+        capture.exitRead(inputStream, bufferSpanPair, read, chunk, 0);
+      }
+      total += read;
+    } while (read != -1);
+    return total;
+  }
+
+  private long readJakarta() throws IOException {
+    ServletCapture<?, ?, jakarta.servlet.ServletInputStream, ?> capture = Servlet50Capture.INSTANCE;
+    jakarta.servlet.ServletInputStream inputStream = new JakartaInputStream(data);
+    VirtualField.find(jakarta.servlet.ServletInputStream.class, ByteBufferSpanPair.class)
+        .set(inputStream, bufferSpanPair());
+    long total = 0;
+    int read;
+    do {
+      ByteBufferSpanPair bufferSpanPair = capture.enterRead(inputStream);
+      read = inputStream.read(chunk, 0, chunk.length);
+      if (bufferSpanPair != null) {
+        capture.exitRead(inputStream, bufferSpanPair, read, chunk, 0);
+      }
+      total += read;
+    } while (read != -1);
+    return total;
+  }
+
+  private BoundedByteArrayOutputStream writeJavax() {
+    ServletCapture<?, ?, ?, javax.servlet.ServletOutputStream> capture = Servlet30Capture.INSTANCE;
+    javax.servlet.ServletOutputStream outputStream = new JavaxOutputStream();
+    BoundedByteArrayOutputStream buffer = responseBuffer();
+    VirtualField.find(javax.servlet.ServletOutputStream.class, BoundedByteArrayOutputStream.class)
+        .set(outputStream, buffer);
+    for (int off = 0; off < SIZE; off += chunk.length) {
+      capture.exitWrite(capture.enterWrite(outputStream, data, off, chunk.length));
+    }
+    return buffer;
+  }
+
+  private BoundedByteArrayOutputStream writeJakarta() {
+    ServletCapture<?, ?, ?, jakarta.servlet.ServletOutputStream> capture =
+        Servlet50Capture.INSTANCE;
+    jakarta.servlet.ServletOutputStream outputStream = new JakartaOutputStream();
+    BoundedByteArrayOutputStream buffer = responseBuffer();
+    VirtualField.find(jakarta.servlet.ServletOutputStream.class, BoundedByteArrayOutputStream.class)
+        .set(outputStream, buffer);
+    for (int off = 0; off < SIZE; off += chunk.length) {
+      capture.exitWrite(capture.enterWrite(outputStream, data, off, chunk.length));
+    }
+    return buffer;
+  }
+
+  private static ByteBufferSpanPair bufferSpanPair() {
+    return new ByteBufferSpanPair(
+        Span.getInvalid(),
+        BoundedBuffersFactory.createStream(SIZE, StandardCharsets.UTF_8),
+        (span, requestBody, headers) -> ALLOW,
+        Collections.emptyMap(),
+        SIZE);
+  }
+
+  private static BoundedByteArrayOutputStream responseBuffer() {
+    return BoundedBuffersFactory.createStream(StandardCharsets.UTF_8);
+  }
+
+  static final class JavaxInputStream extends javax.servlet.ServletInputStream {
+    private final byte[] data;
+    private int pos;
+
+    JavaxInputStream(byte[] data) {
+      this.data = data;
+    }
+
+    @Override
+    public int read() {
+      return pos < data.length ? data[pos++] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (pos == data.length) {
+        return -1;
+      }
+      int read = Math.min(len, data.length - pos);
+      System.arraycopy(data, pos, b, off, read);
+      pos += read;
+      return read;
+    }
+
+    @Override
+    public int available() {
+      return data.length - pos;
+    }
+
+    @Override
+    public boolean isFinished() {
+      return pos == data.length;
+    }
+
+    @Override
+    public boolean isReady() {
+      return true;
+    }
+
+    @Override
+    public void setReadListener(javax.servlet.ReadListener readListener) {}
+  }
+
+  static final class JakartaInputStream extends jakarta.servlet.ServletInputStream {
+    private final byte[] data;
+    private int pos;
+
+    JakartaInputStream(byte[] data) {
+      this.data = data;
+    }
+
+    @Override
+    public int read() {
+      return pos < data.length ? data[pos++] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (pos == data.length) {
+        return -1;
+      }
+      int read = Math.min(len, data.length - pos);
+      System.arraycopy(data, pos, b, off, read);
+      pos += read;
+      return read;
+    }
+
+    @Override
+    public int available() {
+      return data.length - pos;
+    }
+
+    @Override
+    public boolean isFinished() {
+      return pos == data.length;
+    }
+
+    @Override
+    public boolean isReady() {
+      return true;
+    }
+
+    @Override
+    public void setReadListener(jakarta.servlet.ReadListener readListener) {}
+  }
+
+  static final class JavaxOutputStream extends javax.servlet.ServletOutputStream {
+    @Override
+    public void write(int b) {}
+
+    @Override
+    public void write(byte[] b, int off, int len) {}
+
+    @Override
+    public boolean isReady() {
+      return true;
+    }
+
+    @Override
+    public void setWriteListener(javax.servlet.WriteListener writeListener) {}
+  }
+
+  static final class JakartaOutputStream extends jakarta.servlet.ServletOutputStream {
+    @Override
+    public void write(int b) {}
+
+    @Override
+    public void write(byte[] b, int off, int len) {}
+
+    @Override
+    public boolean isReady() {
+      return true;
+    }
+
+    @Override
+    public void setWriteListener(jakarta.servlet.WriteListener writeListener) {}
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hypertrace.agent.benchmark;
+
+import io.opentelemetry.instrumentation.api.internal.cache.Cache;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.hypertrace.agent.core.instrumentation.SpanAndBuffer;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedByteArrayOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures reading and writing streams that are not captured, in chunks of 512 bytes. The {@code
+ * global} mode reproduces the stream advices installed into every stream class, which look up the
+ * stream in the {@code VirtualField} on every call. JDK classes are loaded before the agent, so
+ * their {@code VirtualField} is backed by a weak map. In the {@code scoped} and {@code wrapper}
+ * modes these classes are not instrumented.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StreamAdviceBenchmark {
+
+  private static final int SIZE = 64 * 1024;
+
+  private static final Cache<InputStream, SpanAndBuffer> inputStreams = Cache.weak();
+  private static final Cache<OutputStream, BoundedByteArrayOutputStream> outputStreams =
+      Cache.weak();
+
+  @Param({"global", "scoped"})
+  public String mode;
+
+  private boolean instrumented;
+  private Path file;
+  private byte[] data;
+  private final byte[] chunk = new byte[512];
+
+  @Setup
+  public void setup() throws IOException {
+    instrumented = mode.equals("global");
+    data = new byte[SIZE];
+    new Random(0).nextBytes(data);
+    file = Files.createTempFile("stream-advice-benchmark", ".bin");
+    Files.write(file, data);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.delete(file);
+  }
+
+  @Benchmark
+  public long readFile() throws IOException {
+    try (InputStream inputStream = new FileInputStream(file.toFile())) {
+      return readFully(inputStream);
+    }
+  }
+
+  @Benchmark
+  public long readBytes() throws IOException {
+    return readFully(new ByteArrayInputStream(data));
+  }
+
+  @Benchmark
+  public void writeFile() throws IOException {
+    try (OutputStream outputStream = new FileOutputStream(file.toFile())) {
+      for (int off = 0; off < SIZE; off += chunk.length) {
+        if (instrumented && outputStreams.get(outputStream) != null) {
+          throw new IllegalStateException();
+        }
+        outputStream.write(data, off, chunk.length);
+      }
+    }
+  }
+
+  private long readFully(InputStream inputStream) throws IOException {
+    long total = 0;
+    int read;
+    do {
+      if (instrumented && inputStreams.get(inputStream) != null) {
+        throw new IllegalStateException();
+      }
+      read = inputStream.read(chunk, 0, chunk.length);
+      total += read;
+    } while (read != -1);
+    return total;
+  }
+}
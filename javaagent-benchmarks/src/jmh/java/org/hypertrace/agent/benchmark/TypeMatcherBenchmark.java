@@ -0,0 +1,133 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hypertrace.agent.benchmark;
+
+import static net.bytebuddy.matcher.ElementMatchers.named;
+
+import io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers;
+import io.opentelemetry.javaagent.instrumentation.hypertrace.matchers.IndexedTypeMatchers;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.ClassFileLocator;
+import net.bytebuddy.matcher.ElementMatcher;
+import net.bytebuddy.matcher.ElementMatchers;
+import net.bytebuddy.pool.TypePool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the broad stream, reader and writer type matchers against all classes of the benchmark
+ * classpath, as they would run at startup when those classes are loaded. Every operation starts
+ * with a new type pool, so super types that are not on the classpath, e.g. JDK types, have to be
+ * parsed again like for a cold start.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TypeMatcherBenchmark {
+
+  private static final String[] CLASSES = {
+    "java.io.InputStream", "java.io.OutputStream", "javax.servlet.ServletInputStream"
+  };
+  private static final String[] SUPER_TYPES = {
+    "java.io.PrintWriter", "java.io.BufferedReader", "javax.servlet.ServletOutputStream"
+  };
+
+  @Param({"hierarchy", "indexed"})
+  public String matchers;
+
+  private final List<String> classNames = new ArrayList<>();
+  private final List<TypeDescription> types = new ArrayList<>();
+  private ElementMatcher.Junction<TypeDescription> matcher;
+  private ClassFileLocator classFileLocator;
+
+  @Setup
+  public void setUp() throws IOException {
+    for (String path : System.getProperty("java.class.path").split(File.pathSeparator)) {
+      if (path.endsWith(".jar")) {
+        addClassNames(path);
+      }
+    }
+    matcher = ElementMatchers.none();
+    for (String className : CLASSES) {
+      matcher =
+          matcher.or(
+              matchers.equals("indexed")
+                  ? IndexedTypeMatchers.extendsClass(className)
+                  : AgentElementMatchers.extendsClass(named(className)));
+    }
+    for (String className : SUPER_TYPES) {
+      matcher =
+          matcher.or(
+              matchers.equals("indexed")
+                  ? IndexedTypeMatchers.hasSuperClass(className)
+                  : AgentElementMatchers.hasSuperType(named(className)));
+    }
+    classFileLocator = ClassFileLocator.ForClassLoader.of(getClass().getClassLoader());
+  }
+
+  private void addClassNames(String jar) throws IOException {
+    try (JarFile jarFile = new JarFile(jar)) {
+      Enumeration<JarEntry> entries = jarFile.entries();
+      while (entries.hasMoreElements()) {
+        String name = entries.nextElement().getName();
+        if (name.endsWith(".class") && !name.endsWith("-info.class")) {
+          classNames.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+        }
+      }
+    }
+  }
+
+  /** Parses the classes up front, only their super types are resolved by the matchers. */
+  @Setup(Level.Invocation)
+  public void describeClasses() {
+    TypePool typePool = TypePool.Default.WithLazyResolution.of(classFileLocator);
+    types.clear();
+    for (String className : classNames) {
+      TypePool.Resolution resolution = typePool.describe(className);
+      if (resolution.isResolved()) {
+        TypeDescription type = resolution.resolve();
+        type.getModifiers();
+        types.add(type);
+      }
+    }
+  }
+
+  @Benchmark
+  public int matchClasspath() {
+    int matches = 0;
+    for (TypeDescription type : types) {
+      if (matcher.matches(type)) {
+        matches++;
+      }
+    }
+    return matches;
+  }
+}
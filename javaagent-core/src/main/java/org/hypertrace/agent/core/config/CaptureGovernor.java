@@ -0,0 +1,127 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.core.config;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Capture level set by the overhead governor and the agent-attributable capture cost it is based
+ * on.
+ *
+ * <p>Instrumentation does not consult the level directly, {@link
+ * InstrumentationConfigSnapshot#get()} applies it to the returned snapshot. Reading the level is a
+ * single volatile read.
+ */
+public final class CaptureGovernor {
+
+  /** Capture levels from the most to the least expensive. */
+  public enum Level {
+    /** Capture according to the config. */
+    FULL,
+    /** Capture bodies up to {@link #truncatedBodySizeBytes()} only. */
+    TRUNCATED,
+    /** Capture headers and metadata but no bodies. */
+    HEADERS_ONLY,
+    /** Capture nothing. */
+    OFF;
+
+    public Level lower() {
+      return this == OFF ? OFF : values()[ordinal() + 1];
+    }
+
+    public Level higher() {
+      return this == FULL ? FULL : values()[ordinal() - 1];
+    }
+  }
+
+  // 4 KiB
+  static final int DEFAULT_TRUNCATED_BODY_SIZE_BYTES = 4 * 1024;
+
+  private static volatile Level level = Level.FULL;
+  private static volatile int truncatedBodySizeBytes = DEFAULT_TRUNCATED_BODY_SIZE_BYTES;
+  // the costs are only measured for a running governor, nothing drains them otherwise
+  private static volatile boolean measuring = false;
+
+  private static final LongAdder captureNanos = new LongAdder();
+  private static final LongAdder capturedBytes = new LongAdder();
+  private static final LongAdder conversionNanos = new LongAdder();
+
+  private CaptureGovernor() {}
+
+  public static Level level() {
+    return level;
+  }
+
+  public static void setLevel(Level newLevel) {
+    level = newLevel;
+  }
+
+  public static int truncatedBodySizeBytes() {
+    return truncatedBodySizeBytes;
+  }
+
+  /** Sets the body size limit of the truncated level, must be set before capturing starts. */
+  public static void setTruncatedBodySizeBytes(int bytes) {
+    truncatedBodySizeBytes = bytes;
+  }
+
+  /** Starts measuring the capture costs, called when the governor is started. */
+  public static void startMeasuring() {
+    measuring = true;
+  }
+
+  /**
+   * Returns the start time to pass to {@link #recordCapture} or {@link #recordConversion}, or 0 if
+   * the capture costs are not measured.
+   */
+  public static long startTiming() {
+    return measuring ? System.nanoTime() : 0L;
+  }
+
+  /**
+   * Records the time since {@code startNanos} spent turning a captured body of the given size into
+   * a span attribute.
+   */
+  public static void recordCapture(long startNanos, int bytes) {
+    if (startNanos != 0L) {
+      captureNanos.add(System.nanoTime() - startNanos);
+      capturedBytes.add(bytes);
+    }
+  }
+
+  /** Records the time since {@code startNanos} spent converting a captured message. */
+  public static void recordConversion(long startNanos) {
+    if (startNanos != 0L) {
+      conversionNanos.add(System.nanoTime() - startNanos);
+    }
+  }
+
+  /** Returns and resets the capture time recorded since the previous call. */
+  public static long drainCaptureNanos() {
+    return captureNanos.sumThenReset();
+  }
+
+  /** Returns and resets the captured bytes recorded since the previous call. */
+  public static long drainCapturedBytes() {
+    return capturedBytes.sumThenReset();
+  }
+
+  /** Returns and resets the conversion time recorded since the previous call. */
+  public static long drainConversionNanos() {
+    return conversionNanos.sumThenReset();
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.core.config;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Data capture settings for the requests to an endpoint. An HTTP rule matches a method and a path
+ * pattern, an RPC rule matches a gRPC full method name pattern. Settings which are not set by the
+ * rule are taken from the global config.
+ *
+ * <p>Patterns are split into segments by {@code /}. A {@code *} segment matches any single segment
+ * and a trailing {@code **} segment matches any remainder, e.g. {@code /orders/*} or {@code
+ * grpc.health.v1.Health/**}.
+ */
+public final class CaptureRule {
+
+  static final String ANY_SEGMENT = "*";
+  static final String ANY_REMAINDER = "**";
+
+  final String method;
+  final String path;
+  final String rpcMethod;
+  final Boolean httpHeadersRequest;
+  final Boolean httpHeadersResponse;
+  final Boolean httpBodyRequest;
+  final Boolean httpBodyResponse;
+  final Boolean rpcMetadataRequest;
+  final Boolean rpcMetadataResponse;
+  final Boolean rpcBodyRequest;
+  final Boolean rpcBodyResponse;
+
+  private CaptureRule(Builder builder) {
+    this.method = builder.method;
+    this.path = builder.path;
+    this.rpcMethod = builder.rpcMethod;
+    this.httpHeadersRequest = builder.httpHeadersRequest;
+    this.httpHeadersResponse = builder.httpHeadersResponse;
+    this.httpBodyRequest = builder.httpBodyRequest;
+    this.httpBodyResponse = builder.httpBodyResponse;
+    this.rpcMetadataRequest = builder.rpcMetadataRequest;
+    this.rpcMetadataResponse = builder.rpcMetadataResponse;
+    this.rpcBodyRequest = builder.rpcBodyRequest;
+    this.rpcBodyResponse = builder.rpcBodyResponse;
+  }
+
+  /**
+   * Creates a rule for HTTP requests.
+   *
+   * @param method the HTTP method or null for any method
+   * @param path the path pattern
+   */
+  public static Builder http(String method, String path) {
+    return new Builder(method == null ? null : method.toUpperCase(Locale.ROOT), path, null);
+  }
+
+  /**
+   * Creates a rule for gRPC calls.
+   *
+   * @param rpcMethod the full method name pattern, {@code package.Service/Method}
+   */
+  public static Builder rpc(String rpcMethod) {
+    return new Builder(null, null, rpcMethod);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof CaptureRule)) {
+      return false;
+    }
+    CaptureRule that = (CaptureRule) o;
+    return Objects.equals(method, that.method)
+        && Objects.equals(path, that.path)
+        && Objects.equals(rpcMethod, that.rpcMethod)
+        && Objects.equals(httpHeadersRequest, that.httpHeadersRequest)
+        && Objects.equals(httpHeadersResponse, that.httpHeadersResponse)
+        && Objects.equals(httpBodyRequest, that.httpBodyRequest)
+        && Objects.equals(httpBodyResponse, that.httpBodyResponse)
+        && Objects.equals(rpcMetadataRequest, that.rpcMetadataRequest)
+        && Objects.equals(rpcMetadataResponse, that.rpcMetadataResponse)
+        && Objects.equals(rpcBodyRequest, that.rpcBodyRequest)
+        && Objects.equals(rpcBodyResponse, that.rpcBodyResponse);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(
+        method,
+        path,
+        rpcMethod,
+        httpHeadersRequest,
+        httpHeadersResponse,
+        httpBodyRequest,
+        httpBodyResponse,
+        rpcMetadataRequest,
+        rpcMetadataResponse,
+        rpcBodyRequest,
+        rpcBodyResponse);
+  }
+
+  @Override
+  public String toString() {
+    return path != null ? (method == null ? "" : method + " ") + path : "rpc " + rpcMethod;
+  }
+
+  public static final class Builder {
+    private final String method;
+    private final String path;
+    private final String rpcMethod;
+    private Boolean httpHeadersRequest;
+    private Boolean httpHeadersResponse;
+    private Boolean httpBodyRequest;
+    private Boolean httpBodyResponse;
+    private Boolean rpcMetadataRequest;
+    private Boolean rpcMetadataResponse;
+    private Boolean rpcBodyRequest;
+    private Boolean rpcBodyResponse;
+
+    private Builder(String method, String path, String rpcMethod) {
+      this.method = method;
+      this.path = path;
+      this.rpcMethod = rpcMethod;
+    }
+
+    /** Null keeps the global setting. */
+    public Builder httpHeaders(Boolean request, Boolean response) {
+      this.httpHeadersRequest = request;
+      this.httpHeadersResponse = response;
+      return this;
+    }
+
+    /** Null keeps the global setting. */
+    public Builder httpBody(Boolean request, Boolean response) {
+      this.httpBodyRequest = request;
+      this.httpBodyResponse = response;
+      return this;
+    }
+
+    /** Null keeps the global setting. */
+    public Builder rpcMetadata(Boolean request, Boolean response) {
+      this.rpcMetadataRequest = request;
+      this.rpcMetadataResponse = response;
+      return this;
+    }
+
+    /** Null keeps the global setting. */
+    public Builder rpcBody(Boolean request, Boolean response) {
+      this.rpcBodyRequest = request;
+      this.rpcBodyResponse = response;
+      return this;
+    }
+
+    /**
+     * @return the rule
+     * @throws IllegalArgumentException if the pattern is empty or {@code **} is not the last
+     *     segment
+     */
+    public CaptureRule build() {
+      String pattern = path != null ? path : rpcMethod;
+      if (pattern == null || pattern.trim().isEmpty()) {
+        throw new IllegalArgumentException("capture rule requires a path or an rpc method");
+      }
+      int anyRemainder = pattern.indexOf(ANY_REMAINDER);
+      if (anyRemainder >= 0
+          && (anyRemainder + ANY_REMAINDER.length() != pattern.length()
+              || (anyRemainder > 0 && pattern.charAt(anyRemainder - 1) != '/'))) {
+        throw new IllegalArgumentException(
+            "'" + ANY_REMAINDER + "' must be the last segment of pattern " + pattern);
+      }
+      return new CaptureRule(this);
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.core.config;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link CaptureRule}s compiled into segment tries, one for HTTP paths and one for gRPC method
+ * names. A lookup walks the path once, literal segments take precedence over {@code *}, which takes
+ * precedence over {@code **}. The settings of each rule are resolved against the global snapshot
+ * when compiling, so a lookup returns a ready to use snapshot.
+ */
+final class CaptureRules {
+
+  private final Node httpRoot = new Node();
+  private final Node rpcRoot = new Node();
+
+  private CaptureRules() {}
+
+  static CaptureRules compile(List<CaptureRule> rules, InstrumentationConfigSnapshot base) {
+    CaptureRules compiled = new CaptureRules();
+    for (CaptureRule rule : rules) {
+      Node root = rule.path != null ? compiled.httpRoot : compiled.rpcRoot;
+      String pattern = rule.path != null ? rule.path : rule.rpcMethod;
+      root.insert(pattern, rule.method, base.apply(rule));
+    }
+    return compiled;
+  }
+
+  /** Returns the snapshot of the matching rule or null. */
+  InstrumentationConfigSnapshot matchHttp(String method, String path) {
+    int start = pathStart(path);
+    int end = path.indexOf('?', start);
+    return httpRoot.match(path, start, end < 0 ? path.length() : end, method);
+  }
+
+  /**
+   * Returns where the path of a request target starts, after the scheme and authority of an
+   * absolute-form target such as {@code http://host:8080/orders?id=1}.
+   */
+  static int pathStart(String target) {
+    if (target.startsWith("/")) {
+      return 0;
+    }
+    int authority = target.indexOf("://");
+    if (authority < 0) {
+      return 0;
+    }
+    for (int i = authority + 3; i < target.length(); i++) {
+      char c = target.charAt(i);
+      if (c == '/' || c == '?' || c == '#') {
+        return i;
+      }
+    }
+    return target.length();
+  }
+
+  /** Returns the snapshot of the matching rule or null. */
+  InstrumentationConfigSnapshot matchRpc(String fullMethodName) {
+    return rpcRoot.match(fullMethodName, 0, fullMethodName.length(), null);
+  }
+
+  private static final class Node {
+    private Map<String, Node> children;
+    private Node anySegment;
+    private Target exact;
+    private Target anyRemainder;
+
+    void insert(String pattern, String method, InstrumentationConfigSnapshot snapshot) {
+      Node node = this;
+      for (String segment : pattern.split("/")) {
+        if (segment.isEmpty()) {
+          continue;
+        }
+        if (CaptureRule.ANY_REMAINDER.equals(segment)) {
+          if (node.anyRemainder == null) {
+            node.anyRemainder = new Target();
+          }
+          node.anyRemainder.add(method, snapshot);
+          return;
+        }
+        if (CaptureRule.ANY_SEGMENT.equals(segment)) {
+          if (node.anySegment == null) {
+            node.anySegment = new Node();
+          }
+          node = node.anySegment;
+        } else {
+          if (node.children == null) {
+            node.children = new HashMap<>();
+          }
+          node = node.children.computeIfAbsent(segment, s -> new Node());
+        }
+      }
+      if (node.exact == null) {
+        node.exact = new Target();
+      }
+      node.exact.add(method, snapshot);
+    }
+
+    InstrumentationConfigSnapshot match(String path, int start, int end, String method) {
+      while (start < end && path.charAt(start) == '/') {
+        start++;
+      }
+      InstrumentationConfigSnapshot matched;
+      if (start == end) {
+        matched = exact == null ? null : exact.get(method);
+      } else {
+        int segmentEnd = path.indexOf('/', start);
+        if (segmentEnd < 0 || segmentEnd > end) {
+          segmentEnd = end;
+        }
+        matched = null;
+        if (children != null) {
+          Node child = children.get(path.substring(start, segmentEnd));
+          if (child != null) {
+            matched = child.match(path, segmentEnd, end, method);
+          }
+        }
+        if (matched == null && anySegment != null) {
+          matched = anySegment.match(path, segmentEnd, end, method);
+        }
+      }
+      if (matched == null && anyRemainder != null) {
+        matched = anyRemainder.get(method);
+      }
+      return matched;
+    }
+  }
+
+  /** The snapshots of the rules for the same pattern, the first rule wins. */
+  private static final class Target {
+    private Map<String, InstrumentationConfigSnapshot> byMethod;
+    private InstrumentationConfigSnapshot anyMethod;
+
+    void add(String method, InstrumentationConfigSnapshot snapshot) {
+      if (method == null) {
+        if (anyMethod == null) {
+          anyMethod = snapshot;
+        }
+        return;
+      }
+      if (byMethod == null) {
+        byMethod = new HashMap<>();
+      }
+      byMethod.putIfAbsent(method, snapshot);
+    }
+
+    InstrumentationConfigSnapshot get(String method) {
+      if (byMethod != null && method != null) {
+        InstrumentationConfigSnapshot snapshot = byMethod.get(method);
+        if (snapshot != null) {
+          return snapshot;
+        }
+      }
+      return anyMethod;
+    }
+  }
+}
@@ -73,5 +73,12 @@ public interface DataCaptureConfig {
       }
       return dataCaptureConfig;
     }
+
+    /** Replaces the config, e.g. after the config file changed. */
+    public static void update(DataCaptureConfig config) {
+      synchronized (ConfigProvider.class) {
+        dataCaptureConfig = config;
+      }
+    }
   }
 }
@@ -16,7 +16,9 @@
 
 package org.hypertrace.agent.core.config;
 
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.ServiceLoader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,6 +44,15 @@ public interface InstrumentationConfig {
   /** Data capture for RPC body */
   Message rpcBody();
 
+  /**
+   * Per endpoint data capture rules. The most specific pattern wins, literal segments take
+   * precedence over {@code *}, which takes precedence over {@code **}. The list order only decides
+   * between rules with the same pattern and method, the first one wins.
+   */
+  default List<CaptureRule> captureRules() {
+    return Collections.emptyList();
+  }
+
   /** Message holds data capture configuration for various entities. */
   interface Message {
     boolean request();
@@ -49,6 +60,9 @@ public interface InstrumentationConfig {
     boolean response();
   }
 
+  /**
+   * Hot paths should use {@link InstrumentationConfigSnapshot#anyEnabled} which is computed once.
+   */
   default boolean isInstrumentationEnabled(String primaryName, String[] otherNames) {
     // the instNames is not used because the config does not support it at the moment.
 
@@ -76,6 +90,7 @@ public interface InstrumentationConfig {
       synchronized (ConfigProvider.class) {
         instrumentationConfig = null;
       }
+      InstrumentationConfigSnapshot.reset();
     }
 
     private static InstrumentationConfig load(ClassLoader cl) {
@@ -110,5 +125,13 @@ public interface InstrumentationConfig {
       }
       return instrumentationConfig;
     }
+
+    /** Replaces the config, e.g. after the config file changed, and publishes its snapshot. */
+    public static void update(InstrumentationConfig config) {
+      synchronized (ConfigProvider.class) {
+        instrumentationConfig = config;
+      }
+      InstrumentationConfigSnapshot.update(config);
+    }
   }
 }
@@ -0,0 +1,339 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.core.config;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable snapshot of the data capture flags and body size limit of {@link InstrumentationConfig}
+ * for hot paths.
+ *
+ * <p>Instrumentation should read the flags from {@link #get()} instead of walking {@link
+ * InstrumentationConfig} on every request or message. The snapshot is published when the agent
+ * starts and only replaced by {@link #update(InstrumentationConfig)} when the config changes.
+ *
+ * <p>The current snapshot is held in a volatile field, so a snapshot published by {@link
+ * #update(InstrumentationConfig)}, e.g. from the config file watcher, is visible to all threads
+ * right away. Reading it costs one volatile read per {@link #get()}.
+ *
+ * <p>{@link #get()} also applies the {@link CaptureGovernor} level, so capture is stepped down for
+ * all instrumentation when the agent overhead is too high.
+ */
+public final class InstrumentationConfigSnapshot {
+
+  // 128 KiB, used when no config can be loaded
+  private static final int DEFAULT_MAX_BODY_SIZE_BYTES = 128 * 1024;
+
+  private static final InstrumentationConfigSnapshot DISABLED =
+      new InstrumentationConfigSnapshot(
+          false, false, false, false, false, false, false, false, DEFAULT_MAX_BODY_SIZE_BYTES);
+
+  private static volatile InstrumentationConfigSnapshot current;
+
+  public final boolean httpHeadersRequest;
+  public final boolean httpHeadersResponse;
+  public final boolean httpBodyRequest;
+  public final boolean httpBodyResponse;
+  public final boolean rpcMetadataRequest;
+  public final boolean rpcMetadataResponse;
+  public final boolean rpcBodyRequest;
+  public final boolean rpcBodyResponse;
+
+  /** True if capturing of any entity is enabled. */
+  public final boolean anyEnabled;
+
+  /** True if capturing of any HTTP or RPC body is enabled. */
+  public final boolean anyBodyEnabled;
+
+  public final int maxBodySizeBytes;
+
+  private final List<CaptureRule> ruleList;
+  private final CaptureRules rules;
+  private final CaptureGovernor.Level level;
+
+  // racy single-check caching is fine, all fields of the cached snapshots are final
+  private InstrumentationConfigSnapshot withoutBodyCapture;
+  private final InstrumentationConfigSnapshot[] governed =
+      new InstrumentationConfigSnapshot[CaptureGovernor.Level.values().length];
+
+  private InstrumentationConfigSnapshot(
+      boolean httpHeadersRequest,
+      boolean httpHeadersResponse,
+      boolean httpBodyRequest,
+      boolean httpBodyResponse,
+      boolean rpcMetadataRequest,
+      boolean rpcMetadataResponse,
+      boolean rpcBodyRequest,
+      boolean rpcBodyResponse,
+      int maxBodySizeBytes) {
+    this.httpHeadersRequest = httpHeadersRequest;
+    this.httpHeadersResponse = httpHeadersResponse;
+    this.httpBodyRequest = httpBodyRequest;
+    this.httpBodyResponse = httpBodyResponse;
+    this.rpcMetadataRequest = rpcMetadataRequest;
+    this.rpcMetadataResponse = rpcMetadataResponse;
+    this.rpcBodyRequest = rpcBodyRequest;
+    this.rpcBodyResponse = rpcBodyResponse;
+    this.anyEnabled =
+        httpHeadersRequest
+            || httpHeadersResponse
+            || httpBodyRequest
+            || httpBodyResponse
+            || rpcMetadataRequest
+            || rpcMetadataResponse
+            || rpcBodyRequest
+            || rpcBodyResponse;
+    this.anyBodyEnabled = httpBodyRequest || httpBodyResponse || rpcBodyRequest || rpcBodyResponse;
+    this.maxBodySizeBytes = maxBodySizeBytes;
+    this.ruleList = Collections.emptyList();
+    this.rules = null;
+    this.level = CaptureGovernor.Level.FULL;
+  }
+
+  private InstrumentationConfigSnapshot(
+      InstrumentationConfigSnapshot base, List<CaptureRule> rules) {
+    this.httpHeadersRequest = base.httpHeadersRequest;
+    this.httpHeadersResponse = base.httpHeadersResponse;
+    this.httpBodyRequest = base.httpBodyRequest;
+    this.httpBodyResponse = base.httpBodyResponse;
+    this.rpcMetadataRequest = base.rpcMetadataRequest;
+    this.rpcMetadataResponse = base.rpcMetadataResponse;
+    this.rpcBodyRequest = base.rpcBodyRequest;
+    this.rpcBodyResponse = base.rpcBodyResponse;
+    this.anyEnabled = base.anyEnabled;
+    this.anyBodyEnabled = base.anyBodyEnabled;
+    this.maxBodySizeBytes = base.maxBodySizeBytes;
+    this.ruleList = Collections.unmodifiableList(rules);
+    this.rules = CaptureRules.compile(rules, base);
+    this.level = CaptureGovernor.Level.FULL;
+  }
+
+  /**
+   * Copy of the base snapshot stepped down to the given level, rule matches are stepped down too.
+   */
+  private InstrumentationConfigSnapshot(
+      InstrumentationConfigSnapshot base, CaptureGovernor.Level level) {
+    boolean headers =
+        level == CaptureGovernor.Level.FULL
+            || level == CaptureGovernor.Level.TRUNCATED
+            || level == CaptureGovernor.Level.HEADERS_ONLY;
+    boolean bodies =
+        level == CaptureGovernor.Level.FULL || level == CaptureGovernor.Level.TRUNCATED;
+    this.httpHeadersRequest = headers && base.httpHeadersRequest;
+    this.httpHeadersResponse = headers && base.httpHeadersResponse;
+    this.httpBodyRequest = bodies && base.httpBodyRequest;
+    this.httpBodyResponse = bodies && base.httpBodyResponse;
+    this.rpcMetadataRequest = headers && base.rpcMetadataRequest;
+    this.rpcMetadataResponse = headers && base.rpcMetadataResponse;
+    this.rpcBodyRequest = bodies && base.rpcBodyRequest;
+    this.rpcBodyResponse = bodies && base.rpcBodyResponse;
+    this.anyEnabled =
+        httpHeadersRequest
+            || httpHeadersResponse
+            || httpBodyRequest
+            || httpBodyResponse
+            || rpcMetadataRequest
+            || rpcMetadataResponse
+            || rpcBodyRequest
+            || rpcBodyResponse;
+    this.anyBodyEnabled = httpBodyRequest || httpBodyResponse || rpcBodyRequest || rpcBodyResponse;
+    this.maxBodySizeBytes =
+        level == CaptureGovernor.Level.TRUNCATED
+            ? Math.min(base.maxBodySizeBytes, CaptureGovernor.truncatedBodySizeBytes())
+            : base.maxBodySizeBytes;
+    this.ruleList = base.ruleList;
+    this.rules = base.rules;
+    this.level = level;
+  }
+
+  /**
+   * Returns the current snapshot at the current {@link CaptureGovernor} level, all flags are
+   * disabled if no config can be loaded.
+   */
+  public static InstrumentationConfigSnapshot get() {
+    InstrumentationConfigSnapshot snapshot = current;
+    if (snapshot == null) {
+      InstrumentationConfig config = InstrumentationConfig.ConfigProvider.get();
+      if (config == null) {
+        return DISABLED;
+      }
+      snapshot = update(config);
+    }
+    return snapshot.atLevel(CaptureGovernor.level());
+  }
+
+  /**
+   * Returns the snapshot for an HTTP request. It differs from this snapshot only if a {@link
+   * CaptureRule} matches, so the result should be resolved once per request and reused.
+   *
+   * @param method the HTTP method
+   * @param path the request path or an absolute-form request target, the scheme, the authority and
+   *     a query string are ignored
+   */
+  public InstrumentationConfigSnapshot forHttp(String method, String path) {
+    if (rules == null || path == null) {
+      return this;
+    }
+    InstrumentationConfigSnapshot matched = rules.matchHttp(method, path);
+    return matched == null ? this : matched.atLevel(level);
+  }
+
+  /**
+   * Returns the snapshot for a gRPC call. It differs from this snapshot only if a {@link
+   * CaptureRule} matches.
+   *
+   * @param fullMethodName the full method name, {@code package.Service/Method}
+   */
+  public InstrumentationConfigSnapshot forRpc(String fullMethodName) {
+    if (rules == null || fullMethodName == null) {
+      return this;
+    }
+    InstrumentationConfigSnapshot matched = rules.matchRpc(fullMethodName);
+    return matched == null ? this : matched.atLevel(level);
+  }
+
+  /** Returns this snapshot with capturing of HTTP and RPC bodies disabled, e.g. when unsampled. */
+  public InstrumentationConfigSnapshot withoutBodyCapture() {
+    if (!anyBodyEnabled) {
+      return this;
+    }
+    InstrumentationConfigSnapshot snapshot = withoutBodyCapture;
+    if (snapshot == null) {
+      snapshot =
+          new InstrumentationConfigSnapshot(
+              httpHeadersRequest,
+              httpHeadersResponse,
+              false,
+              false,
+              rpcMetadataRequest,
+              rpcMetadataResponse,
+              false,
+              false,
+              maxBodySizeBytes);
+      withoutBodyCapture = snapshot;
+    }
+    return snapshot;
+  }
+
+  /** Returns this snapshot stepped down to the given level, the copies are cached. */
+  InstrumentationConfigSnapshot atLevel(CaptureGovernor.Level level) {
+    if (level == this.level || level == CaptureGovernor.Level.FULL) {
+      return this;
+    }
+    InstrumentationConfigSnapshot snapshot = governed[level.ordinal()];
+    if (snapshot == null) {
+      snapshot = new InstrumentationConfigSnapshot(this, level);
+      governed[level.ordinal()] = snapshot;
+    }
+    return snapshot;
+  }
+
+  /**
+   * Publishes a snapshot of the given config unless it equals the current one.
+   *
+   * @return the current snapshot
+   */
+  public static synchronized InstrumentationConfigSnapshot update(InstrumentationConfig config) {
+    InstrumentationConfigSnapshot snapshot = of(config);
+    if (!snapshot.equals(current)) {
+      current = snapshot;
+    }
+    return current;
+  }
+
+  /** Drops the current snapshot, use only in tests. */
+  static synchronized void reset() {
+    current = null;
+  }
+
+  static InstrumentationConfigSnapshot of(InstrumentationConfig config) {
+    InstrumentationConfigSnapshot base =
+        new InstrumentationConfigSnapshot(
+            config.httpHeaders().request(),
+            config.httpHeaders().response(),
+            config.httpBody().request(),
+            config.httpBody().response(),
+            config.rpcMetadata().request(),
+            config.rpcMetadata().response(),
+            config.rpcBody().request(),
+            config.rpcBody().response(),
+            config.maxBodySizeBytes());
+    List<CaptureRule> rules = config.captureRules();
+    return rules.isEmpty() ? base : new InstrumentationConfigSnapshot(base, rules);
+  }
+
+  /** Returns a snapshot of this one with the settings of the rule applied. */
+  InstrumentationConfigSnapshot apply(CaptureRule rule) {
+    return new InstrumentationConfigSnapshot(
+        valueOrDefault(rule.httpHeadersRequest, httpHeadersRequest),
+        valueOrDefault(rule.httpHeadersResponse, httpHeadersResponse),
+        valueOrDefault(rule.httpBodyRequest, httpBodyRequest),
+        valueOrDefault(rule.httpBodyResponse, httpBodyResponse),
+        valueOrDefault(rule.rpcMetadataRequest, rpcMetadataRequest),
+        valueOrDefault(rule.rpcMetadataResponse, rpcMetadataResponse),
+        valueOrDefault(rule.rpcBodyRequest, rpcBodyRequest),
+        valueOrDefault(rule.rpcBodyResponse, rpcBodyResponse),
+        maxBodySizeBytes);
+  }
+
+  private static boolean valueOrDefault(Boolean value, boolean defaultValue) {
+    return value == null ? defaultValue : value;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof InstrumentationConfigSnapshot)) {
+      return false;
+    }
+    InstrumentationConfigSnapshot that = (InstrumentationConfigSnapshot) o;
+    return httpHeadersRequest == that.httpHeadersRequest
+        && httpHeadersResponse == that.httpHeadersResponse
+        && httpBodyRequest == that.httpBodyRequest
+        && httpBodyResponse == that.httpBodyResponse
+        && rpcMetadataRequest == that.rpcMetadataRequest
+        && rpcMetadataResponse == that.rpcMetadataResponse
+        && rpcBodyRequest == that.rpcBodyRequest
+        && rpcBodyResponse == that.rpcBodyResponse
+        && maxBodySizeBytes == that.maxBodySizeBytes
+        && level == that.level
+        && Objects.equals(ruleList, that.ruleList);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = 0;
+    for (boolean flag :
+        new boolean[] {
+          httpHeadersRequest,
+          httpHeadersResponse,
+          httpBodyRequest,
+          httpBodyResponse,
+          rpcMetadataRequest,
+          rpcMetadataResponse,
+          rpcBodyRequest,
+          rpcBodyResponse
+        }) {
+      result = (result << 1) | (flag ? 1 : 0);
+    }
+    return 31 * (31 * (31 * result + maxBodySizeBytes) + ruleList.hashCode()) + level.hashCode();
+  }
+}
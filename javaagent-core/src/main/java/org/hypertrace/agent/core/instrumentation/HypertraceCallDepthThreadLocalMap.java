@@ -16,44 +16,102 @@
 
 package org.hypertrace.agent.core.instrumentation;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
- * Copy of
+ * Tracks call depth per key and thread. Based on
  * https://github.com/open-telemetry/opentelemetry-java-instrumentation/blob/65f54e450b36bbe2a136fcbf450edd08df1e6c24/javaagent-api/src/main/java/io/opentelemetry/javaagent/instrumentation/api/CallDepthThreadLocalMap.java#L23
  *
  * <p>The copy is needed because in some cases Hypertrace instrumentation wants to use the same
  * class as a key to the map.
  *
- * <p>see CallDepthThreadLocalMap.
+ * <p>Every key class is assigned a constant index and all depths of a thread are kept in one array
+ * held by a single {@link ThreadLocal}. Hot advice code should resolve the index once with {@link
+ * #indexFor(Class)}, keep it in a static final field of a helper class and use the index based
+ * methods, which cost one {@link ThreadLocal} lookup and an array access. The class based methods
+ * additionally perform a {@link ClassValue} lookup.
+ *
+ * <p>The depths are kept for the lifetime of the thread, also for virtual threads. Dropping them
+ * whenever a thread leaves instrumented code would allocate a new array and {@link ThreadLocal}
+ * entry on every top-level call, while the state of a finished virtual thread is collected with it.
  */
 public class HypertraceCallDepthThreadLocalMap {
-  private static final ClassValue<HypertraceCallDepthThreadLocalMap.ThreadLocalDepth> TLS =
-      new ClassValue<HypertraceCallDepthThreadLocalMap.ThreadLocalDepth>() {
+
+  private static final AtomicInteger NEXT_INDEX = new AtomicInteger();
+
+  private static final ClassValue<Integer> INDICES =
+      new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+          return NEXT_INDEX.getAndIncrement();
+        }
+      };
+
+  private static final ThreadLocal<CallDepths> DEPTHS =
+      new ThreadLocal<CallDepths>() {
         @Override
-        protected HypertraceCallDepthThreadLocalMap.ThreadLocalDepth computeValue(Class<?> type) {
-          return new HypertraceCallDepthThreadLocalMap.ThreadLocalDepth();
+        protected CallDepths initialValue() {
+          return new CallDepths();
         }
       };
 
-  public static CallDepth getCallDepth(Class<?> k) {
-    return TLS.get(k).get();
+  private HypertraceCallDepthThreadLocalMap() {}
+
+  /** Returns the index of the call depth tracked for the given key. */
+  public static int indexFor(Class<?> k) {
+    return INDICES.get(k);
+  }
+
+  public static int incrementCallDepth(int index) {
+    return DEPTHS.get().getAndIncrement(index);
+  }
+
+  public static int decrementCallDepth(int index) {
+    return DEPTHS.get().decrementAndGet(index);
+  }
+
+  public static void reset(int index) {
+    DEPTHS.get().reset(index);
   }
 
   public static int incrementCallDepth(Class<?> k) {
-    return TLS.get(k).get().getAndIncrement();
+    return incrementCallDepth(indexFor(k));
   }
 
   public static int decrementCallDepth(Class<?> k) {
-    return TLS.get(k).get().decrementAndGet();
+    return decrementCallDepth(indexFor(k));
   }
 
   public static void reset(Class<?> k) {
-    TLS.get(k).get().reset();
+    reset(indexFor(k));
   }
 
-  private static final class ThreadLocalDepth extends ThreadLocal<CallDepth> {
-    @Override
-    protected CallDepth initialValue() {
-      return new CallDepth();
+  /** Call depths of a single thread, indexed by key index. */
+  private static final class CallDepths {
+    private static final int INITIAL_SIZE = 16;
+
+    private int[] depths = new int[INITIAL_SIZE];
+
+    int getAndIncrement(int index) {
+      int[] depths = ensureCapacity(index);
+      return depths[index]++;
+    }
+
+    int decrementAndGet(int index) {
+      int[] depths = ensureCapacity(index);
+      return --depths[index];
+    }
+
+    void reset(int index) {
+      ensureCapacity(index)[index] = 0;
+    }
+
+    private int[] ensureCapacity(int index) {
+      if (index >= depths.length) {
+        depths = Arrays.copyOf(depths, Math.max(index + 1, depths.length * 2));
+      }
+      return depths;
     }
   }
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.core.instrumentation;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+
+/**
+ * Hands client bodies that are captured after their span ended back to the span. The span processor
+ * that delays the export of such spans installs the {@link Hold}, without it the bodies are
+ * reported on additional spans.
+ */
+public final class LateBodyHold {
+
+  /** Delays the export of spans that wait for a body. */
+  public interface Hold {
+    /** Marks the span as waiting for a body, its export is delayed until the body is attached. */
+    void expect(SpanContext spanContext);
+
+    /** Adds the body to the waiting span. Returns false if the span no longer waits for it. */
+    boolean attach(SpanContext spanContext, AttributeKey<String> attributeKey, String value);
+
+    /** Stops waiting for a body, e.g. because it was added to the span before it ended. */
+    void release(SpanContext spanContext);
+  }
+
+  private static volatile Hold hold;
+
+  private LateBodyHold() {}
+
+  public static void install(Hold hold) {
+    LateBodyHold.hold = hold;
+  }
+
+  /** Returns true if bodies captured after their span ended can be added to the span. */
+  public static boolean isInstalled() {
+    return hold != null;
+  }
+
+  /** Called when the capture of a body starts that may complete after the span ends. */
+  public static void expect(Span span) {
+    Hold hold = LateBodyHold.hold;
+    if (hold != null && span.getSpanContext().isSampled()) {
+      hold.expect(span.getSpanContext());
+    }
+  }
+
+  /** Returns true if the body was added to the ended span, which has not been exported yet. */
+  public static boolean attach(Span span, AttributeKey<String> attributeKey, String value) {
+    Hold hold = LateBodyHold.hold;
+    return hold != null && hold.attach(span.getSpanContext(), attributeKey, value);
+  }
+
+  public static void release(Span span) {
+    Hold hold = LateBodyHold.hold;
+    if (hold != null) {
+      hold.release(span.getSpanContext());
+    }
+  }
+}
@@ -26,6 +26,9 @@ public class SpanAndBuffer {
   public final BoundedByteArrayOutputStream byteArrayBuffer;
   public final AttributeKey<String> attributeKey;
   public final Charset charset;
+  /** Content type of the body, it is added to the span that reports a late body. */
+  public final String contentType;
+
   public final String contentEncoding;
 
   public SpanAndBuffer(
@@ -33,11 +36,13 @@ public class SpanAndBuffer {
       BoundedByteArrayOutputStream byteArrayBuffer,
       AttributeKey<String> attributeKey,
       Charset charset,
+      String contentType,
       String contentEncoding) {
     this.span = span;
     this.byteArrayBuffer = byteArrayBuffer;
     this.attributeKey = attributeKey;
     this.charset = charset;
+    this.contentType = contentType;
     this.contentEncoding = contentEncoding;
   }
 }
@@ -17,33 +17,38 @@
 package org.hypertrace.agent.core.instrumentation.buffer;
 
 import java.nio.charset.Charset;
-import org.hypertrace.agent.core.config.InstrumentationConfig;
+import org.hypertrace.agent.core.config.InstrumentationConfigSnapshot;
 
 public class BoundedBuffersFactory {
 
-  public static final int MAX_SIZE = InstrumentationConfig.ConfigProvider.get().maxBodySizeBytes();
+  /** Returns the configured maximum body size, which can change when the config is reloaded. */
+  public static int maxSize() {
+    return InstrumentationConfigSnapshot.get().maxBodySizeBytes;
+  }
 
   public static BoundedByteArrayOutputStream createStream(Charset charset) {
-    return new BoundedByteArrayOutputStream(MAX_SIZE, charset);
+    return new BoundedByteArrayOutputStream(maxSize(), charset);
   }
 
   public static BoundedByteArrayOutputStream createStream(int initialSize, Charset charset) {
-    if (initialSize > MAX_SIZE) {
-      initialSize = MAX_SIZE;
+    int maxSize = maxSize();
+    if (initialSize > maxSize) {
+      initialSize = maxSize;
     }
     return initialSize >= 0
-        ? new BoundedByteArrayOutputStream(MAX_SIZE, initialSize, charset)
-        : new BoundedByteArrayOutputStream(MAX_SIZE, charset);
+        ? new BoundedByteArrayOutputStream(maxSize, initialSize, charset)
+        : new BoundedByteArrayOutputStream(maxSize, charset);
   }
 
   public static BoundedCharArrayWriter createWriter() {
-    return new BoundedCharArrayWriter(MAX_SIZE);
+    return new BoundedCharArrayWriter(maxSize());
   }
 
   public static BoundedCharArrayWriter createWriter(int initialSize) {
-    if (initialSize > MAX_SIZE) {
-      initialSize = MAX_SIZE;
+    int maxSize = maxSize();
+    if (initialSize > maxSize) {
+      initialSize = maxSize;
     }
-    return new BoundedCharArrayWriter(MAX_SIZE, initialSize);
+    return new BoundedCharArrayWriter(maxSize, initialSize);
   }
 }
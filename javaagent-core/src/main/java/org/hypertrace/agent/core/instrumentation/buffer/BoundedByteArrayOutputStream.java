@@ -20,6 +20,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
+import org.hypertrace.agent.core.config.CaptureGovernor;
 
 /**
  * {@link ByteArrayOutputStream} with a bounded capacity. Write methods are no-op if the size
@@ -42,7 +43,10 @@ public class BoundedByteArrayOutputStream extends ByteArrayOutputStream {
   }
 
   public synchronized String toStringWithSuppliedCharset() throws UnsupportedEncodingException {
-    return super.toString(this.charset.name());
+    long start = CaptureGovernor.startTiming();
+    String string = super.toString(this.charset.name());
+    CaptureGovernor.recordCapture(start, count);
+    return string;
   }
 
   @Override
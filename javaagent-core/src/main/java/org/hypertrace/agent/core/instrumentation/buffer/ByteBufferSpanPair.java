@@ -33,16 +33,45 @@ public class ByteBufferSpanPair {
   private final Map<String, String> headers;
   private boolean bufferCaptured;
   private final TriFunction<Span, String, Map<String, String>, FilterResult> filter;
+  private final long contentLength;
+  private long bytesRead;
 
   public ByteBufferSpanPair(
       Span span,
       BoundedByteArrayOutputStream buffer,
       TriFunction<Span, String, Map<String, String>, FilterResult> filter,
       Map<String, String> headers) {
+    this(span, buffer, filter, headers, -1);
+  }
+
+  /**
+   * @param contentLength the declared length of the body, or a negative value if it is unknown
+   *     (e.g. chunked transfer encoding)
+   */
+  public ByteBufferSpanPair(
+      Span span,
+      BoundedByteArrayOutputStream buffer,
+      TriFunction<Span, String, Map<String, String>, FilterResult> filter,
+      Map<String, String> headers,
+      long contentLength) {
     this.span = span;
     this.buffer = buffer;
     this.filter = Objects.requireNonNull(filter);
     this.headers = headers;
+    this.contentLength = contentLength;
+  }
+
+  /** Returns true if the declared length of the body is known. */
+  public boolean hasContentLength() {
+    return contentLength >= 0;
+  }
+
+  /**
+   * Returns true if as many bytes as declared by the content length have been written, the buffer
+   * itself might hold fewer of them.
+   */
+  public boolean isContentLengthRead() {
+    return contentLength >= 0 && bytesRead >= contentLength;
   }
 
   public void captureBody(AttributeKey<String> attributeKey) {
@@ -67,16 +96,19 @@ public class ByteBufferSpanPair {
 
   public void writeToBuffer(byte singleByte) {
     bufferCaptured = false;
+    bytesRead++;
     buffer.write(singleByte);
   }
 
   public void writeToBuffer(byte[] b, int offset, int len) {
     bufferCaptured = false;
+    bytesRead += len;
     buffer.write(b, offset, len);
   }
 
   public void writeToBuffer(byte[] b) throws IOException {
     bufferCaptured = false;
+    bytesRead += b.length;
     buffer.write(b);
   }
 }
@@ -21,6 +21,7 @@ import io.opentelemetry.api.trace.Span;
 import java.io.IOException;
 import java.util.Map;
 import org.hypertrace.agent.core.TriFunction;
+import org.hypertrace.agent.core.config.CaptureGovernor;
 import org.hypertrace.agent.core.filter.FilterResult;
 import org.hypertrace.agent.core.instrumentation.HypertraceEvaluationException;
 
@@ -53,7 +54,9 @@ public class CharBufferSpanPair {
       return;
     }
     bufferCaptured = true;
+    long start = CaptureGovernor.startTiming();
     String requestBody = buffer.toString();
+    CaptureGovernor.recordCapture(start, requestBody.length());
     span.setAttribute(attributeKey, requestBody);
     final FilterResult filterResult;
     filterResult = filter.apply(span, requestBody, headers);
@@ -0,0 +1,206 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.core.instrumentation.utils;
+
+import io.opentelemetry.api.trace.SpanContext;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import org.hypertrace.agent.core.config.InstrumentationConfigSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decides once per request whether request and response bodies are captured. Headers and metadata
+ * are always captured according to the config.
+ *
+ * <p>The sampler is configured by {@link #SAMPLER_PROPERTY}:
+ *
+ * <ul>
+ *   <li>{@code always} - capture every body, the default
+ *   <li>{@code ratio} - capture a random {@link #RATIO_PROPERTY} fraction of requests
+ *   <li>{@code rate_limit} - capture at most {@link #RATE_PROPERTY} requests per second of this
+ *       service
+ *   <li>{@code trace_id} - capture a {@link #RATIO_PROPERTY} fraction of traces, the decision is
+ *       derived from the trace ID so all services with the same ratio capture the same traces
+ * </ul>
+ */
+public abstract class BodyCaptureSampler {
+
+  private static final Logger log = LoggerFactory.getLogger(BodyCaptureSampler.class);
+
+  public static final String SAMPLER_PROPERTY = "ht.data.capture.body.sampler";
+  public static final String RATIO_PROPERTY = SAMPLER_PROPERTY + ".ratio";
+  public static final String RATE_PROPERTY = SAMPLER_PROPERTY + ".rate";
+
+  private static final BodyCaptureSampler ALWAYS =
+      new BodyCaptureSampler() {
+        @Override
+        public boolean shouldCapture(SpanContext spanContext) {
+          return true;
+        }
+      };
+
+  private static final BodyCaptureSampler INSTANCE = create();
+
+  public static BodyCaptureSampler get() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the config with body capture disabled if the request is not sampled. The sampler is
+   * only consulted if the config captures any body.
+   */
+  public static InstrumentationConfigSnapshot sample(
+      InstrumentationConfigSnapshot instrumentationConfig, SpanContext spanContext) {
+    if (INSTANCE == ALWAYS || !instrumentationConfig.anyBodyEnabled) {
+      return instrumentationConfig;
+    }
+    return INSTANCE.shouldCapture(spanContext)
+        ? instrumentationConfig
+        : instrumentationConfig.withoutBodyCapture();
+  }
+
+  /** Returns true if the bodies of the request with the given span context should be captured. */
+  public abstract boolean shouldCapture(SpanContext spanContext);
+
+  private static BodyCaptureSampler create() {
+    String sampler = getProperty(SAMPLER_PROPERTY);
+    if (sampler == null) {
+      return ALWAYS;
+    }
+    try {
+      switch (sampler.trim().toLowerCase(Locale.ROOT)) {
+        case "always":
+          return ALWAYS;
+        case "ratio":
+          return new Ratio(parseRatio());
+        case "rate_limit":
+          return new RateLimiting(Double.parseDouble(getProperty(RATE_PROPERTY)), System::nanoTime);
+        case "trace_id":
+          return new TraceIdRatio(parseRatio());
+        default:
+          log.warn("Unknown body capture sampler {}, capturing all bodies", sampler);
+          return ALWAYS;
+      }
+    } catch (RuntimeException e) {
+      log.warn("Invalid body capture sampler config, capturing all bodies", e);
+      return ALWAYS;
+    }
+  }
+
+  private static double parseRatio() {
+    double ratio = Double.parseDouble(getProperty(RATIO_PROPERTY));
+    if (ratio < 0 || ratio > 1) {
+      throw new IllegalArgumentException(RATIO_PROPERTY + " must be between 0 and 1: " + ratio);
+    }
+    return ratio;
+  }
+
+  private static String getProperty(String name) {
+    return System.getProperty(name, System.getenv(name.replaceAll("\\.", "_").toUpperCase()));
+  }
+
+  static final class Ratio extends BodyCaptureSampler {
+    private final double ratio;
+
+    Ratio(double ratio) {
+      this.ratio = ratio;
+    }
+
+    @Override
+    public boolean shouldCapture(SpanContext spanContext) {
+      return ThreadLocalRandom.current().nextDouble() < ratio;
+    }
+  }
+
+  /**
+   * Token bucket implemented as the time up to which permits have been handed out, which allows a
+   * burst of one second worth of permits.
+   */
+  static final class RateLimiting extends BodyCaptureSampler {
+    private static final long BURST_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final long nanosPerPermit;
+    private final LongSupplier nanoClock;
+    private final AtomicLong nextPermitNanos;
+
+    RateLimiting(double permitsPerSecond, LongSupplier nanoClock) {
+      this.nanosPerPermit =
+          permitsPerSecond > 0 ? (long) (BURST_NANOS / permitsPerSecond) : Long.MAX_VALUE;
+      this.nanoClock = nanoClock;
+      this.nextPermitNanos = new AtomicLong(nanoClock.getAsLong() - BURST_NANOS);
+    }
+
+    @Override
+    public boolean shouldCapture(SpanContext spanContext) {
+      if (nanosPerPermit == Long.MAX_VALUE) {
+        return false;
+      }
+      long now = nanoClock.getAsLong();
+      while (true) {
+        long next = nextPermitNanos.get();
+        // unused permits do not accumulate beyond the burst
+        long granted = Math.max(next, now - BURST_NANOS) + nanosPerPermit;
+        if (granted > now) {
+          return false;
+        }
+        if (nextPermitNanos.compareAndSet(next, granted)) {
+          return true;
+        }
+      }
+    }
+  }
+
+  /**
+   * Same decision as the OpenTelemetry trace ID ratio based sampler: the lower 64 bits of the trace
+   * ID are compared with the ratio of {@link Long#MAX_VALUE}.
+   */
+  static final class TraceIdRatio extends BodyCaptureSampler {
+    private final double ratio;
+    private final long idUpperBound;
+
+    TraceIdRatio(double ratio) {
+      this.ratio = ratio;
+      if (ratio == 0) {
+        this.idUpperBound = Long.MIN_VALUE;
+      } else if (ratio == 1) {
+        this.idUpperBound = Long.MAX_VALUE;
+      } else {
+        this.idUpperBound = (long) (ratio * Long.MAX_VALUE);
+      }
+    }
+
+    @Override
+    public boolean shouldCapture(SpanContext spanContext) {
+      if (spanContext == null || !spanContext.isValid()) {
+        return ThreadLocalRandom.current().nextDouble() < ratio;
+      }
+      return Math.abs(lowerTraceIdBits(spanContext.getTraceId())) < idUpperBound;
+    }
+
+    private static long lowerTraceIdBits(String traceId) {
+      long bits = 0;
+      for (int i = traceId.length() - 16; i < traceId.length(); i++) {
+        bits = (bits << 4) | Character.digit(traceId.charAt(i), 16);
+      }
+      return bits;
+    }
+  }
+}
@@ -21,18 +21,20 @@ import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
 public class ContentLengthUtils {
   private ContentLengthUtils() {}
 
-  // default content length
-  public static final int DEFAULT = BoundedBuffersFactory.MAX_SIZE;
+  /** Returns the default content length, the maximum body size. */
+  public static int getDefault() {
+    return BoundedBuffersFactory.maxSize();
+  }
 
   public static int parseLength(CharSequence lengthStr) {
     if (lengthStr == null || lengthStr.length() == 0) {
-      return DEFAULT;
+      return getDefault();
     }
 
     try {
       return Integer.parseInt(lengthStr.toString());
     } catch (Exception ex) {
-      return DEFAULT;
+      return getDefault();
     }
   }
 }
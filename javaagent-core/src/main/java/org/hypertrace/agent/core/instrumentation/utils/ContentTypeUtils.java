@@ -63,6 +63,11 @@ public class ContentTypeUtils {
     return instance;
   }
 
+  /** Rebuilds the collectable content types after the DataCaptureConfig has been replaced. */
+  public static synchronized void reload() {
+    instance = new ContentTypeUtils();
+  }
+
   /**
    * Determines if the content type should be captured by the agent.
    *
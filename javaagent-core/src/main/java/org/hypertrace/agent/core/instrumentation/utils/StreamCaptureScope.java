@@ -0,0 +1,157 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.core.instrumentation.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decides which {@link java.io.InputStream} and {@link java.io.OutputStream} classes the stream
+ * instrumentation is installed into. The mode is configured by {@link #MODE_PROPERTY}:
+ *
+ * <ul>
+ *   <li>{@code global} - every stream class is instrumented, the default
+ *   <li>{@code scoped} - only stream classes (and their super classes) that an integration
+ *       registered via {@link #register(Class)} before handing an instance to the {@code
+ *       VirtualField} are instrumented, the JDK stream roots such as {@link java.io.InputStream}
+ *       are never registered. A class is retransformed when it is registered first.
+ *   <li>{@code wrapper} - no stream class is instrumented, integrations wrap the streams they
+ *       capture instead
+ * </ul>
+ */
+public final class StreamCaptureScope {
+
+  private static final Logger log = LoggerFactory.getLogger(StreamCaptureScope.class);
+
+  public static final String MODE_PROPERTY = "ht.instrumentation.streams.mode";
+
+  public enum Mode {
+    GLOBAL,
+    SCOPED,
+    WRAPPER
+  }
+
+  private static final Mode MODE = parseMode(getProperty(MODE_PROPERTY));
+
+  private static final Set<String> JDK_STREAM_ROOTS =
+      new HashSet<>(
+          Arrays.asList(
+              "java.lang.Object",
+              "java.io.InputStream",
+              "java.io.OutputStream",
+              "java.io.FilterInputStream",
+              "java.io.FilterOutputStream"));
+
+  private static final Set<String> registeredTypes = ConcurrentHashMap.newKeySet();
+  private static volatile Consumer<Class<?>[]> retransformer;
+
+  private StreamCaptureScope() {}
+
+  public static Mode mode() {
+    return MODE;
+  }
+
+  /** Returns true if integrations should wrap the captured streams. */
+  public static boolean wrapStreams() {
+    return MODE == Mode.WRAPPER;
+  }
+
+  /** Returns true if the stream instrumentation should be installed into the given class. */
+  public static boolean isInstrumented(String className) {
+    switch (MODE) {
+      case SCOPED:
+        return registeredTypes.contains(className);
+      case WRAPPER:
+        return false;
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * Sets the callback used to retransform newly registered classes. It is set by the stream
+   * instrumentation when the agent is installed.
+   */
+  public static void setRetransformer(Consumer<Class<?>[]> retransformer) {
+    StreamCaptureScope.retransformer = retransformer;
+  }
+
+  /**
+   * Registers the class of a stream that is about to be captured. In the scoped mode the class and
+   * the super classes it inherits read and write methods from are retransformed the first time they
+   * are registered, so the stream instrumentation applies to the stream before it is read or
+   * written.
+   */
+  public static void register(Class<?> streamClass) {
+    if (MODE != Mode.SCOPED || registeredTypes.contains(streamClass.getName())) {
+      return;
+    }
+    List<Class<?>> added = new ArrayList<>();
+    for (Class<?> clazz : typesToRegister(streamClass)) {
+      if (registeredTypes.add(clazz.getName())) {
+        added.add(clazz);
+      }
+    }
+    Consumer<Class<?>[]> retransformer = StreamCaptureScope.retransformer;
+    if (added.isEmpty() || retransformer == null) {
+      return;
+    }
+    try {
+      retransformer.accept(added.toArray(new Class<?>[0]));
+    } catch (RuntimeException e) {
+      log.warn("Could not retransform stream classes {}", added, e);
+    }
+  }
+
+  /**
+   * Returns the stream class and its super classes up to, but excluding, the JDK stream roots.
+   * Instrumenting a root would run the advices in every stream class that inherits its methods.
+   */
+  static List<Class<?>> typesToRegister(Class<?> streamClass) {
+    List<Class<?>> types = new ArrayList<>();
+    for (Class<?> clazz = streamClass;
+        clazz != null && !JDK_STREAM_ROOTS.contains(clazz.getName());
+        clazz = clazz.getSuperclass()) {
+      types.add(clazz);
+    }
+    return types;
+  }
+
+  static Mode parseMode(String mode) {
+    if (mode == null) {
+      return Mode.GLOBAL;
+    }
+    try {
+      return Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      log.warn("Unknown stream instrumentation mode {}, instrumenting all streams", mode);
+      return Mode.GLOBAL;
+    }
+  }
+
+  private static String getProperty(String name) {
+    return System.getProperty(name, System.getenv(name.replaceAll("\\.", "_").toUpperCase()));
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.core.instrumentation.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Virtual thread support for per-thread instrumentation state.
+ *
+ * <p>Virtual threads are cheap and short-lived, so state that is kept in a {@link ThreadLocal}
+ * multiplies by the number of live virtual threads. Per-thread state must therefore stay small and
+ * be allocated at most once per thread, it is collected together with the finished virtual thread.
+ * {@link #ENABLED_PROPERTY} enables the tests that run instrumented code on virtual threads.
+ */
+public class VirtualThreadUtils {
+  private VirtualThreadUtils() {}
+
+  public static final String ENABLED_PROPERTY = "ht.javaagent.virtual.threads.enabled";
+
+  private static final MethodHandle IS_VIRTUAL = findIsVirtual();
+  private static final boolean ENABLED =
+      IS_VIRTUAL != null && Boolean.parseBoolean(getProperty(ENABLED_PROPERTY));
+
+  /** Returns true if the virtual thread mode is enabled and supported by the JVM. */
+  public static boolean isEnabled() {
+    return ENABLED;
+  }
+
+  /** Returns true if the given thread is a virtual thread. Always false before JDK 21. */
+  public static boolean isVirtual(Thread thread) {
+    if (IS_VIRTUAL == null) {
+      return false;
+    }
+    try {
+      return (boolean) IS_VIRTUAL.invokeExact(thread);
+    } catch (Throwable t) {
+      return false;
+    }
+  }
+
+  private static MethodHandle findIsVirtual() {
+    try {
+      return MethodHandles.publicLookup()
+          .findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      return null;
+    }
+  }
+
+  private static String getProperty(String name) {
+    return System.getProperty(name, System.getenv(name.replaceAll("\\.", "_").toUpperCase()));
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.core.config;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CaptureGovernorTest {
+
+  @Test
+  public void costsAreOnlyRecordedWhenMeasuring() {
+    CaptureGovernor.drainCaptureNanos();
+    CaptureGovernor.drainCapturedBytes();
+    CaptureGovernor.drainConversionNanos();
+
+    long start = CaptureGovernor.startTiming();
+    Assertions.assertEquals(0L, start);
+    CaptureGovernor.recordCapture(start, 100);
+    CaptureGovernor.recordConversion(start);
+    Assertions.assertEquals(0L, CaptureGovernor.drainCapturedBytes());
+    Assertions.assertEquals(0L, CaptureGovernor.drainCaptureNanos());
+    Assertions.assertEquals(0L, CaptureGovernor.drainConversionNanos());
+
+    CaptureGovernor.startMeasuring();
+    start = CaptureGovernor.startTiming();
+    Assertions.assertNotEquals(0L, start);
+    CaptureGovernor.recordCapture(start, 100);
+    CaptureGovernor.recordConversion(start);
+    Assertions.assertEquals(100L, CaptureGovernor.drainCapturedBytes());
+    Assertions.assertTrue(CaptureGovernor.drainCaptureNanos() >= 0);
+    Assertions.assertTrue(CaptureGovernor.drainConversionNanos() >= 0);
+  }
+}
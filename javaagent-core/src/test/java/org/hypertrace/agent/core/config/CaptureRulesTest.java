@@ -0,0 +1,104 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.core.config;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CaptureRulesTest {
+
+  private static final InstrumentationConfigSnapshot SNAPSHOT =
+      snapshot(
+          CaptureRule.http(null, "/health").httpBody(false, false).build(),
+          CaptureRule.http("post", "/api/orders/*").httpHeaders(false, null).build(),
+          CaptureRule.http(null, "/api/orders/export").httpBody(false, false).build(),
+          CaptureRule.http(null, "/static/**").httpHeaders(false, false).build(),
+          CaptureRule.rpc("grpc.health.v1.Health/*").rpcBody(false, false).build());
+
+  @Test
+  public void literalPath() {
+    InstrumentationConfigSnapshot health = SNAPSHOT.forHttp("GET", "/health?verbose=true");
+    Assertions.assertNotSame(SNAPSHOT, health);
+    Assertions.assertFalse(health.httpBodyRequest);
+    Assertions.assertFalse(health.httpBodyResponse);
+    Assertions.assertTrue(health.httpHeadersRequest);
+    Assertions.assertEquals(SNAPSHOT.maxBodySizeBytes, health.maxBodySizeBytes);
+
+    Assertions.assertSame(SNAPSHOT, SNAPSHOT.forHttp("GET", "/health/live"));
+    Assertions.assertSame(SNAPSHOT, SNAPSHOT.forHttp("GET", "/"));
+  }
+
+  @Test
+  public void absoluteFormTarget() {
+    Assertions.assertFalse(
+        SNAPSHOT.forHttp("GET", "http://localhost:8080/health?verbose=true").httpBodyRequest);
+    Assertions.assertFalse(
+        SNAPSHOT.forHttp("POST", "https://example.com/api/orders/42").httpHeadersRequest);
+    Assertions.assertSame(SNAPSHOT, SNAPSHOT.forHttp("GET", "http://localhost:8080"));
+    Assertions.assertSame(SNAPSHOT, SNAPSHOT.forHttp("GET", "http://localhost?path=/health"));
+  }
+
+  @Test
+  public void methodAndWildcards() {
+    InstrumentationConfigSnapshot order = SNAPSHOT.forHttp("POST", "/api/orders/42");
+    Assertions.assertFalse(order.httpHeadersRequest);
+    Assertions.assertTrue(order.httpHeadersResponse);
+    Assertions.assertTrue(order.httpBodyRequest);
+    Assertions.assertSame(SNAPSHOT, SNAPSHOT.forHttp("GET", "/api/orders/42"));
+
+    // literal segments take precedence over wildcards
+    InstrumentationConfigSnapshot export = SNAPSHOT.forHttp("POST", "/api/orders/export");
+    Assertions.assertTrue(export.httpHeadersRequest);
+    Assertions.assertFalse(export.httpBodyRequest);
+
+    Assertions.assertFalse(SNAPSHOT.forHttp("GET", "/static").httpHeadersRequest);
+    Assertions.assertFalse(SNAPSHOT.forHttp("GET", "/static/js/app.js").httpHeadersRequest);
+    Assertions.assertSame(SNAPSHOT, SNAPSHOT.forHttp("GET", "/statics/app.js"));
+  }
+
+  @Test
+  public void rpcMethod() {
+    InstrumentationConfigSnapshot health = SNAPSHOT.forRpc("grpc.health.v1.Health/Check");
+    Assertions.assertFalse(health.rpcBodyRequest);
+    Assertions.assertTrue(health.rpcMetadataRequest);
+    Assertions.assertSame(SNAPSHOT, SNAPSHOT.forRpc("helloworld.Greeter/SayHello"));
+    // HTTP rules do not apply to gRPC and vice versa
+    Assertions.assertSame(SNAPSHOT, SNAPSHOT.forRpc("health"));
+    Assertions.assertSame(SNAPSHOT, SNAPSHOT.forHttp("POST", "/grpc.health.v1.Health/Check"));
+  }
+
+  @Test
+  public void invalidPattern() {
+    Assertions.assertThrows(
+        IllegalArgumentException.class, () -> CaptureRule.http(null, "/api/**/x").build());
+    Assertions.assertThrows(
+        IllegalArgumentException.class, () -> CaptureRule.http("GET", " ").build());
+  }
+
+  private static InstrumentationConfigSnapshot snapshot(CaptureRule... rules) {
+    List<CaptureRule> ruleList = Arrays.asList(rules);
+    return InstrumentationConfigSnapshot.of(
+        new InstrumentationConfigSnapshotTest.TestConfig(true, true, true, true) {
+          @Override
+          public List<CaptureRule> captureRules() {
+            return ruleList;
+          }
+        });
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.core.config;
+
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class InstrumentationConfigSnapshotTest {
+
+  @AfterEach
+  public void reset() {
+    InstrumentationConfigSnapshot.reset();
+    CaptureGovernor.setLevel(CaptureGovernor.Level.FULL);
+    CaptureGovernor.setTruncatedBodySizeBytes(CaptureGovernor.DEFAULT_TRUNCATED_BODY_SIZE_BYTES);
+  }
+
+  @Test
+  public void flagsAreCopied() {
+    InstrumentationConfigSnapshot snapshot =
+        InstrumentationConfigSnapshot.of(new TestConfig(false, true, false, false));
+    Assertions.assertFalse(snapshot.httpHeadersRequest);
+    Assertions.assertFalse(snapshot.httpHeadersResponse);
+    Assertions.assertTrue(snapshot.httpBodyRequest);
+    Assertions.assertTrue(snapshot.httpBodyResponse);
+    Assertions.assertFalse(snapshot.rpcMetadataRequest);
+    Assertions.assertFalse(snapshot.rpcBodyResponse);
+    Assertions.assertTrue(snapshot.anyEnabled);
+
+    Assertions.assertFalse(
+        InstrumentationConfigSnapshot.of(new TestConfig(false, false, false, false)).anyEnabled);
+  }
+
+  @Test
+  public void updateReplacesSnapshotOnlyOnChange() {
+    InstrumentationConfigSnapshot first =
+        InstrumentationConfigSnapshot.update(new TestConfig(true, true, true, true));
+    Assertions.assertSame(first, InstrumentationConfigSnapshot.get());
+    Assertions.assertSame(
+        first, InstrumentationConfigSnapshot.update(new TestConfig(true, true, true, true)));
+
+    InstrumentationConfigSnapshot second =
+        InstrumentationConfigSnapshot.update(new TestConfig(true, false, true, true));
+    Assertions.assertNotEquals(first, second);
+    Assertions.assertSame(second, InstrumentationConfigSnapshot.get());
+    Assertions.assertFalse(InstrumentationConfigSnapshot.get().httpBodyRequest);
+  }
+
+  @Test
+  public void withoutBodyCapture() {
+    InstrumentationConfigSnapshot snapshot =
+        InstrumentationConfigSnapshot.of(new TestConfig(true, true, true, true));
+    InstrumentationConfigSnapshot withoutBodies = snapshot.withoutBodyCapture();
+    Assertions.assertTrue(withoutBodies.httpHeadersRequest);
+    Assertions.assertTrue(withoutBodies.rpcMetadataResponse);
+    Assertions.assertFalse(withoutBodies.httpBodyRequest);
+    Assertions.assertFalse(withoutBodies.rpcBodyResponse);
+    Assertions.assertFalse(withoutBodies.anyBodyEnabled);
+    Assertions.assertTrue(withoutBodies.anyEnabled);
+    Assertions.assertSame(withoutBodies, snapshot.withoutBodyCapture());
+    Assertions.assertSame(withoutBodies, withoutBodies.withoutBodyCapture());
+  }
+
+  @Test
+  public void governorLevelIsApplied() {
+    CaptureGovernor.setTruncatedBodySizeBytes(64);
+    InstrumentationConfigSnapshot full =
+        InstrumentationConfigSnapshot.update(new TestConfig(true, true, true, true));
+
+    CaptureGovernor.setLevel(CaptureGovernor.Level.TRUNCATED);
+    InstrumentationConfigSnapshot truncated = InstrumentationConfigSnapshot.get();
+    Assertions.assertTrue(truncated.httpBodyRequest);
+    Assertions.assertEquals(64, truncated.maxBodySizeBytes);
+    Assertions.assertSame(truncated, InstrumentationConfigSnapshot.get());
+
+    CaptureGovernor.setLevel(CaptureGovernor.Level.HEADERS_ONLY);
+    InstrumentationConfigSnapshot headersOnly = InstrumentationConfigSnapshot.get();
+    Assertions.assertTrue(headersOnly.httpHeadersRequest);
+    Assertions.assertTrue(headersOnly.rpcMetadataResponse);
+    Assertions.assertFalse(headersOnly.anyBodyEnabled);
+    Assertions.assertEquals(128, headersOnly.maxBodySizeBytes);
+
+    CaptureGovernor.setLevel(CaptureGovernor.Level.OFF);
+    Assertions.assertFalse(InstrumentationConfigSnapshot.get().anyEnabled);
+
+    CaptureGovernor.setLevel(CaptureGovernor.Level.FULL);
+    Assertions.assertSame(full, InstrumentationConfigSnapshot.get());
+  }
+
+  @Test
+  public void governorLevelIsAppliedToRuleMatches() {
+    InstrumentationConfigSnapshot snapshot =
+        InstrumentationConfigSnapshot.of(
+            new TestConfig(true, false, true, false) {
+              @Override
+              public List<CaptureRule> captureRules() {
+                return Collections.singletonList(
+                    CaptureRule.http(null, "/orders").httpBody(true, true).build());
+              }
+            });
+    Assertions.assertTrue(snapshot.forHttp("GET", "/orders").httpBodyRequest);
+
+    InstrumentationConfigSnapshot headersOnly =
+        snapshot.atLevel(CaptureGovernor.Level.HEADERS_ONLY);
+    InstrumentationConfigSnapshot matched = headersOnly.forHttp("GET", "/orders");
+    Assertions.assertFalse(matched.httpBodyRequest);
+    Assertions.assertTrue(matched.httpHeadersRequest);
+  }
+
+  static class TestConfig implements InstrumentationConfig {
+    private final boolean httpHeaders;
+    private final boolean httpBody;
+    private final boolean rpcMetadata;
+    private final boolean rpcBody;
+
+    TestConfig(boolean httpHeaders, boolean httpBody, boolean rpcMetadata, boolean rpcBody) {
+      this.httpHeaders = httpHeaders;
+      this.httpBody = httpBody;
+      this.rpcMetadata = rpcMetadata;
+      this.rpcBody = rpcBody;
+    }
+
+    @Override
+    public int maxBodySizeBytes() {
+      return 128;
+    }
+
+    @Override
+    public String getServiceName() {
+      return "test";
+    }
+
+    @Override
+    public Message httpHeaders() {
+      return message(httpHeaders);
+    }
+
+    @Override
+    public Message httpBody() {
+      return message(httpBody);
+    }
+
+    @Override
+    public Message rpcMetadata() {
+      return message(rpcMetadata);
+    }
+
+    @Override
+    public Message rpcBody() {
+      return message(rpcBody);
+    }
+
+    private static Message message(boolean enabled) {
+      return new Message() {
+        @Override
+        public boolean request() {
+          return enabled;
+        }
+
+        @Override
+        public boolean response() {
+          return enabled;
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.core.instrumentation;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class HypertraceCallDepthThreadLocalMapTest {
+
+  @Test
+  public void indexIsStablePerClass() {
+    int inputStream = HypertraceCallDepthThreadLocalMap.indexFor(InputStream.class);
+    int outputStream = HypertraceCallDepthThreadLocalMap.indexFor(OutputStream.class);
+    Assertions.assertNotEquals(inputStream, outputStream);
+    Assertions.assertEquals(
+        inputStream, HypertraceCallDepthThreadLocalMap.indexFor(InputStream.class));
+  }
+
+  @Test
+  public void classAndIndexKeysShareDepth() {
+    int index = HypertraceCallDepthThreadLocalMap.indexFor(Runnable.class);
+    Assertions.assertEquals(0, HypertraceCallDepthThreadLocalMap.incrementCallDepth(index));
+    Assertions.assertEquals(
+        1, HypertraceCallDepthThreadLocalMap.incrementCallDepth(Runnable.class));
+    Assertions.assertEquals(1, HypertraceCallDepthThreadLocalMap.decrementCallDepth(index));
+    HypertraceCallDepthThreadLocalMap.reset(Runnable.class);
+    Assertions.assertEquals(0, HypertraceCallDepthThreadLocalMap.incrementCallDepth(index));
+    HypertraceCallDepthThreadLocalMap.reset(index);
+  }
+
+  @Test
+  public void depthIsTrackedPerThread() throws InterruptedException {
+    int index = HypertraceCallDepthThreadLocalMap.indexFor(Thread.class);
+    HypertraceCallDepthThreadLocalMap.incrementCallDepth(index);
+
+    AtomicInteger otherThreadDepth = new AtomicInteger(-1);
+    Thread thread =
+        new Thread(
+            () ->
+                otherThreadDepth.set(HypertraceCallDepthThreadLocalMap.incrementCallDepth(index)));
+    thread.start();
+    thread.join();
+
+    Assertions.assertEquals(0, otherThreadDepth.get());
+    Assertions.assertEquals(0, HypertraceCallDepthThreadLocalMap.decrementCallDepth(index));
+  }
+
+  @Test
+  public void growsBeyondInitialCapacity() {
+    int index = 1000;
+    Assertions.assertEquals(0, HypertraceCallDepthThreadLocalMap.incrementCallDepth(index));
+    Assertions.assertEquals(0, HypertraceCallDepthThreadLocalMap.decrementCallDepth(index));
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.core.instrumentation.buffer;
+
+import io.opentelemetry.api.trace.Span;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import org.hypertrace.agent.core.filter.FilterResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ByteBufferSpanPairTest {
+
+  private static final FilterResult ALLOW = new FilterResult(false, 0, "");
+
+  @Test
+  public void contentLengthRead() {
+    ByteBufferSpanPair bufferSpanPair = bufferSpanPair(5, 3);
+    Assertions.assertTrue(bufferSpanPair.hasContentLength());
+
+    bufferSpanPair.writeToBuffer("012".getBytes(), 0, 3);
+    Assertions.assertFalse(bufferSpanPair.isContentLengthRead());
+    bufferSpanPair.writeToBuffer((byte) '3');
+    Assertions.assertFalse(bufferSpanPair.isContentLengthRead());
+    // the buffer is full, the read bytes are still counted
+    bufferSpanPair.writeToBuffer((byte) '4');
+    Assertions.assertTrue(bufferSpanPair.isContentLengthRead());
+  }
+
+  @Test
+  public void unknownContentLength() {
+    ByteBufferSpanPair bufferSpanPair = bufferSpanPair(-1, 10);
+    Assertions.assertFalse(bufferSpanPair.hasContentLength());
+
+    bufferSpanPair.writeToBuffer("0123456789".getBytes(), 0, 10);
+    Assertions.assertFalse(bufferSpanPair.isContentLengthRead());
+  }
+
+  private static ByteBufferSpanPair bufferSpanPair(long contentLength, int maxBufferSize) {
+    return new ByteBufferSpanPair(
+        Span.getInvalid(),
+        new BoundedByteArrayOutputStream(maxBufferSize, StandardCharsets.UTF_8),
+        (span, body, headers) -> ALLOW,
+        Collections.emptyMap(),
+        contentLength);
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.core.instrumentation.utils;
+
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class BodyCaptureSamplerTest {
+
+  private static final SpanContext LOW_TRACE_ID = spanContext("00000000000000000000000000000001");
+  private static final SpanContext HIGH_TRACE_ID = spanContext("00000000000000006000000000000000");
+
+  @Test
+  public void ratio() {
+    Assertions.assertFalse(new BodyCaptureSampler.Ratio(0).shouldCapture(LOW_TRACE_ID));
+    Assertions.assertTrue(new BodyCaptureSampler.Ratio(1).shouldCapture(LOW_TRACE_ID));
+  }
+
+  @Test
+  public void rateLimiting() {
+    AtomicLong clock = new AtomicLong(TimeUnit.SECONDS.toNanos(10));
+    BodyCaptureSampler sampler = new BodyCaptureSampler.RateLimiting(2, clock::get);
+    Assertions.assertTrue(sampler.shouldCapture(LOW_TRACE_ID));
+    Assertions.assertTrue(sampler.shouldCapture(LOW_TRACE_ID));
+    Assertions.assertFalse(sampler.shouldCapture(LOW_TRACE_ID));
+
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+    Assertions.assertTrue(sampler.shouldCapture(LOW_TRACE_ID));
+    Assertions.assertFalse(sampler.shouldCapture(LOW_TRACE_ID));
+
+    // idle time does not accumulate more than one second worth of permits
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(60));
+    Assertions.assertTrue(sampler.shouldCapture(LOW_TRACE_ID));
+    Assertions.assertTrue(sampler.shouldCapture(LOW_TRACE_ID));
+    Assertions.assertFalse(sampler.shouldCapture(LOW_TRACE_ID));
+
+    Assertions.assertFalse(
+        new BodyCaptureSampler.RateLimiting(0, clock::get).shouldCapture(LOW_TRACE_ID));
+  }
+
+  @Test
+  public void traceIdRatioIsConsistent() {
+    BodyCaptureSampler sampler = new BodyCaptureSampler.TraceIdRatio(0.5);
+    for (int i = 0; i < 10; i++) {
+      Assertions.assertTrue(sampler.shouldCapture(LOW_TRACE_ID));
+      Assertions.assertFalse(sampler.shouldCapture(HIGH_TRACE_ID));
+    }
+    Assertions.assertFalse(new BodyCaptureSampler.TraceIdRatio(0).shouldCapture(LOW_TRACE_ID));
+    Assertions.assertTrue(new BodyCaptureSampler.TraceIdRatio(1).shouldCapture(HIGH_TRACE_ID));
+  }
+
+  private static SpanContext spanContext(String traceId) {
+    return SpanContext.create(
+        traceId, "0000000000000001", TraceFlags.getSampled(), TraceState.getDefault());
+  }
+}
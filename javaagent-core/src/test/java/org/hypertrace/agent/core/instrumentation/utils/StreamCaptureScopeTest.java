@@ -0,0 +1,75 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.core.instrumentation.utils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hypertrace.agent.core.instrumentation.utils.StreamCaptureScope.Mode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class StreamCaptureScopeTest {
+
+  @Test
+  public void parseMode() {
+    Assertions.assertEquals(Mode.GLOBAL, StreamCaptureScope.parseMode(null));
+    Assertions.assertEquals(Mode.SCOPED, StreamCaptureScope.parseMode(" Scoped "));
+    Assertions.assertEquals(Mode.WRAPPER, StreamCaptureScope.parseMode("wrapper"));
+    Assertions.assertEquals(Mode.GLOBAL, StreamCaptureScope.parseMode("unknown"));
+  }
+
+  @Test
+  public void globalModeInstrumentsEveryStream() {
+    AtomicInteger retransformations = new AtomicInteger();
+    StreamCaptureScope.setRetransformer(classes -> retransformations.incrementAndGet());
+    try {
+      StreamCaptureScope.register(ByteArrayInputStream.class);
+      Assertions.assertEquals(0, retransformations.get());
+      Assertions.assertTrue(StreamCaptureScope.isInstrumented("java.io.FileInputStream"));
+      Assertions.assertFalse(StreamCaptureScope.wrapStreams());
+    } finally {
+      StreamCaptureScope.setRetransformer(null);
+    }
+  }
+
+  @Test
+  public void typesToRegisterStopAtJdkRoots() {
+    Assertions.assertEquals(
+        Arrays.asList(CountingInputStream.class, BaseInputStream.class),
+        StreamCaptureScope.typesToRegister(CountingInputStream.class));
+    Assertions.assertEquals(
+        Collections.singletonList(BufferedInputStream.class),
+        StreamCaptureScope.typesToRegister(BufferedInputStream.class));
+    Assertions.assertEquals(
+        Collections.singletonList(ByteArrayOutputStream.class),
+        StreamCaptureScope.typesToRegister(ByteArrayOutputStream.class));
+  }
+
+  abstract static class BaseInputStream extends InputStream {}
+
+  static class CountingInputStream extends BaseInputStream {
+    @Override
+    public int read() {
+      return -1;
+    }
+  }
+}
@@ -44,6 +44,10 @@ public class HypertraceResourceProvider implements ResourceProvider {
     if (containerId != null && !containerId.isEmpty()) {
       builder.put(ResourceAttributes.CONTAINER_ID, containerId);
     }
+    String hostName = getHostName();
+    if (hostName != null && !hostName.isEmpty()) {
+      builder.put(ResourceAttributes.HOST_NAME, hostName);
+    }
     builder.put(ResourceAttributes.SERVICE_NAME, agentConfig.getServiceName().getValue());
     builder.put(ResourceAttributes.TELEMETRY_SDK_NAME, "hypertrace");
     builder.put(ResourceAttributes.TELEMETRY_SDK_LANGUAGE, "java");
@@ -53,6 +57,15 @@ public class HypertraceResourceProvider implements ResourceProvider {
     return Resource.create(builder.build());
   }
 
+  private static String getHostName() {
+    try {
+      return System.getenv("HOSTNAME");
+    } catch (SecurityException e) {
+      log.error("could not get hostname", e);
+      return null;
+    }
+  }
+
   private String getAgentVersion() {
     String agentVersion = "";
     try {
@@ -0,0 +1,168 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.otel.extensions.cache;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.security.ProtectionDomain;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.utility.JavaModule;
+
+/**
+ * Skips the agent transformer for classes that no instrumentation applied to in an earlier run and
+ * records the classes that no instrumentation applies to in this run.
+ *
+ * <p>The transformer is wrapped in a {@link Proxy} so that both {@code transform} methods of {@link
+ * java.lang.instrument.ClassFileTransformer} reach the agent transformer unchanged, the one with
+ * the module parameter is only declared from Java 9. A {@code null} result of the agent transformer
+ * does not mean that no instrumentation applies, e.g. classes loaded while another class is
+ * transformed are not matched at all. Classes are therefore only recorded when the {@link
+ * #listener()} reports them as ignored while they are transformed.
+ */
+final class CachingTransformerDecorator implements AgentBuilder.TransformerDecorator {
+
+  private final TransformationCache cache;
+  private final ThreadLocal<Transformation> current = new ThreadLocal<>();
+  // the files do not change while the application runs, so each code source is stamped once
+  private final Map<URL, String> codeSourceStamps = new ConcurrentHashMap<>();
+  final LongAdder skipped = new LongAdder();
+
+  CachingTransformerDecorator(TransformationCache cache) {
+    this.cache = cache;
+  }
+
+  @Override
+  public ResettableClassFileTransformer decorate(ResettableClassFileTransformer transformer) {
+    return (ResettableClassFileTransformer)
+        Proxy.newProxyInstance(
+            ResettableClassFileTransformer.class.getClassLoader(),
+            new Class<?>[] {ResettableClassFileTransformer.class},
+            new Handler(transformer));
+  }
+
+  AgentBuilder.Listener listener() {
+    return new AgentBuilder.Listener.Adapter() {
+      @Override
+      public void onIgnored(
+          TypeDescription typeDescription,
+          ClassLoader classLoader,
+          JavaModule module,
+          boolean loaded) {
+        Transformation transformation = current.get();
+        if (transformation != null
+            && transformation.classLoader == classLoader
+            && transformation.className.equals(typeDescription.getName())) {
+          transformation.ignored = true;
+        }
+      }
+    };
+  }
+
+  /** Called with the arguments of either {@code transform} method, see {@link Handler}. */
+  Object transform(Object delegate, Method method, Object[] args) throws Throwable {
+    int offset = args.length - 5;
+    ClassLoader classLoader = (ClassLoader) args[offset];
+    String internalName = (String) args[offset + 1];
+    byte[] classBytes = (byte[]) args[offset + 4];
+    if (internalName == null || args[offset + 2] != null || classBytes == null) {
+      // lambdas and hidden classes have no name, redefinitions are not cached
+      return invoke(delegate, method, args);
+    }
+    long key =
+        TransformationCache.key(
+            classLoader, codeSourceStamp((ProtectionDomain) args[offset + 3]), classBytes);
+    if (cache.isUntransformed(key)) {
+      skipped.increment();
+      return null;
+    }
+
+    Transformation previous = current.get();
+    Transformation transformation = new Transformation(classLoader, internalName.replace('/', '.'));
+    current.set(transformation);
+    try {
+      Object result = invoke(delegate, method, args);
+      if (result == null && transformation.ignored) {
+        cache.recordUntransformed(key);
+      }
+      return result;
+    } finally {
+      current.set(previous);
+    }
+  }
+
+  String codeSourceStamp(ProtectionDomain protectionDomain) {
+    if (protectionDomain == null
+        || protectionDomain.getCodeSource() == null
+        || protectionDomain.getCodeSource().getLocation() == null) {
+      return null;
+    }
+    return codeSourceStamps.computeIfAbsent(
+        protectionDomain.getCodeSource().getLocation(), TransformationCache::codeSourceStamp);
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static final class Transformation {
+    final ClassLoader classLoader;
+    final String className;
+    boolean ignored;
+
+    Transformation(ClassLoader classLoader, String className) {
+      this.classLoader = classLoader;
+      this.className = className;
+    }
+  }
+
+  private final class Handler implements InvocationHandler {
+    private final ResettableClassFileTransformer delegate;
+
+    Handler(ResettableClassFileTransformer delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      if (method.getName().equals("transform")
+          && args != null
+          && args.length >= 5
+          && method.getReturnType() == byte[].class) {
+        return transform(delegate, method, args);
+      }
+      if (method.getName().equals("equals") && args != null && args.length == 1) {
+        return proxy == args[0];
+      }
+      if (method.getName().equals("hashCode") && args == null) {
+        return System.identityHashCode(proxy);
+      }
+      return CachingTransformerDecorator.invoke(delegate, method, args);
+    }
+  }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.otel.extensions.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk set of classes that no instrumentation applied to in an earlier run.
+ *
+ * <p>A class is identified by a 64-bit key computed from its bytes, the type of its class loader
+ * and its code source, see {@link #key(ClassLoader, String, byte[])}. The file starts with a header
+ * holding the fingerprint of the agent and its configuration and a checksum of the keys, followed
+ * by the sorted keys. It is memory-mapped and looked up with a binary search. A file with another
+ * fingerprint, a wrong checksum or a broken header is ignored and replaced on the next {@link
+ * #save()}.
+ */
+final class TransformationCache {
+
+  private static final int MAGIC = 0x48545443; // HTTC
+  private static final int FORMAT_VERSION = 2;
+  // magic, format version, fingerprint, key count, keys checksum
+  private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 8;
+  /** Upper bound of the file size, keys of earlier runs are dropped once it is reached. */
+  static final int MAX_KEYS = 1 << 20;
+
+  private final Path file;
+  private final long fingerprint;
+  private final LongBuffer keys;
+  private final Set<Long> added = ConcurrentHashMap.newKeySet();
+
+  private TransformationCache(Path file, long fingerprint, LongBuffer keys) {
+    this.file = file;
+    this.fingerprint = fingerprint;
+    this.keys = keys;
+  }
+
+  /** Opens the cache file, an empty cache is returned if it is missing or invalid. */
+  static TransformationCache open(Path file, long fingerprint) {
+    LongBuffer keys = LongBuffer.allocate(0);
+    if (Files.isRegularFile(file)) {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        LongBuffer valid = validate(buffer, fingerprint);
+        if (valid != null) {
+          keys = valid;
+        }
+      } catch (IOException e) {
+        // start with an empty cache, the file is replaced on save
+      }
+    }
+    return new TransformationCache(file, fingerprint, keys);
+  }
+
+  private static LongBuffer validate(ByteBuffer buffer, long fingerprint) {
+    buffer.order(ByteOrder.BIG_ENDIAN);
+    if (buffer.remaining() < HEADER_SIZE
+        || buffer.getInt(0) != MAGIC
+        || buffer.getInt(4) != FORMAT_VERSION
+        || buffer.getLong(8) != fingerprint) {
+      return null;
+    }
+    int count = buffer.getInt(16);
+    if (count < 0 || count > MAX_KEYS || buffer.remaining() != HEADER_SIZE + count * 8L) {
+      return null;
+    }
+    ByteBuffer body = ((ByteBuffer) buffer.duplicate().position(HEADER_SIZE)).slice();
+    CRC32 crc = new CRC32();
+    crc.update(body.duplicate());
+    if (crc.getValue() != buffer.getLong(20)) {
+      return null;
+    }
+    return body.asLongBuffer();
+  }
+
+  /** Whether an earlier run recorded that no instrumentation applies to the class. */
+  boolean isUntransformed(long key) {
+    int low = 0;
+    int high = keys.limit() - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      long value = keys.get(middle);
+      if (value < key) {
+        low = middle + 1;
+      } else if (value > key) {
+        high = middle - 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  void recordUntransformed(long key) {
+    added.add(key);
+  }
+
+  int recordedCount() {
+    return added.size();
+  }
+
+  /**
+   * Writes the keys of earlier runs and the keys recorded since the cache was opened to a new file
+   * that replaces the cache file.
+   */
+  synchronized void save() throws IOException {
+    if (added.isEmpty()) {
+      return;
+    }
+    long[] recorded = new long[added.size()];
+    int size = 0;
+    for (Long key : added) {
+      if (size == recorded.length) {
+        break;
+      }
+      recorded[size++] = key;
+    }
+    long[] merged;
+    if (keys.limit() + size <= MAX_KEYS) {
+      merged = new long[keys.limit() + size];
+      keys.duplicate().get(merged, 0, keys.limit());
+      System.arraycopy(recorded, 0, merged, keys.limit(), size);
+    } else {
+      merged = Arrays.copyOf(recorded, Math.min(size, MAX_KEYS));
+    }
+    Arrays.sort(merged);
+    int count = 0;
+    for (int i = 0; i < merged.length; i++) {
+      if (i == 0 || merged[i] != merged[i - 1]) {
+        merged[count++] = merged[i];
+      }
+    }
+
+    ByteBuffer body = ByteBuffer.allocate(count * 8);
+    body.asLongBuffer().put(merged, 0, count);
+    CRC32 crc = new CRC32();
+    crc.update(body.duplicate());
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(fingerprint).putInt(count);
+    header.putLong(crc.getValue()).flip();
+
+    Files.createDirectories(file.toAbsolutePath().getParent());
+    Path temp =
+        Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName() + ".", ".tmp");
+    try {
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+        while (header.hasRemaining()) {
+          channel.write(header);
+        }
+        while (body.hasRemaining()) {
+          channel.write(body);
+        }
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Returns the key of a class. The CRC32 and Adler32 checksums of the class bytes form the key,
+   * the type of the class loader and the stamp of the code source, see {@link
+   * #codeSourceStamp(URL)}, are part of the CRC32 because whether an instrumentation applies can
+   * depend on the classes the class loader sees.
+   */
+  static long key(ClassLoader classLoader, String codeSourceStamp, byte[] classBytes) {
+    CRC32 crc = new CRC32();
+    String loaderType = classLoader == null ? "bootstrap" : classLoader.getClass().getName();
+    update(crc, loaderType);
+    update(crc, codeSourceStamp == null ? "" : codeSourceStamp);
+    crc.update(classBytes, 0, classBytes.length);
+    Adler32 adler = new Adler32();
+    adler.update(classBytes, 0, classBytes.length);
+    return crc.getValue() << 32 | adler.getValue();
+  }
+
+  private static void update(CRC32 crc, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      crc.update(value.charAt(i));
+    }
+    crc.update(0);
+  }
+
+  /**
+   * Returns the code source location together with the size and modification time of the file it is
+   * in and of the jars next to it. A jar added to a {@code WEB-INF/lib} directory or repackaged
+   * into a Spring Boot jar changes the stamp of the classes loaded from there, as it may make an
+   * instrumentation apply to them.
+   */
+  static String codeSourceStamp(URL location) {
+    String path = location.toString();
+    if (path.startsWith("jar:")) {
+      // nested jars, e.g. jar:file:/app.jar!/BOOT-INF/lib/library.jar!/
+      int separator = path.indexOf("!/");
+      path = path.substring(4, separator < 0 ? path.length() : separator);
+    }
+    if (!path.startsWith("file:")) {
+      return location.toString();
+    }
+    File file;
+    try {
+      file = new File(new URL(path).toURI());
+    } catch (MalformedURLException | URISyntaxException | IllegalArgumentException e) {
+      return location.toString();
+    }
+    StringBuilder stamp = new StringBuilder(location.toString());
+    appendStamp(stamp, file);
+    File[] siblings =
+        file.getParentFile() == null
+            ? null
+            : file.getParentFile().listFiles((dir, name) -> name.endsWith(".jar"));
+    if (siblings != null) {
+      Arrays.sort(siblings);
+      for (File sibling : siblings) {
+        appendStamp(stamp, sibling);
+      }
+    }
+    return stamp.toString();
+  }
+
+  /** Appends the name, size and modification time of the file. */
+  static void appendStamp(StringBuilder stamp, File file) {
+    stamp
+        .append('|')
+        .append(file.getName())
+        .append(':')
+        .append(file.length())
+        .append(':')
+        .append(file.lastModified());
+  }
+}
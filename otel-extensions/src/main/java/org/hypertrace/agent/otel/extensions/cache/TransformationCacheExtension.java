@@ -0,0 +1,285 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.otel.extensions.cache;
+
+import com.google.auto.service.AutoService;
+import io.opentelemetry.javaagent.tooling.AgentExtension;
+import io.opentelemetry.sdk.autoconfigure.spi.ConfigProperties;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import org.hypertrace.agent.otel.extensions.HypertracePropertySource;
+import org.hypertrace.agent.otel.extensions.config.EnvironmentConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Installs the opt-in transformation cache, see {@link TransformationCache}. It is enabled by
+ * setting {@link EnvironmentConfig#TRANSFORMATION_CACHE_DIR}.
+ *
+ * <p>The cache is only valid for the agent jar and the configuration it was written with. Both are
+ * part of its fingerprint: the agent jar path, size, modification time and version, the {@code
+ * otel.*} and {@code ht.*} system properties and environment variables, the resolved {@code
+ * otel.instrumentation.*} and {@code otel.javaagent.*} properties, the contents of the otel and
+ * Hypertrace config files and of the extension jars, the class path with the size and modification
+ * time of its entries and the Java version. Only the decision that no instrumentation applies to a
+ * class is cached, transformed classes are transformed again because transformation also injects
+ * helper classes into the class loader.
+ */
+@AutoService(AgentExtension.class)
+public class TransformationCacheExtension implements AgentExtension {
+
+  private static final Logger log = LoggerFactory.getLogger(TransformationCacheExtension.class);
+
+  private static final String CACHE_FILE = "transformation-cache.bin";
+  private static final long SAVE_INTERVAL_SECONDS = 60;
+  private static final String OTEL_CONFIGURATION_FILE = "otel.javaagent.configuration-file";
+  private static final String OTEL_EXTENSIONS = "otel.javaagent.extensions";
+  private static final String AGENT_CLASS_RESOURCE =
+      "org/hypertrace/agent/instrument/HypertraceAgent.class";
+
+  @Override
+  public AgentBuilder extend(AgentBuilder agentBuilder, ConfigProperties config) {
+    String directory = EnvironmentConfig.getProperty(EnvironmentConfig.TRANSFORMATION_CACHE_DIR);
+    if (directory == null || directory.isEmpty()) {
+      return agentBuilder;
+    }
+    try {
+      Path file = Paths.get(directory, CACHE_FILE);
+      TransformationCache cache = TransformationCache.open(file, fingerprint(config));
+      CachingTransformerDecorator decorator = new CachingTransformerDecorator(cache);
+      scheduleSave(cache, decorator);
+      log.info("Transformation cache enabled in {}", file.toAbsolutePath());
+      return agentBuilder.with(decorator).with(decorator.listener());
+    } catch (RuntimeException e) {
+      log.error("Could not enable the transformation cache", e);
+      return agentBuilder;
+    }
+  }
+
+  private static void scheduleSave(
+      TransformationCache cache, CachingTransformerDecorator decorator) {
+    Runnable save =
+        () -> {
+          try {
+            int recorded = cache.recordedCount();
+            cache.save();
+            log.debug(
+                "Transformation cache saved, {} classes skipped, {} classes recorded",
+                decorator.skipped.sum(),
+                recorded);
+          } catch (IOException | RuntimeException e) {
+            log.warn("Could not save the transformation cache", e);
+          }
+        };
+    ScheduledExecutorService executor =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "hypertrace-transformation-cache");
+              thread.setDaemon(true);
+              return thread;
+            });
+    executor.scheduleWithFixedDelay(
+        save, SAVE_INTERVAL_SECONDS, SAVE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    Runtime.getRuntime().addShutdownHook(new Thread(save, "hypertrace-transformation-cache-save"));
+  }
+
+  static long fingerprint(ConfigProperties config) {
+    MessageDigest digest = sha256();
+    update(digest, agentJar());
+    Map<String, String> settings = new TreeMap<>();
+    for (String name : System.getProperties().stringPropertyNames()) {
+      if (name.startsWith("otel.") || name.startsWith("ht.")) {
+        settings.put(name, System.getProperty(name));
+      }
+    }
+    for (Map.Entry<String, String> variable : System.getenv().entrySet()) {
+      if (variable.getKey().startsWith("OTEL_") || variable.getKey().startsWith("HT_")) {
+        settings.put(variable.getKey(), variable.getValue());
+      }
+    }
+    String classPath = System.getProperty("java.class.path");
+    settings.put("java.class.path", classPath);
+    if (classPath != null) {
+      // a fat jar or class path directory that gains a library keeps its path
+      for (String entry : classPath.split(File.pathSeparator)) {
+        StringBuilder stamp = new StringBuilder();
+        TransformationCache.appendStamp(stamp, new File(entry));
+        settings.put("classpath:" + entry, stamp.toString());
+      }
+    }
+    settings.put("java.version", System.getProperty("java.version"));
+
+    String otelConfigFile = config.getString(OTEL_CONFIGURATION_FILE);
+    for (String name : instrumentationPropertyNames(otelConfigFile)) {
+      settings.put("resolved:" + name, config.getString(name));
+    }
+    settings.put("file:" + otelConfigFile, fileDigest(otelConfigFile));
+    String htConfigFile = EnvironmentConfig.getProperty(EnvironmentConfig.CONFIG_FILE_PROPERTY);
+    settings.put("file:" + htConfigFile, fileDigest(htConfigFile));
+    for (String extension : config.getList(OTEL_EXTENSIONS)) {
+      for (File jar : extensionJars(extension)) {
+        settings.put("extension:" + jar.getAbsolutePath(), fileDigest(jar.getPath()));
+      }
+    }
+
+    for (Map.Entry<String, String> setting : settings.entrySet()) {
+      update(digest, setting.getKey());
+      update(digest, setting.getValue());
+    }
+    return ByteBuffer.wrap(digest.digest()).getLong();
+  }
+
+  /**
+   * Returns the names of the {@code otel.instrumentation.*} and {@code otel.javaagent.*} properties
+   * that are set by the system properties, environment variables, the otel config file or the agent
+   * defaults. Their resolved values decide which instrumentation is installed.
+   */
+  private static Set<String> instrumentationPropertyNames(String otelConfigFile) {
+    Set<String> names = new TreeSet<>();
+    names.addAll(System.getProperties().stringPropertyNames());
+    for (String variable : System.getenv().keySet()) {
+      names.add(variable.toLowerCase(Locale.ROOT).replace('_', '.'));
+    }
+    if (otelConfigFile != null) {
+      Properties properties = new Properties();
+      try (InputStream inputStream = new FileInputStream(otelConfigFile)) {
+        properties.load(inputStream);
+        names.addAll(properties.stringPropertyNames());
+      } catch (IOException e) {
+        log.debug("Could not read the otel config file {}", otelConfigFile, e);
+      }
+    }
+    names.addAll(new HypertracePropertySource().getProperties().keySet());
+    names.removeIf(
+        name -> !name.startsWith("otel.instrumentation.") && !name.startsWith("otel.javaagent."));
+    return names;
+  }
+
+  /** Returns the given extension jar, or the jars in the given extension directory. */
+  private static List<File> extensionJars(String extension) {
+    File file = new File(extension);
+    if (!file.isDirectory()) {
+      return Collections.singletonList(file);
+    }
+    File[] jars = file.listFiles((dir, name) -> name.endsWith(".jar"));
+    if (jars == null) {
+      return Collections.emptyList();
+    }
+    Arrays.sort(jars);
+    return Arrays.asList(jars);
+  }
+
+  /** Returns the digest of the contents of the given file, null if it cannot be read. */
+  private static String fileDigest(String path) {
+    if (path == null) {
+      return null;
+    }
+    MessageDigest digest = sha256();
+    byte[] buffer = new byte[8192];
+    try (InputStream inputStream = new FileInputStream(path)) {
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    } catch (IOException e) {
+      return null;
+    }
+    StringBuilder hex = new StringBuilder();
+    for (byte b : digest.digest()) {
+      hex.append(String.format("%02x", b));
+    }
+    return hex.toString();
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Identifies the agent jar by path, size, modification time and version. */
+  private static String agentJar() {
+    URL resource = ClassLoader.getSystemResource(AGENT_CLASS_RESOURCE);
+    if (resource == null) {
+      return "unknown";
+    }
+    try {
+      URLConnection connection = resource.openConnection();
+      if (connection instanceof JarURLConnection) {
+        JarURLConnection jarConnection = (JarURLConnection) connection;
+        jarConnection.setUseCaches(false);
+        File jar = new File(jarConnection.getJarFileURL().toURI());
+        return jar.getAbsolutePath()
+            + ":"
+            + jar.length()
+            + ":"
+            + jar.lastModified()
+            + ":"
+            + agentVersion();
+      }
+    } catch (Exception e) {
+      log.debug("Could not locate the agent jar", e);
+    }
+    return resource.toString();
+  }
+
+  private static String agentVersion() {
+    try {
+      return Class.forName("org.hypertrace.agent.instrument.HypertraceAgent", false, null)
+          .getPackage()
+          .getImplementationVersion();
+    } catch (ClassNotFoundException e) {
+      return null;
+    }
+  }
+
+  private static void update(MessageDigest digest, String value) {
+    digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  @Override
+  public String extensionName() {
+    return "hypertrace-transformation-cache";
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.otel.extensions.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.hypertrace.agent.core.config.CaptureRule;
+
+/**
+ * Reads the {@code dataCapture.rules} section of the config file. The section is not part of the
+ * agent config proto, so it is parsed separately from the rest of the file.
+ *
+ * <pre>
+ * dataCapture:
+ *   rules:
+ *     - method: GET
+ *       path: /health
+ *       http_body:
+ *         request: false
+ *         response: false
+ *     - rpc_method: grpc.health.v1.Health/*
+ *       rpc_body:
+ *         request: false
+ *         response: false
+ * </pre>
+ */
+final class CaptureRuleParser {
+
+  private CaptureRuleParser() {}
+
+  /**
+   * @return the rules in the order of the file, empty if the file has none
+   * @throws IllegalArgumentException if a rule is invalid
+   */
+  static List<CaptureRule> parse(String filename) throws IOException {
+    // YAML is a superset of JSON, one parser reads both formats
+    JsonNode root = new ObjectMapper(new YAMLFactory()).readTree(new File(filename));
+    JsonNode rules = root == null ? null : field(root.path("dataCapture"), "rules");
+    if (rules == null) {
+      rules = root == null ? null : field(root.path("data_capture"), "rules");
+    }
+    if (rules == null || !rules.isArray()) {
+      return Collections.emptyList();
+    }
+
+    List<CaptureRule> captureRules = new ArrayList<>();
+    for (JsonNode rule : rules) {
+      captureRules.add(parseRule(rule));
+    }
+    return Collections.unmodifiableList(captureRules);
+  }
+
+  private static CaptureRule parseRule(JsonNode rule) {
+    String path = text(field(rule, "path"));
+    String rpcMethod = text(field(rule, "rpc_method", "rpcMethod"));
+    if ((path == null) == (rpcMethod == null)) {
+      throw new IllegalArgumentException(
+          "capture rule requires either a path or an rpc_method: " + rule);
+    }
+    CaptureRule.Builder builder =
+        path != null
+            ? CaptureRule.http(text(field(rule, "method")), path)
+            : CaptureRule.rpc(rpcMethod);
+    JsonNode message = field(rule, "http_headers", "httpHeaders");
+    builder.httpHeaders(flag(message, "request"), flag(message, "response"));
+    message = field(rule, "http_body", "httpBody");
+    builder.httpBody(flag(message, "request"), flag(message, "response"));
+    message = field(rule, "rpc_metadata", "rpcMetadata");
+    builder.rpcMetadata(flag(message, "request"), flag(message, "response"));
+    message = field(rule, "rpc_body", "rpcBody");
+    builder.rpcBody(flag(message, "request"), flag(message, "response"));
+    return builder.build();
+  }
+
+  private static JsonNode field(JsonNode node, String... names) {
+    for (String name : names) {
+      JsonNode value = node.get(name);
+      if (value != null && !value.isNull()) {
+        return value;
+      }
+    }
+    return null;
+  }
+
+  private static String text(JsonNode node) {
+    return node == null ? null : node.asText();
+  }
+
+  private static Boolean flag(JsonNode message, String name) {
+    JsonNode value = message == null ? null : field(message, name);
+    if (value == null) {
+      return null;
+    }
+    if (!value.isBoolean()) {
+      throw new IllegalArgumentException(name + " of a capture rule must be a boolean: " + value);
+    }
+    return value.booleanValue();
+  }
+}
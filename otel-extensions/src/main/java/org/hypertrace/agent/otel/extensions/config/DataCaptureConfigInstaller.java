@@ -21,13 +21,18 @@ import io.opentelemetry.javaagent.tooling.BeforeAgentListener;
 import io.opentelemetry.sdk.autoconfigure.AutoConfiguredOpenTelemetrySdk;
 import org.hypertrace.agent.core.config.DataCaptureConfig.ConfigProvider;
 
-/** An AgentListener implementation that initializes the DataCaptureConfig.ConfigProvider. */
+/**
+ * An AgentListener implementation that initializes the DataCaptureConfig.ConfigProvider and starts
+ * watching the config file for changes and the overhead governor if enabled.
+ */
 @AutoService(BeforeAgentListener.class)
 public class DataCaptureConfigInstaller implements BeforeAgentListener {
 
   @Override
   public void beforeAgent(AutoConfiguredOpenTelemetrySdk autoConfiguredOpenTelemetrySdk) {
     ConfigProvider.get(getClass().getClassLoader());
+    DataCaptureConfigWatcher.startIfEnabled();
+    OverheadGovernor.startIfEnabled(autoConfiguredOpenTelemetrySdk.getOpenTelemetrySdk());
   }
 
   @Override
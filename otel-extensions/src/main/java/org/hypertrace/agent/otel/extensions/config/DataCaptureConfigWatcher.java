@@ -0,0 +1,183 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.otel.extensions.config;
+
+import com.google.protobuf.StringValue;
+import com.google.protobuf.util.JsonFormat;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.hypertrace.agent.config.v1.Config.AgentConfig;
+import org.hypertrace.agent.config.v1.Config.DataCapture;
+import org.hypertrace.agent.core.config.CaptureRule;
+import org.hypertrace.agent.core.config.DataCaptureConfig;
+import org.hypertrace.agent.core.config.InstrumentationConfig;
+import org.hypertrace.agent.core.instrumentation.utils.ContentTypeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches the config file and applies changes of its data capture section and rules without a
+ * restart.
+ *
+ * <p>The parent directory is watched instead of the file so that files replaced by a rename or a
+ * symlink swap, as done for mounted Kubernetes config maps, are picked up as well. Any event in the
+ * directory triggers a reload, which is a no-op if the data capture section did not change.
+ */
+final class DataCaptureConfigWatcher implements Runnable {
+
+  private static final Logger log = LoggerFactory.getLogger(DataCaptureConfigWatcher.class);
+
+  // editors and config map updates produce several events per change
+  private static final long SETTLE_MILLIS = 200;
+
+  private final String filename;
+  private final WatchService watchService;
+
+  private DataCaptureConfigWatcher(String filename, WatchService watchService) {
+    this.filename = filename;
+    this.watchService = watchService;
+  }
+
+  /** Starts watching the config file if reloading is enabled and a config file is used. */
+  static void startIfEnabled() {
+    String filename = EnvironmentConfig.getProperty(EnvironmentConfig.CONFIG_FILE_PROPERTY);
+    if (filename == null
+        || !Boolean.parseBoolean(
+            EnvironmentConfig.getProperty(EnvironmentConfig.CONFIG_RELOAD_ENABLED))) {
+      return;
+    }
+    Path directory = Paths.get(filename).toAbsolutePath().getParent();
+    try {
+      WatchService watchService = FileSystems.getDefault().newWatchService();
+      directory.register(
+          watchService,
+          StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_MODIFY,
+          StandardWatchEventKinds.ENTRY_DELETE);
+      Thread thread =
+          new Thread(
+              new DataCaptureConfigWatcher(filename, watchService), "hypertrace-config-watcher");
+      thread.setDaemon(true);
+      thread.start();
+      log.info("Watching config file {} for data capture changes", filename);
+    } catch (IOException | RuntimeException e) {
+      log.error("Could not watch config file {}, changes require a restart", filename, e);
+    }
+  }
+
+  @Override
+  public void run() {
+    try {
+      while (true) {
+        WatchKey key = watchService.take();
+        do {
+          key.pollEvents();
+          if (!key.reset()) {
+            log.warn("Config directory of {} is no longer accessible, stop watching", filename);
+            return;
+          }
+        } while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null);
+        reload(filename);
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Loads the config file and applies its data capture section if it is valid and changed.
+   *
+   * @return true if a new data capture config was applied
+   */
+  static boolean reload(String filename) {
+    File configFile = new File(filename);
+    if (!configFile.isFile() || !configFile.canRead()) {
+      // the file is briefly missing while it is being replaced
+      log.debug("Config file {} is not readable, keeping the current config", filename);
+      return false;
+    }
+
+    DataCapture dataCapture;
+    List<CaptureRule> rules;
+    try {
+      dataCapture = HypertraceConfig.load(filename).getDataCapture();
+    } catch (IOException | RuntimeException e) {
+      log.warn("Could not reload config file {}, keeping the current config", filename, e);
+      return false;
+    }
+    try {
+      rules = CaptureRuleParser.parse(filename);
+    } catch (IOException | RuntimeException e) {
+      log.warn(
+          "Invalid data capture rules in {}, keeping the current config: {}",
+          filename,
+          e.getMessage());
+      return false;
+    }
+    List<String> errors = validate(dataCapture);
+    if (!errors.isEmpty()) {
+      log.warn(
+          "Invalid data capture config in {}, keeping the current config: {}", filename, errors);
+      return false;
+    }
+    if (dataCapture.equals(HypertraceConfig.get().getDataCapture())
+        && rules.equals(HypertraceConfig.getCaptureRules())) {
+      return false;
+    }
+
+    AgentConfig agentConfig = HypertraceConfig.updateDataCapture(dataCapture, rules);
+    InstrumentationConfig.ConfigProvider.update(new InstrumentationConfigImpl());
+    DataCaptureConfig.ConfigProvider.update(new DataCaptureConfigImpl());
+    ContentTypeUtils.reload();
+    try {
+      log.info(
+          "Data capture config reloaded from {}: {}, rules: {}",
+          filename,
+          JsonFormat.printer()
+              .omittingInsignificantWhitespace()
+              .print(agentConfig.getDataCapture()),
+          rules);
+    } catch (IOException e) {
+      log.info("Data capture config reloaded from {}, rules: {}", filename, rules);
+    }
+    return true;
+  }
+
+  static List<String> validate(DataCapture dataCapture) {
+    List<String> errors = new ArrayList<>();
+    if (dataCapture.getBodyMaxSizeBytes().getValue() <= 0) {
+      errors.add("body_max_size_bytes must be positive");
+    }
+    for (StringValue contentType : dataCapture.getAllowedContentTypesList()) {
+      if (contentType.getValue().trim().isEmpty()) {
+        errors.add("allowed_content_types must not contain empty values");
+        break;
+      }
+    }
+    return errors;
+  }
+}
@@ -35,6 +35,9 @@ public class EnvironmentConfig {
   private static final String HT_PREFIX = "ht.";
 
   public static final String CONFIG_FILE_PROPERTY = HT_PREFIX + "config.file";
+  /** Reload the data capture section when the config file changes. */
+  public static final String CONFIG_RELOAD_ENABLED = HT_PREFIX + "config.reload.enabled";
+
   static final String SERVICE_NAME = HT_PREFIX + "service.name";
   static final String ENABLED = HT_PREFIX + "enabled";
   static final String RESOURCE_ATTRIBUTES = HT_PREFIX + ".resource.attributes";
@@ -48,6 +51,16 @@ public class EnvironmentConfig {
   static final String REPORTING_METRIC_TYPE = REPORTING_PREFIX + "metric.reporter.type";
   static final String REPORTING_SECURE = REPORTING_PREFIX + "secure";
   static final String REPORTING_CERT_FILE = REPORTING_PREFIX + "cert.file";
+  /** Copy container.id and host.name from the resource onto every span. */
+  public static final String REPORTING_SPAN_RESOURCE_TAGS = REPORTING_PREFIX + "span.resource.tags";
+  /**
+   * Delay the export of client spans whose response body is still being read by up to this many
+   * milliseconds, so the body is added to the span instead of an additional span. 0 disables it.
+   */
+  public static final String REPORTING_SPAN_HOLD_MILLIS = REPORTING_PREFIX + "span.hold.millis";
+  /** Maximum number of spans whose export is delayed at a time. */
+  public static final String REPORTING_SPAN_HOLD_MAX_SPANS =
+      REPORTING_PREFIX + "span.hold.max.spans";
 
   private static final String CAPTURE_PREFIX = HT_PREFIX + "data.capture.";
   public static final String CAPTURE_BODY_MAX_SIZE_BYTES = CAPTURE_PREFIX + "body.max.size.bytes";
@@ -56,6 +69,27 @@ public class EnvironmentConfig {
   public static final String CAPTURE_RPC_METADATA_PREFIX = CAPTURE_PREFIX + "rpc.metadata.";
   public static final String CAPTURE_RPC_BODY_PREFIX = CAPTURE_PREFIX + "rpc.body.";
 
+  private static final String GOVERNOR_PREFIX = HT_PREFIX + "overhead.governor.";
+  /** Step data capture down under CPU or GC pressure, see OverheadGovernor. */
+  public static final String GOVERNOR_ENABLED = GOVERNOR_PREFIX + "enabled";
+
+  static final String GOVERNOR_INTERVAL_MILLIS = GOVERNOR_PREFIX + "interval.millis";
+  static final String GOVERNOR_CPU_HIGH = GOVERNOR_PREFIX + "cpu.high";
+  static final String GOVERNOR_CPU_LOW = GOVERNOR_PREFIX + "cpu.low";
+  static final String GOVERNOR_GC_HIGH = GOVERNOR_PREFIX + "gc.high";
+  static final String GOVERNOR_GC_LOW = GOVERNOR_PREFIX + "gc.low";
+  static final String GOVERNOR_AGENT_HIGH = GOVERNOR_PREFIX + "agent.high";
+  static final String GOVERNOR_AGENT_LOW = GOVERNOR_PREFIX + "agent.low";
+  static final String GOVERNOR_RECOVERY_INTERVALS = GOVERNOR_PREFIX + "recovery.intervals";
+  static final String GOVERNOR_TRUNCATED_BODY_SIZE_BYTES =
+      GOVERNOR_PREFIX + "truncated.body.size.bytes";
+
+  /**
+   * Directory of the on-disk cache of classes that no instrumentation applies to, see
+   * TransformationCacheExtension. The cache is disabled when not set.
+   */
+  public static final String TRANSFORMATION_CACHE_DIR = HT_PREFIX + "transformation.cache.dir";
+
   private static final String JAVAAGENT_PREFIX = HT_PREFIX + "javaagent.";
   public static final String JAVAAGENT_FILTER_JAR_PATHS = JAVAAGENT_PREFIX + "filter.jar.paths";
 
@@ -32,6 +32,7 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -43,6 +44,7 @@ import org.hypertrace.agent.config.v1.Config.MetricReporterType;
 import org.hypertrace.agent.config.v1.Config.PropagationFormat;
 import org.hypertrace.agent.config.v1.Config.Reporting;
 import org.hypertrace.agent.config.v1.Config.TraceReporterType;
+import org.hypertrace.agent.core.config.CaptureRule;
 import org.hypertrace.agent.core.instrumentation.utils.ContentTypeUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -75,6 +77,7 @@ public class HypertraceConfig {
 
   // volatile field in order to properly handle lazy initialization with double-checked locking
   private static volatile AgentConfig agentConfig;
+  private static volatile List<CaptureRule> captureRules;
 
   static final String DEFAULT_SERVICE_NAME = "unknown";
   // Default reporting endpoint for traces and metrics
@@ -100,11 +103,55 @@ public class HypertraceConfig {
     return agentConfig;
   }
 
+  /** Returns the per endpoint data capture rules from the config file. */
+  public static List<CaptureRule> getCaptureRules() {
+    if (captureRules == null) {
+      synchronized (HypertraceConfig.class) {
+        if (captureRules == null) {
+          captureRules = loadCaptureRules();
+        }
+      }
+    }
+    return captureRules;
+  }
+
   /** Reset the config, use only in tests. */
   @VisibleForTesting
   public static void reset() {
     synchronized (HypertraceConfig.class) {
       agentConfig = null;
+      captureRules = null;
+    }
+  }
+
+  /**
+   * Replaces the data capture section and rules of the loaded config, the rest of the config is
+   * kept.
+   *
+   * @return the updated config
+   */
+  static AgentConfig updateDataCapture(DataCapture dataCapture, List<CaptureRule> rules) {
+    synchronized (HypertraceConfig.class) {
+      agentConfig = get().toBuilder().setDataCapture(dataCapture).build();
+      captureRules = rules;
+      return agentConfig;
+    }
+  }
+
+  private static List<CaptureRule> loadCaptureRules() {
+    String configFile = EnvironmentConfig.getProperty(EnvironmentConfig.CONFIG_FILE_PROPERTY);
+    if (configFile == null || !new File(configFile).isFile()) {
+      return Collections.emptyList();
+    }
+    try {
+      List<CaptureRule> rules = CaptureRuleParser.parse(configFile);
+      if (!rules.isEmpty()) {
+        log.info("Data capture rules loaded: {}", rules);
+      }
+      return rules;
+    } catch (IOException | RuntimeException e) {
+      log.error("Could not load data capture rules from {}, the rules are ignored", configFile, e);
+      return Collections.emptyList();
     }
   }
 
@@ -17,10 +17,12 @@
 package org.hypertrace.agent.otel.extensions.config;
 
 import com.google.auto.service.AutoService;
+import java.util.List;
 import org.hypertrace.agent.config.v1.Config;
 import org.hypertrace.agent.config.v1.Config.AgentConfig;
 import org.hypertrace.agent.config.v1.Config.DataCapture;
 import org.hypertrace.agent.config.v1.Config.Message;
+import org.hypertrace.agent.core.config.CaptureRule;
 import org.hypertrace.agent.core.config.InstrumentationConfig;
 
 @AutoService(InstrumentationConfig.class)
@@ -32,6 +34,7 @@ public class InstrumentationConfigImpl implements InstrumentationConfig {
   private final Message httpBody;
   private final Message rpcMetadata;
   private final Message rpcBody;
+  private final List<CaptureRule> captureRules = HypertraceConfig.getCaptureRules();
 
   public InstrumentationConfigImpl() {
     DataCapture dataCapture = agentConfig.getDataCapture();
@@ -71,22 +74,29 @@ public class InstrumentationConfigImpl implements InstrumentationConfig {
     return this.rpcBody;
   }
 
+  @Override
+  public List<CaptureRule> captureRules() {
+    return this.captureRules;
+  }
+
   private static final class MessageImpl implements Message {
 
-    private final Config.Message message;
+    private final boolean request;
+    private final boolean response;
 
     public MessageImpl(Config.Message message) {
-      this.message = message;
+      this.request = message.getRequest().getValue();
+      this.response = message.getResponse().getValue();
     }
 
     @Override
     public boolean request() {
-      return message.getRequest().getValue();
+      return request;
     }
 
     @Override
     public boolean response() {
-      return message.getResponse().getValue();
+      return response;
     }
   }
 }
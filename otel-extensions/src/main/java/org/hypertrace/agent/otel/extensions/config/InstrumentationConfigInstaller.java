@@ -19,14 +19,19 @@ package org.hypertrace.agent.otel.extensions.config;
 import com.google.auto.service.AutoService;
 import io.opentelemetry.javaagent.tooling.BeforeAgentListener;
 import io.opentelemetry.sdk.autoconfigure.AutoConfiguredOpenTelemetrySdk;
+import org.hypertrace.agent.core.config.InstrumentationConfig;
 import org.hypertrace.agent.core.config.InstrumentationConfig.ConfigProvider;
+import org.hypertrace.agent.core.config.InstrumentationConfigSnapshot;
 
 @AutoService(BeforeAgentListener.class)
 public class InstrumentationConfigInstaller implements BeforeAgentListener {
 
   @Override
   public void beforeAgent(AutoConfiguredOpenTelemetrySdk autoConfiguredOpenTelemetrySdk) {
-    ConfigProvider.get(getClass().getClassLoader());
+    InstrumentationConfig config = ConfigProvider.get(getClass().getClassLoader());
+    if (config != null) {
+      InstrumentationConfigSnapshot.update(config);
+    }
   }
 
   @Override
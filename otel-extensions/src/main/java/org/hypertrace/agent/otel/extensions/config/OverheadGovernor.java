@@ -0,0 +1,245 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.otel.extensions.config;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleCounter;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.hypertrace.agent.core.config.CaptureGovernor;
+import org.hypertrace.agent.core.config.CaptureGovernor.Level;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Steps data capture down when the process is under CPU or GC pressure or the agent itself uses too
+ * much CPU, and back up once the pressure is gone.
+ *
+ * <p>Every interval the process CPU load, the share of time spent in GC and the share of CPU time
+ * spent capturing and converting bodies are measured. If any of them exceeds its high threshold the
+ * {@link CaptureGovernor} level is lowered by one step (full, truncated, headers only, off). The
+ * level is raised by one step only after all of them stayed below their low thresholds for {@link
+ * EnvironmentConfig#GOVERNOR_RECOVERY_INTERVALS} consecutive intervals.
+ */
+final class OverheadGovernor implements Runnable {
+
+  private static final Logger log = LoggerFactory.getLogger(OverheadGovernor.class);
+
+  private static final String INSTRUMENTATION_SCOPE = "org.hypertrace.agent.overhead";
+  private static final AttributeKey<String> FROM_LEVEL = AttributeKey.stringKey("from");
+  private static final AttributeKey<String> TO_LEVEL = AttributeKey.stringKey("to");
+
+  static final class Thresholds {
+    final double cpuHigh;
+    final double cpuLow;
+    final double gcHigh;
+    final double gcLow;
+    final double agentHigh;
+    final double agentLow;
+    final int recoveryIntervals;
+
+    Thresholds(
+        double cpuHigh,
+        double cpuLow,
+        double gcHigh,
+        double gcLow,
+        double agentHigh,
+        double agentLow,
+        int recoveryIntervals) {
+      this.cpuHigh = cpuHigh;
+      this.cpuLow = cpuLow;
+      this.gcHigh = gcHigh;
+      this.gcLow = gcLow;
+      this.agentHigh = agentHigh;
+      this.agentLow = agentLow;
+      this.recoveryIntervals = recoveryIntervals;
+    }
+  }
+
+  private final Thresholds thresholds;
+  private final long intervalNanos;
+  private final OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+  private final int processors = Runtime.getRuntime().availableProcessors();
+
+  private final LongCounter transitions;
+  private final LongCounter capturedBytes;
+  private final DoubleCounter captureTime;
+
+  private long lastRunNanos;
+  private long lastGcMillis;
+  private int calmIntervals;
+
+  OverheadGovernor(Thresholds thresholds, long intervalMillis, Meter meter) {
+    this.thresholds = thresholds;
+    this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    this.transitions =
+        meter
+            .counterBuilder("hypertrace.agent.capture.level.transitions")
+            .setDescription("Data capture level changes made by the overhead governor")
+            .build();
+    this.capturedBytes =
+        meter
+            .counterBuilder("hypertrace.agent.capture.bytes")
+            .setDescription("Bytes of captured bodies added to spans")
+            .setUnit("By")
+            .build();
+    this.captureTime =
+        meter
+            .counterBuilder("hypertrace.agent.capture.time")
+            .ofDoubles()
+            .setDescription("Time spent capturing and converting bodies")
+            .setUnit("s")
+            .build();
+    meter
+        .gaugeBuilder("hypertrace.agent.capture.level")
+        .ofLongs()
+        .setDescription("Current data capture level, 0 is full capture and 3 is off")
+        .buildWithCallback(measurement -> measurement.record(CaptureGovernor.level().ordinal()));
+    this.lastRunNanos = System.nanoTime();
+    this.lastGcMillis = gcMillis();
+  }
+
+  /** Starts the governor if enabled, its metrics are reported with the given OpenTelemetry. */
+  static void startIfEnabled(OpenTelemetry openTelemetry) {
+    if (!Boolean.parseBoolean(EnvironmentConfig.getProperty(EnvironmentConfig.GOVERNOR_ENABLED))) {
+      return;
+    }
+    try {
+      long intervalMillis = longProperty(EnvironmentConfig.GOVERNOR_INTERVAL_MILLIS, 5000);
+      Thresholds thresholds =
+          new Thresholds(
+              doubleProperty(EnvironmentConfig.GOVERNOR_CPU_HIGH, 0.85),
+              doubleProperty(EnvironmentConfig.GOVERNOR_CPU_LOW, 0.6),
+              doubleProperty(EnvironmentConfig.GOVERNOR_GC_HIGH, 0.1),
+              doubleProperty(EnvironmentConfig.GOVERNOR_GC_LOW, 0.03),
+              doubleProperty(EnvironmentConfig.GOVERNOR_AGENT_HIGH, 0.05),
+              doubleProperty(EnvironmentConfig.GOVERNOR_AGENT_LOW, 0.01),
+              (int) longProperty(EnvironmentConfig.GOVERNOR_RECOVERY_INTERVALS, 3));
+      CaptureGovernor.setTruncatedBodySizeBytes(
+          (int) longProperty(EnvironmentConfig.GOVERNOR_TRUNCATED_BODY_SIZE_BYTES, 4 * 1024));
+      OverheadGovernor governor =
+          new OverheadGovernor(
+              thresholds, intervalMillis, openTelemetry.getMeter(INSTRUMENTATION_SCOPE));
+      ScheduledExecutorService executor =
+          Executors.newSingleThreadScheduledExecutor(
+              runnable -> {
+                Thread thread = new Thread(runnable, "hypertrace-overhead-governor");
+                thread.setDaemon(true);
+                return thread;
+              });
+      CaptureGovernor.startMeasuring();
+      executor.scheduleWithFixedDelay(
+          governor, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+      log.info("Overhead governor started with an interval of {} ms", intervalMillis);
+    } catch (RuntimeException e) {
+      log.error("Could not start the overhead governor, capture is not throttled", e);
+    }
+  }
+
+  @Override
+  public void run() {
+    try {
+      long now = System.nanoTime();
+      long elapsedNanos = Math.max(now - lastRunNanos, intervalNanos);
+      lastRunNanos = now;
+      long gcMillis = gcMillis();
+      double gcRatio =
+          (gcMillis - lastGcMillis) / (double) TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+      lastGcMillis = gcMillis;
+      long agentNanos =
+          CaptureGovernor.drainCaptureNanos() + CaptureGovernor.drainConversionNanos();
+      double agentRatio = agentNanos / ((double) elapsedNanos * processors);
+      capturedBytes.add(CaptureGovernor.drainCapturedBytes());
+      captureTime.add(agentNanos / 1e9);
+
+      double cpuLoad = processCpuLoad();
+      Level current = CaptureGovernor.level();
+      Level next = nextLevel(current, cpuLoad, gcRatio, agentRatio);
+      if (next != current) {
+        CaptureGovernor.setLevel(next);
+        transitions.add(1, Attributes.of(FROM_LEVEL, current.name(), TO_LEVEL, next.name()));
+        log.info(
+            "Data capture level changed from {} to {}, process cpu {}, gc {}, agent cpu {}",
+            current,
+            next,
+            cpuLoad,
+            gcRatio,
+            agentRatio);
+      }
+    } catch (RuntimeException e) {
+      // keep the schedule running
+      log.debug("Overhead governor run failed", e);
+    }
+  }
+
+  /** Returns the level for the next interval given the pressure measured in the last one. */
+  Level nextLevel(Level current, double processCpu, double gcRatio, double agentRatio) {
+    if (processCpu >= thresholds.cpuHigh
+        || gcRatio >= thresholds.gcHigh
+        || agentRatio >= thresholds.agentHigh) {
+      calmIntervals = 0;
+      return current.lower();
+    }
+    if (processCpu < thresholds.cpuLow
+        && gcRatio < thresholds.gcLow
+        && agentRatio < thresholds.agentLow) {
+      if (current != Level.FULL && ++calmIntervals >= thresholds.recoveryIntervals) {
+        calmIntervals = 0;
+        return current.higher();
+      }
+      return current;
+    }
+    // between the thresholds, hold the level
+    calmIntervals = 0;
+    return current;
+  }
+
+  private double processCpuLoad() {
+    if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+      double load = ((com.sun.management.OperatingSystemMXBean) osBean).getProcessCpuLoad();
+      // negative if not available
+      return Math.max(load, 0);
+    }
+    return 0;
+  }
+
+  private static long gcMillis() {
+    long millis = 0;
+    for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      millis += Math.max(gcBean.getCollectionTime(), 0);
+    }
+    return millis;
+  }
+
+  private static long longProperty(String name, long defaultValue) {
+    String value = EnvironmentConfig.getProperty(name);
+    return value == null ? defaultValue : Long.parseLong(value.trim());
+  }
+
+  private static double doubleProperty(String name, double defaultValue) {
+    String value = EnvironmentConfig.getProperty(name);
+    return value == null ? defaultValue : Double.parseDouble(value.trim());
+  }
+}
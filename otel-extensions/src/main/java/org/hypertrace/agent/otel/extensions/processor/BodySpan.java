@@ -0,0 +1,110 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.otel.extensions.processor;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.sdk.common.InstrumentationLibraryInfo;
+import io.opentelemetry.sdk.common.InstrumentationScopeInfo;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.data.DelegatingSpanData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+/** An ended span with a body attribute that was captured after it ended. */
+final class BodySpan implements ReadableSpan {
+
+  private final ReadableSpan span;
+  private final AttributeKey<String> attributeKey;
+  private final String value;
+
+  BodySpan(ReadableSpan span, AttributeKey<String> attributeKey, String value) {
+    this.span = span;
+    this.attributeKey = attributeKey;
+    this.value = value;
+  }
+
+  @Override
+  public SpanContext getSpanContext() {
+    return span.getSpanContext();
+  }
+
+  @Override
+  public SpanContext getParentSpanContext() {
+    return span.getParentSpanContext();
+  }
+
+  @Override
+  public String getName() {
+    return span.getName();
+  }
+
+  @Override
+  public SpanData toSpanData() {
+    SpanData spanData = span.toSpanData();
+    Attributes attributes = spanData.getAttributes().toBuilder().put(attributeKey, value).build();
+    int totalAttributeCount =
+        spanData.getTotalAttributeCount() + attributes.size() - spanData.getAttributes().size();
+    return new DelegatingSpanData(spanData) {
+      @Override
+      public Attributes getAttributes() {
+        return attributes;
+      }
+
+      @Override
+      public int getTotalAttributeCount() {
+        return totalAttributeCount;
+      }
+    };
+  }
+
+  @Override
+  @Deprecated
+  public InstrumentationLibraryInfo getInstrumentationLibraryInfo() {
+    return span.getInstrumentationLibraryInfo();
+  }
+
+  @Override
+  public InstrumentationScopeInfo getInstrumentationScopeInfo() {
+    return span.getInstrumentationScopeInfo();
+  }
+
+  @Override
+  public boolean hasEnded() {
+    return span.hasEnded();
+  }
+
+  @Override
+  public long getLatencyNanos() {
+    return span.getLatencyNanos();
+  }
+
+  @Override
+  public SpanKind getKind() {
+    return span.getKind();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T getAttribute(AttributeKey<T> key) {
+    if (attributeKey.equals(key)) {
+      return (T) value;
+    }
+    return span.getAttribute(key);
+  }
+}
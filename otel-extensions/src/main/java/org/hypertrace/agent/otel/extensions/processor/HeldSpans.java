@@ -0,0 +1,272 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.otel.extensions.processor;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import org.hypertrace.agent.core.instrumentation.LateBodyHold;
+
+/**
+ * Spans that wait for a body captured after they ended. An ended span is held until the body is
+ * attached, the capture is released or the hold time since the capture started has passed. Then it
+ * is passed on to the processors that held it. At most {@code maxSpans} spans wait at a time,
+ * others are not held.
+ *
+ * <p>Once the body is attached the entry is kept, with the body, until the hold time has passed. So
+ * every processor gets the span with the body, also those that see the span only after the body was
+ * attached.
+ *
+ * <p>The expiry queue is bounded by {@code maxSpans} too. Released entries stay in the queue until
+ * they expire, they are purged when the queue is full and at least half of it is released.
+ */
+final class HeldSpans implements LateBodyHold.Hold {
+
+  private final long holdNanos;
+  private final int maxSpans;
+  private final LongSupplier nanoClock;
+  private final Map<SpanContext, Entry> entries = new ConcurrentHashMap<>();
+  // the hold time is the same for all entries, so they expire in the order they were added
+  private final Queue<Entry> expiry = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger queued = new AtomicInteger();
+  private final AtomicInteger releasedInQueue = new AtomicInteger();
+
+  HeldSpans(long holdMillis, int maxSpans) {
+    this(holdMillis, maxSpans, System::nanoTime);
+  }
+
+  HeldSpans(long holdMillis, int maxSpans, LongSupplier nanoClock) {
+    this.holdNanos = TimeUnit.MILLISECONDS.toNanos(holdMillis);
+    this.maxSpans = maxSpans;
+    this.nanoClock = nanoClock;
+  }
+
+  @Override
+  public void expect(SpanContext spanContext) {
+    if (queued.get() >= maxSpans && !purgeReleased()) {
+      return;
+    }
+    Entry entry = new Entry(spanContext, nanoClock.getAsLong() + holdNanos);
+    if (entries.putIfAbsent(spanContext, entry) == null) {
+      queued.incrementAndGet();
+      expiry.add(entry);
+    }
+  }
+
+  /** Removes the released entries from the full queue, returns true if there is room again. */
+  private boolean purgeReleased() {
+    if (releasedInQueue.get() < Math.max(1, maxSpans / 2)) {
+      return false;
+    }
+    for (Iterator<Entry> iterator = expiry.iterator(); iterator.hasNext(); ) {
+      Entry entry = iterator.next();
+      if (entry.released) {
+        iterator.remove();
+        dequeued(entry);
+      }
+    }
+    return queued.get() < maxSpans;
+  }
+
+  private void dequeued(Entry entry) {
+    boolean released;
+    synchronized (entry) {
+      if (entry.dequeued) {
+        return;
+      }
+      entry.dequeued = true;
+      released = entry.released;
+    }
+    queued.decrementAndGet();
+    if (released) {
+      releasedInQueue.decrementAndGet();
+    }
+  }
+
+  @Override
+  public boolean attach(SpanContext spanContext, AttributeKey<String> attributeKey, String value) {
+    Entry entry = entries.get(spanContext);
+    if (entry == null) {
+      return false;
+    }
+    ReadableSpan span;
+    List<SpanProcessor> processors;
+    synchronized (entry) {
+      if (entry.done || entry.value != null) {
+        return false;
+      }
+      entry.attributeKey = attributeKey;
+      entry.value = value;
+      if (entry.span == null) {
+        // the span has not ended or the processors have not seen it yet
+        return true;
+      }
+      span = new BodySpan(entry.span, attributeKey, value);
+      processors = entry.takeHeld();
+    }
+    passOn(span, processors);
+    return true;
+  }
+
+  @Override
+  public void release(SpanContext spanContext) {
+    Entry entry = entries.get(spanContext);
+    if (entry == null) {
+      return;
+    }
+    ReadableSpan span;
+    List<SpanProcessor> processors;
+    synchronized (entry) {
+      if (entry.value != null) {
+        // processors that have not seen the span yet still have to get the body
+        return;
+      }
+      if (!entries.remove(spanContext, entry) || entry.dequeued) {
+        return;
+      }
+      entry.released = true;
+      releasedInQueue.incrementAndGet();
+      span = entry.span;
+      processors = entry.finish();
+    }
+    passOn(span, processors);
+  }
+
+  /**
+   * Holds the ended span for the processor if it waits for a body. Returns the span the processor
+   * should handle now, or null if it is held.
+   */
+  ReadableSpan hold(ReadableSpan span, SpanProcessor processor) {
+    Entry entry = entries.get(span.getSpanContext());
+    if (entry == null) {
+      return span;
+    }
+    synchronized (entry) {
+      if (entry.done) {
+        return span;
+      }
+      if (entry.value != null) {
+        return new BodySpan(span, entry.attributeKey, entry.value);
+      }
+      entry.span = span;
+      entry.processors.add(processor);
+      return null;
+    }
+  }
+
+  /** Passes on the spans whose hold time has passed and drops their bodies. */
+  void expire() {
+    long now = nanoClock.getAsLong();
+    Entry entry;
+    while ((entry = expiry.peek()) != null && entry.deadlineNanos - now <= 0) {
+      expiry.remove(entry);
+      dequeued(entry);
+      entries.remove(entry.spanContext, entry);
+      finish(entry);
+    }
+  }
+
+  /** Passes on all held spans without waiting for their bodies. */
+  void releaseAll() {
+    for (Entry entry : entries.values()) {
+      if (entries.remove(entry.spanContext, entry)) {
+        finish(entry);
+      }
+    }
+    Entry entry;
+    while ((entry = expiry.poll()) != null) {
+      dequeued(entry);
+    }
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  int queued() {
+    return queued.get();
+  }
+
+  private static void finish(Entry entry) {
+    ReadableSpan span;
+    List<SpanProcessor> processors;
+    synchronized (entry) {
+      if (entry.done) {
+        return;
+      }
+      span = entry.span;
+      processors = entry.finish();
+    }
+    passOn(span, processors);
+  }
+
+  private static void passOn(ReadableSpan span, List<SpanProcessor> processors) {
+    if (span == null) {
+      return;
+    }
+    for (SpanProcessor processor : processors) {
+      processor.onEnd(span);
+    }
+  }
+
+  private static final class Entry {
+    final SpanContext spanContext;
+    final long deadlineNanos;
+    List<SpanProcessor> processors = new ArrayList<>(1);
+    ReadableSpan span;
+    AttributeKey<String> attributeKey;
+    String value;
+    boolean done;
+    // released before it expired, it can be purged from the queue
+    boolean released;
+    boolean dequeued;
+
+    Entry(SpanContext spanContext, long deadlineNanos) {
+      this.spanContext = spanContext;
+      this.deadlineNanos = deadlineNanos;
+    }
+
+    /** Returns the processors holding the span and drops the span, the body is kept. */
+    List<SpanProcessor> takeHeld() {
+      List<SpanProcessor> processors = this.processors;
+      this.processors = new ArrayList<>(0);
+      span = null;
+      return processors;
+    }
+
+    /** Marks the entry as done and drops its references, it stays in the expiry queue. */
+    List<SpanProcessor> finish() {
+      List<SpanProcessor> processors = this.processors;
+      done = true;
+      this.processors = null;
+      span = null;
+      value = null;
+      return processors;
+    }
+  }
+}
@@ -19,22 +19,93 @@ package org.hypertrace.agent.otel.extensions.processor;
 import com.google.auto.service.AutoService;
 import io.opentelemetry.sdk.autoconfigure.spi.AutoConfigurationCustomizer;
 import io.opentelemetry.sdk.autoconfigure.spi.AutoConfigurationCustomizerProvider;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.hypertrace.agent.config.v1.Config.AgentConfig;
+import org.hypertrace.agent.config.v1.Config.TraceReporterType;
+import org.hypertrace.agent.core.instrumentation.LateBodyHold;
+import org.hypertrace.agent.otel.extensions.config.EnvironmentConfig;
+import org.hypertrace.agent.otel.extensions.config.HypertraceConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * This is a workaround to add container ID tags to spans when Zipkin exporter is used. Zipkin
- * exporter does not add process attributes where the container ID is
- * https://github.com/open-telemetry/opentelemetry-java/issues/1970.
+ * Copies the container ID and host name onto every span for backends that do not read them from the
+ * resource, where {@link org.hypertrace.agent.otel.extensions.HypertraceResourceProvider} puts
+ * them.
  *
- * <p>Remove this once we migrate to OTEL exporter
- * https://github.com/hypertrace/javaagent/issues/132
+ * <p>Zipkin exporter does not add process attributes where the container ID is
+ * https://github.com/open-telemetry/opentelemetry-java/issues/1970, so the copying is enabled by
+ * default when it is used. For other exporters it can be enabled with {@link
+ * EnvironmentConfig#REPORTING_SPAN_RESOURCE_TAGS}.
+ *
+ * <p>If {@link EnvironmentConfig#REPORTING_SPAN_HOLD_MILLIS} is set, the exporting span processors
+ * are wrapped with {@link LateBodySpanProcessor}.
  */
 @AutoService(AutoConfigurationCustomizerProvider.class)
 public class HypertraceCustomizerProvider implements AutoConfigurationCustomizerProvider {
 
+  private static final Logger log = LoggerFactory.getLogger(HypertraceCustomizerProvider.class);
+
   @Override
   public void customize(AutoConfigurationCustomizer autoConfiguration) {
-    autoConfiguration.addTracerProviderCustomizer(
-        (sdkTracerProviderBuilder, configProperties) ->
-            sdkTracerProviderBuilder.addSpanProcessor(new AddTagsSpanProcessor()));
+    if (copyResourceTagsToSpans(HypertraceConfig.get())) {
+      autoConfiguration.addTracerProviderCustomizer(
+          (sdkTracerProviderBuilder, configProperties) ->
+              sdkTracerProviderBuilder.addSpanProcessor(new AddTagsSpanProcessor()));
+    }
+    HeldSpans heldSpans = startSpanHold();
+    if (heldSpans != null) {
+      autoConfiguration.addSpanProcessorCustomizer(
+          (spanProcessor, configProperties) -> new LateBodySpanProcessor(spanProcessor, heldSpans));
+    }
+  }
+
+  static boolean copyResourceTagsToSpans(AgentConfig agentConfig) {
+    String copyTags = EnvironmentConfig.getProperty(EnvironmentConfig.REPORTING_SPAN_RESOURCE_TAGS);
+    if (copyTags != null) {
+      return Boolean.parseBoolean(copyTags);
+    }
+    return TraceReporterType.ZIPKIN.equals(agentConfig.getReporting().getTraceReporterType());
+  }
+
+  /** Returns the spans held for late bodies, or null if holding is disabled. */
+  static HeldSpans startSpanHold() {
+    long holdMillis = longProperty(EnvironmentConfig.REPORTING_SPAN_HOLD_MILLIS, 0);
+    if (holdMillis <= 0) {
+      return null;
+    }
+    HeldSpans heldSpans =
+        new HeldSpans(
+            holdMillis, (int) longProperty(EnvironmentConfig.REPORTING_SPAN_HOLD_MAX_SPANS, 256));
+    long intervalMillis = Math.max(10, holdMillis / 4);
+    ScheduledExecutorService executor =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "hypertrace-span-hold");
+              thread.setDaemon(true);
+              return thread;
+            });
+    executor.scheduleWithFixedDelay(
+        () -> {
+          try {
+            heldSpans.expire();
+          } catch (RuntimeException e) {
+            // keep the schedule running
+            log.debug("Could not pass on expired spans", e);
+          }
+        },
+        intervalMillis,
+        intervalMillis,
+        TimeUnit.MILLISECONDS);
+    LateBodyHold.install(heldSpans);
+    log.info("Spans waiting for a late body are held for up to {} ms", holdMillis);
+    return heldSpans;
+  }
+
+  private static long longProperty(String name, long defaultValue) {
+    String value = EnvironmentConfig.getProperty(name);
+    return value == null ? defaultValue : Long.parseLong(value.trim());
   }
 }
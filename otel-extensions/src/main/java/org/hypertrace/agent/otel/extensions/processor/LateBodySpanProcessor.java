@@ -0,0 +1,74 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.otel.extensions.processor;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+
+/**
+ * Delays passing ended spans to the exporting processor while they wait for a body, see {@link
+ * HeldSpans}. The body is then added to the exported span instead of being reported on an
+ * additional span.
+ */
+class LateBodySpanProcessor implements SpanProcessor {
+
+  private final SpanProcessor delegate;
+  private final HeldSpans heldSpans;
+
+  LateBodySpanProcessor(SpanProcessor delegate, HeldSpans heldSpans) {
+    this.delegate = delegate;
+    this.heldSpans = heldSpans;
+  }
+
+  @Override
+  public void onStart(Context parentContext, ReadWriteSpan span) {
+    delegate.onStart(parentContext, span);
+  }
+
+  @Override
+  public boolean isStartRequired() {
+    return delegate.isStartRequired();
+  }
+
+  @Override
+  public void onEnd(ReadableSpan span) {
+    ReadableSpan ended = heldSpans.hold(span, delegate);
+    if (ended != null) {
+      delegate.onEnd(ended);
+    }
+  }
+
+  @Override
+  public boolean isEndRequired() {
+    return delegate.isEndRequired();
+  }
+
+  @Override
+  public CompletableResultCode shutdown() {
+    heldSpans.releaseAll();
+    return delegate.shutdown();
+  }
+
+  @Override
+  public CompletableResultCode forceFlush() {
+    heldSpans.releaseAll();
+    return delegate.forceFlush();
+  }
+}
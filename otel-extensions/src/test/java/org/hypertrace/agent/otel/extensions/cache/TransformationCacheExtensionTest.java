@@ -0,0 +1,95 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.otel.extensions.cache;
+
+import io.opentelemetry.sdk.autoconfigure.spi.ConfigProperties;
+import io.opentelemetry.sdk.autoconfigure.spi.internal.DefaultConfigProperties;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TransformationCacheExtensionTest {
+
+  @TempDir Path directory;
+
+  @Test
+  public void fingerprintIsStable() {
+    ConfigProperties config = DefaultConfigProperties.createFromMap(Collections.emptyMap());
+    Assertions.assertEquals(
+        TransformationCacheExtension.fingerprint(config),
+        TransformationCacheExtension.fingerprint(config));
+  }
+
+  @Test
+  public void fingerprintCoversOtelConfigFile() throws IOException {
+    Path configFile = directory.resolve("otel.properties");
+    Files.write(
+        configFile, "otel.instrumentation.okhttp.enabled=true".getBytes(StandardCharsets.UTF_8));
+    long enabled = TransformationCacheExtension.fingerprint(configFile(configFile, "true"));
+
+    Files.write(
+        configFile, "otel.instrumentation.okhttp.enabled=false".getBytes(StandardCharsets.UTF_8));
+    Assertions.assertNotEquals(
+        enabled, TransformationCacheExtension.fingerprint(configFile(configFile, "false")));
+  }
+
+  @Test
+  public void fingerprintCoversExtensionJars() throws IOException {
+    Path jar = directory.resolve("extension.jar");
+    Files.write(jar, new byte[] {1, 2, 3});
+    Map<String, String> properties = new HashMap<>();
+    properties.put("otel.javaagent.extensions", jar.toString());
+    ConfigProperties config = DefaultConfigProperties.createFromMap(properties);
+    long before = TransformationCacheExtension.fingerprint(config);
+
+    Files.write(jar, new byte[] {1, 2, 4});
+    Assertions.assertNotEquals(before, TransformationCacheExtension.fingerprint(config));
+  }
+
+  @Test
+  public void fingerprintCoversClassPathEntries() throws IOException {
+    Path jar = directory.resolve("app.jar");
+    Files.write(jar, new byte[] {1, 2, 3});
+    ConfigProperties config = DefaultConfigProperties.createFromMap(Collections.emptyMap());
+    String classPath = System.getProperty("java.class.path");
+    System.setProperty("java.class.path", classPath + File.pathSeparator + jar);
+    try {
+      long before = TransformationCacheExtension.fingerprint(config);
+
+      // the same path, repackaged with another library
+      Files.write(jar, new byte[] {1, 2, 3, 4});
+      Assertions.assertNotEquals(before, TransformationCacheExtension.fingerprint(config));
+    } finally {
+      System.setProperty("java.class.path", classPath);
+    }
+  }
+
+  private static ConfigProperties configFile(Path configFile, String okhttpEnabled) {
+    Map<String, String> properties = new HashMap<>();
+    properties.put("otel.javaagent.configuration-file", configFile.toString());
+    properties.put("otel.instrumentation.okhttp.enabled", okhttpEnabled);
+    return DefaultConfigProperties.createFromMap(properties);
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.otel.extensions.cache;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.security.cert.Certificate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TransformationCacheTest {
+
+  @TempDir Path directory;
+
+  @Test
+  public void savedKeysAreFoundAfterReopen() throws IOException {
+    Path file = directory.resolve("cache.bin");
+    TransformationCache cache = TransformationCache.open(file, 42);
+    cache.recordUntransformed(7);
+    cache.recordUntransformed(-3);
+    Assertions.assertFalse(cache.isUntransformed(7));
+    cache.save();
+
+    TransformationCache reopened = TransformationCache.open(file, 42);
+    Assertions.assertTrue(reopened.isUntransformed(7));
+    Assertions.assertTrue(reopened.isUntransformed(-3));
+    Assertions.assertFalse(reopened.isUntransformed(8));
+
+    reopened.recordUntransformed(8);
+    reopened.save();
+    TransformationCache merged = TransformationCache.open(file, 42);
+    Assertions.assertTrue(merged.isUntransformed(7));
+    Assertions.assertTrue(merged.isUntransformed(8));
+  }
+
+  @Test
+  public void otherFingerprintInvalidatesCache() throws IOException {
+    Path file = directory.resolve("cache.bin");
+    TransformationCache cache = TransformationCache.open(file, 42);
+    cache.recordUntransformed(7);
+    cache.save();
+
+    Assertions.assertFalse(TransformationCache.open(file, 43).isUntransformed(7));
+  }
+
+  @Test
+  public void corruptedFileIsIgnored() throws IOException {
+    Path file = directory.resolve("cache.bin");
+    TransformationCache cache = TransformationCache.open(file, 42);
+    cache.recordUntransformed(7);
+    cache.save();
+    try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+      raf.seek(raf.length() - 1);
+      raf.write(raf.read() ^ 1);
+    }
+    Assertions.assertFalse(TransformationCache.open(file, 42).isUntransformed(7));
+
+    Files.write(file, new byte[] {1, 2, 3});
+    Assertions.assertFalse(TransformationCache.open(file, 42).isUntransformed(7));
+  }
+
+  @Test
+  public void keyDependsOnBytesClassLoaderTypeAndCodeSource() throws IOException {
+    byte[] classBytes = {(byte) 0xca, (byte) 0xfe, (byte) 0xba, (byte) 0xbe, 0, 1};
+    ClassLoader classLoader = getClass().getClassLoader();
+    try (URLClassLoader urlClassLoader = new URLClassLoader(new URL[0], null)) {
+      long key = TransformationCache.key(classLoader, "a.jar", classBytes);
+      Assertions.assertEquals(
+          key, TransformationCache.key(classLoader, "a.jar", classBytes.clone()));
+      Assertions.assertNotEquals(key, TransformationCache.key(null, "a.jar", classBytes));
+      Assertions.assertNotEquals(key, TransformationCache.key(urlClassLoader, "a.jar", classBytes));
+      Assertions.assertNotEquals(key, TransformationCache.key(classLoader, "b.jar", classBytes));
+      Assertions.assertNotEquals(key, TransformationCache.key(classLoader, null, classBytes));
+      classBytes[5] = 2;
+      Assertions.assertNotEquals(key, TransformationCache.key(classLoader, "a.jar", classBytes));
+    }
+  }
+
+  @Test
+  public void newlyVisibleMarkerClassInvalidatesCachedDecision() throws IOException {
+    Path lib = Files.createDirectories(directory.resolve("WEB-INF").resolve("lib"));
+    Path library = Files.write(lib.resolve("library.jar"), new byte[] {1, 2, 3});
+    ProtectionDomain protectionDomain =
+        new ProtectionDomain(new CodeSource(library.toUri().toURL(), (Certificate[]) null), null);
+    byte[] classBytes = {(byte) 0xca, (byte) 0xfe, (byte) 0xba, (byte) 0xbe, 0, 1};
+    ClassLoader classLoader = getClass().getClassLoader();
+
+    Path file = directory.resolve("cache.bin");
+    TransformationCache cache = TransformationCache.open(file, 42);
+    String stamp = new CachingTransformerDecorator(cache).codeSourceStamp(protectionDomain);
+    cache.recordUntransformed(TransformationCache.key(classLoader, stamp, classBytes));
+    cache.save();
+
+    TransformationCache unchanged = TransformationCache.open(file, 42);
+    String unchangedStamp =
+        new CachingTransformerDecorator(unchanged).codeSourceStamp(protectionDomain);
+    Assertions.assertTrue(
+        unchanged.isUntransformed(
+            TransformationCache.key(classLoader, unchangedStamp, classBytes)));
+
+    // the framework jar with the class an instrumentation looks for is added next to the library
+    Files.write(lib.resolve("framework.jar"), new byte[] {4, 5, 6});
+    TransformationCache reopened = TransformationCache.open(file, 42);
+    String newStamp = new CachingTransformerDecorator(reopened).codeSourceStamp(protectionDomain);
+    Assertions.assertFalse(
+        reopened.isUntransformed(TransformationCache.key(classLoader, newStamp, classBytes)));
+  }
+}
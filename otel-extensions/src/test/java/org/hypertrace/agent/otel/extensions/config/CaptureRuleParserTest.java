@@ -0,0 +1,59 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.otel.extensions.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import org.hypertrace.agent.core.config.CaptureRule;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CaptureRuleParserTest {
+
+  @Test
+  public void rules() throws IOException {
+    URL resource = getClass().getClassLoader().getResource("captureRulesConfig.yaml");
+    Assertions.assertEquals(
+        Arrays.asList(
+            CaptureRule.http("GET", "/health").httpBody(false, false).build(),
+            CaptureRule.http(null, "/api/orders/*").httpHeaders(false, null).build(),
+            CaptureRule.rpc("grpc.health.v1.Health/**").rpcBody(false, false).build()),
+        CaptureRuleParser.parse(resource.getPath()));
+  }
+
+  @Test
+  public void noRules() throws IOException {
+    URL resource = getClass().getClassLoader().getResource("config.yaml");
+    Assertions.assertEquals(Collections.emptyList(), CaptureRuleParser.parse(resource.getPath()));
+  }
+
+  @Test
+  public void invalidRule(@TempDir File tempDir) throws IOException {
+    File configFile = new File(tempDir, "config.yaml");
+    Files.write(
+        configFile.toPath(),
+        "dataCapture:\n  rules:\n    - method: GET\n".getBytes(StandardCharsets.UTF_8));
+    Assertions.assertThrows(
+        IllegalArgumentException.class, () -> CaptureRuleParser.parse(configFile.getPath()));
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.otel.extensions.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.hypertrace.agent.core.config.DataCaptureConfig;
+import org.hypertrace.agent.core.config.InstrumentationConfig;
+import org.hypertrace.agent.core.config.InstrumentationConfigSnapshot;
+import org.hypertrace.agent.core.instrumentation.buffer.BoundedBuffersFactory;
+import org.hypertrace.agent.core.instrumentation.utils.ContentTypeUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DataCaptureConfigWatcherTest {
+
+  @TempDir public File tempDir;
+
+  private File configFile;
+
+  @BeforeEach
+  public void useConfigFile() {
+    configFile = new File(tempDir, "config.yaml");
+    System.setProperty(EnvironmentConfig.CONFIG_FILE_PROPERTY, configFile.getPath());
+    resetConfig();
+  }
+
+  @AfterEach
+  public void clearConfigFile() {
+    System.clearProperty(EnvironmentConfig.CONFIG_FILE_PROPERTY);
+    resetConfig();
+  }
+
+  private static void resetConfig() {
+    HypertraceConfig.reset();
+    InstrumentationConfig.ConfigProvider.reset();
+    DataCaptureConfig.ConfigProvider.update(null);
+  }
+
+  @Test
+  public void reloadAppliesChangedDataCapture() throws IOException {
+    writeConfig(16, "foo");
+    ContentTypeUtils.reload();
+    Assertions.assertEquals(16, BoundedBuffersFactory.maxSize());
+    Assertions.assertFalse(ContentTypeUtils.shouldCapture("application/bar"));
+
+    writeConfig(32, "bar");
+    Assertions.assertTrue(DataCaptureConfigWatcher.reload(configFile.getPath()));
+    Assertions.assertEquals(
+        32, HypertraceConfig.get().getDataCapture().getBodyMaxSizeBytes().getValue());
+    Assertions.assertEquals(32, InstrumentationConfigSnapshot.get().maxBodySizeBytes);
+    Assertions.assertEquals(32, BoundedBuffersFactory.maxSize());
+    Assertions.assertTrue(ContentTypeUtils.shouldCapture("application/bar"));
+    Assertions.assertFalse(ContentTypeUtils.shouldCapture("application/foo"));
+
+    // unchanged file
+    Assertions.assertFalse(DataCaptureConfigWatcher.reload(configFile.getPath()));
+  }
+
+  @Test
+  public void reloadIgnoresInvalidDataCapture() throws IOException {
+    writeConfig(16, "foo");
+    ContentTypeUtils.reload();
+    Assertions.assertEquals(16, BoundedBuffersFactory.maxSize());
+
+    writeConfig(-1, "bar");
+    Assertions.assertFalse(DataCaptureConfigWatcher.reload(configFile.getPath()));
+    Assertions.assertEquals(16, BoundedBuffersFactory.maxSize());
+    Assertions.assertTrue(ContentTypeUtils.shouldCapture("application/foo"));
+
+    Assertions.assertFalse(
+        DataCaptureConfigWatcher.reload(new File(tempDir, "missing.yaml").getPath()));
+    Assertions.assertEquals(16, BoundedBuffersFactory.maxSize());
+  }
+
+  private void writeConfig(int bodyMaxSizeBytes, String contentType) throws IOException {
+    String yaml =
+        "service_name: service\n"
+            + "dataCapture:\n"
+            + "  bodyMaxSizeBytes: "
+            + bodyMaxSizeBytes
+            + "\n"
+            + "  allowed_content_types: [\""
+            + contentType
+            + "\"]\n";
+    Files.write(configFile.toPath(), yaml.getBytes(StandardCharsets.UTF_8));
+  }
+}
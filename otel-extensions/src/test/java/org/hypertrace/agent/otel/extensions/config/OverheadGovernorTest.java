@@ -0,0 +1,57 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.otel.extensions.config;
+
+import io.opentelemetry.api.OpenTelemetry;
+import org.hypertrace.agent.core.config.CaptureGovernor.Level;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class OverheadGovernorTest {
+
+  private final OverheadGovernor governor =
+      new OverheadGovernor(
+          new OverheadGovernor.Thresholds(0.8, 0.5, 0.1, 0.05, 0.05, 0.01, 2),
+          1000,
+          OpenTelemetry.noop().getMeter("test"));
+
+  @Test
+  public void stepsDownOneLevelPerInterval() {
+    Assertions.assertEquals(Level.TRUNCATED, governor.nextLevel(Level.FULL, 0.9, 0, 0));
+    Assertions.assertEquals(Level.HEADERS_ONLY, governor.nextLevel(Level.TRUNCATED, 0, 0.2, 0));
+    Assertions.assertEquals(Level.OFF, governor.nextLevel(Level.HEADERS_ONLY, 0, 0, 0.06));
+    Assertions.assertEquals(Level.OFF, governor.nextLevel(Level.OFF, 0.9, 0, 0));
+  }
+
+  @Test
+  public void stepsUpAfterCalmIntervals() {
+    Assertions.assertEquals(Level.OFF, governor.nextLevel(Level.OFF, 0.1, 0, 0));
+    Assertions.assertEquals(Level.HEADERS_ONLY, governor.nextLevel(Level.OFF, 0.1, 0, 0));
+    Assertions.assertEquals(Level.HEADERS_ONLY, governor.nextLevel(Level.HEADERS_ONLY, 0.1, 0, 0));
+    Assertions.assertEquals(Level.TRUNCATED, governor.nextLevel(Level.HEADERS_ONLY, 0.1, 0, 0));
+    Assertions.assertEquals(Level.FULL, governor.nextLevel(Level.FULL, 0.1, 0, 0));
+  }
+
+  @Test
+  public void holdsLevelBetweenThresholds() {
+    Assertions.assertEquals(Level.OFF, governor.nextLevel(Level.OFF, 0.1, 0, 0));
+    // cpu between the low and high threshold resets the calm intervals
+    Assertions.assertEquals(Level.OFF, governor.nextLevel(Level.OFF, 0.6, 0, 0));
+    Assertions.assertEquals(Level.OFF, governor.nextLevel(Level.OFF, 0.1, 0, 0));
+    Assertions.assertEquals(Level.HEADERS_ONLY, governor.nextLevel(Level.OFF, 0.1, 0, 0));
+  }
+}
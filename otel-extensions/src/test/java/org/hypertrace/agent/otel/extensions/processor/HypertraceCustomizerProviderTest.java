@@ -0,0 +1,63 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.otel.extensions.processor;
+
+import org.hypertrace.agent.config.v1.Config.AgentConfig;
+import org.hypertrace.agent.config.v1.Config.Reporting;
+import org.hypertrace.agent.config.v1.Config.TraceReporterType;
+import org.hypertrace.agent.otel.extensions.config.EnvironmentConfig;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junitpioneer.jupiter.ClearSystemProperty;
+import org.junitpioneer.jupiter.SetSystemProperty;
+
+class HypertraceCustomizerProviderTest {
+
+  @Test
+  @ClearSystemProperty(key = EnvironmentConfig.REPORTING_SPAN_RESOURCE_TAGS)
+  public void resourceTagsAreNotCopiedForOtlp() {
+    Assertions.assertFalse(
+        HypertraceCustomizerProvider.copyResourceTagsToSpans(config(TraceReporterType.OTLP)));
+  }
+
+  @Test
+  @ClearSystemProperty(key = EnvironmentConfig.REPORTING_SPAN_RESOURCE_TAGS)
+  public void resourceTagsAreCopiedForZipkin() {
+    Assertions.assertTrue(
+        HypertraceCustomizerProvider.copyResourceTagsToSpans(config(TraceReporterType.ZIPKIN)));
+  }
+
+  @Test
+  @SetSystemProperty(key = EnvironmentConfig.REPORTING_SPAN_RESOURCE_TAGS, value = "true")
+  public void resourceTagsAreCopiedWhenEnabled() {
+    Assertions.assertTrue(
+        HypertraceCustomizerProvider.copyResourceTagsToSpans(config(TraceReporterType.OTLP)));
+  }
+
+  @Test
+  @SetSystemProperty(key = EnvironmentConfig.REPORTING_SPAN_RESOURCE_TAGS, value = "false")
+  public void resourceTagsAreNotCopiedWhenDisabled() {
+    Assertions.assertFalse(
+        HypertraceCustomizerProvider.copyResourceTagsToSpans(config(TraceReporterType.ZIPKIN)));
+  }
+
+  private static AgentConfig config(TraceReporterType traceReporterType) {
+    return AgentConfig.newBuilder()
+        .setReporting(Reporting.newBuilder().setTraceReporterType(traceReporterType))
+        .build();
+  }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hypertrace.agent.otel.extensions.processor;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.hypertrace.agent.core.instrumentation.HypertraceSemanticAttributes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LateBodySpanProcessorTest {
+
+  private static final AttributeKey<String> KEY = AttributeKey.stringKey("key");
+
+  private final CollectingSpanProcessor exported = new CollectingSpanProcessor();
+  private long nanoTime;
+  private final HeldSpans heldSpans = new HeldSpans(1000, 2, () -> nanoTime);
+  private final SdkTracerProvider tracerProvider =
+      SdkTracerProvider.builder()
+          .addSpanProcessor(new LateBodySpanProcessor(exported, heldSpans))
+          .build();
+
+  @AfterEach
+  public void close() {
+    tracerProvider.close();
+  }
+
+  @Test
+  public void spansWithoutBodyAreNotHeld() {
+    startSpan().end();
+
+    Assertions.assertEquals(1, exported.spans.size());
+  }
+
+  @Test
+  public void bodyIsAddedToHeldSpan() {
+    Span span = startSpan();
+    heldSpans.expect(span.getSpanContext());
+    span.end();
+    Assertions.assertEquals(0, exported.spans.size());
+
+    Assertions.assertTrue(
+        heldSpans.attach(
+            span.getSpanContext(), HypertraceSemanticAttributes.HTTP_RESPONSE_BODY, "body"));
+
+    Assertions.assertEquals(1, exported.spans.size());
+    SpanData spanData = exported.spans.get(0);
+    Assertions.assertEquals(
+        "body", spanData.getAttributes().get(HypertraceSemanticAttributes.HTTP_RESPONSE_BODY));
+    Assertions.assertEquals("value", spanData.getAttributes().get(KEY));
+    // the body is kept for processors that have not seen the span yet
+    Assertions.assertEquals(1, heldSpans.size());
+    nanoTime += TimeUnit.MILLISECONDS.toNanos(1000);
+    heldSpans.expire();
+    Assertions.assertEquals(0, heldSpans.size());
+    Assertions.assertEquals(1, exported.spans.size());
+  }
+
+  @Test
+  public void bodyAttachedBeforeTheProcessorSeesTheSpan() {
+    Span span = startSpan();
+    heldSpans.expect(span.getSpanContext());
+    heldSpans.attach(span.getSpanContext(), HypertraceSemanticAttributes.HTTP_RESPONSE_BODY, "b");
+    span.end();
+
+    Assertions.assertEquals(1, exported.spans.size());
+    Assertions.assertEquals(
+        "b",
+        exported.spans.get(0).getAttributes().get(HypertraceSemanticAttributes.HTTP_RESPONSE_BODY));
+  }
+
+  @Test
+  public void releasedSpanIsNotHeld() {
+    Span span = startSpan();
+    heldSpans.expect(span.getSpanContext());
+    heldSpans.release(span.getSpanContext());
+    span.end();
+
+    Assertions.assertEquals(1, exported.spans.size());
+  }
+
+  @Test
+  public void spanIsPassedOnWhenHoldExpires() {
+    Span span = startSpan();
+    heldSpans.expect(span.getSpanContext());
+    span.end();
+
+    nanoTime += TimeUnit.MILLISECONDS.toNanos(999);
+    heldSpans.expire();
+    Assertions.assertEquals(0, exported.spans.size());
+    nanoTime += TimeUnit.MILLISECONDS.toNanos(1);
+    heldSpans.expire();
+
+    Assertions.assertEquals(1, exported.spans.size());
+    Assertions.assertFalse(
+        heldSpans.attach(
+            span.getSpanContext(), HypertraceSemanticAttributes.HTTP_RESPONSE_BODY, "late"));
+    Assertions.assertNull(
+        exported.spans.get(0).getAttributes().get(HypertraceSemanticAttributes.HTTP_RESPONSE_BODY));
+  }
+
+  @Test
+  public void heldSpansAreLimited() {
+    Span first = startSpan();
+    Span second = startSpan();
+    Span third = startSpan();
+    heldSpans.expect(first.getSpanContext());
+    heldSpans.expect(second.getSpanContext());
+    heldSpans.expect(third.getSpanContext());
+    first.end();
+    second.end();
+    third.end();
+
+    Assertions.assertEquals(1, exported.spans.size());
+    Assertions.assertEquals(2, heldSpans.size());
+  }
+
+  @Test
+  public void releasedSpansDoNotFillTheExpiryQueue() {
+    for (int i = 0; i < 1000; i++) {
+      Span span = startSpan();
+      heldSpans.expect(span.getSpanContext());
+      heldSpans.release(span.getSpanContext());
+      span.end();
+      Assertions.assertTrue(heldSpans.queued() <= 2);
+    }
+    Assertions.assertEquals(1000, exported.spans.size());
+    Assertions.assertEquals(0, heldSpans.size());
+
+    // there is still room for a span that waits for its body
+    Span span = startSpan();
+    heldSpans.expect(span.getSpanContext());
+    span.end();
+    Assertions.assertEquals(1000, exported.spans.size());
+    Assertions.assertEquals(1, heldSpans.size());
+  }
+
+  @Test
+  public void flushPassesOnHeldSpans() {
+    Span span = startSpan();
+    heldSpans.expect(span.getSpanContext());
+    span.end();
+
+    tracerProvider.forceFlush();
+
+    Assertions.assertEquals(1, exported.spans.size());
+    Assertions.assertEquals(0, heldSpans.size());
+  }
+
+  @Test
+  public void everyProcessorGetsTheBodyAttachedBeforeTheSpanEnds() {
+    CollectingSpanProcessor first = new CollectingSpanProcessor();
+    CollectingSpanProcessor second = new CollectingSpanProcessor();
+    try (SdkTracerProvider provider = twoProcessors(first, second)) {
+      Span span = provider.get("test").spanBuilder("client").startSpan();
+      heldSpans.expect(span.getSpanContext());
+      heldSpans.attach(span.getSpanContext(), HypertraceSemanticAttributes.HTTP_RESPONSE_BODY, "b");
+      span.end();
+
+      assertBody("b", first);
+      assertBody("b", second);
+    }
+  }
+
+  @Test
+  public void everyProcessorGetsTheBodyAttachedAfterTheSpanEnds() {
+    CollectingSpanProcessor first = new CollectingSpanProcessor();
+    CollectingSpanProcessor second = new CollectingSpanProcessor();
+    try (SdkTracerProvider provider = twoProcessors(first, second)) {
+      Span span = provider.get("test").spanBuilder("client").startSpan();
+      heldSpans.expect(span.getSpanContext());
+      span.end();
+      Assertions.assertEquals(0, first.spans.size());
+      Assertions.assertEquals(0, second.spans.size());
+
+      heldSpans.attach(span.getSpanContext(), HypertraceSemanticAttributes.HTTP_RESPONSE_BODY, "b");
+
+      assertBody("b", first);
+      assertBody("b", second);
+    }
+  }
+
+  @Test
+  public void processorSeeingTheSpanAfterTheBodyWasAttachedGetsTheBody() {
+    CollectingSpanProcessor first = new CollectingSpanProcessor();
+    CollectingSpanProcessor second = new CollectingSpanProcessor();
+    LateBodySpanProcessor late = new LateBodySpanProcessor(second, heldSpans);
+    SpanProcessor racing =
+        new CollectingSpanProcessor() {
+          @Override
+          public void onEnd(ReadableSpan span) {
+            // the body is attached between the onEnd calls of the two processors
+            heldSpans.attach(
+                span.getSpanContext(), HypertraceSemanticAttributes.HTTP_RESPONSE_BODY, "b");
+            late.onEnd(span);
+          }
+        };
+    try (SdkTracerProvider provider =
+        SdkTracerProvider.builder()
+            .addSpanProcessor(new LateBodySpanProcessor(first, heldSpans))
+            .addSpanProcessor(racing)
+            .build()) {
+      Span span = provider.get("test").spanBuilder("client").startSpan();
+      heldSpans.expect(span.getSpanContext());
+      span.end();
+
+      assertBody("b", first);
+      assertBody("b", second);
+    }
+  }
+
+  private SdkTracerProvider twoProcessors(
+      CollectingSpanProcessor first, CollectingSpanProcessor second) {
+    return SdkTracerProvider.builder()
+        .addSpanProcessor(new LateBodySpanProcessor(first, heldSpans))
+        .addSpanProcessor(new LateBodySpanProcessor(second, heldSpans))
+        .build();
+  }
+
+  private static void assertBody(String body, CollectingSpanProcessor processor) {
+    Assertions.assertEquals(1, processor.spans.size());
+    Assertions.assertEquals(
+        body,
+        processor
+            .spans
+            .get(0)
+            .getAttributes()
+            .get(HypertraceSemanticAttributes.HTTP_RESPONSE_BODY));
+  }
+
+  private Span startSpan() {
+    return tracerProvider.get("test").spanBuilder("client").setAttribute(KEY, "value").startSpan();
+  }
+
+  static class CollectingSpanProcessor implements SpanProcessor {
+    final List<SpanData> spans = new ArrayList<>();
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {}
+
+    @Override
+    public boolean isStartRequired() {
+      return false;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+      spans.add(span.toSpanData());
+    }
+
+    @Override
+    public boolean isEndRequired() {
+      return true;
+    }
+  }
+}
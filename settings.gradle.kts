@@ -40,6 +40,8 @@ include("instrumentation:jaxrs-client-2.0")
 findProject(":instrumentation:jaxrs-client-2.0")?.name = "jaxrs-client-2.0"
 include("instrumentation:java-streams")
 findProject(":instrumentation:java-streams")?.name = "java-streams"
+include("instrumentation:type-matchers")
+findProject(":instrumentation:type-matchers")?.name = "type-matchers"
 include("instrumentation:apache-httpasyncclient-4.1")
 findProject(":instrumentation:apache-httpasyncclient-4.1")?.name = "apache-httpasyncclient-4.1"
 include("instrumentation:vertx:vertx-web-3.0")
@@ -54,6 +56,8 @@ include("instrumentation:micronaut-1.0")
 findProject(":instrumentation:micronaut-1.0")?.name = "micronaut-1.0"
 include("instrumentation:micronaut-3.0")
 findProject(":instrumentation:micronaut-3.0")?.name = "micronaut-3.0"
+include("instrumentation:servlet:servlet-common")
+findProject(":instrumentation:servlet:servlet-common")?.name = "servlet-common"
 include("instrumentation:servlet:servlet-3.0")
 findProject(":instrumentation:servlet:servlet-3.0")?.name = "servlet-3.0"
 include("instrumentation:servlet:servlet-rw")
@@ -69,3 +73,4 @@ findProject(":instrumentation:undertow:undertow-servlet-1.4")?.name = "undertow-
 include("tests-extension")
 include("instrumentation:servlet:servlet-5.0")
 findProject(":instrumentation:servlet:servlet-5.0")?.name = "servlet-5.0"
+include("javaagent-benchmarks")
@@ -9,6 +9,13 @@ apply {
 
 val versions: Map<String, String> by extra
 
+sourceSets {
+    create("overhead")
+}
+
+val overheadImplementation by configurations.getting
+val overheadRuntimeOnly by configurations.getting
+
 dependencies{
     testImplementation(project(":testing-common"))
     testImplementation(project(":javaagent-core"))
@@ -27,6 +34,53 @@ dependencies{
     testImplementation("com.fasterxml.jackson.core:jackson-databind:2.16.0")
     testImplementation("org.codehaus.groovy:groovy-all:2.5.11")
     testImplementation("io.opentelemetry.semconv:opentelemetry-semconv:${versions["opentelemetry_semconv"]}")
+
+    overheadImplementation(project(":testing-common"))
+    overheadImplementation("io.opentelemetry.proto:opentelemetry-proto:${versions["opentelemetry_proto"]}")
+    overheadImplementation("io.grpc:grpc-core:1.36.1")
+    overheadImplementation("io.grpc:grpc-stub:1.36.1")
+    overheadImplementation("io.grpc:grpc-protobuf:1.36.1")
+    overheadRuntimeOnly("io.grpc:grpc-netty-shaded:1.36.1")
+    overheadImplementation("io.netty:netty-codec-http:4.1.100.Final")
+    overheadImplementation("com.fasterxml.jackson.core:jackson-databind:2.16.0")
+}
+
+/*
+ * End-to-end agent overhead: runs the HTTP (Jetty servlet), gRPC and Netty apps of the overhead
+ * source set in a separate JVM without the agent, with OpenTelemetry instrumentation only and with
+ * the Hypertrace agent with and without body capture, and writes p50/p99 latency, throughput,
+ * allocation rate and startup time to build/reports/overhead/overhead-report.json.
+ *
+ *   ./gradlew :smoke-tests:overheadBenchmark -PoverheadWorkloads=http -PoverheadRate=1000
+ */
+tasks.register<JavaExec>("overheadBenchmark") {
+    group = "verification"
+    description = "Measures the agent overhead of local HTTP, gRPC and Netty workloads."
+    classpath = sourceSets["overhead"].runtimeClasspath
+    mainClass.set("org.hypertrace.agent.overhead.OverheadBenchmark")
+
+    val shadowTask : Jar = project(":javaagent").tasks.named<Jar>("shadowJar").get()
+    inputs.files(layout.files(shadowTask))
+    val report = layout.buildDirectory.file("reports/overhead/overhead-report.json")
+    outputs.file(report)
+    outputs.upToDateWhen { false }
+
+    doFirst {
+        systemProperty("overhead.javaagent.path", shadowTask.archiveFile.get().asFile.absolutePath)
+        systemProperty("overhead.report", report.get().asFile.absolutePath)
+        mapOf(
+            "overheadWorkloads" to "overhead.workloads",
+            "overheadModes" to "overhead.modes",
+            "overheadRate" to "overhead.rate",
+            "overheadWarmupSeconds" to "overhead.warmup.seconds",
+            "overheadDurationSeconds" to "overhead.duration.seconds",
+            "overheadBodySize" to "overhead.body.size",
+            "overheadConcurrency" to "overhead.concurrency",
+            "overheadTargetJvmArgs" to "overhead.target.jvm.args"
+        ).forEach { (gradleName, propertyName) ->
+            findProperty(gradleName)?.let { systemProperty(propertyName, it) }
+        }
+    }
 }
 
 tasks.test {
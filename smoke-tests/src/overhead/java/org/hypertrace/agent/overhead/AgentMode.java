@@ -0,0 +1,67 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hypertrace.agent.overhead;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** JVM configurations compared by {@link OverheadBenchmark}. */
+enum AgentMode {
+  /** No agent. */
+  NONE,
+  /** The agent with all Hypertrace instrumentations disabled, i.e. OpenTelemetry only. */
+  OTEL,
+  /** The full Hypertrace agent capturing headers but no bodies. */
+  HYPERTRACE_NO_BODY,
+  /** The full Hypertrace agent capturing headers and bodies. */
+  HYPERTRACE_BODY;
+
+  List<String> jvmArgs(String agentPath, int otlpPort) {
+    if (this == NONE) {
+      return Collections.emptyList();
+    }
+    List<String> args =
+        new ArrayList<>(
+            Arrays.asList(
+                "-javaagent:" + agentPath,
+                "-Dht.service.name=overhead-benchmark",
+                "-Dotel.exporter.otlp.protocol=http/protobuf",
+                "-Dotel.exporter.otlp.traces.endpoint=http://localhost:" + otlpPort + "/v1/traces",
+                "-Dotel.metrics.exporter=none",
+                "-Dotel.logs.exporter=none"));
+    switch (this) {
+      case OTEL:
+        args.add("-Dotel.instrumentation.ht.enabled=false");
+        break;
+      case HYPERTRACE_NO_BODY:
+        args.addAll(bodyCapture(false));
+        break;
+      default:
+        args.addAll(bodyCapture(true));
+    }
+    return args;
+  }
+
+  private static List<String> bodyCapture(boolean enabled) {
+    return Arrays.asList(
+        "-Dht.data.capture.http.body.request=" + enabled,
+        "-Dht.data.capture.http.body.response=" + enabled,
+        "-Dht.data.capture.rpc.body.request=" + enabled,
+        "-Dht.data.capture.rpc.body.response=" + enabled);
+  }
+}
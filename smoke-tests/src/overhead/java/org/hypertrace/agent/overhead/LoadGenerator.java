@@ -0,0 +1,103 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hypertrace.agent.overhead;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests at a fixed rate regardless of how fast they complete.
+ *
+ * <p>Latency is measured from the time a request was scheduled to be sent, not from when a worker
+ * picked it up, so a slow server is not hidden by fewer requests being sent (coordinated omission).
+ */
+final class LoadGenerator {
+
+  static final class Result {
+    final int requests;
+    final int errors;
+    final double throughputPerSecond;
+    final double p50Millis;
+    final double p99Millis;
+    final double maxMillis;
+
+    Result(int requests, int errors, double throughputPerSecond, long[] sortedLatencyNanos) {
+      this.requests = requests;
+      this.errors = errors;
+      this.throughputPerSecond = throughputPerSecond;
+      this.p50Millis = percentileMillis(sortedLatencyNanos, 0.5);
+      this.p99Millis = percentileMillis(sortedLatencyNanos, 0.99);
+      this.maxMillis = percentileMillis(sortedLatencyNanos, 1);
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+      if (sorted.length == 0) {
+        return 0;
+      }
+      int index = (int) Math.ceil(percentile * sorted.length) - 1;
+      return sorted[Math.max(index, 0)] / 1e6;
+    }
+  }
+
+  private LoadGenerator() {}
+
+  static Result run(Workload.Client client, int ratePerSecond, long durationMillis, int concurrency)
+      throws InterruptedException {
+    int requests = (int) (ratePerSecond * durationMillis / 1000);
+    long intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+    long[] latencies = new long[requests];
+    AtomicInteger completed = new AtomicInteger();
+    AtomicInteger errors = new AtomicInteger();
+    ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+
+    long start = System.nanoTime();
+    for (int i = 0; i < requests; i++) {
+      long intendedStart = start + i * intervalNanos;
+      long wait = intendedStart - System.nanoTime();
+      if (wait > 0) {
+        LockSupport.parkNanos(wait);
+      }
+      int index = i;
+      workers.execute(
+          () -> {
+            try {
+              client.call();
+            } catch (Exception e) {
+              errors.incrementAndGet();
+            }
+            latencies[index] = System.nanoTime() - intendedStart;
+            completed.incrementAndGet();
+          });
+    }
+    workers.shutdown();
+    if (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+      workers.shutdownNow();
+    }
+    long elapsedNanos = System.nanoTime() - start;
+
+    int done = completed.get();
+    long[] sorted = Arrays.copyOf(latencies, requests);
+    Arrays.sort(sorted);
+    // requests that did not complete have no latency and sort first
+    long[] measured = Arrays.copyOfRange(sorted, requests - done, requests);
+    return new Result(
+        requests, errors.get() + requests - done, done * 1e9 / elapsedNanos, measured);
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hypertrace.agent.overhead;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.hypertrace.agent.testing.TestOtlpReceiver;
+
+/**
+ * Measures the agent overhead per workload by running {@link TargetApp} in a separate JVM for every
+ * {@link AgentMode} and driving it with a fixed request rate from this JVM.
+ *
+ * <p>Everything runs on the local machine, spans are exported to a {@link TestOtlpReceiver} that
+ * discards them. The report is written as JSON, see {@code smoke-tests/build.gradle.kts} for the
+ * {@code overheadBenchmark} task and its parameters.
+ */
+public class OverheadBenchmark {
+
+  private static final String PREFIX = "overhead.";
+
+  private final String agentPath;
+  private final int rate;
+  private final long warmupMillis;
+  private final long durationMillis;
+  private final int bodySize;
+  private final int concurrency;
+  private final List<String> targetJvmArgs;
+
+  OverheadBenchmark(
+      String agentPath,
+      int rate,
+      long warmupMillis,
+      long durationMillis,
+      int bodySize,
+      int concurrency,
+      List<String> targetJvmArgs) {
+    this.agentPath = agentPath;
+    this.rate = rate;
+    this.warmupMillis = warmupMillis;
+    this.durationMillis = durationMillis;
+    this.bodySize = bodySize;
+    this.concurrency = concurrency;
+    this.targetJvmArgs = targetJvmArgs;
+  }
+
+  public static void main(String[] args) throws Exception {
+    String agentPath = System.getProperty(PREFIX + "javaagent.path");
+    if (agentPath == null || !new File(agentPath).isFile()) {
+      throw new IllegalStateException("Set overhead.javaagent.path to the agent jar");
+    }
+    OverheadBenchmark benchmark =
+        new OverheadBenchmark(
+            agentPath,
+            Integer.getInteger(PREFIX + "rate", 500),
+            TimeUnit.SECONDS.toMillis(Integer.getInteger(PREFIX + "warmup.seconds", 20)),
+            TimeUnit.SECONDS.toMillis(Integer.getInteger(PREFIX + "duration.seconds", 60)),
+            Integer.getInteger(PREFIX + "body.size", 1024),
+            Integer.getInteger(PREFIX + "concurrency", 32),
+            split(System.getProperty(PREFIX + "target.jvm.args", "-Xms512m -Xmx512m"), " "));
+    List<Workload> workloads = new ArrayList<>();
+    for (String workload :
+        split(System.getProperty(PREFIX + "workloads", "http,grpc,netty"), ",")) {
+      workloads.add(Workload.valueOf(workload.toUpperCase()));
+    }
+    List<AgentMode> modes = new ArrayList<>();
+    for (String mode :
+        split(
+            System.getProperty(PREFIX + "modes", "none,otel,hypertrace_no_body,hypertrace_body"),
+            ",")) {
+      modes.add(AgentMode.valueOf(mode.toUpperCase()));
+    }
+    File report = new File(System.getProperty(PREFIX + "report", "overhead-report.json"));
+
+    ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    ObjectNode root = mapper.createObjectNode();
+    root.set("config", benchmark.config(mapper));
+    ArrayNode results = root.putArray("results");
+    try (TestOtlpReceiver receiver = new TestOtlpReceiver(false)) {
+      receiver.start();
+      for (Workload workload : workloads) {
+        for (AgentMode mode : modes) {
+          System.out.println("Running " + workload + " with " + mode);
+          results.add(benchmark.run(mapper, workload, mode, receiver.port()));
+        }
+      }
+    }
+    File parent = report.getAbsoluteFile().getParentFile();
+    if (!parent.isDirectory() && !parent.mkdirs()) {
+      throw new IOException("Could not create " + parent);
+    }
+    mapper.writeValue(report, root);
+    System.out.println("Overhead report written to " + report.getAbsolutePath());
+    System.exit(0);
+  }
+
+  private ObjectNode config(ObjectMapper mapper) {
+    ObjectNode config = mapper.createObjectNode();
+    config.put("agent", agentPath);
+    config.put("ratePerSecond", rate);
+    config.put("warmupMillis", warmupMillis);
+    config.put("durationMillis", durationMillis);
+    config.put("bodySizeBytes", bodySize);
+    config.put("concurrency", concurrency);
+    config.put("targetJvmArgs", String.join(" ", targetJvmArgs));
+    config.put("javaVersion", System.getProperty("java.version"));
+    config.put("processors", Runtime.getRuntime().availableProcessors());
+    return config;
+  }
+
+  ObjectNode run(ObjectMapper mapper, Workload workload, AgentMode mode, int otlpPort)
+      throws Exception {
+    List<String> command = new ArrayList<>();
+    command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+    command.addAll(targetJvmArgs);
+    command.addAll(mode.jvmArgs(agentPath, otlpPort));
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(TargetApp.class.getName());
+    command.add(workload.name());
+
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    BlockingQueue<String[]> replies = new LinkedBlockingQueue<>();
+    Thread outputReader = new Thread(() -> readOutput(process, replies), "target-output");
+    outputReader.setDaemon(true);
+    outputReader.start();
+    try (PrintWriter commands =
+        new PrintWriter(
+            new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8), true)) {
+      String[] ready = awaitReply(replies, "READY", TimeUnit.MINUTES.toMillis(2));
+      int port = Integer.parseInt(ready[1]);
+      long startupMillis = Long.parseLong(ready[2]);
+
+      try (Workload.Client client = workload.client(port, bodySize, concurrency)) {
+        LoadGenerator.run(client, rate, warmupMillis, concurrency);
+        commands.println("STATS");
+        String[] before = awaitReply(replies, "STATS", TimeUnit.SECONDS.toMillis(30));
+        LoadGenerator.Result result = LoadGenerator.run(client, rate, durationMillis, concurrency);
+        commands.println("STATS");
+        String[] after = awaitReply(replies, "STATS", TimeUnit.SECONDS.toMillis(30));
+
+        long allocatedBytes = Long.parseLong(after[1]) - Long.parseLong(before[1]);
+        ObjectNode node = mapper.createObjectNode();
+        node.put("workload", workload.name().toLowerCase());
+        node.put("mode", mode.name().toLowerCase());
+        node.put("startupMillis", startupMillis);
+        node.put("requests", result.requests);
+        node.put("errors", result.errors);
+        node.put("throughputPerSecond", result.throughputPerSecond);
+        node.put("p50Millis", result.p50Millis);
+        node.put("p99Millis", result.p99Millis);
+        node.put("maxMillis", result.maxMillis);
+        node.put("allocationBytesPerSecond", allocatedBytes * 1000.0 / durationMillis);
+        node.put(
+            "allocationBytesPerRequest",
+            result.requests == 0 ? 0 : allocatedBytes / (double) result.requests);
+        node.put("gcCount", Long.parseLong(after[2]) - Long.parseLong(before[2]));
+        node.put("gcMillis", Long.parseLong(after[3]) - Long.parseLong(before[3]));
+        commands.println("EXIT");
+        return node;
+      }
+    } finally {
+      if (!process.waitFor(30, TimeUnit.SECONDS)) {
+        process.destroyForcibly();
+      }
+    }
+  }
+
+  /**
+   * Forwards the target output and queues the replies to commands. The output has to be drained
+   * continuously, the target blocks once the pipe buffer is full.
+   */
+  private static void readOutput(Process process, BlockingQueue<String[]> replies) {
+    try (BufferedReader output =
+        new BufferedReader(
+            new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = output.readLine()) != null) {
+        if (line.startsWith("READY ") || line.startsWith("STATS ")) {
+          replies.add(line.split(" "));
+        } else {
+          System.out.println("[target] " + line);
+        }
+      }
+    } catch (IOException e) {
+      // the target exited
+    }
+  }
+
+  private static String[] awaitReply(
+      BlockingQueue<String[]> replies, String reply, long timeoutMillis)
+      throws IOException, InterruptedException {
+    String[] line = replies.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+    if (line == null || !line[0].equals(reply)) {
+      throw new IOException("Target did not reply with " + reply);
+    }
+    return line;
+  }
+
+  private static List<String> split(String value, String separator) {
+    List<String> values = new ArrayList<>();
+    for (String part : value.split(separator)) {
+      if (!part.trim().isEmpty()) {
+        values.add(part.trim());
+      }
+    }
+    return values;
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hypertrace.agent.overhead;
+
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.opentelemetry.proto.collector.trace.v1.ExportTraceServiceRequest;
+import io.opentelemetry.proto.collector.trace.v1.ExportTraceServiceResponse;
+import io.opentelemetry.proto.collector.trace.v1.TraceServiceGrpc;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import org.hypertrace.agent.testing.TestHttpServer;
+
+/**
+ * Application under test, started in a separate JVM by {@link OverheadBenchmark} with or without
+ * the agent.
+ *
+ * <p>The application prints {@code READY <port> <jvm uptime millis>} once the server accepts
+ * requests and then answers the commands {@code STATS} with {@code STATS <allocated bytes> <gc
+ * count> <gc millis>} and {@code EXIT} read from stdin.
+ */
+public class TargetApp {
+
+  public static void main(String[] args) throws Exception {
+    AutoCloseable server;
+    int port;
+    switch (Workload.valueOf(args[0])) {
+      case HTTP:
+        TestHttpServer httpServer = new TestHttpServer();
+        httpServer.start();
+        server = httpServer;
+        port = httpServer.port();
+        break;
+      case GRPC:
+        Server grpcServer = ServerBuilder.forPort(0).addService(new EchoTraceService()).build();
+        grpcServer.start();
+        server = grpcServer::shutdownNow;
+        port = grpcServer.getPort();
+        break;
+      case NETTY:
+        EventLoopGroup group = new NioEventLoopGroup();
+        Channel channel = startNettyServer(group);
+        server = group::shutdownGracefully;
+        port = ((InetSocketAddress) channel.localAddress()).getPort();
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown workload " + args[0]);
+    }
+    System.out.println("READY " + port + " " + ManagementFactory.getRuntimeMXBean().getUptime());
+    System.out.flush();
+
+    BufferedReader commands =
+        new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+    String command;
+    while ((command = commands.readLine()) != null && !command.equals("EXIT")) {
+      if (command.equals("STATS")) {
+        System.out.println(stats());
+        System.out.flush();
+      }
+    }
+    server.close();
+    System.exit(0);
+  }
+
+  private static String stats() {
+    long gcCount = 0;
+    long gcMillis = 0;
+    for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      gcCount += Math.max(gcBean.getCollectionCount(), 0);
+      gcMillis += Math.max(gcBean.getCollectionTime(), 0);
+    }
+    return "STATS " + allocatedBytes() + " " + gcCount + " " + gcMillis;
+  }
+
+  /** Bytes allocated by live threads, the servers use long-lived thread pools. */
+  private static long allocatedBytes() {
+    java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+      return -1;
+    }
+    com.sun.management.ThreadMXBean sunThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+    long total = 0;
+    for (long bytes : sunThreadBean.getThreadAllocatedBytes(threadBean.getAllThreadIds())) {
+      total += Math.max(bytes, 0);
+    }
+    return total;
+  }
+
+  private static Channel startNettyServer(EventLoopGroup group) throws InterruptedException {
+    return new ServerBootstrap()
+        .group(group)
+        .channel(NioServerSocketChannel.class)
+        .childHandler(
+            new ChannelInitializer<SocketChannel>() {
+              @Override
+              protected void initChannel(SocketChannel ch) {
+                ch.pipeline()
+                    .addLast(new HttpServerCodec())
+                    .addLast(new HttpObjectAggregator(1024 * 1024))
+                    .addLast(new NettyEchoHandler());
+              }
+            })
+        .bind(0)
+        .sync()
+        .channel();
+  }
+
+  static class NettyEchoHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+      ByteBuf content = request.content().retain();
+      FullHttpResponse response =
+          new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, content);
+      String contentType = request.headers().get(HttpHeaderNames.CONTENT_TYPE);
+      if (contentType != null) {
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, contentType);
+      }
+      HttpUtil.setContentLength(response, content.readableBytes());
+      if (HttpUtil.isKeepAlive(request)) {
+        ctx.writeAndFlush(response);
+      } else {
+        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+      }
+    }
+  }
+
+  static class EchoTraceService extends TraceServiceGrpc.TraceServiceImplBase {
+    @Override
+    public void export(
+        ExportTraceServiceRequest request,
+        StreamObserver<ExportTraceServiceResponse> responseObserver) {
+      responseObserver.onNext(ExportTraceServiceResponse.getDefaultInstance());
+      responseObserver.onCompleted();
+    }
+  }
+
+  private TargetApp() {}
+}
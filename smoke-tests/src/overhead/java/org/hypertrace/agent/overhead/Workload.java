@@ -0,0 +1,139 @@
+/*
+ * Copyright The Hypertrace Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hypertrace.agent.overhead;
+
+import com.google.protobuf.ByteString;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.opentelemetry.proto.collector.trace.v1.ExportTraceServiceRequest;
+import io.opentelemetry.proto.collector.trace.v1.TraceServiceGrpc;
+import io.opentelemetry.proto.trace.v1.ResourceSpans;
+import io.opentelemetry.proto.trace.v1.ScopeSpans;
+import io.opentelemetry.proto.trace.v1.Span;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import okhttp3.ConnectionPool;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/** Server workloads of {@link TargetApp} and the clients that drive them. */
+enum Workload {
+  /** Jetty servlet server of testing-common, {@code POST /echo}. */
+  HTTP,
+  /** gRPC server with a unary echo method. */
+  GRPC,
+  /** Netty 4.1 HTTP server echoing the request body. */
+  NETTY;
+
+  /** Sends one request, implementations must be thread safe. */
+  interface Client extends AutoCloseable {
+    void call() throws Exception;
+
+    @Override
+    void close();
+  }
+
+  Client client(int port, int bodySize, int concurrency) {
+    return this == GRPC
+        ? new GrpcClient(port, bodySize)
+        : new HttpClient(port, bodySize, concurrency);
+  }
+
+  private static final class HttpClient implements Client {
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    private final OkHttpClient client;
+    private final Request request;
+
+    HttpClient(int port, int bodySize, int concurrency) {
+      this.client =
+          new OkHttpClient.Builder()
+              .connectionPool(new ConnectionPool(concurrency, 1, TimeUnit.MINUTES))
+              .readTimeout(30, TimeUnit.SECONDS)
+              .build();
+      this.request =
+          new Request.Builder()
+              .url("http://localhost:" + port + "/echo")
+              .post(RequestBody.create(jsonBody(bodySize), JSON))
+              .build();
+    }
+
+    @Override
+    public void call() throws IOException {
+      try (Response response = client.newCall(request).execute()) {
+        if (response.code() != 200) {
+          throw new IOException("Unexpected status " + response.code());
+        }
+        response.body().bytes();
+      }
+    }
+
+    @Override
+    public void close() {
+      client.dispatcher().executorService().shutdown();
+      client.connectionPool().evictAll();
+    }
+
+    private static byte[] jsonBody(int bodySize) {
+      byte[] body = new byte[Math.max(bodySize, 12)];
+      Arrays.fill(body, (byte) 'x');
+      byte[] prefix = "{\"body\":\"".getBytes();
+      System.arraycopy(prefix, 0, body, 0, prefix.length);
+      body[body.length - 2] = '"';
+      body[body.length - 1] = '}';
+      return body;
+    }
+  }
+
+  private static final class GrpcClient implements Client {
+    private final ManagedChannel channel;
+    private final TraceServiceGrpc.TraceServiceBlockingStub stub;
+    private final ExportTraceServiceRequest request;
+
+    GrpcClient(int port, int bodySize) {
+      this.channel = ManagedChannelBuilder.forAddress("localhost", port).usePlaintext().build();
+      this.stub = TraceServiceGrpc.newBlockingStub(channel);
+      byte[] traceId = new byte[16];
+      Arrays.fill(traceId, (byte) 1);
+      Span.Builder span = Span.newBuilder().setTraceId(ByteString.copyFrom(traceId));
+      // pad the message to roughly the body size
+      span.setName(new String(new char[Math.max(bodySize - 32, 1)]).replace('\0', 'x'));
+      this.request =
+          ExportTraceServiceRequest.newBuilder()
+              .addResourceSpans(
+                  ResourceSpans.newBuilder().addScopeSpans(ScopeSpans.newBuilder().addSpans(span)))
+              .build();
+    }
+
+    @Override
+    public void call() {
+      stub.withDeadlineAfter(30, TimeUnit.SECONDS).export(request);
+    }
+
+    @Override
+    public void close() {
+      try {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -49,14 +49,27 @@ public class TestOtlpReceiver implements AutoCloseable {
 
   private final Server server = new Server(4318);
   private final HandlerList handlerList = new HandlerList();
+  private final boolean retainTraces;
 
   private static final List<List<Span>> traces = new ArrayList<>(); // guarded by tracesLock
   private static final Object tracesLock = new Object();
 
+  public TestOtlpReceiver() {
+    this(true);
+  }
+
+  /**
+   * @param retainTraces false to acknowledge exported traces without parsing, printing or keeping
+   *     them, e.g. when the receiver is used under load
+   */
+  public TestOtlpReceiver(boolean retainTraces) {
+    this.retainTraces = retainTraces;
+  }
+
   public void start() throws Exception {
     HandlerList handlerList = new HandlerList();
     server.stop();
-    handlerList.addHandler(new OtlpTracesHandler());
+    handlerList.addHandler(new OtlpTracesHandler(retainTraces));
     server.setHandler(handlerList);
     System.out.println("Starting OTLP receiver");
     server.start();
@@ -76,6 +89,12 @@ public class TestOtlpReceiver implements AutoCloseable {
   }
 
   static class OtlpTracesHandler extends AbstractHandler {
+    private final boolean retainTraces;
+
+    OtlpTracesHandler(boolean retainTraces) {
+      this.retainTraces = retainTraces;
+    }
+
     @Override
     public void handle(
         String target,
@@ -88,6 +107,15 @@ public class TestOtlpReceiver implements AutoCloseable {
           && ("post".equalsIgnoreCase(request.getMethod())
               || "put".equalsIgnoreCase(request.getMethod()))) {
         ServletInputStream inputStream = request.getInputStream();
+        if (!retainTraces) {
+          byte[] discarded = new byte[8192];
+          while (inputStream.read(discarded) != -1) {
+            // drain the request
+          }
+          response.setStatus(200);
+          baseRequest.setHandled(true);
+          return;
+        }
         ByteArrayOutputStream buffer = new ByteArrayOutputStream();
         int nRead;
         while ((nRead = inputStream.read()) != -1) {